@@ -0,0 +1,123 @@
+package com.chikere.bp.bptracker.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.RiskOutputFormat;
+import com.chikere.bp.bptracker.repository.PatientReadingStatsRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.service.AIRiskAssessmentCache;
+import com.chikere.bp.bptracker.service.AIRiskAssessmentService;
+import com.chikere.bp.bptracker.service.PatientReadingStatsService;
+import com.chikere.bp.bptracker.support.FakeChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assesses one patient with {@link AIRiskAssessmentService} against a model that answers at once,
+ * so what is measured is the work around the model call: summarising a history of
+ * {@code historySize} readings, building the prompt, counting its tokens and parsing the answer
+ * as JSON or as text. The cached assessment is evicted before every call; {@code cachedAssessment}
+ * measures the cache hit instead. Repositories are mocks, see {@link PersistenceBenchmark} for the
+ * queries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AIRiskAssessmentBenchmark {
+
+    private static final String JSON_ANSWER =
+            "{\"riskLevel\":\"MILD_HYPERTENSIVE\",\"confidence\":0.8,\"rationale\":\"Readings average 148/92.\"}";
+    private static final String TEXT_ANSWER =
+            "The readings are mostly between 140 and 160 systolic with diastolic around 92.\nMILD_HYPERTENSIVE";
+
+    @Param({"JSON", "TEXT"})
+    private RiskOutputFormat format;
+
+    @Param({"30"})
+    private int historySize;
+
+    private final Patient patient = new Patient();
+    private AIRiskAssessmentCache cache;
+    private AIRiskAssessmentService service;
+
+    @Setup
+    public void setUp() {
+        // The service logs every prompt at info
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        patient.setId(new UUID(0, 1));
+        SplittableRandom random = new SplittableRandom(42);
+        List<Reading> history = new ArrayList<>(historySize);
+        LocalDateTime latest = LocalDateTime.of(2024, 6, 15, 8, 0);
+        for (int i = 0; i < historySize; i++) {
+            Reading reading = new Reading();
+            reading.setId(new UUID(1, i));
+            reading.setPatient(patient);
+            reading.setTimestamp(latest.minusHours(12L * i + random.nextInt(3)));
+            reading.setSystolic(135 + random.nextInt(30));
+            reading.setDiastolic(85 + random.nextInt(15));
+            reading.setHeartRate(60 + random.nextInt(30));
+            history.add(reading);
+        }
+        PatientRepository patientRepository = Mockito.mock(PatientRepository.class);
+        ReadingRepository readingRepository = Mockito.mock(ReadingRepository.class);
+        Mockito.when(patientRepository.findById(patient.getId())).thenReturn(Optional.of(patient));
+        Mockito.when(readingRepository.findAllByPatientOrderByTimestampDesc(patient)).thenReturn(history);
+        Mockito.when(readingRepository.findTop3ByPatientOrderByTimestampDesc(patient)).thenReturn(history.subList(0, 3));
+        Mockito.when(readingRepository.countByPatient(patient)).thenReturn(history.size());
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        cache = new AIRiskAssessmentCache(meterRegistry);
+        cache.init();
+        FakeChatModel model = new FakeChatModel(Duration.ZERO, format == RiskOutputFormat.JSON ? JSON_ANSWER : TEXT_ANSWER);
+        service = new AIRiskAssessmentService(patientRepository, readingRepository,
+                new PatientReadingStatsService(Mockito.mock(PatientReadingStatsRepository.class), readingRepository,
+                        patientRepository, meterRegistry), ChatClient.builder(model).build(),
+                meterRegistry.counter("ai.service.calls.success"), meterRegistry.counter("ai.service.calls.failure"),
+                meterRegistry, cache, new JTokkitTokenCountEstimator());
+        ReflectionTestUtils.setField(service, "outputFormat", format);
+    }
+
+    @Benchmark
+    public String assessment() {
+        cache.evictPatient(patient.getId());
+        // The answer is appended to the notes; keep them from growing across invocations
+        patient.setNotes(null);
+        return service.assessRiskWithAI(patient.getId());
+    }
+
+    @Benchmark
+    public String cachedAssessment() {
+        return service.assessRiskWithAI(patient.getId());
+    }
+}
@@ -0,0 +1,75 @@
+package com.chikere.bp.bptracker.benchmark;
+
+import com.chikere.bp.bptracker.alerts.AlertEngine;
+import com.chikere.bp.bptracker.alerts.AlertRule;
+import com.chikere.bp.bptracker.service.ReadingAlertService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records readings into {@link AlertEngine} with the built-in alert rules, as
+ * {@code ReadingAlertService} does on every reading write: readings arrive for random patients
+ * in time order, one every few minutes per patient, so windows are full once warmed up.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AlertEngineBenchmark {
+
+    private static final int READINGS = 1 << 16;
+
+    @Param({"1000", "100000"})
+    private int patients;
+
+    private AlertEngine engine;
+    private UUID[] patientIds;
+    private int[] patientIndexes;
+    private int[] systolic;
+    private int[] diastolic;
+    private long timestampMillis;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        engine = new AlertEngine(ReadingAlertService.DEFAULT_RULES.stream().map(AlertRule::parse).toList(), 32);
+        SplittableRandom random = new SplittableRandom(42);
+        patientIds = new UUID[patients];
+        for (int i = 0; i < patients; i++) {
+            patientIds[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        patientIndexes = new int[READINGS];
+        systolic = new int[READINGS];
+        diastolic = new int[READINGS];
+        for (int i = 0; i < READINGS; i++) {
+            patientIndexes[i] = random.nextInt(patients);
+            systolic[i] = (int) Math.round(135 + 25 * random.nextGaussian());
+            diastolic[i] = (int) Math.round(85 + 14 * random.nextGaussian());
+        }
+    }
+
+    @Benchmark
+    public AlertEngine.Outcome record() {
+        int i = next++ & (READINGS - 1);
+        // Spread readings so each patient gets one every few minutes on average
+        timestampMillis += Duration.ofMinutes(5).toMillis() / patients + 1;
+        return engine.record(patientIds[patientIndexes[i]], new UUID(timestampMillis, i), timestampMillis,
+                systolic[i], diastolic[i], 70);
+    }
+}
@@ -0,0 +1,83 @@
+package com.chikere.bp.bptracker.benchmark;
+
+import com.chikere.bp.bptracker.rules.CompiledRiskClassifier;
+import com.chikere.bp.bptracker.rules.RiskRuleSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifies arrays of readings with {@link CompiledRiskClassifier}: one table lookup per reading,
+ * the scalar and vectorized bulk ranges on one thread, and {@code classifyAll}, which also splits
+ * large arrays across cores.
+ * <p>
+ * Run with the {@code benchmark} profile, which enables {@code jdk.incubator.vector}; without it
+ * the vectorized variants measure the scalar fallback.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkRiskClassificationBenchmark {
+
+    @Param({"4096", "1048576"})
+    private int readings;
+
+    private int[] systolic;
+    private int[] diastolic;
+    private byte[] levels;
+    private CompiledRiskClassifier classifier;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        systolic = new int[readings];
+        diastolic = new int[readings];
+        levels = new byte[readings];
+        for (int i = 0; i < readings; i++) {
+            systolic[i] = (int) Math.round(135 + 25 * random.nextGaussian());
+            diastolic[i] = (int) Math.round(85 + 14 * random.nextGaussian());
+        }
+        classifier = CompiledRiskClassifier.compile(RiskRuleSet.DEFAULT);
+    }
+
+    @Benchmark
+    public byte[] perReading() {
+        for (int i = 0; i < readings; i++) {
+            levels[i] = (byte) classifier.classify(systolic[i], diastolic[i]).ordinal();
+        }
+        return levels;
+    }
+
+    @Benchmark
+    public byte[] scalarRange() {
+        classifier.classifyRange(systolic, diastolic, levels, 0, readings, false);
+        return levels;
+    }
+
+    @Benchmark
+    public byte[] vectorRange() {
+        classifier.classifyRange(systolic, diastolic, levels, 0, readings, true);
+        return levels;
+    }
+
+    @Benchmark
+    public byte[] classifyAll() {
+        classifier.classifyAll(systolic, diastolic, levels);
+        return levels;
+    }
+}
@@ -0,0 +1,85 @@
+package com.chikere.bp.bptracker.benchmark;
+
+import com.chikere.bp.bptracker.analytics.CircadianMetrics;
+import com.chikere.bp.bptracker.analytics.CircadianMetricsTask;
+import com.chikere.bp.bptracker.analytics.PatientSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the circadian metrics of a month of 10M readings, 100 for each of 100,000 patients,
+ * as {@code CircadianAnalyticsService} does once the readings are read: with a fork/join pool of
+ * {@code parallelism} workers (0 for one per available processor) over partitions of 32 patients.
+ * Compare parallelism 1 with the default to see the speedup on the machine at hand.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CircadianAnalyticsBenchmark {
+
+    private static final int PATIENTS = 100_000;
+    private static final int READINGS_PER_PATIENT = 100;
+    private static final int MINUTES_PER_MONTH = 30 * 24 * 60;
+
+    @Param({"1", "0"})
+    private int parallelism;
+
+    private List<PatientSeries> series;
+    private ForkJoinPool pool;
+    private final CircadianMetrics.TargetRange target = new CircadianMetrics.TargetRange(110, 130);
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        series = new ArrayList<>(PATIENTS);
+        for (int p = 0; p < PATIENTS; p++) {
+            long[] minutes = new long[READINGS_PER_PATIENT];
+            int[] systolic = new int[READINGS_PER_PATIENT];
+            int[] diastolic = new int[READINGS_PER_PATIENT];
+            int baseline = 110 + random.nextInt(50);
+            for (int i = 0; i < READINGS_PER_PATIENT; i++) {
+                // Evenly spread over the month with some jitter, lower at night
+                minutes[i] = (long) i * MINUTES_PER_MONTH / READINGS_PER_PATIENT + random.nextInt(60);
+                int hour = (int) (minutes[i] / 60 % 24);
+                int dip = hour < 6 ? 12 : 0;
+                systolic[i] = (int) Math.round(baseline - dip + 10 * random.nextGaussian());
+                diastolic[i] = (int) Math.round(baseline * 0.62 - dip / 2.0 + 7 * random.nextGaussian());
+            }
+            series.add(new PatientSeries(new UUID(p, p), minutes, systolic, diastolic));
+        }
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public CircadianMetrics[] computeMonth() {
+        CircadianMetrics[] results = new CircadianMetrics[series.size()];
+        pool.invoke(new CircadianMetricsTask(series, results, 32, target));
+        return results;
+    }
+}
@@ -0,0 +1,121 @@
+package com.chikere.bp.bptracker.benchmark;
+
+import com.chikere.bp.bptracker.dto.PatientDTO;
+import com.chikere.bp.bptracker.dto.ReadingDto;
+import com.chikere.bp.bptracker.mapper.PatientMapper;
+import com.chikere.bp.bptracker.mapper.PatientMapperImpl;
+import com.chikere.bp.bptracker.mapper.ReadingMapper;
+import com.chikere.bp.bptracker.mapper.ReadingMapperImpl;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.Arm;
+import com.chikere.bp.bptracker.model.enums.BodyPosition;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps readings and patients between entities and DTOs with the generated MapStruct mappers, as
+ * every API and page does. Both directions format or parse the timestamps as text, which is most
+ * of the cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private static final int ENTITIES = 1024;
+
+    private final ReadingMapper readingMapper = new ReadingMapperImpl();
+    private final PatientMapper patientMapper = new PatientMapperImpl();
+
+    private final Reading[] readings = new Reading[ENTITIES];
+    private final ReadingDto[] readingDtos = new ReadingDto[ENTITIES];
+    private final Patient[] patients = new Patient[ENTITIES];
+    private final PatientDTO[] patientDtos = new PatientDTO[ENTITIES];
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < ENTITIES; i++) {
+            Patient patient = new Patient();
+            patient.setId(new UUID(i, i));
+            patient.setFullName("Patient " + i);
+            patient.setGender(Gender.values()[random.nextInt(Gender.values().length)]);
+            patient.setBirthDate(LocalDate.of(1940, 1, 1).plusDays(random.nextInt(60 * 365)));
+            patient.setAddress(i + " High Street");
+            patient.setPhone("0123 456 " + i);
+            patient.setKnownConditions(random.nextBoolean() ? "Hypertension" : null);
+            patient.setRegisteredAt(start.plusMinutes(random.nextInt(500_000)));
+            patients[i] = patient;
+            patientDtos[i] = patientMapper.toDto(patient);
+
+            Reading reading = new Reading();
+            reading.setId(new UUID(i, -i));
+            reading.setPatient(patient);
+            reading.setTimestamp(start.plusMinutes(random.nextInt(500_000)));
+            reading.setSystolic(100 + random.nextInt(80));
+            reading.setDiastolic(60 + random.nextInt(50));
+            reading.setHeartRate(50 + random.nextInt(60));
+            reading.setBodyPosition(BodyPosition.values()[random.nextInt(BodyPosition.values().length)]);
+            reading.setArm(Arm.values()[random.nextInt(Arm.values().length)]);
+            reading.setDeviceId("cuff-" + random.nextInt(100));
+            reading.setRiskLevel(RiskLevel.values()[random.nextInt(RiskLevel.values().length)]);
+            readings[i] = reading;
+            readingDtos[i] = readingMapper.toDto(reading);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void readingToDto(Blackhole blackhole) {
+        for (Reading reading : readings) {
+            blackhole.consume(readingMapper.toDto(reading));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void readingDtoToEntity(Blackhole blackhole) {
+        for (ReadingDto dto : readingDtos) {
+            blackhole.consume(readingMapper.toEntity(dto));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void patientToDto(Blackhole blackhole) {
+        for (Patient patient : patients) {
+            blackhole.consume(patientMapper.toDto(patient));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void patientDtoToEntity(Blackhole blackhole) {
+        for (PatientDTO dto : patientDtos) {
+            blackhole.consume(patientMapper.toEntity(dto));
+        }
+    }
+}
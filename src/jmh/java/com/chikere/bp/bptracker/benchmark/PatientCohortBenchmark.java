@@ -0,0 +1,88 @@
+package com.chikere.bp.bptracker.benchmark;
+
+import com.chikere.bp.bptracker.cohort.PatientCohortIndex;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selects "female, 50-65, hypertensive, a reading in the last 30 days" from 1M patients, with
+ * the bitmap index and with a scan over the same attributes held as objects, which is the best
+ * a query joining patients to their latest reading could do without an index on every column.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class PatientCohortBenchmark {
+
+    private static final int PATIENTS = 1_000_000;
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+    private static final String[] CONDITIONS = {"Hypertension", "Diabetes", "Asthma", "CKD", "None"};
+
+    private record Attributes(Gender gender, LocalDate birthDate, String knownConditions, LocalDate latestReading) {
+    }
+
+    private final PatientCohortIndex index = new PatientCohortIndex();
+    private final List<Attributes> patients = new ArrayList<>(PATIENTS);
+    private final PatientCohortIndex.Filter filter = new PatientCohortIndex.Filter(Set.of(Gender.FEMALE), 50, 65,
+            Set.of("hypertension"), 30, TODAY);
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        Gender[] genders = Gender.values();
+        for (int p = 0; p < PATIENTS; p++) {
+            Gender gender = genders[random.nextInt(genders.length)];
+            LocalDate birthDate = TODAY.minusDays(18 * 365 + random.nextInt(70 * 365));
+            String conditions = random.nextInt(3) == 0
+                    ? CONDITIONS[random.nextInt(CONDITIONS.length)] + ", " + CONDITIONS[random.nextInt(CONDITIONS.length)]
+                    : CONDITIONS[random.nextInt(CONDITIONS.length)];
+            LocalDate latestReading = random.nextInt(10) == 0 ? null : TODAY.minusDays(random.nextInt(365));
+            UUID id = new UUID(p, p);
+            index.put(id, gender, birthDate, conditions);
+            index.setLatestReading(id, latestReading);
+            patients.add(new Attributes(gender, birthDate, conditions, latestReading));
+        }
+    }
+
+    @Benchmark
+    public int bitmapIndex() {
+        return index.match(filter).cardinality();
+    }
+
+    @Benchmark
+    public int scan() {
+        LocalDate bornAfter = TODAY.minusYears(66);
+        LocalDate bornBy = TODAY.minusYears(50);
+        LocalDate readingSince = TODAY.minusDays(30);
+        int count = 0;
+        for (Attributes patient : patients) {
+            if (patient.gender() == Gender.FEMALE
+                    && patient.birthDate().isAfter(bornAfter) && !patient.birthDate().isAfter(bornBy)
+                    && patient.latestReading() != null && !patient.latestReading().isBefore(readingSince)
+                    && List.of(PatientCohortIndex.conditions(patient.knownConditions())).contains("hypertension")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
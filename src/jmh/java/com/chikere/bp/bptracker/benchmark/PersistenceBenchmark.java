@@ -0,0 +1,138 @@
+package com.chikere.bp.bptracker.benchmark;
+
+import com.chikere.bp.bptracker.BptrackerApplication;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.service.ReadingService;
+import com.chikere.bp.bptracker.service.RiskRuleService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the reading queries behind the patient pages, the risk assessments and the worklist, and
+ * the CSV export of {@link ReadingService}, against the application started on an in-memory H2
+ * database holding 200 patients with 100 readings each. Each call takes the next patient in turn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    private static final int PATIENTS = 200;
+    private static final int READINGS_PER_PATIENT = 100;
+    private static final Set<RiskLevel> WORKLIST_LEVELS =
+            EnumSet.of(RiskLevel.MODERATE_HYPERTENSIVE, RiskLevel.SEVERE_HYPERTENSIVE);
+
+    private ConfigurableApplicationContext context;
+    private ReadingRepository readingRepository;
+    private ReadingService readingService;
+    private final List<Patient> patients = new ArrayList<>(PATIENTS);
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BptrackerApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("fake-llm")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.show-sql=false",
+                        "bptracker.sketches.rebuild-on-startup=false",
+                        "logging.level.root=WARN")
+                .run();
+        PatientRepository patientRepository = context.getBean(PatientRepository.class);
+        readingRepository = context.getBean(ReadingRepository.class);
+        readingService = context.getBean(ReadingService.class);
+        RiskRuleService riskRuleService = context.getBean(RiskRuleService.class);
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int p = 0; p < PATIENTS; p++) {
+            Patient patient = new Patient();
+            patient.setFullName("Patient " + p);
+            patient.setGender(Gender.values()[random.nextInt(Gender.values().length)]);
+            patient.setBirthDate(LocalDate.of(1940, 1, 1).plusDays(random.nextInt(60 * 365)));
+            patients.add(patientRepository.save(patient));
+            List<Reading> readings = new ArrayList<>(READINGS_PER_PATIENT);
+            int baseline = 110 + random.nextInt(60);
+            for (int i = 0; i < READINGS_PER_PATIENT; i++) {
+                Reading reading = new Reading();
+                reading.setPatient(patients.getLast());
+                reading.setSystolic(baseline + random.nextInt(20));
+                reading.setDiastolic((int) (baseline * 0.62) + random.nextInt(12));
+                reading.setHeartRate(55 + random.nextInt(40));
+                reading.setNotes(random.nextInt(10) == 0 ? "After \"coffee\", seated" : null);
+                reading.setRiskLevel(riskRuleService.classify(reading.getSystolic(), reading.getDiastolic()));
+                readings.add(reading);
+            }
+            readingRepository.saveAll(readings);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Reading> readingHistory() {
+        return readingRepository.findAllByPatientOrderByTimestampDesc(nextPatient());
+    }
+
+    @Benchmark
+    public List<Reading> latestReadings() {
+        return readingRepository.findTop3ByPatientOrderByTimestampDesc(nextPatient());
+    }
+
+    @Benchmark
+    public int readingCount() {
+        return readingRepository.countByPatient(nextPatient());
+    }
+
+    @Benchmark
+    public List<Reading> riskWorklist() {
+        LocalDateTime now = LocalDateTime.now();
+        return readingRepository.findByRiskLevels(WORKLIST_LEVELS, now.minusDays(30), now.plusDays(1), Limit.of(100));
+    }
+
+    @Benchmark
+    public String csvExport() {
+        return readingService.getAllReadingsForPatientAsCsv(nextPatient().getId());
+    }
+
+    private Patient nextPatient() {
+        Patient patient = patients.get(next);
+        next = (next + 1) % PATIENTS;
+        return patient;
+    }
+}
@@ -0,0 +1,113 @@
+package com.chikere.bp.bptracker.benchmark;
+
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.chikere.bp.bptracker.rules.CompiledRiskClassifier;
+import com.chikere.bp.bptracker.rules.RiskRuleSet;
+import com.chikere.bp.bptracker.service.RiskRuleService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifies a fixed set of readings with the original if/else threshold chain, the interpreted
+ * rule set, the compiled lookup table, and the lookup table through {@link RiskRuleService}.
+ * <p>
+ * Readings are drawn around 135/85 mmHg with a wide spread, so every level occurs and the branches
+ * of the chain are hard to predict, as with a real patient population.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RiskClassifierBenchmark {
+
+    private static final int READINGS = 4096;
+
+    private final int[] systolic = new int[READINGS];
+    private final int[] diastolic = new int[READINGS];
+    private CompiledRiskClassifier compiled;
+    private RiskRuleService riskRuleService;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < READINGS; i++) {
+            systolic[i] = (int) Math.round(135 + 25 * random.nextGaussian());
+            diastolic[i] = (int) Math.round(85 + 14 * random.nextGaussian());
+        }
+        compiled = CompiledRiskClassifier.compile(RiskRuleSet.DEFAULT);
+        riskRuleService = new RiskRuleService(new SimpleMeterRegistry(), new ObjectMapper());
+        ReflectionTestUtils.setField(riskRuleService, "rulesPath", Path.of("target", "no-risk-rules.json"));
+        riskRuleService.init();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void ifElseChain(Blackhole blackhole) {
+        for (int i = 0; i < READINGS; i++) {
+            blackhole.consume(chain(systolic[i], diastolic[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void interpretedRuleSet(Blackhole blackhole) {
+        for (int i = 0; i < READINGS; i++) {
+            blackhole.consume(RiskRuleSet.DEFAULT.evaluate(systolic[i], diastolic[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void compiledTable(Blackhole blackhole) {
+        for (int i = 0; i < READINGS; i++) {
+            blackhole.consume(compiled.classify(systolic[i], diastolic[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void compiledTableViaService(Blackhole blackhole) {
+        for (int i = 0; i < READINGS; i++) {
+            blackhole.consume(riskRuleService.classify(systolic[i], diastolic[i]));
+        }
+    }
+
+    /**
+     * The hard-coded thresholds {@code RuleBasedRiskService} used before they became a rule set.
+     */
+    private static RiskLevel chain(int systolic, int diastolic) {
+        if (systolic >= 180 || diastolic >= 110) {
+            return RiskLevel.SEVERE_HYPERTENSIVE;
+        }
+        if (systolic >= 160 || diastolic >= 100) {
+            return RiskLevel.MODERATE_HYPERTENSIVE;
+        }
+        if (systolic >= 140 || diastolic >= 90) {
+            return RiskLevel.MILD_HYPERTENSIVE;
+        }
+        if (systolic >= 80 && diastolic >= 80) {
+            return RiskLevel.NORMAL;
+        }
+        return RiskLevel.LOW;
+    }
+}
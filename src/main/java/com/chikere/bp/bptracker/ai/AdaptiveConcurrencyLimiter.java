@@ -0,0 +1,130 @@
+package com.chikere.bp.bptracker.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to the latency of the protected calls.
+ * <p>
+ * Two exponentially weighted averages of the call latency are tracked: a short one that follows
+ * current conditions and a long one that approximates the latency without queueing. Their ratio,
+ * the gradient, shrinks the limit as soon as calls get slower than usual and lets it grow again
+ * (by roughly the square root of the limit per adjustment) while latency stays at the baseline.
+ * Failed calls cut the limit multiplicatively. Calls above the limit are rejected immediately,
+ * so callers never queue behind a slow provider.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 500;
+    private static final double SMOOTHING = 0.2;
+    private static final double DROP_BACKOFF = 0.9;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile double limit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    private Counter rejectedCounter;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Registers the limit, in-flight and rejection meters under the given prefix.
+     */
+    public AdaptiveConcurrencyLimiter bindTo(MeterRegistry meterRegistry, String prefix) {
+        Gauge.builder(prefix + ".limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder(prefix + ".inflight", inflight, AtomicInteger::get)
+                .description("Calls currently in flight")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder(prefix + ".rejected")
+                .description("Calls rejected because the concurrency limit was reached")
+                .register(meterRegistry);
+        return this;
+    }
+
+    /**
+     * Takes an in-flight slot if the limit allows it. Every successful acquire must be followed
+     * by exactly one {@link #release(long, boolean)}.
+     *
+     * @return {@code true} if the call may proceed
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                if (rejectedCounter != null) {
+                    rejectedCounter.increment();
+                }
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an in-flight slot and feeds the call's latency into the limit.
+     *
+     * @param rttNanos The latency of the call
+     * @param dropped  Whether the call failed or timed out
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int inflightAtCompletion = inflight.getAndDecrement();
+        lock.lock();
+        try {
+            if (dropped) {
+                limit = Math.max(minLimit, limit * DROP_BACKOFF);
+                return;
+            }
+            if (longRttNanos == 0) {
+                shortRttNanos = rttNanos;
+                longRttNanos = rttNanos;
+                return;
+            }
+            shortRttNanos += (rttNanos - shortRttNanos) / SHORT_WINDOW;
+            longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+
+            // Let the baseline recover after a sustained latency shift instead of staying pessimistic
+            if (longRttNanos / shortRttNanos > 2) {
+                longRttNanos *= 0.95;
+            }
+
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRttNanos / shortRttNanos));
+            double newLimit = limit * gradient;
+            // Only probe for more capacity when the current limit is actually being used
+            if (inflightAtCompletion >= limit / 2) {
+                newLimit += Math.sqrt(limit);
+            }
+            newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
@@ -0,0 +1,279 @@
+package com.chikere.bp.bptracker.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Chat memory with hard bounds on what it keeps.
+ * <p>
+ * Each conversation keeps only its last {@code maxMessages} messages. Across all conversations
+ * the stored text is capped at {@code maxTotalChars}; once it is exceeded, the least recently
+ * used conversations are evicted first. Conversations that have not been used for
+ * {@code idleTimeout} are dropped on access and by a periodic sweep.
+ * </p>
+ */
+@Slf4j
+public class BoundedChatMemory implements ChatMemory {
+
+    private static final class Conversation {
+        private final ArrayDeque<Message> messages = new ArrayDeque<>();
+        private long chars;
+        private long lastAccessNanos;
+    }
+
+    private final int maxMessages;
+    private final long maxTotalChars;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Conversation> conversations = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalChars;
+    private int totalMessages;
+
+    private Counter lruEvictionCounter;
+    private Counter idleEvictionCounter;
+    private Counter trimmedCounter;
+
+    public BoundedChatMemory(int maxMessages, long maxTotalChars, Duration idleTimeout) {
+        this(maxMessages, maxTotalChars, idleTimeout, System::nanoTime);
+    }
+
+    BoundedChatMemory(int maxMessages, long maxTotalChars, Duration idleTimeout, LongSupplier nanoClock) {
+        this.maxMessages = maxMessages;
+        this.maxTotalChars = maxTotalChars;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Registers size and eviction meters under the given prefix.
+     */
+    public BoundedChatMemory bindTo(MeterRegistry meterRegistry, String prefix) {
+        Gauge.builder(prefix + ".conversations", this, BoundedChatMemory::conversationCount)
+                .description("Conversations currently held in chat memory")
+                .register(meterRegistry);
+        Gauge.builder(prefix + ".messages", this, memory -> memory.totalMessages)
+                .description("Messages currently held in chat memory")
+                .register(meterRegistry);
+        Gauge.builder(prefix + ".chars", this, memory -> memory.totalChars)
+                .description("Characters of message text currently held in chat memory")
+                .register(meterRegistry);
+        lruEvictionCounter = Counter.builder(prefix + ".evictions").tag("reason", "lru")
+                .description("Conversations evicted because chat memory was full")
+                .register(meterRegistry);
+        idleEvictionCounter = Counter.builder(prefix + ".evictions").tag("reason", "idle")
+                .description("Conversations evicted because they were idle")
+                .register(meterRegistry);
+        trimmedCounter = Counter.builder(prefix + ".trimmed")
+                .description("Messages dropped from the start of a conversation to keep it within its window")
+                .register(meterRegistry);
+        return this;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        lock.lock();
+        try {
+            Conversation conversation = conversations.computeIfAbsent(conversationId, id -> new Conversation());
+            conversation.lastAccessNanos = nanoClock.getAsLong();
+            for (Message message : messages) {
+                conversation.messages.addLast(message);
+                conversation.chars += length(message);
+                totalChars += length(message);
+                totalMessages++;
+            }
+            while (conversation.messages.size() > maxMessages) {
+                removeOldest(conversation);
+            }
+            evictLeastRecentlyUsed(conversation);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId, int lastN) {
+        lock.lock();
+        try {
+            Conversation conversation = conversations.get(conversationId);
+            if (conversation == null) {
+                return List.of();
+            }
+            long now = nanoClock.getAsLong();
+            if (now - conversation.lastAccessNanos >= idleTimeoutNanos) {
+                remove(conversationId, conversation);
+                increment(idleEvictionCounter);
+                return List.of();
+            }
+            conversation.lastAccessNanos = now;
+            List<Message> messages = new ArrayList<>(conversation.messages);
+            return messages.subList(Math.max(0, messages.size() - lastN), messages.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        lock.lock();
+        try {
+            Conversation conversation = conversations.get(conversationId);
+            if (conversation != null) {
+                remove(conversationId, conversation);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the oldest messages of a conversation with a single summary message.
+     * <p>
+     * Only the leading run of {@code folded} that is still at the start of the conversation is
+     * replaced, so messages trimmed or added by a concurrent request are left alone.
+     * </p>
+     *
+     * @param conversationId The conversation to compact
+     * @param folded The oldest messages, in order, that the summary stands for
+     * @param summary The message to put in their place
+     */
+    public void compact(String conversationId, List<Message> folded, Message summary) {
+        lock.lock();
+        try {
+            Conversation conversation = conversations.get(conversationId);
+            if (conversation == null) {
+                return;
+            }
+            int removed = 0;
+            for (Message message : folded) {
+                if (conversation.messages.peekFirst() != message) {
+                    break;
+                }
+                conversation.messages.removeFirst();
+                conversation.chars -= length(message);
+                totalChars -= length(message);
+                totalMessages--;
+                removed++;
+            }
+            if (removed > 0) {
+                conversation.messages.addFirst(summary);
+                conversation.chars += length(summary);
+                totalChars += length(summary);
+                totalMessages++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every conversation that has been idle for longer than the idle timeout.
+     *
+     * @return The number of conversations dropped
+     */
+    @Scheduled(fixedDelayString = "${bptracker.ai.chat-memory.sweep-interval:PT1M}")
+    public int evictIdle() {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            int evicted = 0;
+            Iterator<Conversation> iterator = conversations.values().iterator();
+            while (iterator.hasNext()) {
+                Conversation conversation = iterator.next();
+                if (now - conversation.lastAccessNanos >= idleTimeoutNanos) {
+                    iterator.remove();
+                    discount(conversation);
+                    evicted++;
+                }
+            }
+            if (evicted > 0) {
+                if (idleEvictionCounter != null) {
+                    idleEvictionCounter.increment(evicted);
+                }
+                log.debug("Evicted {} idle conversations from chat memory", evicted);
+            }
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int conversationCount() {
+        lock.lock();
+        try {
+            return conversations.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long totalChars() {
+        lock.lock();
+        try {
+            return totalChars;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictLeastRecentlyUsed(Conversation current) {
+        Iterator<Map.Entry<String, Conversation>> iterator = conversations.entrySet().iterator();
+        while (totalChars > maxTotalChars && iterator.hasNext()) {
+            Conversation eldest = iterator.next().getValue();
+            if (eldest == current) {
+                break;
+            }
+            iterator.remove();
+            discount(eldest);
+            increment(lruEvictionCounter);
+        }
+        // A single conversation larger than the whole budget keeps only its newest message
+        while (totalChars > maxTotalChars && current.messages.size() > 1) {
+            removeOldest(current);
+        }
+    }
+
+    private void removeOldest(Conversation conversation) {
+        Message oldest = conversation.messages.removeFirst();
+        conversation.chars -= length(oldest);
+        totalChars -= length(oldest);
+        totalMessages--;
+        increment(trimmedCounter);
+    }
+
+    private void remove(String conversationId, Conversation conversation) {
+        conversations.remove(conversationId);
+        discount(conversation);
+    }
+
+    private void discount(Conversation conversation) {
+        totalChars -= conversation.chars;
+        totalMessages -= conversation.messages.size();
+    }
+
+    private static int length(Message message) {
+        return message.getText() == null ? 0 : message.getText().length();
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.chikere.bp.bptracker.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker.
+ * <p>
+ * The outcomes of the last {@code slidingWindowSize} calls are kept in a ring buffer. Once at
+ * least {@code minimumCalls} outcomes are recorded and the failure rate reaches the threshold,
+ * the circuit opens and calls fail fast for {@code openDuration}. It then half-opens and lets
+ * {@code halfOpenCalls} trial calls through: if they all succeed the circuit closes, and any
+ * failure opens it again.
+ * </p>
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    private MeterRegistry meterRegistry;
+    private String prefix;
+    private Counter rejectedCounter;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                          Duration openDuration, int halfOpenCalls) {
+        this(name, failureRateThreshold, slidingWindowSize, minimumCalls, openDuration, halfOpenCalls, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, double failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                   Duration openDuration, int halfOpenCalls, LongSupplier nanoClock) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.outcomes = new boolean[slidingWindowSize];
+        this.minimumCalls = Math.min(minimumCalls, slidingWindowSize);
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Registers state, transition and rejection meters under the given prefix.
+     */
+    public CircuitBreaker bindTo(MeterRegistry meterRegistry, String prefix) {
+        this.meterRegistry = meterRegistry;
+        this.prefix = prefix;
+        for (State candidate : State.values()) {
+            Gauge.builder(prefix + ".state", this, breaker -> breaker.state == candidate ? 1 : 0)
+                    .description("1 if the circuit is in this state, 0 otherwise")
+                    .tag("state", candidate.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+        rejectedCounter = Counter.builder(prefix + ".rejected")
+                .description("Calls rejected because the circuit was open")
+                .register(meterRegistry);
+        return this;
+    }
+
+    /**
+     * Asks whether a call may proceed. A permitted call must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+     *
+     * @return {@code true} if the call may proceed
+     */
+    public boolean tryAcquirePermission() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openDurationNanos) {
+                transitionTo(State.HALF_OPEN);
+            }
+            boolean permitted = switch (state) {
+                case CLOSED -> true;
+                case OPEN -> false;
+                case HALF_OPEN -> {
+                    if (halfOpenPermitted < halfOpenCalls) {
+                        halfOpenPermitted++;
+                        yield true;
+                    }
+                    yield false;
+                }
+            };
+            if (!permitted && rejectedCounter != null) {
+                rejectedCounter.increment();
+            }
+            return permitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        record(false);
+    }
+
+    public void onFailure() {
+        record(true);
+    }
+
+    /**
+     * Releases a permission without an outcome, for example when the caller cancelled the call.
+     */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && halfOpenPermitted > 0) {
+                halfOpenPermitted--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                if (failure) {
+                    transitionTo(State.OPEN);
+                } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                    transitionTo(State.CLOSED);
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                // A call that started before the circuit opened
+                return;
+            }
+
+            if (recorded == outcomes.length) {
+                if (outcomes[next]) {
+                    failures--;
+                }
+            } else {
+                recorded++;
+            }
+            outcomes[next] = failure;
+            if (failure) {
+                failures++;
+            }
+            next = (next + 1) % outcomes.length;
+
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void transitionTo(State target) {
+        State previous = state;
+        state = target;
+        if (target == State.OPEN) {
+            openedAtNanos = nanoClock.getAsLong();
+        }
+        if (target == State.HALF_OPEN) {
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (target == State.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failures = 0;
+        }
+        log.warn("Circuit breaker '{}' changed from {} to {}", name, previous, target);
+        if (meterRegistry != null) {
+            meterRegistry.counter(prefix + ".transitions",
+                    "from", previous.name().toLowerCase(), "to", target.name().toLowerCase()).increment();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.chikere.bp.bptracker.ai;
+
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic, offline stand-in for the OpenAI chat model, used with the {@code fake-llm} profile
+ * to load-test the AI paths without an API key or network access.
+ * <p>
+ * Latency follows a log-normal distribution fitted to the configured median and p99. It is the
+ * time to the first token, after which tokens are generated at a fixed rate: streamed responses
+ * emit them as they come, and a blocking call returns once the last one has been generated, so
+ * longer answers take longer either way. A configurable fraction of calls fails after the
+ * latency has elapsed. Samples are drawn from a generator seeded with the configured seed and
+ * the call's sequence number, so a run with the same seed sees the same sequence of latencies
+ * and failures.
+ * </p>
+ * <p>
+ * Risk assessment prompts are answered with the level the rule-based thresholds give for the
+ * average of the readings in it, so downstream parsing and caching behave as with a real model.
+ * Prompts that ask for JSON get a compact JSON object; otherwise the level follows a few
+ * sentences of reasoning. Prompts covering several labelled patients get one JSON entry per
+ * patient. Any other prompt gets a canned general answer.
+ * </p>
+ */
+public class FakeLlmChatModel implements ChatModel {
+
+    private static final Pattern READING = Pattern.compile("Systolic: (\\d+), Diastolic: (\\d+)");
+    private static final Pattern PATIENT = Pattern.compile("Patient (P\\d+):");
+    private static final double P99_Z_SCORE = 2.326;
+
+    static final String CHAT_ANSWER = "A blood pressure reading has two numbers. The first, systolic, is the pressure "
+            + "when the heart beats and the second, diastolic, is the pressure between beats. Readings from "
+            + "140/90 upwards are considered high. Please discuss any concerns with your doctor.";
+
+    private final double mu;
+    private final double sigma;
+    private final Duration tokenInterval;
+    private final double errorRate;
+    private final long seed;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * @param latencyMedian Median latency (time to first token when streaming)
+     * @param latencyP99 99th percentile latency; equal to the median for a constant latency
+     * @param tokensPerSecond Streaming rate after the first token; 0 or less emits all tokens at once
+     * @param errorRate Fraction of calls that fail, between 0 and 1
+     * @param seed Seed for the latency and failure samples
+     */
+    public FakeLlmChatModel(Duration latencyMedian, Duration latencyP99, double tokensPerSecond, double errorRate, long seed) {
+        this.mu = Math.log(Math.max(1, latencyMedian.toNanos()));
+        this.sigma = Math.max(0, (Math.log(Math.max(1, latencyP99.toNanos())) - mu) / P99_Z_SCORE);
+        this.tokenInterval = tokensPerSecond > 0
+                ? Duration.ofNanos((long) (1_000_000_000L / tokensPerSecond))
+                : Duration.ZERO;
+        this.errorRate = errorRate;
+        this.seed = seed;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        Sample sample = nextSample();
+        String answer = answer(prompt.getContents());
+        try {
+            Thread.sleep(sample.latency().plus(tokenInterval.multipliedBy(tokens(answer).length - 1L)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating fake response", e);
+        }
+        if (sample.fails()) {
+            throw new IllegalStateException("Injected fake LLM failure");
+        }
+        return response(answer);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            Sample sample = nextSample();
+            if (sample.fails()) {
+                return Flux.<ChatResponse>error(new IllegalStateException("Injected fake LLM failure"))
+                        .delaySubscription(sample.latency());
+            }
+            Flux<String> tokens = Flux.fromArray(tokens(answer(prompt.getContents())));
+            if (!tokenInterval.isZero()) {
+                // The first token arrives after the sampled latency, the rest at the streaming rate
+                Duration untilFirstToken = sample.latency().minus(tokenInterval);
+                tokens = tokens.delayElements(tokenInterval)
+                        .delaySubscription(untilFirstToken.isNegative() ? Duration.ZERO : untilFirstToken);
+            } else {
+                tokens = tokens.delaySubscription(sample.latency());
+            }
+            return tokens.map(FakeLlmChatModel::response);
+        });
+    }
+
+    /**
+     * The latency and outcome of the call with the given sequence number.
+     */
+    Sample sample(long callIndex) {
+        SplittableRandom random = new SplittableRandom(seed ^ (callIndex * 0x9E3779B97F4A7C15L));
+        long latencyNanos = (long) Math.exp(mu + sigma * random.nextGaussian());
+        return new Sample(Duration.ofNanos(latencyNanos), random.nextDouble() < errorRate);
+    }
+
+    static String answer(String prompt) {
+        Matcher patients = PATIENT.matcher(prompt);
+        if (patients.find()) {
+            return batchAnswer(prompt, patients);
+        }
+        Matcher matcher = READING.matcher(prompt);
+        int count = 0;
+        int systolic = 0;
+        int diastolic = 0;
+        while (matcher.find()) {
+            systolic += Integer.parseInt(matcher.group(1));
+            diastolic += Integer.parseInt(matcher.group(2));
+            count++;
+        }
+        if (count == 0) {
+            return CHAT_ANSWER;
+        }
+        int averageSystolic = Math.round((float) systolic / count);
+        int averageDiastolic = Math.round((float) diastolic / count);
+        RiskLevel level = classify(averageSystolic, averageDiastolic);
+        if (prompt.contains("JSON")) {
+            return "{\"riskLevel\":\"%s\",\"confidence\":0.9,\"rationale\":\"Average of %d readings is %d/%d mmHg.\"}"
+                    .formatted(level, count, averageSystolic, averageDiastolic);
+        }
+        return ("The average of the %d readings is %d/%d mmHg. Looking at the systolic and diastolic values "
+                + "together against the classification provided, the higher of the two categories determines "
+                + "the overall level. The readings are consistent with each other, so the average is a fair "
+                + "summary of the patient's recent blood pressure and no single reading changes the outcome. "
+                + "Based on this reasoning, the patient's risk level is:\n%s")
+                .formatted(count, averageSystolic, averageDiastolic, level);
+    }
+
+    private static String batchAnswer(String prompt, Matcher patients) {
+        StringBuilder assessments = new StringBuilder();
+        boolean more = true;
+        while (more) {
+            String label = patients.group(1);
+            int sectionStart = patients.end();
+            more = patients.find();
+            Matcher matcher = READING.matcher(prompt.substring(sectionStart, more ? patients.start() : prompt.length()));
+            int count = 0;
+            int systolic = 0;
+            int diastolic = 0;
+            while (matcher.find()) {
+                systolic += Integer.parseInt(matcher.group(1));
+                diastolic += Integer.parseInt(matcher.group(2));
+                count++;
+            }
+            int averageSystolic = count == 0 ? 0 : Math.round((float) systolic / count);
+            int averageDiastolic = count == 0 ? 0 : Math.round((float) diastolic / count);
+            assessments.append(assessments.isEmpty() ? "" : ",")
+                    .append("{\"patient\":\"%s\",\"riskLevel\":\"%s\",\"confidence\":0.9,\"rationale\":\"Average of %d readings is %d/%d mmHg.\"}"
+                            .formatted(label, classify(averageSystolic, averageDiastolic), count, averageSystolic, averageDiastolic));
+        }
+        return "{\"assessments\":[" + assessments + "]}";
+    }
+
+    private static String[] tokens(String answer) {
+        return answer.split("(?<= )");
+    }
+
+    private static RiskLevel classify(int systolic, int diastolic) {
+        if (systolic >= 180 || diastolic >= 110) {
+            return RiskLevel.SEVERE_HYPERTENSIVE;
+        }
+        if (systolic >= 160 || diastolic >= 100) {
+            return RiskLevel.MODERATE_HYPERTENSIVE;
+        }
+        if (systolic >= 140 || diastolic >= 90) {
+            return RiskLevel.MILD_HYPERTENSIVE;
+        }
+        if (systolic >= 80 && diastolic >= 80) {
+            return RiskLevel.NORMAL;
+        }
+        return RiskLevel.LOW;
+    }
+
+    public int getCalls() {
+        return calls.get();
+    }
+
+    public int getFailures() {
+        return failures.get();
+    }
+
+    private Sample nextSample() {
+        calls.incrementAndGet();
+        Sample sample = sample(sequence.getAndIncrement());
+        if (sample.fails()) {
+            failures.incrementAndGet();
+        }
+        return sample;
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    record Sample(Duration latency, boolean fails) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.chikere.bp.bptracker.ai;
+
+import com.chikere.bp.bptracker.exception.LlmUnavailableException;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * ChatClient advisor that guards every model call with a circuit breaker and an adaptive
+ * concurrency limit.
+ * <p>
+ * It runs last in the advisor chain, directly around the model, so the limiter measures the
+ * provider's latency only. Calls refused by either guard fail immediately with
+ * {@link LlmUnavailableException}. For streamed calls the time to the first token is used as
+ * the latency sample.
+ * </p>
+ */
+public class LlmProtectionAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final CircuitBreaker circuitBreaker;
+
+    public LlmProtectionAdvisor(AdaptiveConcurrencyLimiter limiter, CircuitBreaker circuitBreaker) {
+        this.limiter = limiter;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public String getName() {
+        return "LlmProtectionAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1000;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+        acquire();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            AdvisedResponse response = chain.nextAroundCall(advisedRequest);
+            success = true;
+            return response;
+        } finally {
+            limiter.release(System.nanoTime() - start, !success);
+            if (success) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        }
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        return Flux.defer(() -> {
+            acquire();
+            long start = System.nanoTime();
+            AtomicLong firstTokenNanos = new AtomicLong();
+            AtomicBoolean released = new AtomicBoolean();
+            // Release before the terminal signal reaches the subscriber, so the slot is free once it has the answer
+            Consumer<SignalType> release = signal -> {
+                if (!released.compareAndSet(false, true)) {
+                    return;
+                }
+                long rtt = firstTokenNanos.get() > 0 ? firstTokenNanos.get() : System.nanoTime() - start;
+                limiter.release(rtt, signal == SignalType.ON_ERROR);
+                switch (signal) {
+                    case ON_COMPLETE -> circuitBreaker.onSuccess();
+                    case ON_ERROR -> circuitBreaker.onFailure();
+                    default -> circuitBreaker.onIgnored();
+                }
+            };
+            return chain.nextAroundStream(advisedRequest)
+                    .doOnNext(response -> firstTokenNanos.compareAndSet(0, System.nanoTime() - start))
+                    .doOnComplete(() -> release.accept(SignalType.ON_COMPLETE))
+                    .doOnError(error -> release.accept(SignalType.ON_ERROR))
+                    .doOnCancel(() -> release.accept(SignalType.CANCEL));
+        });
+    }
+
+    private void acquire() {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            throw new LlmUnavailableException("AI service is unavailable, the circuit breaker is open");
+        }
+        if (!limiter.tryAcquire()) {
+            circuitBreaker.onIgnored();
+            throw new LlmUnavailableException("AI service is at its concurrency limit");
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.chikere.bp.bptracker.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * ChatClient advisor that keeps the conversation history in a prompt within a token budget.
+ * <p>
+ * It runs right after the chat memory advisor. Tokens are counted locally per message. While the
+ * history fits in {@code historyTokenBudget} the prompt is left alone. Once it does not, the newest
+ * messages that fit in what the summary leaves of the budget are kept verbatim and everything older
+ * is folded into a single summary message. The summary is extractive: one key sentence per folded
+ * message, preferring sentences that contain readings or other numbers, with the oldest points
+ * dropped first when it outgrows {@code summaryTokenBudget}. The folded messages are replaced by the
+ * summary in chat memory as well, so the summary rolls forward with the conversation.
+ * </p>
+ */
+public class PromptCompactionAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    static final String SUMMARY_PREFIX = "Summary of the earlier conversation:";
+
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+");
+    private static final int MAX_SENTENCE_WORDS = 40;
+
+    private final BoundedChatMemory chatMemory;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final int historyTokenBudget;
+    private final int summaryTokenBudget;
+
+    private DistributionSummary uncompactedTokens;
+    private DistributionSummary sentTokens;
+    private Counter compactionCounter;
+
+    public PromptCompactionAdvisor(BoundedChatMemory chatMemory, TokenCountEstimator tokenCountEstimator,
+                                   int historyTokenBudget, int summaryTokenBudget) {
+        this.chatMemory = chatMemory;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.historyTokenBudget = historyTokenBudget;
+        this.summaryTokenBudget = Math.min(summaryTokenBudget, historyTokenBudget);
+    }
+
+    /**
+     * Registers prompt size histograms and the compaction counter under the given prefix.
+     * Prompt tokens are recorded twice, tagged {@code stage=uncompacted} and {@code stage=sent},
+     * so the effect of compaction can be compared directly.
+     */
+    public PromptCompactionAdvisor bindTo(MeterRegistry meterRegistry, String prefix) {
+        uncompactedTokens = DistributionSummary.builder(prefix + ".tokens")
+                .description("Estimated prompt tokens before history compaction")
+                .baseUnit("tokens")
+                .tag("stage", "uncompacted")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        sentTokens = DistributionSummary.builder(prefix + ".tokens")
+                .description("Estimated prompt tokens sent to the model")
+                .baseUnit("tokens")
+                .tag("stage", "sent")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        compactionCounter = Counter.builder(prefix + ".compactions")
+                .description("Prompts whose older history was folded into a summary")
+                .register(meterRegistry);
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return "PromptCompactionAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 100;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+        return chain.nextAroundCall(compact(advisedRequest));
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        return Flux.defer(() -> chain.nextAroundStream(compact(advisedRequest)));
+    }
+
+    AdvisedRequest compact(AdvisedRequest request) {
+        List<Message> history = request.messages();
+        int fixedTokens = count(request.systemText()) + count(request.userText());
+        int[] tokens = new int[history.size()];
+        int historyTokens = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = count(history.get(i).getText());
+            historyTokens += tokens[i];
+        }
+        record(uncompactedTokens, fixedTokens + historyTokens);
+        if (historyTokens <= historyTokenBudget) {
+            record(sentTokens, fixedTokens + historyTokens);
+            return request;
+        }
+
+        // Keep the newest messages verbatim in whatever the summary leaves of the budget
+        int keepBudget = historyTokenBudget - summaryTokenBudget;
+        int firstKept = history.size();
+        int keptTokens = 0;
+        while (firstKept > 0 && keptTokens + tokens[firstKept - 1] <= keepBudget) {
+            firstKept--;
+            keptTokens += tokens[firstKept];
+        }
+        List<Message> folded = List.copyOf(history.subList(0, firstKept));
+        Message summary = new SystemMessage(summarize(folded));
+
+        List<Message> compacted = new ArrayList<>(history.size() - firstKept + 1);
+        compacted.add(summary);
+        compacted.addAll(history.subList(firstKept, history.size()));
+
+        Object conversationId = request.advisorParams().get(AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY);
+        if (conversationId != null) {
+            chatMemory.compact(conversationId.toString(), folded, summary);
+        }
+        if (compactionCounter != null) {
+            compactionCounter.increment();
+        }
+        record(sentTokens, fixedTokens + keptTokens + count(summary.getText()));
+        return AdvisedRequest.from(request).messages(compacted).build();
+    }
+
+    String summarize(List<Message> folded) {
+        List<String> points = new ArrayList<>();
+        for (Message message : folded) {
+            String text = message.getText();
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            if (message.getMessageType() == MessageType.SYSTEM && text.startsWith(SUMMARY_PREFIX)) {
+                // An earlier summary: carry its points forward
+                text.substring(SUMMARY_PREFIX.length()).lines()
+                        .filter(line -> !line.isBlank())
+                        .forEach(points::add);
+                continue;
+            }
+            String speaker = message.getMessageType() == MessageType.USER ? "User asked" : "Assistant said";
+            points.add("- " + speaker + ": " + keySentence(text));
+        }
+
+        int summaryTokens = count(SUMMARY_PREFIX);
+        for (String point : points) {
+            summaryTokens += count(point);
+        }
+        while (points.size() > 1 && summaryTokens > summaryTokenBudget) {
+            summaryTokens -= count(points.remove(0));
+        }
+        return SUMMARY_PREFIX + "\n" + String.join("\n", points);
+    }
+
+    static String keySentence(String text) {
+        String[] sentences = SENTENCE_END.split(text.strip());
+        String chosen = sentences[0];
+        for (String sentence : sentences) {
+            if (sentence.chars().anyMatch(Character::isDigit)) {
+                chosen = sentence;
+                break;
+            }
+        }
+        String[] words = chosen.split("\\s+");
+        if (words.length <= MAX_SENTENCE_WORDS) {
+            return chosen;
+        }
+        return String.join(" ", Arrays.copyOf(words, MAX_SENTENCE_WORDS)) + " ...";
+    }
+
+    private int count(String text) {
+        return text == null || text.isEmpty() ? 0 : tokenCountEstimator.estimate(text);
+    }
+
+    private static void record(DistributionSummary summary, int tokens) {
+        if (summary != null) {
+            summary.record(tokens);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.chikere.bp.bptracker.alerts;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates alert rules over a sliding window of each patient's readings as readings are recorded.
+ * <p>
+ * Each patient has a {@link ReadingWindow} holding their readings from the longest rule window,
+ * up to its capacity. Recording a reading evaluates every rule over the window ending at that
+ * reading. A rule that fires for a patient is suppressed for that patient until its window has
+ * passed, so the readings that raised an alert do not raise it again. Readings of different
+ * patients are recorded concurrently; readings of one patient one at a time.
+ * </p>
+ */
+public final class AlertEngine {
+
+    /**
+     * A rule that fired on a reading.
+     */
+    public record Alert(AlertRule rule, UUID patientId, UUID readingId, long timestampMillis,
+                        AlertRule.Evaluation evaluation) {
+    }
+
+    /**
+     * The rules that fired on a reading, and those that would have fired again within their window.
+     */
+    public record Outcome(List<Alert> raised, List<AlertRule> suppressed) {
+
+        static final Outcome NONE = new Outcome(List.of(), List.of());
+    }
+
+    private final List<AlertRule> rules;
+    private final int capacity;
+    private final long retentionMillis;
+    private final ConcurrentHashMap<UUID, ReadingWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * @param rules The rules to evaluate; names must be unique
+     * @param capacity Maximum number of readings kept per patient
+     */
+    public AlertEngine(List<AlertRule> rules, int capacity) {
+        this.rules = List.copyOf(rules);
+        this.capacity = capacity;
+        this.retentionMillis = this.rules.stream().map(AlertRule::window)
+                .max(Duration::compareTo).orElse(Duration.ZERO).toMillis();
+        if (this.rules.stream().map(AlertRule::name).distinct().count() != this.rules.size()) {
+            throw new IllegalArgumentException("Alert rule names must be unique");
+        }
+    }
+
+    public List<AlertRule> rules() {
+        return rules;
+    }
+
+    /**
+     * How far back readings are kept: the longest rule window.
+     */
+    public Duration retention() {
+        return Duration.ofMillis(retentionMillis);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The index of the rule with that name, or -1
+     */
+    public int indexOf(String ruleName) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).name().equals(ruleName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean hasWindow(UUID patientId) {
+        return windows.containsKey(patientId);
+    }
+
+    /**
+     * An empty window for {@link #seed}.
+     */
+    public ReadingWindow newWindow() {
+        return new ReadingWindow(capacity, rules.size());
+    }
+
+    /**
+     * Starts a patient's window with readings recorded earlier, e.g. loaded from the database,
+     * unless the patient already has a window.
+     */
+    public void seed(UUID patientId, ReadingWindow window) {
+        windows.putIfAbsent(patientId, window);
+    }
+
+    /**
+     * Adds a reading to the patient's window and evaluates the rules over the window ending at it.
+     * A reading with an ID already in the window replaces it.
+     *
+     * @param timestampMillis Time of the reading in epoch milliseconds
+     */
+    public Outcome record(UUID patientId, UUID readingId, long timestampMillis, int systolic, int diastolic, int heartRate) {
+        if (rules.isEmpty()) {
+            return Outcome.NONE;
+        }
+        ReadingWindow window = lockedWindow(patientId);
+        try {
+            window.add(readingId, timestampMillis, systolic, diastolic, heartRate);
+            window.dropBefore(window.newestTimestamp() - retentionMillis);
+
+            List<Alert> raised = null;
+            List<AlertRule> suppressed = null;
+            for (int i = 0; i < rules.size(); i++) {
+                AlertRule rule = rules.get(i);
+                AlertRule.Evaluation evaluation = rule.evaluate(window, timestampMillis);
+                if (evaluation == null) {
+                    continue;
+                }
+                long lastAlert = window.lastAlertMillis(i);
+                if (lastAlert != Long.MIN_VALUE && timestampMillis - lastAlert < rule.window().toMillis()) {
+                    if (suppressed == null) {
+                        suppressed = new ArrayList<>();
+                    }
+                    suppressed.add(rule);
+                    continue;
+                }
+                window.setLastAlertMillis(i, timestampMillis);
+                if (raised == null) {
+                    raised = new ArrayList<>();
+                }
+                raised.add(new Alert(rule, patientId, readingId, timestampMillis, evaluation));
+            }
+            return raised == null && suppressed == null
+                    ? Outcome.NONE
+                    : new Outcome(raised == null ? List.of() : raised, suppressed == null ? List.of() : suppressed);
+        } finally {
+            window.lock().unlock();
+        }
+    }
+
+    /**
+     * Removes a reading from the patient's window, if the patient has one, without evaluating the
+     * rules. Alerts already raised are kept.
+     *
+     * @return Whether the reading was in the window
+     */
+    public boolean remove(UUID patientId, UUID readingId) {
+        ReadingWindow window = windows.get(patientId);
+        if (window == null) {
+            return false;
+        }
+        window.lock().lock();
+        try {
+            return window.remove(readingId);
+        } finally {
+            window.lock().unlock();
+        }
+    }
+
+    private ReadingWindow lockedWindow(UUID patientId) {
+        while (true) {
+            ReadingWindow window = windows.computeIfAbsent(patientId, id -> newWindow());
+            window.lock().lock();
+            if (windows.get(patientId) == window) {
+                return window;
+            }
+            // Evicted while waiting for the lock
+            window.lock().unlock();
+        }
+    }
+
+    /**
+     * Drops the windows of patients with no reading within the retention before {@code nowMillis}.
+     *
+     * @return The number of windows dropped
+     */
+    public int evictIdle(long nowMillis) {
+        int before = windows.size();
+        windows.values().removeIf(window -> {
+            window.lock().lock();
+            try {
+                return window.newestTimestamp() < nowMillis - retentionMillis;
+            } finally {
+                window.lock().unlock();
+            }
+        });
+        return Math.max(0, before - windows.size());
+    }
+
+    public int windowCount() {
+        return windows.size();
+    }
+}
@@ -0,0 +1,346 @@
+package com.chikere.bp.bptracker.alerts;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An alert on a pattern of readings within a sliding time window, parsed from a one-line rule.
+ * <p>
+ * The rule language is
+ * <pre>
+ * rule       = name ":" aggregate comparison number "within" duration ["min" integer]
+ * aggregate  = "count(" condition ")" | ("avg" | "min" | "max" | "slope") "(" field ")"
+ * condition  = term {("and" | "or") term}        ("and" binds tighter than "or")
+ * term       = field comparison number
+ * field      = "systolic" | "diastolic" | "heartRate" | "pulsePressure"
+ * comparison = "&gt;=" | "&gt;" | "&lt;=" | "&lt;"
+ * duration   = number ("m" | "h" | "d" | "w") | ISO-8601 duration
+ * </pre>
+ * for example {@code severe-cluster: count(systolic >= 160 or diastolic >= 100) >= 3 within 24h}.
+ * The window ends at the reading just recorded. {@code count} counts the readings matching the
+ * condition, {@code slope} is the least-squares trend in mmHg per day, and {@code min} is the
+ * number of readings the window needs before the rule is evaluated (1 by default, 2 for slope).
+ * </p>
+ *
+ * @param name Unique name of the rule
+ * @param expression The rule as written, without the name
+ */
+public record AlertRule(String name, String expression, Aggregate aggregate, Field field, Condition condition,
+                        Comparison comparison, double threshold, Duration window, int minReadings) {
+
+    private static final Pattern TOKEN = Pattern.compile("\\s*(>=|<=|>|<|\\(|\\)|:|[A-Za-z0-9_.-]+)");
+    private static final Pattern SHORT_DURATION = Pattern.compile("(\\d+)([mhdw])");
+    private static final double MILLIS_PER_DAY = 86_400_000.0;
+
+    public enum Aggregate {
+        COUNT, AVG, MIN, MAX, SLOPE
+    }
+
+    public enum Field {
+        SYSTOLIC, DIASTOLIC, HEART_RATE, PULSE_PRESSURE;
+
+        int value(ReadingWindow window, int index) {
+            return switch (this) {
+                case SYSTOLIC -> window.systolic(index);
+                case DIASTOLIC -> window.diastolic(index);
+                case HEART_RATE -> window.heartRate(index);
+                case PULSE_PRESSURE -> window.systolic(index) - window.diastolic(index);
+            };
+        }
+
+        static Field parse(String name) {
+            return switch (name.toLowerCase(Locale.ROOT)) {
+                case "systolic" -> SYSTOLIC;
+                case "diastolic" -> DIASTOLIC;
+                case "heartrate" -> HEART_RATE;
+                case "pulsepressure" -> PULSE_PRESSURE;
+                default -> throw new IllegalArgumentException("Unknown field '" + name + "'");
+            };
+        }
+    }
+
+    public enum Comparison {
+        GE(">="), GT(">"), LE("<="), LT("<");
+
+        private final String symbol;
+
+        Comparison(String symbol) {
+            this.symbol = symbol;
+        }
+
+        boolean test(double value, double threshold) {
+            return switch (this) {
+                case GE -> value >= threshold;
+                case GT -> value > threshold;
+                case LE -> value <= threshold;
+                case LT -> value < threshold;
+            };
+        }
+
+        static Comparison parse(String symbol) {
+            for (Comparison comparison : values()) {
+                if (comparison.symbol.equals(symbol)) {
+                    return comparison;
+                }
+            }
+            throw new IllegalArgumentException("Expected a comparison but found '" + symbol + "'");
+        }
+    }
+
+    /**
+     * A condition on a single reading: any of the groups holds when all of its terms hold.
+     */
+    public record Condition(List<List<Term>> anyOf) {
+
+        boolean test(ReadingWindow window, int index) {
+            for (List<Term> allOf : anyOf) {
+                boolean holds = true;
+                for (Term term : allOf) {
+                    if (!term.comparison().test(term.field().value(window, index), term.threshold())) {
+                        holds = false;
+                        break;
+                    }
+                }
+                if (holds) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public record Term(Field field, Comparison comparison, double threshold) {
+    }
+
+    /**
+     * The value of a rule's aggregate over a window.
+     *
+     * @param value The aggregate, e.g. the number of matching readings or the trend
+     * @param readings Number of readings in the window
+     * @param windowStartMillis Time of the oldest reading in the window
+     */
+    public record Evaluation(double value, int readings, long windowStartMillis) {
+    }
+
+    public AlertRule {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Rule " + name + " needs a positive window");
+        }
+    }
+
+    /**
+     * Evaluates the rule over the readings of a window taken in the rule's window up to {@code endMillis}.
+     *
+     * @return The aggregate if the window has enough readings and it meets the threshold, otherwise null
+     */
+    public Evaluation evaluate(ReadingWindow readings, long endMillis) {
+        long startMillis = endMillis - window.toMillis();
+        int first = readings.size();
+        while (first > 0 && readings.timestamp(first - 1) >= startMillis) {
+            first--;
+        }
+        int last = readings.size();
+        while (last > first && readings.timestamp(last - 1) > endMillis) {
+            last--;
+        }
+        int count = last - first;
+        if (count < minReadings || count == 0) {
+            return null;
+        }
+
+        double value = switch (aggregate) {
+            case COUNT -> {
+                int matching = 0;
+                for (int i = first; i < last; i++) {
+                    if (condition.test(readings, i)) {
+                        matching++;
+                    }
+                }
+                yield matching;
+            }
+            case AVG -> {
+                double sum = 0;
+                for (int i = first; i < last; i++) {
+                    sum += field.value(readings, i);
+                }
+                yield sum / count;
+            }
+            case MIN -> {
+                int min = Integer.MAX_VALUE;
+                for (int i = first; i < last; i++) {
+                    min = Math.min(min, field.value(readings, i));
+                }
+                yield min;
+            }
+            case MAX -> {
+                int max = Integer.MIN_VALUE;
+                for (int i = first; i < last; i++) {
+                    max = Math.max(max, field.value(readings, i));
+                }
+                yield max;
+            }
+            case SLOPE -> slope(readings, first, last);
+        };
+        return comparison.test(value, threshold) ? new Evaluation(value, count, readings.timestamp(first)) : null;
+    }
+
+    private double slope(ReadingWindow readings, int first, int last) {
+        long origin = readings.timestamp(first);
+        int n = last - first;
+        double dayMean = 0;
+        double valueMean = 0;
+        for (int i = first; i < last; i++) {
+            dayMean += (readings.timestamp(i) - origin) / MILLIS_PER_DAY;
+            valueMean += field.value(readings, i);
+        }
+        dayMean /= n;
+        valueMean /= n;
+        double coMoment = 0;
+        double dayM2 = 0;
+        for (int i = first; i < last; i++) {
+            double dayDelta = (readings.timestamp(i) - origin) / MILLIS_PER_DAY - dayMean;
+            coMoment += dayDelta * (field.value(readings, i) - valueMean);
+            dayM2 += dayDelta * dayDelta;
+        }
+        return dayM2 > 0 ? coMoment / dayM2 : 0;
+    }
+
+    /**
+     * Parses a rule.
+     *
+     * @param line The rule, e.g. {@code rising: slope(systolic) >= 1.5 within 14d min 5}
+     * @throws IllegalArgumentException if the rule does not follow the rule language
+     */
+    public static AlertRule parse(String line) {
+        Tokens tokens = new Tokens(line);
+        String name = tokens.next();
+        tokens.expect(":");
+        String expression = line.substring(line.indexOf(':') + 1).trim();
+
+        Aggregate aggregate;
+        try {
+            aggregate = Aggregate.valueOf(tokens.next().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Rule " + name + " must start with count, avg, min, max or slope");
+        }
+        tokens.expect("(");
+        Field field = null;
+        Condition condition = null;
+        if (aggregate == Aggregate.COUNT) {
+            condition = parseCondition(tokens);
+        } else {
+            field = Field.parse(tokens.next());
+        }
+        tokens.expect(")");
+        Comparison comparison = Comparison.parse(tokens.next());
+        double threshold = tokens.nextNumber();
+        tokens.expect("within");
+        Duration window = parseDuration(tokens.next());
+        int minReadings = aggregate == Aggregate.SLOPE ? 2 : 1;
+        if (tokens.hasNext()) {
+            tokens.expect("min");
+            minReadings = (int) tokens.nextNumber();
+        }
+        if (tokens.hasNext()) {
+            throw new IllegalArgumentException("Unexpected '" + tokens.next() + "' at the end of rule " + name);
+        }
+        return new AlertRule(name, expression, aggregate, field, condition, comparison, threshold, window, minReadings);
+    }
+
+    private static Condition parseCondition(Tokens tokens) {
+        List<List<Term>> anyOf = new ArrayList<>();
+        List<Term> allOf = new ArrayList<>();
+        while (true) {
+            Field field = Field.parse(tokens.next());
+            Comparison comparison = Comparison.parse(tokens.next());
+            allOf.add(new Term(field, comparison, tokens.nextNumber()));
+            if (tokens.peekIs("and")) {
+                tokens.next();
+            } else if (tokens.peekIs("or")) {
+                tokens.next();
+                anyOf.add(List.copyOf(allOf));
+                allOf = new ArrayList<>();
+            } else {
+                anyOf.add(List.copyOf(allOf));
+                return new Condition(List.copyOf(anyOf));
+            }
+        }
+    }
+
+    static Duration parseDuration(String text) {
+        Matcher matcher = SHORT_DURATION.matcher(text);
+        if (matcher.matches()) {
+            long amount = Long.parseLong(matcher.group(1));
+            return switch (matcher.group(2)) {
+                case "m" -> Duration.ofMinutes(amount);
+                case "h" -> Duration.ofHours(amount);
+                case "d" -> Duration.ofDays(amount);
+                default -> Duration.ofDays(7 * amount);
+            };
+        }
+        try {
+            return Duration.parse(text);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid window '" + text + "'; use e.g. 30m, 24h, 7d, 2w or PT24H");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + expression;
+    }
+
+    private static final class Tokens {
+
+        private final List<String> tokens = new ArrayList<>();
+        private int position;
+
+        Tokens(String line) {
+            Matcher matcher = TOKEN.matcher(line);
+            int end = 0;
+            while (matcher.lookingAt()) {
+                tokens.add(matcher.group(1));
+                end = matcher.end();
+                matcher.region(end, line.length());
+            }
+            if (!line.substring(end).isBlank()) {
+                throw new IllegalArgumentException("Unexpected character in rule at '" + line.substring(end).trim() + "'");
+            }
+        }
+
+        boolean hasNext() {
+            return position < tokens.size();
+        }
+
+        boolean peekIs(String token) {
+            return hasNext() && tokens.get(position).equalsIgnoreCase(token);
+        }
+
+        String next() {
+            if (!hasNext()) {
+                throw new IllegalArgumentException("Rule ends too early");
+            }
+            return tokens.get(position++);
+        }
+
+        double nextNumber() {
+            String token = next();
+            try {
+                return Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Expected a number but found '" + token + "'");
+            }
+        }
+
+        void expect(String token) {
+            String found = next();
+            if (!found.equalsIgnoreCase(token)) {
+                throw new IllegalArgumentException("Expected '" + token + "' but found '" + found + "'");
+            }
+        }
+    }
+}
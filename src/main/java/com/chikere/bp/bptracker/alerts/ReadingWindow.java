@@ -0,0 +1,184 @@
+package com.chikere.bp.bptracker.alerts;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The most recent readings of one patient, in a fixed-capacity ring buffer ordered by time.
+ * <p>
+ * Readings are kept as parallel primitive arrays, so a window costs the same memory however
+ * many readings pass through it, and is indexed oldest first from 0 to {@link #size()} - 1. Once
+ * full, adding a reading drops the oldest one. Readings normally arrive in time order and are
+ * appended; a reading older than the newest is inserted in place, a reading already in the
+ * window (an update) replaces it, and a deleted reading can be removed. The window is not
+ * thread safe: callers hold {@link #lock()}.
+ * </p>
+ */
+public final class ReadingWindow {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long[] idMostSignificant;
+    private final long[] idLeastSignificant;
+    private final long[] timestamps;
+    private final short[] systolic;
+    private final short[] diastolic;
+    private final short[] heartRate;
+    private final long[] lastAlertMillis;
+    private int head;
+    private int size;
+
+    /**
+     * @param capacity Maximum number of readings kept
+     * @param rules Number of alert rules, for remembering when each last fired
+     */
+    public ReadingWindow(int capacity, int rules) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Window capacity must be at least 1");
+        }
+        idMostSignificant = new long[capacity];
+        idLeastSignificant = new long[capacity];
+        timestamps = new long[capacity];
+        systolic = new short[capacity];
+        diastolic = new short[capacity];
+        heartRate = new short[capacity];
+        lastAlertMillis = new long[rules];
+        Arrays.fill(lastAlertMillis, Long.MIN_VALUE);
+    }
+
+    public ReentrantLock lock() {
+        return lock;
+    }
+
+    /**
+     * Adds a reading, or replaces the reading with the same ID if it is still in the window.
+     *
+     * @param timestampMillis Time of the reading in epoch milliseconds
+     */
+    public void add(UUID readingId, long timestampMillis, int systolic, int diastolic, int heartRate) {
+        int existing = indexOf(readingId);
+        if (existing >= 0) {
+            removeAt(existing);
+        }
+        int index = size;
+        while (index > 0 && timestamp(index - 1) > timestampMillis) {
+            index--;
+        }
+        if (size == capacity()) {
+            if (index == 0) {
+                // Older than everything in a full window
+                return;
+            }
+            head = (head + 1) % capacity();
+            size--;
+            index--;
+        }
+        for (int i = size; i > index; i--) {
+            copy(slot(i - 1), slot(i));
+        }
+        int slot = slot(index);
+        idMostSignificant[slot] = readingId.getMostSignificantBits();
+        idLeastSignificant[slot] = readingId.getLeastSignificantBits();
+        timestamps[slot] = timestampMillis;
+        this.systolic[slot] = (short) systolic;
+        this.diastolic[slot] = (short) diastolic;
+        this.heartRate[slot] = (short) heartRate;
+        size++;
+    }
+
+    /**
+     * Removes the reading with the given ID, if it is in the window.
+     *
+     * @return Whether the reading was in the window
+     */
+    public boolean remove(UUID readingId) {
+        int index = indexOf(readingId);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Drops the readings taken before the given time.
+     */
+    public void dropBefore(long timestampMillis) {
+        while (size > 0 && timestamps[head] < timestampMillis) {
+            head = (head + 1) % capacity();
+            size--;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    /**
+     * @return Time of the newest reading in epoch milliseconds, or {@link Long#MIN_VALUE} if empty
+     */
+    public long newestTimestamp() {
+        return size == 0 ? Long.MIN_VALUE : timestamp(size - 1);
+    }
+
+    public long timestamp(int index) {
+        return timestamps[slot(index)];
+    }
+
+    public int systolic(int index) {
+        return systolic[slot(index)];
+    }
+
+    public int diastolic(int index) {
+        return diastolic[slot(index)];
+    }
+
+    public int heartRate(int index) {
+        return heartRate[slot(index)];
+    }
+
+    public long lastAlertMillis(int rule) {
+        return lastAlertMillis[rule];
+    }
+
+    public void setLastAlertMillis(int rule, long timestampMillis) {
+        lastAlertMillis[rule] = Math.max(lastAlertMillis[rule], timestampMillis);
+    }
+
+    private int indexOf(UUID readingId) {
+        long most = readingId.getMostSignificantBits();
+        long least = readingId.getLeastSignificantBits();
+        for (int i = size - 1; i >= 0; i--) {
+            int slot = slot(i);
+            if (idLeastSignificant[slot] == least && idMostSignificant[slot] == most) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        for (int i = index; i < size - 1; i++) {
+            copy(slot(i + 1), slot(i));
+        }
+        size--;
+    }
+
+    private void copy(int from, int to) {
+        idMostSignificant[to] = idMostSignificant[from];
+        idLeastSignificant[to] = idLeastSignificant[from];
+        timestamps[to] = timestamps[from];
+        systolic[to] = systolic[from];
+        diastolic[to] = diastolic[from];
+        heartRate[to] = heartRate[from];
+    }
+
+    private int slot(int index) {
+        int slot = head + index;
+        return slot < timestamps.length ? slot : slot - timestamps.length;
+    }
+}
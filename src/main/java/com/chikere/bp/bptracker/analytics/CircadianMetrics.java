@@ -0,0 +1,117 @@
+package com.chikere.bp.bptracker.analytics;
+
+import com.chikere.bp.bptracker.model.enums.DippingPattern;
+
+import java.util.UUID;
+
+/**
+ * Day-night blood pressure metrics of one patient over a period.
+ * <p>
+ * Readings are assigned to periods by local clock time: night is 00:00-06:00, morning
+ * 06:00-10:00 and day 10:00-22:00. The morning surge is the mean morning systolic pressure minus
+ * the mean night systolic pressure, and the nocturnal dip is the fall of the mean systolic
+ * pressure from day to night as a percentage of the day mean; both are null without readings in
+ * the periods they compare. Time in target range interpolates systolic pressure linearly between
+ * consecutive readings at most {@link #MAX_INTERPOLATION_MINUTES} apart (the Rosendaal method);
+ * with no such pair it is the share of readings in range. Average real variability is the mean
+ * absolute difference between consecutive readings, null for a single reading.
+ * </p>
+ *
+ * @param timeInTargetRange Percentage of time systolic pressure was in the target range
+ */
+public record CircadianMetrics(UUID patientId, int readings, Double morningSurge, Double nocturnalDipPercent,
+                               DippingPattern dippingPattern, double timeInTargetRange,
+                               Double systolicArv, Double diastolicArv) {
+
+    public static final long MAX_INTERPOLATION_MINUTES = 3 * 24 * 60;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int MORNING_START = 6 * 60;
+    private static final int DAY_START = 10 * 60;
+    private static final int DAY_END = 22 * 60;
+
+    /**
+     * The systolic pressures counted as in range, inclusive.
+     */
+    public record TargetRange(int systolicMin, int systolicMax) {
+
+        public TargetRange {
+            if (systolicMin > systolicMax) {
+                throw new IllegalArgumentException("Target range " + systolicMin + "-" + systolicMax + " is empty");
+            }
+        }
+
+        boolean contains(int systolic) {
+            return systolic >= systolicMin && systolic <= systolicMax;
+        }
+    }
+
+    /**
+     * @param series At least one reading
+     */
+    public static CircadianMetrics of(PatientSeries series, TargetRange target) {
+        long[] minutes = series.minutes();
+        int[] systolic = series.systolic();
+        int[] diastolic = series.diastolic();
+        int n = series.size();
+
+        long nightSum = 0, morningSum = 0, daySum = 0;
+        int nightCount = 0, morningCount = 0, dayCount = 0;
+        long systolicVariation = 0, diastolicVariation = 0;
+        int inRange = 0;
+        double minutesInRange = 0;
+        long minutesInterpolated = 0;
+        for (int i = 0; i < n; i++) {
+            int minuteOfDay = (int) Math.floorMod(minutes[i], MINUTES_PER_DAY);
+            if (minuteOfDay < MORNING_START) {
+                nightSum += systolic[i];
+                nightCount++;
+            } else if (minuteOfDay < DAY_START) {
+                morningSum += systolic[i];
+                morningCount++;
+            } else if (minuteOfDay < DAY_END) {
+                daySum += systolic[i];
+                dayCount++;
+            }
+            if (target.contains(systolic[i])) {
+                inRange++;
+            }
+            if (i > 0) {
+                systolicVariation += Math.abs(systolic[i] - systolic[i - 1]);
+                diastolicVariation += Math.abs(diastolic[i] - diastolic[i - 1]);
+                long gap = minutes[i] - minutes[i - 1];
+                if (gap > 0 && gap <= MAX_INTERPOLATION_MINUTES) {
+                    minutesInRange += gap * fractionInRange(systolic[i - 1], systolic[i], target);
+                    minutesInterpolated += gap;
+                }
+            }
+        }
+
+        Double nightMean = nightCount > 0 ? (double) nightSum / nightCount : null;
+        Double morningMean = morningCount > 0 ? (double) morningSum / morningCount : null;
+        Double dayMean = dayCount > 0 ? (double) daySum / dayCount : null;
+        Double surge = morningMean != null && nightMean != null ? morningMean - nightMean : null;
+        Double dip = dayMean != null && nightMean != null ? 100 * (dayMean - nightMean) / dayMean : null;
+        double timeInRange = minutesInterpolated > 0
+                ? 100 * minutesInRange / minutesInterpolated
+                : 100.0 * inRange / n;
+        return new CircadianMetrics(series.patientId(), n, surge, dip, dip != null ? DippingPattern.of(dip) : null,
+                timeInRange,
+                n > 1 ? (double) systolicVariation / (n - 1) : null,
+                n > 1 ? (double) diastolicVariation / (n - 1) : null);
+    }
+
+    /**
+     * The fraction of a linear change from {@code from} to {@code to} spent in the target range.
+     */
+    static double fractionInRange(int from, int to, TargetRange target) {
+        if (from == to) {
+            return target.contains(from) ? 1 : 0;
+        }
+        double enter = (double) (target.systolicMin() - from) / (to - from);
+        double leave = (double) (target.systolicMax() - from) / (to - from);
+        double start = Math.max(0, Math.min(enter, leave));
+        double end = Math.min(1, Math.max(enter, leave));
+        return Math.max(0, end - start);
+    }
+}
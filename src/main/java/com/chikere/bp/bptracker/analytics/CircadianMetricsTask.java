@@ -0,0 +1,49 @@
+package com.chikere.bp.bptracker.analytics;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the {@link CircadianMetrics} of a range of patients, splitting the range in halves
+ * until it has at most {@code threshold} patients.
+ */
+public class CircadianMetricsTask extends RecursiveAction {
+
+    private final List<PatientSeries> series;
+    private final CircadianMetrics[] results;
+    private final int from;
+    private final int to;
+    private final int threshold;
+    private final CircadianMetrics.TargetRange target;
+
+    /**
+     * @param results Receives the metrics of {@code series.get(i)} at index {@code i}
+     */
+    public CircadianMetricsTask(List<PatientSeries> series, CircadianMetrics[] results, int threshold,
+                                CircadianMetrics.TargetRange target) {
+        this(series, results, 0, series.size(), threshold, target);
+    }
+
+    private CircadianMetricsTask(List<PatientSeries> series, CircadianMetrics[] results, int from, int to,
+                                 int threshold, CircadianMetrics.TargetRange target) {
+        this.series = series;
+        this.results = results;
+        this.from = from;
+        this.to = to;
+        this.threshold = Math.max(1, threshold);
+        this.target = target;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= threshold) {
+            for (int i = from; i < to; i++) {
+                results[i] = CircadianMetrics.of(series.get(i), target);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new CircadianMetricsTask(series, results, from, middle, threshold, target),
+                new CircadianMetricsTask(series, results, middle, to, threshold, target));
+    }
+}
@@ -0,0 +1,54 @@
+package com.chikere.bp.bptracker.analytics;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One patient's readings in time order, as parallel arrays.
+ *
+ * @param minutes Local time of each reading in minutes since the epoch, so the minute of the day
+ *                is {@code Math.floorMod(minutes[i], 1440)}
+ */
+public record PatientSeries(UUID patientId, long[] minutes, int[] systolic, int[] diastolic) {
+
+    public int size() {
+        return minutes.length;
+    }
+
+    /**
+     * Splits readings ordered by patient and then time into one series per patient.
+     */
+    public static List<PatientSeries> group(List<ReadingSample> samples) {
+        List<PatientSeries> series = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= samples.size(); i++) {
+            if (i == samples.size() || !samples.get(i).patientId().equals(samples.get(start).patientId())) {
+                series.add(of(samples.subList(start, i)));
+                start = i;
+            }
+        }
+        return series;
+    }
+
+    private static PatientSeries of(List<ReadingSample> samples) {
+        int n = samples.size();
+        long[] minutes = new long[n];
+        int[] systolic = new int[n];
+        int[] diastolic = new int[n];
+        for (int i = 0; i < n; i++) {
+            ReadingSample sample = samples.get(i);
+            minutes[i] = toMinutes(sample.timestamp());
+            systolic[i] = sample.systolic();
+            diastolic[i] = sample.diastolic();
+        }
+        return new PatientSeries(samples.getFirst().patientId(), minutes, systolic, diastolic);
+    }
+
+    // Local clock time matters, not the instant, so any fixed offset will do
+    static long toMinutes(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+}
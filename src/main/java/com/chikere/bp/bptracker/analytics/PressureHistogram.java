@@ -0,0 +1,112 @@
+package com.chikere.bp.bptracker.analytics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Counts of pressures in whole mmHg, from which percentiles are exact.
+ * <p>
+ * Readings are whole numbers in a narrow range, so one counter per mmHg is both smaller and more
+ * accurate than an approximate quantile sketch: histograms of any cohorts and months are merged
+ * by adding their counters. Pressures outside [{@link #MIN}, {@link #MAX}] are counted at the
+ * nearest end. Not thread-safe.
+ * </p>
+ */
+public final class PressureHistogram {
+
+    public static final int MIN = 40;
+    public static final int MAX = 300;
+    /** Largest size of {@link #toBytes()}. */
+    public static final int MAX_BYTES = (MAX - MIN + 1) * (Short.BYTES + Long.BYTES);
+
+    private final long[] counts = new long[MAX - MIN + 1];
+    private long total;
+
+    public void add(int pressure) {
+        add(pressure, 1);
+    }
+
+    /**
+     * Adds {@code count} readings of a pressure; a negative count removes them.
+     */
+    public void add(int pressure, long count) {
+        int index = Math.clamp(pressure, MIN, MAX) - MIN;
+        long updated = Math.max(0, counts[index] + count);
+        total += updated - counts[index];
+        counts[index] = updated;
+    }
+
+    public void merge(PressureHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    /**
+     * The nearest-rank percentile: the lowest pressure at or below which at least
+     * {@code percentile}% of the readings lie.
+     *
+     * @param percentile In (0, 100]
+     * @return The pressure, or null if the histogram is empty
+     */
+    public Integer percentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in (0, 100] but is " + percentile);
+        }
+        if (total == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return MIN + i;
+            }
+        }
+        return MAX;
+    }
+
+    /**
+     * The counters as (pressure offset, count) pairs of the non-empty counters, for storage.
+     */
+    public byte[] toBytes() {
+        int nonEmpty = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                nonEmpty++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(nonEmpty * (Short.BYTES + Long.BYTES));
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                buffer.putShort((short) i).putLong(counts[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static PressureHistogram fromBytes(byte[] bytes) {
+        PressureHistogram histogram = new PressureHistogram();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.remaining() >= Short.BYTES + Long.BYTES) {
+            histogram.add(MIN + buffer.getShort(), buffer.getLong());
+        }
+        return histogram;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PressureHistogram other && Arrays.equals(counts, other.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+}
@@ -0,0 +1,10 @@
+package com.chikere.bp.bptracker.analytics;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The time and pressures of a reading, as read for population analytics.
+ */
+public record ReadingSample(UUID patientId, LocalDateTime timestamp, int systolic, int diastolic) {
+}
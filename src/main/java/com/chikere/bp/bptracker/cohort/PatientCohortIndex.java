@@ -0,0 +1,270 @@
+package com.chikere.bp.bptracker.cohort;
+
+import com.chikere.bp.bptracker.model.enums.Gender;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Bitmap index of patients by gender, birth year, known condition and the day of their latest
+ * reading. Each patient gets a small ordinal, reused after the patient is removed, and every
+ * dimension value a {@link CompressedBitmap} of the ordinals that have it, so a cohort filter is
+ * a few ANDs and ORs of bitmaps. The birth date and latest reading day of each ordinal are also
+ * kept in arrays, to narrow the two birth years at the edges of an age range.
+ * <p>
+ * Not thread-safe.
+ * </p>
+ */
+public class PatientCohortIndex {
+
+    private static final int NONE = Integer.MIN_VALUE;
+    private static final String[] NO_CONDITIONS = {};
+    private static final Pattern CONDITION_SEPARATOR = Pattern.compile("[,;\\n]");
+
+    /**
+     * A cohort: patients matching every given dimension, and within a dimension any of the
+     * given values. {@code null} or empty dimensions are not filtered on.
+     *
+     * @param genders           Any of these genders
+     * @param minAge            Aged at least this many full years on {@code today}
+     * @param maxAge            Aged at most this many full years on {@code today}
+     * @param conditions        Any of these known conditions, compared as by {@link #conditions(String)}
+     * @param readingWithinDays Latest reading on or after the day this many days before {@code today}
+     * @param today             The day ages and reading recency are measured on
+     */
+    public record Filter(Set<Gender> genders, Integer minAge, Integer maxAge, Set<String> conditions,
+                         Integer readingWithinDays, LocalDate today) {
+    }
+
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final List<UUID> ids = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final CompressedBitmap patients = new CompressedBitmap();
+
+    private final Map<Gender, CompressedBitmap> byGender = new EnumMap<>(Gender.class);
+    private final NavigableMap<Integer, CompressedBitmap> byBirthYear = new TreeMap<>();
+    private final Map<String, CompressedBitmap> byCondition = new HashMap<>();
+    private final NavigableMap<Long, CompressedBitmap> byLatestReadingDay = new TreeMap<>();
+
+    private Gender[] genders = new Gender[1024];
+    private int[] birthDays = new int[1024];
+    private String[][] conditions = new String[1024][];
+    private long[] latestReadingDays = new long[1024];
+
+    /**
+     * Adds a patient, or replaces the indexed gender, birth date and conditions of an indexed one.
+     */
+    public void put(UUID patientId, Gender gender, LocalDate birthDate, String knownConditions) {
+        Integer ordinal = ordinals.get(patientId);
+        if (ordinal == null) {
+            ordinal = allocate(patientId);
+        } else {
+            removeAttributes(ordinal);
+        }
+        genders[ordinal] = gender;
+        if (gender != null) {
+            byGender.computeIfAbsent(gender, g -> new CompressedBitmap()).add(ordinal);
+        }
+        birthDays[ordinal] = birthDate != null ? (int) birthDate.toEpochDay() : NONE;
+        if (birthDate != null) {
+            byBirthYear.computeIfAbsent(birthDate.getYear(), y -> new CompressedBitmap()).add(ordinal);
+        }
+        conditions[ordinal] = conditions(knownConditions);
+        for (String condition : conditions[ordinal]) {
+            byCondition.computeIfAbsent(condition, c -> new CompressedBitmap()).add(ordinal);
+        }
+    }
+
+    /**
+     * Removes a patient and frees their ordinal.
+     */
+    public void remove(UUID patientId) {
+        Integer ordinal = ordinals.remove(patientId);
+        if (ordinal == null) {
+            return;
+        }
+        removeAttributes(ordinal);
+        setLatestReadingDay(ordinal, null);
+        patients.remove(ordinal);
+        ids.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+
+    /**
+     * Moves an indexed patient's latest reading day forward to {@code day} if it is later.
+     */
+    public void addReading(UUID patientId, LocalDate day) {
+        Integer ordinal = ordinals.get(patientId);
+        if (ordinal != null && day.toEpochDay() > latestReadingDays[ordinal]) {
+            setLatestReadingDay(ordinal, day);
+        }
+    }
+
+    /**
+     * Sets an indexed patient's latest reading day, {@code null} if they have no readings.
+     */
+    public void setLatestReading(UUID patientId, LocalDate day) {
+        Integer ordinal = ordinals.get(patientId);
+        if (ordinal != null) {
+            setLatestReadingDay(ordinal, day);
+        }
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+
+    public boolean contains(UUID patientId) {
+        return ordinals.containsKey(patientId);
+    }
+
+    /**
+     * The ordinals of the patients in the cohort.
+     */
+    public CompressedBitmap match(Filter filter) {
+        CompressedBitmap result = patients;
+        if (filter.genders() != null && !filter.genders().isEmpty()) {
+            result = result.and(union(filter.genders().stream().map(byGender::get).toList()));
+        }
+        if (filter.minAge() != null || filter.maxAge() != null) {
+            result = result.and(bornBetween(
+                    filter.maxAge() != null ? filter.today().minusYears(filter.maxAge() + 1L).plusDays(1) : LocalDate.MIN,
+                    filter.minAge() != null ? filter.today().minusYears(filter.minAge()) : LocalDate.MAX));
+        }
+        if (filter.conditions() != null && !filter.conditions().isEmpty()) {
+            result = result.and(union(filter.conditions().stream()
+                    .map(condition -> byCondition.get(condition.trim().toLowerCase(Locale.ROOT))).toList()));
+        }
+        if (filter.readingWithinDays() != null) {
+            long since = filter.today().minusDays(filter.readingWithinDays()).toEpochDay();
+            result = result.and(union(byLatestReadingDay.tailMap(since, true).values()));
+        }
+        return result == patients ? patients.copy() : result;
+    }
+
+    /**
+     * The patient ID of an ordinal returned by {@link #match}.
+     */
+    public UUID patientId(int ordinal) {
+        return ids.get(ordinal);
+    }
+
+    /**
+     * Approximate memory held by the bitmaps, in bytes.
+     */
+    public long bitmapBytes() {
+        long bytes = patients.sizeInBytes();
+        for (Collection<CompressedBitmap> bitmaps : List.of(byGender.values(), byBirthYear.values(),
+                byCondition.values(), byLatestReadingDay.values())) {
+            for (CompressedBitmap bitmap : bitmaps) {
+                bytes += bitmap.sizeInBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * The conditions indexed for a patient's known conditions: the lower-cased, trimmed entries
+     * separated by commas, semicolons or new lines, without "none".
+     */
+    public static String[] conditions(String knownConditions) {
+        if (knownConditions == null || knownConditions.isBlank()) {
+            return NO_CONDITIONS;
+        }
+        return CONDITION_SEPARATOR.splitAsStream(knownConditions)
+                .map(condition -> condition.trim().toLowerCase(Locale.ROOT))
+                .filter(condition -> !condition.isEmpty() && !condition.equals("none"))
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    private CompressedBitmap bornBetween(LocalDate earliest, LocalDate latest) {
+        int firstYear = earliest.getYear();
+        int lastYear = latest.getYear();
+        long first = earliest.toEpochDay();
+        long last = latest.toEpochDay();
+        List<CompressedBitmap> years = new ArrayList<>();
+        for (Map.Entry<Integer, CompressedBitmap> year : byBirthYear.subMap(firstYear, true, lastYear, true).entrySet()) {
+            if (year.getKey() == firstYear || year.getKey() == lastYear) {
+                // Only part of the year is in range
+                years.add(year.getValue().filter(ordinal -> birthDays[ordinal] >= first && birthDays[ordinal] <= last));
+            } else {
+                years.add(year.getValue());
+            }
+        }
+        return CompressedBitmap.or(years);
+    }
+
+    private static CompressedBitmap union(Collection<CompressedBitmap> bitmaps) {
+        return CompressedBitmap.or(bitmaps.stream().filter(Objects::nonNull).toList());
+    }
+
+    private int allocate(UUID patientId) {
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = ids.size();
+            ids.add(patientId);
+            if (ordinal == genders.length) {
+                int capacity = ordinal * 2;
+                genders = Arrays.copyOf(genders, capacity);
+                birthDays = Arrays.copyOf(birthDays, capacity);
+                conditions = Arrays.copyOf(conditions, capacity);
+                latestReadingDays = Arrays.copyOf(latestReadingDays, capacity);
+            }
+        } else {
+            ordinal = freeOrdinals.pop();
+            ids.set(ordinal, patientId);
+        }
+        ordinals.put(patientId, ordinal);
+        patients.add(ordinal);
+        latestReadingDays[ordinal] = NONE;
+        return ordinal;
+    }
+
+    private void removeAttributes(int ordinal) {
+        if (genders[ordinal] != null) {
+            removeFrom(byGender, genders[ordinal], ordinal);
+        }
+        if (birthDays[ordinal] != NONE) {
+            removeFrom(byBirthYear, LocalDate.ofEpochDay(birthDays[ordinal]).getYear(), ordinal);
+        }
+        for (String condition : conditions[ordinal]) {
+            removeFrom(byCondition, condition, ordinal);
+        }
+    }
+
+    private void setLatestReadingDay(int ordinal, LocalDate day) {
+        if (latestReadingDays[ordinal] != NONE) {
+            removeFrom(byLatestReadingDay, latestReadingDays[ordinal], ordinal);
+        }
+        latestReadingDays[ordinal] = day != null ? day.toEpochDay() : NONE;
+        if (day != null) {
+            byLatestReadingDay.computeIfAbsent(day.toEpochDay(), d -> new CompressedBitmap()).add(ordinal);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, CompressedBitmap> bitmaps, K key, int ordinal) {
+        CompressedBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.chikere.bp.bptracker.config;
 
+import com.chikere.bp.bptracker.ai.AdaptiveConcurrencyLimiter;
+import com.chikere.bp.bptracker.ai.BoundedChatMemory;
+import com.chikere.bp.bptracker.ai.CircuitBreaker;
+import com.chikere.bp.bptracker.ai.LlmProtectionAdvisor;
+import com.chikere.bp.bptracker.ai.PromptCompactionAdvisor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 public class AIModelConfiguration {
     /**
@@ -15,22 +26,104 @@ public class AIModelConfiguration {
      * The configured ChatClient has the following features:
      * <ul>
      *   <li>A default system prompt that positions the AI as an expert medical professional</li>
-     *   <li>Memory capabilities to maintain conversation context</li>
      *   <li>Logging functionality for monitoring interactions</li>
+     *   <li>An adaptive concurrency limit and circuit breaker around every model call</li>
      * </ul>
+     * Conversation memory is not a default: only the chat sidebar adds
+     * {@link #chatMemoryAdvisor(BoundedChatMemory)}, so risk assessments never carry chat history.
      * </p>
      *
      * @param chatClientBuilder The builder instance for creating a ChatClient
+     * @param llmProtectionAdvisor The advisor guarding model calls
      * @return A fully configured ChatClient instance
      */
 
 
     @Bean
-    public ChatClient chatClient(ChatClient.Builder chatClientBuilder) {
+    public ChatClient chatClient(ChatClient.Builder chatClientBuilder, LlmProtectionAdvisor llmProtectionAdvisor) {
         return chatClientBuilder
                 .defaultSystem("You are an expert medical professional known for providing clear, accurate, and well-reasoned answers. Always think step by step before arriving at a conclusion. Use sound clinical judgment and explain your reasoning in a way that is both informative and easy to understand.")
-                .defaultAdvisors(new MessageChatMemoryAdvisor(new InMemoryChatMemory()), new SimpleLoggerAdvisor())
+                .defaultAdvisors(new SimpleLoggerAdvisor(), llmProtectionAdvisor)
                 .build();
     }
 
-}
\ No newline at end of file
+    /**
+     * Per-conversation chat memory for the sidebar, bounded per conversation and in total.
+     */
+    @Bean
+    public BoundedChatMemory chatMemory(
+            MeterRegistry meterRegistry,
+            @Value("${bptracker.ai.chat-memory.max-messages:20}") int maxMessages,
+            @Value("${bptracker.ai.chat-memory.max-total-chars:2000000}") long maxTotalChars,
+            @Value("${bptracker.ai.chat-memory.idle-timeout:30m}") Duration idleTimeout) {
+        return new BoundedChatMemory(maxMessages, maxTotalChars, idleTimeout)
+                .bindTo(meterRegistry, "ai.chat.memory");
+    }
+
+    /**
+     * Replays a conversation's history into the prompt. Callers pass the conversation ID as the
+     * {@code chat_memory_conversation_id} advisor parameter.
+     */
+    @Bean
+    public MessageChatMemoryAdvisor chatMemoryAdvisor(BoundedChatMemory chatMemory,
+                                                      @Value("${bptracker.ai.chat-memory.max-messages:20}") int maxMessages) {
+        return new MessageChatMemoryAdvisor(chatMemory, AbstractChatMemoryAdvisor.DEFAULT_CHAT_MEMORY_CONVERSATION_ID, maxMessages);
+    }
+
+    /**
+     * Counts tokens locally with the cl100k_base encoding used by the OpenAI chat models.
+     */
+    @Bean
+    public TokenCountEstimator tokenCountEstimator() {
+        return new JTokkitTokenCountEstimator();
+    }
+
+    /**
+     * Keeps the chat history replayed into each prompt within a token budget.
+     */
+    @Bean
+    public PromptCompactionAdvisor promptCompactionAdvisor(
+            BoundedChatMemory chatMemory,
+            TokenCountEstimator tokenCountEstimator,
+            MeterRegistry meterRegistry,
+            @Value("${bptracker.ai.chat-memory.history-token-budget:1500}") int historyTokenBudget,
+            @Value("${bptracker.ai.chat-memory.summary-token-budget:300}") int summaryTokenBudget) {
+        return new PromptCompactionAdvisor(chatMemory, tokenCountEstimator, historyTokenBudget, summaryTokenBudget)
+                .bindTo(meterRegistry, "ai.chat.prompt");
+    }
+
+    /**
+     * Limits concurrent model calls, shrinking the limit as provider latency rises.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter llmConcurrencyLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${bptracker.ai.limiter.initial-limit:10}") int initialLimit,
+            @Value("${bptracker.ai.limiter.min-limit:2}") int minLimit,
+            @Value("${bptracker.ai.limiter.max-limit:50}") int maxLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit)
+                .bindTo(meterRegistry, "ai.llm.limiter");
+    }
+
+    /**
+     * Fails model calls fast while the provider's error rate is high.
+     */
+    @Bean
+    public CircuitBreaker llmCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${bptracker.ai.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${bptracker.ai.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${bptracker.ai.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${bptracker.ai.circuit-breaker.open-duration:30s}") Duration openDuration,
+            @Value("${bptracker.ai.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        return new CircuitBreaker("llm", failureRateThreshold, slidingWindowSize, minimumCalls, openDuration, halfOpenCalls)
+                .bindTo(meterRegistry, "ai.llm.circuit");
+    }
+
+    @Bean
+    public LlmProtectionAdvisor llmProtectionAdvisor(AdaptiveConcurrencyLimiter llmConcurrencyLimiter,
+                                                     CircuitBreaker llmCircuitBreaker) {
+        return new LlmProtectionAdvisor(llmConcurrencyLimiter, llmCircuitBreaker);
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.chikere.bp.bptracker.config;
+
+import com.chikere.bp.bptracker.ai.FakeLlmChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+/**
+ * Replaces the OpenAI chat model with {@link FakeLlmChatModel} when the {@code fake-llm} profile is
+ * active, so the AI paths can be load-tested offline. Every ChatClient call, including the advisors
+ * around it, runs as usual; only the provider is simulated.
+ */
+@Configuration
+@Profile("fake-llm")
+public class FakeLlmConfiguration {
+
+    @Bean
+    @Primary
+    public FakeLlmChatModel fakeLlmChatModel(
+            @Value("${bptracker.fake-llm.latency-median:400ms}") Duration latencyMedian,
+            @Value("${bptracker.fake-llm.latency-p99:2s}") Duration latencyP99,
+            @Value("${bptracker.fake-llm.tokens-per-second:50}") double tokensPerSecond,
+            @Value("${bptracker.fake-llm.error-rate:0}") double errorRate,
+            @Value("${bptracker.fake-llm.seed:42}") long seed) {
+        return new FakeLlmChatModel(latencyMedian, latencyP99, tokensPerSecond, errorRate, seed);
+    }
+}
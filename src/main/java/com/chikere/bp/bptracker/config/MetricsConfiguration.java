@@ -33,6 +33,17 @@ public class MetricsConfiguration {
                 .register(registry);
     }
 
+    /**
+     * Timer for statistical model risk assessment operations.
+     */
+    @Bean
+    public Timer statisticalRiskAssessmentTimer(MeterRegistry registry) {
+        return Timer.builder("risk.assessment.statistical")
+                .description("Timer for statistical model risk assessment operations")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
     /**
      * Counter for successful AI service calls.
      */
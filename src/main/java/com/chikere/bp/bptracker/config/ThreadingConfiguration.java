@@ -0,0 +1,44 @@
+package com.chikere.bp.bptracker.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+
+/**
+ * Threading configuration for request handling and asynchronous work.
+ * <p>
+ * When {@code spring.threads.virtual.enabled=true}, Spring Boot runs Tomcat request handling
+ * and the {@code applicationTaskExecutor} used by {@code @Async} methods on virtual threads.
+ * Slow LLM calls then park a cheap virtual thread instead of holding one of Tomcat's
+ * bounded platform threads. With the property set to {@code false} the classic platform
+ * thread pools are used. Scheduled tasks run on Spring Boot's {@code taskScheduler}, which
+ * follows the same setting.
+ * </p>
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class ThreadingConfiguration {
+
+    /**
+     * Reports virtual threads that stay pinned to their carrier thread (for example while
+     * blocking inside a {@code synchronized} block in a JDBC driver). Only active in
+     * virtual-thread mode.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    @ConditionalOnProperty(name = "bptracker.threads.pinning-monitor.enabled", havingValue = "true", matchIfMissing = true)
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${bptracker.threads.pinning-monitor.threshold:20ms}") Duration threshold) {
+        return new VirtualThreadPinningMonitor(meterRegistry, threshold);
+    }
+}
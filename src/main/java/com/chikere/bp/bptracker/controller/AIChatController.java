@@ -1,13 +1,19 @@
 package com.chikere.bp.bptracker.controller;
 
 import com.chikere.bp.bptracker.service.AIChatService;
+import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -26,11 +32,14 @@ public class AIChatController {
     /**
      * Endpoint for processing user questions and returning AI responses.
      *
+     * The HTTP session identifies the conversation, so follow-up questions see earlier answers.
+     *
      * @param request Map containing the user's question
+     * @param session The user's HTTP session
      * @return ResponseEntity with the AI's response
      */
     @PostMapping
-    public ResponseEntity<Map<String, String>> processQuestion(@RequestBody Map<String, String> request) {
+    public ResponseEntity<Map<String, String>> processQuestion(@RequestBody Map<String, String> request, HttpSession session) {
         String question = request.get("question");
         log.info("Received question: {}", question);
         
@@ -40,11 +49,49 @@ public class AIChatController {
             return ResponseEntity.badRequest().body(errorResponse);
         }
         
-        String response = aiChatService.processQuestion(question);
+        String response = aiChatService.processQuestion(session.getId(), question);
         
         Map<String, String> responseMap = new HashMap<>();
         responseMap.put("response", response);
         
         return ResponseEntity.ok(responseMap);
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint for streaming the AI's response as Server-Sent Events.
+     * <p>
+     * Each token is sent as a {@code token} event whose data is {@code {"token": "..."}}
+     * (JSON keeps leading whitespace intact), followed by a single {@code done} event.
+     * When the client disconnects the subscription is cancelled, which stops the
+     * upstream generation.
+     * </p>
+     *
+     * @param question The user's question
+     * @param session The user's HTTP session, which identifies the conversation
+     * @return ResponseEntity with the stream of events
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Map<String, String>>>> streamQuestion(@RequestParam(required = false) String question,
+                                                                                     HttpSession session) {
+        log.info("Received streaming question: {}", question);
+
+        if (question == null || question.trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Flux<ServerSentEvent<Map<String, String>>> tokens = aiChatService.streamQuestion(session.getId(), question)
+                .map(token -> ServerSentEvent.<Map<String, String>>builder(Map.of("token", token))
+                        .event("token")
+                        .build());
+        Flux<ServerSentEvent<Map<String, String>>> done = Flux.just(
+                ServerSentEvent.<Map<String, String>>builder(Map.of()).event("done").build());
+        Flux<ServerSentEvent<Map<String, String>>> events = tokens
+                .concatWith(done)
+                .onErrorResume(e -> Flux.just(ServerSentEvent.<Map<String, String>>builder(
+                                Map.of("error", "I'm sorry, I couldn't process your question at the moment. Please try again later."))
+                        .event("error")
+                        .build()));
+
+        return ResponseEntity.ok(events);
+    }
+}
@@ -1,7 +1,38 @@
 package com.chikere.bp.bptracker.controller;
 
+import com.chikere.bp.bptracker.cohort.PatientCohortIndex;
+import com.chikere.bp.bptracker.dto.BatchRunDto;
+import com.chikere.bp.bptracker.dto.CircadianReportDto;
+import com.chikere.bp.bptracker.dto.CircadianReportRunDto;
+import com.chikere.bp.bptracker.dto.CohortPercentilesDto;
+import com.chikere.bp.bptracker.dto.CohortSketchRebuildDto;
+import com.chikere.bp.bptracker.dto.PatientCohortDto;
+import com.chikere.bp.bptracker.dto.QuarantinedReadingDto;
+import com.chikere.bp.bptracker.dto.ReadingAlertDto;
+import com.chikere.bp.bptracker.dto.ReadingDto;
+import com.chikere.bp.bptracker.dto.RiskAssessmentJobDto;
+import com.chikere.bp.bptracker.dto.RiskAssessmentResultDto;
+import com.chikere.bp.bptracker.dto.RiskLevelBackfillDto;
+import com.chikere.bp.bptracker.dto.RiskModelTrainingDto;
+import com.chikere.bp.bptracker.dto.RiskWorklistEntryDto;
+import com.chikere.bp.bptracker.model.enums.AgeBand;
+import com.chikere.bp.bptracker.model.enums.CohortDimension;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.RiskEngine;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.chikere.bp.bptracker.rules.RiskRuleSet;
+import com.chikere.bp.bptracker.service.BatchRiskAssessmentService;
+import com.chikere.bp.bptracker.service.CircadianAnalyticsService;
+import com.chikere.bp.bptracker.service.CohortPercentileService;
+import com.chikere.bp.bptracker.service.PatientCohortService;
+import com.chikere.bp.bptracker.service.ReadingAlertService;
+import com.chikere.bp.bptracker.service.ReadingIngestService;
+import com.chikere.bp.bptracker.service.ReadingRiskLevelBackfillService;
 import com.chikere.bp.bptracker.service.ReadingService;
+import com.chikere.bp.bptracker.service.RiskAssessmentJobService;
+import com.chikere.bp.bptracker.service.RiskRuleService;
 import com.chikere.bp.bptracker.service.RiskService;
+import com.chikere.bp.bptracker.service.StatisticalRiskService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,9 +42,20 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -26,6 +68,16 @@ import java.util.UUID;
 public class ApiController {
     private final ReadingService readingService;
     private final RiskService riskService;
+    private final RiskAssessmentJobService riskAssessmentJobService;
+    private final BatchRiskAssessmentService batchRiskAssessmentService;
+    private final StatisticalRiskService statisticalRiskService;
+    private final RiskRuleService riskRuleService;
+    private final ReadingRiskLevelBackfillService readingRiskLevelBackfillService;
+    private final ReadingAlertService readingAlertService;
+    private final CircadianAnalyticsService circadianAnalyticsService;
+    private final CohortPercentileService cohortPercentileService;
+    private final PatientCohortService patientCohortService;
+    private final ReadingIngestService readingIngestService;
 
     /**
      * API endpoint for AI risk analysis
@@ -72,4 +124,644 @@ public class ApiController {
             return ResponseEntity.status(500).body("Error performing AI risk analysis: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * API endpoint for risk analysis with a chosen engine
+     */
+    @Operation(
+        summary = "Analyze patient risk with a chosen engine",
+        description = "Assesses a patient's risk with the threshold rules, the local statistical model or the AI. " +
+                      "The rules engine uses the named rule set, or the default one. " +
+                      "The AI engine requires at least 3 readings; the statistical engine requires a trained model."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Risk assessment successful",
+            content = @Content(mediaType = "text/plain", schema = @Schema(implementation = String.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Patient does not have enough readings for the AI engine",
+            content = @Content(mediaType = "text/plain", schema = @Schema(implementation = String.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Patient, readings or rule set not found",
+            content = @Content
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "No statistical model has been trained yet",
+            content = @Content
+        )
+    })
+    @GetMapping("/v1/api/risk/{patientId}/analyze")
+    public ResponseEntity<String> analyzeRisk(
+            @Parameter(description = "ID of the patient to analyze", required = true)
+            @PathVariable UUID patientId,
+            @Parameter(description = "Engine to assess with: RULES, STATISTICAL or AI")
+            @RequestParam(defaultValue = "RULES") RiskEngine engine,
+            @Parameter(description = "Rule set for the RULES engine; defaults to the default rule set")
+            @RequestParam(required = false) String ruleSet) {
+        log.debug("API request to analyze risk with engine {} for patient with ID: {}", engine, patientId);
+        if (engine == RiskEngine.AI && !readingService.hasAtLeastThreeReadings(patientId)) {
+            log.warn("Patient with ID: {} does not have enough readings for AI risk assessment", patientId);
+            return ResponseEntity.badRequest().body("Patient needs at least 3 readings for AI risk assessment");
+        }
+        return ResponseEntity.ok(riskService.assessRisk(patientId, engine, ruleSet));
+    }
+
+    /**
+     * API endpoint for the risk rule sets in use
+     */
+    @Operation(
+        summary = "Get the risk rule sets",
+        description = "Returns the threshold rule sets the rules engine can classify with, by name"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Rule sets in use",
+        content = @Content(mediaType = "application/json")
+    )
+    @GetMapping("/v1/api/risk/rule-sets")
+    public ResponseEntity<Map<String, RiskRuleSet>> getRuleSets() {
+        return ResponseEntity.ok(riskRuleService.getRuleSets());
+    }
+
+    /**
+     * API endpoint for the patients with readings at or above a risk level
+     */
+    @Operation(
+        summary = "Get the risk worklist",
+        description = "Returns the patients with readings at or above a risk level in a date range, with their " +
+                      "highest level, number of such readings and the latest one, most severe first. " +
+                      "Answered from the stored risk levels of the readings."
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Patients on the worklist",
+        content = @Content(mediaType = "application/json")
+    )
+    @GetMapping("/v1/api/risk/worklist")
+    public ResponseEntity<List<RiskWorklistEntryDto>> getRiskWorklist(
+            @Parameter(description = "Lowest risk level to include")
+            @RequestParam(defaultValue = "SEVERE_HYPERTENSIVE") RiskLevel minLevel,
+            @Parameter(description = "Start of the range, inclusive; defaults to 7 days ago")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the range, exclusive; defaults to now")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        return ResponseEntity.ok(readingService.getRiskWorklist(minLevel, from != null ? from : end.minusDays(7), end));
+    }
+
+    /**
+     * API endpoint for the readings at or above a risk level
+     */
+    @Operation(
+        summary = "Get the readings on the risk worklist",
+        description = "Returns the readings at or above a risk level in a date range, most recent first"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Readings on the worklist",
+        content = @Content(mediaType = "application/json")
+    )
+    @GetMapping("/v1/api/risk/worklist/readings")
+    public ResponseEntity<List<ReadingDto>> getRiskWorklistReadings(
+            @Parameter(description = "Lowest risk level to include")
+            @RequestParam(defaultValue = "SEVERE_HYPERTENSIVE") RiskLevel minLevel,
+            @Parameter(description = "Start of the range, inclusive; defaults to 7 days ago")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the range, exclusive; defaults to now")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Maximum number of readings, up to " + ReadingService.MAX_WORKLIST_READINGS)
+            @RequestParam(defaultValue = "100") int limit) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        return ResponseEntity.ok(readingService.getReadingsAtRisk(minLevel, from != null ? from : end.minusDays(7), end, limit));
+    }
+
+    /**
+     * API endpoint for storing the risk level of existing readings
+     */
+    @Operation(
+        summary = "Backfill the stored risk levels of readings",
+        description = "Classifies readings without a stored risk level with the default rule set, " +
+                      "or every reading when reclassify is true, e.g. after the rules changed"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Backfill completed",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RiskLevelBackfillDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "A backfill is already running",
+            content = @Content
+        )
+    })
+    @PostMapping("/v1/api/risk/worklist/backfill")
+    public ResponseEntity<RiskLevelBackfillDto> backfillRiskLevels(
+            @Parameter(description = "Classify every reading again instead of only those without a level")
+            @RequestParam(defaultValue = "false") boolean reclassify) {
+        return ResponseEntity.ok(readingRiskLevelBackfillService.backfill(reclassify));
+    }
+
+    /**
+     * API endpoint for the alerts raised on patterns of readings
+     */
+    @Operation(
+        summary = "Get reading alerts",
+        description = "Returns the alerts raised in a date range, most recent first. Alerts are raised as readings " +
+                      "are recorded, when a patient's recent readings match an alert rule."
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Alerts raised",
+        content = @Content(mediaType = "application/json")
+    )
+    @GetMapping("/v1/api/alerts")
+    public ResponseEntity<List<ReadingAlertDto>> getAlerts(
+            @Parameter(description = "Only alerts for this patient")
+            @RequestParam(required = false) UUID patientId,
+            @Parameter(description = "Start of the range, inclusive; defaults to 7 days ago")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the range, exclusive; defaults to now")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Maximum number of alerts, up to " + ReadingAlertService.MAX_ALERTS)
+            @RequestParam(defaultValue = "100") int limit) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        return ResponseEntity.ok(readingAlertService.getAlerts(patientId, from != null ? from : end.minusDays(7), end, limit));
+    }
+
+    /**
+     * API endpoint for the alert rules in use
+     */
+    @Operation(
+        summary = "Get the alert rules",
+        description = "Returns the alert rules evaluated on every recorded reading, as written"
+    )
+    @GetMapping("/v1/api/alerts/rules")
+    public ResponseEntity<List<String>> getAlertRules() {
+        return ResponseEntity.ok(readingAlertService.getRules());
+    }
+
+    /**
+     * API endpoint for the quarantined readings
+     */
+    @Operation(
+        summary = "Get the quarantined readings",
+        description = "Returns the submitted readings held back as implausible, most recently received first, " +
+                      "with the plausibility checks they failed"
+    )
+    @GetMapping("/v1/api/readings/quarantine")
+    public ResponseEntity<List<QuarantinedReadingDto>> getQuarantinedReadings(
+            @Parameter(description = "Maximum number of readings, up to " + ReadingIngestService.MAX_QUARANTINED)
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(readingIngestService.getQuarantined(limit));
+    }
+
+    /**
+     * API endpoint for releasing a quarantined reading
+     */
+    @Operation(
+        summary = "Release a quarantined reading",
+        description = "Saves a quarantined reading as a reading after all, e.g. once its values were confirmed"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Reading saved",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReadingDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Quarantined reading or its patient not found",
+            content = @Content
+        )
+    })
+    @PostMapping("/v1/api/readings/quarantine/{id}/release")
+    public ResponseEntity<ReadingDto> releaseQuarantinedReading(
+            @Parameter(description = "ID of the quarantined reading", required = true)
+            @PathVariable UUID id) {
+        return ResponseEntity.ok(readingService.releaseFromQuarantine(id));
+    }
+
+    /**
+     * API endpoint for discarding a quarantined reading
+     */
+    @Operation(
+        summary = "Discard a quarantined reading",
+        description = "Deletes a quarantined reading without saving it"
+    )
+    @DeleteMapping("/v1/api/readings/quarantine/{id}")
+    public ResponseEntity<Void> discardQuarantinedReading(
+            @Parameter(description = "ID of the quarantined reading", required = true)
+            @PathVariable UUID id) {
+        readingIngestService.discard(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * API endpoint for computing the circadian report of a month
+     */
+    @Operation(
+        summary = "Compute the circadian report of a month",
+        description = "Computes morning surge, nocturnal dipping, time in target range and average real variability " +
+                      "of every patient's readings in the month, in parallel, replacing the month's report"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Report computed",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CircadianReportRunDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "A report is already being computed",
+            content = @Content
+        )
+    })
+    @PostMapping("/v1/api/analytics/circadian")
+    public ResponseEntity<CircadianReportRunDto> runCircadianReport(
+            @Parameter(description = "Month to report on, e.g. 2024-03; defaults to the previous month")
+            @RequestParam(required = false) YearMonth month) {
+        return ResponseEntity.ok(circadianAnalyticsService.run(month != null ? month : YearMonth.now().minusMonths(1)));
+    }
+
+    /**
+     * API endpoint for the circadian report of a month
+     */
+    @Operation(
+        summary = "Get the circadian report of a month",
+        description = "Returns the circadian metrics computed for a month, in patient ID order"
+    )
+    @GetMapping("/v1/api/analytics/circadian")
+    public ResponseEntity<List<CircadianReportDto>> getCircadianReport(
+            @Parameter(description = "Month of the report, e.g. 2024-03", required = true)
+            @RequestParam YearMonth month,
+            @Parameter(description = "Only this patient's metrics")
+            @RequestParam(required = false) UUID patientId,
+            @Parameter(description = "Maximum number of rows, up to " + CircadianAnalyticsService.MAX_REPORT_ROWS)
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(circadianAnalyticsService.getReport(month, patientId, limit));
+    }
+
+    /**
+     * API endpoint for systolic percentiles of a cohort
+     */
+    @Operation(
+        summary = "Get systolic percentiles of a cohort",
+        description = "Returns systolic pressure percentiles of the readings taken in a range of months by patients in " +
+                      "the given age bands and genders, optionally one row per month, age band and/or gender. Answered " +
+                      "from per-cohort histograms kept up to date as readings are recorded."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Percentiles per group; groups without readings are left out",
+            content = @Content(mediaType = "application/json")
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "A percentile is not in (0, 100]",
+            content = @Content
+        )
+    })
+    @GetMapping("/v1/api/analytics/systolic-percentiles")
+    public ResponseEntity<List<CohortPercentilesDto>> getSystolicPercentiles(
+            @Parameter(description = "First month, e.g. 2024-01; defaults to 11 months before the last month")
+            @RequestParam(required = false) YearMonth from,
+            @Parameter(description = "Last month, inclusive; defaults to the current month")
+            @RequestParam(required = false) YearMonth to,
+            @Parameter(description = "Age bands to include; all if omitted")
+            @RequestParam(required = false) Set<AgeBand> ageBand,
+            @Parameter(description = "Genders to include; all if omitted")
+            @RequestParam(required = false) Set<Gender> gender,
+            @Parameter(description = "Dimensions to report separately, e.g. MONTH,AGE_BAND")
+            @RequestParam(required = false) Set<CohortDimension> groupBy,
+            @Parameter(description = "Percentiles to report, e.g. 50,90,99")
+            @RequestParam(required = false) double[] percentiles) {
+        YearMonth last = to != null ? to : YearMonth.now();
+        try {
+            return ResponseEntity.ok(cohortPercentileService.query(from != null ? from : last.minusMonths(11), last,
+                    ageBand != null ? ageBand : Set.of(), gender != null ? gender : Set.of(),
+                    groupBy != null ? groupBy : Set.of(),
+                    percentiles != null ? percentiles : CohortPercentileService.DEFAULT_PERCENTILES));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid systolic percentile query: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * API endpoint for rebuilding the cohort histograms
+     */
+    @Operation(
+        summary = "Rebuild the cohort histograms",
+        description = "Counts every month's readings again into the cohort histograms, e.g. after patients' birth " +
+                      "dates or genders were corrected"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Histograms rebuilt",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CohortSketchRebuildDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "A rebuild is already running",
+            content = @Content
+        )
+    })
+    @PostMapping("/v1/api/analytics/systolic-percentiles/rebuild")
+    public ResponseEntity<CohortSketchRebuildDto> rebuildSystolicPercentiles() {
+        return ResponseEntity.ok(cohortPercentileService.rebuildAll());
+    }
+
+    /**
+     * API endpoint for selecting a cohort of patients
+     */
+    @Operation(
+        summary = "Select a cohort of patients",
+        description = "Returns how many patients match every given filter, and within a filter any of the given " +
+                      "values, with the first of them. Answered from an in-memory bitmap index of the patients"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Cohort selected",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PatientCohortDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "minAge is above maxAge, or readingWithinDays is negative",
+            content = @Content
+        )
+    })
+    @GetMapping("/v1/api/patients/cohort")
+    public ResponseEntity<PatientCohortDto> getPatientCohort(
+            @Parameter(description = "Genders to include; all if omitted")
+            @RequestParam(required = false) Set<Gender> gender,
+            @Parameter(description = "Minimum age in full years")
+            @RequestParam(required = false) Integer minAge,
+            @Parameter(description = "Maximum age in full years, inclusive")
+            @RequestParam(required = false) Integer maxAge,
+            @Parameter(description = "Known conditions, any of which must be recorded, e.g. hypertension")
+            @RequestParam(required = false) Set<String> condition,
+            @Parameter(description = "Only patients whose latest reading is at most this many days old")
+            @RequestParam(required = false) Integer readingWithinDays,
+            @Parameter(description = "Maximum number of patients to return (at most 1000)")
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(patientCohortService.query(new PatientCohortIndex.Filter(gender, minAge, maxAge,
+                    condition, readingWithinDays, LocalDate.now()), limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid cohort query: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * API endpoint for training the statistical risk model
+     */
+    @Operation(
+        summary = "Train the statistical risk model",
+        description = "Starts training the local statistical risk model in the background from the stored readings " +
+                      "and completed AI assessments. When done it is saved and used for the STATISTICAL engine; " +
+                      "poll GET /v1/api/risk/statistical-model for the result"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "Training started",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RiskModelTrainingDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "The model is already being trained",
+            content = @Content
+        )
+    })
+    @PostMapping("/v1/api/risk/statistical-model")
+    public ResponseEntity<RiskModelTrainingDto> trainStatisticalModel() {
+        RiskModelTrainingDto training = statisticalRiskService.startTraining();
+        return ResponseEntity.accepted()
+                .location(URI.create("/v1/api/risk/statistical-model"))
+                .body(training);
+    }
+
+    /**
+     * API endpoint for getting the last training of the statistical risk model
+     */
+    @Operation(
+        summary = "Get the last statistical model training",
+        description = "Returns the status of the training started last, with its size and accuracy once completed"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Training found",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RiskModelTrainingDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "No training has been started since the application started",
+            content = @Content
+        )
+    })
+    @GetMapping("/v1/api/risk/statistical-model")
+    public ResponseEntity<RiskModelTrainingDto> getStatisticalModelTraining() {
+        return statisticalRiskService.getLastTraining()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * API endpoint for deadline-bounded AI risk analysis
+     */
+    @Operation(
+        summary = "Analyze patient risk with AI within a deadline",
+        description = "Waits for the AI risk assessment up to a deadline. If the AI has not answered in time, " +
+                      "the rule-based risk level is returned marked provisional, with the ID of the job that " +
+                      "will deliver the AI result. Requires at least 3 readings for the patient."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "AI result, or rule-based fallback",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RiskAssessmentResultDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Patient does not have enough readings",
+            content = @Content
+        )
+    })
+    @GetMapping("/v1/api/risk/{patientId}/assessment")
+    public ResponseEntity<RiskAssessmentResultDto> assessRiskWithinDeadline(
+            @Parameter(description = "ID of the patient to analyze", required = true)
+            @PathVariable UUID patientId,
+            @Parameter(description = "Deadline in milliseconds; defaults to bptracker.ai.deadline", required = false)
+            @RequestParam(required = false) Long deadlineMillis) {
+        log.debug("API request to assess risk within deadline for patient with ID: {}", patientId);
+        if (!readingService.hasAtLeastThreeReadings(patientId)) {
+            log.warn("Patient with ID: {} does not have enough readings for AI risk assessment", patientId);
+            return ResponseEntity.badRequest().build();
+        }
+
+        RiskAssessmentResultDto result = deadlineMillis != null
+                ? riskAssessmentJobService.assessWithinDeadline(patientId, Duration.ofMillis(deadlineMillis))
+                : riskAssessmentJobService.assessWithinDeadline(patientId);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * API endpoint for submitting an asynchronous AI risk analysis
+     */
+    @Operation(
+        summary = "Submit an AI risk analysis job",
+        description = "Queues an AI-based risk assessment for a patient and returns immediately with the job. " +
+                      "If an assessment is already queued, running or completed for the patient's latest reading, " +
+                      "that job is returned instead of starting a new one. Requires at least 3 readings for the patient."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "Job accepted; poll the Location header or subscribe to its events",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RiskAssessmentJobDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Patient does not have enough readings",
+            content = @Content
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "The job queue is full, retry later",
+            content = @Content
+        )
+    })
+    @PostMapping("/v1/api/risk/{patientId}/analyzeAI/jobs")
+    public ResponseEntity<RiskAssessmentJobDto> submitRiskAnalysisJob(
+            @Parameter(description = "ID of the patient to analyze", required = true)
+            @PathVariable UUID patientId) {
+        log.debug("API request to submit AI risk analysis job for patient with ID: {}", patientId);
+        if (!readingService.hasAtLeastThreeReadings(patientId)) {
+            log.warn("Patient with ID: {} does not have enough readings for AI risk assessment", patientId);
+            return ResponseEntity.badRequest().build();
+        }
+
+        RiskAssessmentJobDto job = riskAssessmentJobService.submit(patientId);
+        return ResponseEntity.accepted()
+                .location(URI.create("/v1/api/risk/jobs/" + job.getId()))
+                .body(job);
+    }
+
+    /**
+     * API endpoint for polling an AI risk analysis job
+     */
+    @Operation(
+        summary = "Get an AI risk analysis job",
+        description = "Returns the status of an AI risk analysis job and, once completed, its risk level"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Job found",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RiskAssessmentJobDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Job not found",
+            content = @Content
+        )
+    })
+    @GetMapping("/v1/api/risk/jobs/{jobId}")
+    public ResponseEntity<RiskAssessmentJobDto> getRiskAnalysisJob(
+            @Parameter(description = "ID of the job", required = true)
+            @PathVariable UUID jobId) {
+        return ResponseEntity.ok(riskAssessmentJobService.getJob(jobId));
+    }
+
+    /**
+     * API endpoint for subscribing to the completion of an AI risk analysis job
+     */
+    @Operation(
+        summary = "Subscribe to an AI risk analysis job",
+        description = "Streams a single Server-Sent Event named 'completed' or 'failed' carrying the job once it finishes"
+    )
+    @GetMapping(value = "/v1/api/risk/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToRiskAnalysisJob(
+            @Parameter(description = "ID of the job", required = true)
+            @PathVariable UUID jobId) {
+        return riskAssessmentJobService.subscribe(jobId);
+    }
+
+    /**
+     * API endpoint for starting a population-wide AI risk assessment run
+     */
+    @Operation(
+        summary = "Start a batch AI risk analysis run",
+        description = "Re-assesses every patient with at least 3 readings in the background. " +
+                      "If a previous run was interrupted, it resumes from its last checkpoint."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "Run started",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchRunDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "A run is already in progress",
+            content = @Content
+        )
+    })
+    @PostMapping("/v1/api/risk/batch-runs")
+    public ResponseEntity<BatchRunDto> startBatchRun() {
+        BatchRunDto run = batchRiskAssessmentService.startRun();
+        return ResponseEntity.accepted()
+                .location(URI.create("/v1/api/risk/batch-runs/" + run.getId()))
+                .body(run);
+    }
+
+    /**
+     * API endpoint for listing recent batch runs
+     */
+    @Operation(
+        summary = "List recent batch AI risk analysis runs",
+        description = "Returns the 10 most recent runs with their progress, throughput and latency percentiles"
+    )
+    @GetMapping("/v1/api/risk/batch-runs")
+    public ResponseEntity<List<BatchRunDto>> getBatchRuns() {
+        return ResponseEntity.ok(batchRiskAssessmentService.getRecentRuns());
+    }
+
+    /**
+     * API endpoint for getting a batch run
+     */
+    @Operation(
+        summary = "Get a batch AI risk analysis run",
+        description = "Returns the progress, throughput and latency percentiles of a run"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Run found",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchRunDto.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Run not found",
+            content = @Content
+        )
+    })
+    @GetMapping("/v1/api/risk/batch-runs/{runId}")
+    public ResponseEntity<BatchRunDto> getBatchRun(
+            @Parameter(description = "ID of the run", required = true)
+            @PathVariable UUID runId) {
+        return ResponseEntity.ok(batchRiskAssessmentService.getRun(runId));
+    }
+}
@@ -6,6 +6,7 @@ import com.chikere.bp.bptracker.exception.EntityNotFoundException;
 import com.chikere.bp.bptracker.mapper.PatientMapper;
 import com.chikere.bp.bptracker.model.Patient;
 import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.service.PatientReadingStatsService;
 import com.chikere.bp.bptracker.service.PatientService;
 import com.chikere.bp.bptracker.service.ReadingService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -36,6 +37,7 @@ public class PatientController {
     private final PatientService patientService;
     private final ReadingService readingService;
     private final PatientMapper patientMapper;
+    private final PatientReadingStatsService patientReadingStatsService;
 
     /**
      * Home page / dashboard
@@ -117,6 +119,9 @@ public class PatientController {
         // Check if patient has any readings for CSV download button
         model.addAttribute("hasReadings", readingService.hasReadings(id));
 
+        // Running statistics of all readings, null if there are none
+        model.addAttribute("readingStats", patientReadingStatsService.getStatistics(id).orElse(null));
+
         return "patients/view";
     }
 
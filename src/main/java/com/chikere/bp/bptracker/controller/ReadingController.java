@@ -2,7 +2,9 @@ package com.chikere.bp.bptracker.controller;
 
 import com.chikere.bp.bptracker.dto.NewReadingDto;
 import com.chikere.bp.bptracker.dto.ReadingDto;
+import com.chikere.bp.bptracker.exception.DuplicateReadingException;
 import com.chikere.bp.bptracker.exception.EntityNotFoundException;
+import com.chikere.bp.bptracker.exception.ReadingQuarantinedException;
 import com.chikere.bp.bptracker.model.enums.Arm;
 import com.chikere.bp.bptracker.model.enums.BodyPosition;
 import com.chikere.bp.bptracker.service.PatientService;
@@ -154,6 +156,11 @@ public class ReadingController {
             description = "Reading created successfully, redirects to reading details page",
             content = @Content
         ),
+        @ApiResponse(
+            responseCode = "200",
+            description = "Reading quarantined as implausible, or already being saved; the form is shown again with the reason",
+            content = @Content(mediaType = "text/html")
+        ),
         @ApiResponse(
             responseCode = "400", 
             description = "Invalid reading data",
@@ -168,14 +175,42 @@ public class ReadingController {
     @PostMapping("/readings/new")
     public String createReading(
             @Parameter(description = "Reading information", required = true)
-            @ModelAttribute NewReadingDto reading) {
+            @ModelAttribute NewReadingDto reading,
+            Model model) {
         log.debug("Web request to create new reading: {}", reading);
-        ReadingDto savedReading = readingService.create(reading);
+        ReadingDto savedReading;
+        try {
+            savedReading = readingService.create(reading);
+        } catch (ReadingQuarantinedException e) {
+            log.warn("Reading for patient ID: {} was quarantined: {}", reading.getPatientId(), e.getMessage());
+            model.addAttribute("readingError", e.getMessage());
+            return readingForm(reading, model);
+        } catch (DuplicateReadingException e) {
+            log.info("Reading for patient ID: {} was submitted twice: {}", reading.getPatientId(), e.getMessage());
+            model.addAttribute("readingError", "This reading was already submitted and is still being saved. "
+                    + "Check the patient's readings before submitting it again.");
+            return readingForm(reading, model);
+        }
         log.info("Reading created successfully with ID: {} for patient ID: {}", 
                 savedReading.getId(), reading.getPatientId());
         return "redirect:/readings/" + savedReading.getId();
     }
 
+    /**
+     * The new reading form again with the submitted values
+     */
+    private String readingForm(NewReadingDto reading, Model model) {
+        model.addAttribute(READING, reading);
+        if (reading.getPatientId() != null) {
+            model.addAttribute("patient", patientService.get(reading.getPatientId()));
+        } else {
+            model.addAttribute("patients", patientService.findAll());
+        }
+        model.addAttribute("bodyPositions", BodyPosition.values());
+        model.addAttribute("arms", Arm.values());
+        return "readings/new";
+    }
+
     /**
      * Download all readings as CSV
      */
@@ -1,8 +1,11 @@
 package com.chikere.bp.bptracker.controller;
 
+import com.chikere.bp.bptracker.dto.RiskAssessmentJobDto;
 import com.chikere.bp.bptracker.exception.EntityNotFoundException;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
 import com.chikere.bp.bptracker.service.PatientService;
 import com.chikere.bp.bptracker.service.ReadingService;
+import com.chikere.bp.bptracker.service.RiskAssessmentJobService;
 import com.chikere.bp.bptracker.service.RiskService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -30,6 +33,7 @@ public class RiskAssessmentController {
     private final PatientService patientService;
     private final ReadingService readingService;
     private final RiskService riskService;
+    private final RiskAssessmentJobService riskAssessmentJobService;
 
     /**
      * Risk assessment page
@@ -37,7 +41,8 @@ public class RiskAssessmentController {
     @Operation(
         summary = "Display risk assessment for a patient",
         description = "Shows risk assessment information for a patient based on their blood pressure readings. " +
-                      "Optionally performs AI-based risk analysis if requested."
+                      "Shows the stored AI risk analysis for the latest reading if there is one, and optionally " +
+                      "submits a background AI risk analysis if requested."
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -83,17 +88,23 @@ public class RiskAssessmentController {
             model.addAttribute("latestReading", null);
         }
 
-        // Only perform AI analysis if explicitly requested
+        // Only submit AI analysis if explicitly requested; the LLM call runs in the background
         if (Boolean.TRUE.equals(analyze)) {
-            log.info("Performing AI risk analysis for patient with ID: {}", patientId);
+            log.info("Submitting AI risk analysis for patient with ID: {}", patientId);
             try {
-                String aiRisk = riskService.accessRiskWithAI(patientId);
-                log.info("AI risk analysis completed for patient with ID: {}, risk level: {}", patientId, aiRisk);
-                model.addAttribute("aiRisk", aiRisk);
+                RiskAssessmentJobDto job = riskAssessmentJobService.submit(patientId);
+                if (job.getStatus() == JobStatus.COMPLETED) {
+                    model.addAttribute("aiRisk", job.getRiskLevel());
+                } else {
+                    model.addAttribute("aiJob", job);
+                }
             } catch (Exception e) {
-                log.error("Error performing AI risk analysis for patient with ID: {}", patientId, e);
+                log.error("Error submitting AI risk analysis for patient with ID: {}", patientId, e);
                 model.addAttribute("aiRiskError", e.getMessage());
             }
+        } else {
+            riskAssessmentJobService.findCompletedJob(patientId)
+                    .ifPresent(job -> model.addAttribute("aiRisk", job.getRiskLevel()));
         }
 
         return "risk/assessment";
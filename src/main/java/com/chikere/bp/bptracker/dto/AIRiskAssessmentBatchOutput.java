@@ -0,0 +1,27 @@
+package com.chikere.bp.bptracker.dto;
+
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Structured answer requested from the model for a prompt that covers several patients.
+ */
+@Data
+public class AIRiskAssessmentBatchOutput {
+    @JsonPropertyDescription("One entry per patient in the prompt")
+    private List<PatientAssessment> assessments;
+
+    @Data
+    public static class PatientAssessment {
+        @JsonPropertyDescription("The patient label from the prompt, such as P1")
+        private String patient;
+        private RiskLevel riskLevel;
+        @JsonPropertyDescription("Confidence in the risk level, between 0 and 1")
+        private Double confidence;
+        @JsonPropertyDescription("One sentence of at most 25 words explaining the risk level")
+        private String rationale;
+    }
+}
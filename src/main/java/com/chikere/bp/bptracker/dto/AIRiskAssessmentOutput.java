@@ -0,0 +1,17 @@
+package com.chikere.bp.bptracker.dto;
+
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import lombok.Data;
+
+/**
+ * Structured answer requested from the model in JSON output mode.
+ */
+@Data
+public class AIRiskAssessmentOutput {
+    private RiskLevel riskLevel;
+    @JsonPropertyDescription("Confidence in the risk level, between 0 and 1")
+    private Double confidence;
+    @JsonPropertyDescription("One sentence of at most 25 words explaining the risk level")
+    private String rationale;
+}
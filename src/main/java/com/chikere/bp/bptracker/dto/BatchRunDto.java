@@ -0,0 +1,23 @@
+package com.chikere.bp.bptracker.dto;
+
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class BatchRunDto {
+    private UUID id;
+    private JobStatus status;
+    private UUID lastPatientId;
+    private long processed;
+    private long succeeded;
+    private long failed;
+    private Double throughputPerMinute;
+    private Double latencyP50Millis;
+    private Double latencyP95Millis;
+    private Double latencyP99Millis;
+    private String errorMessage;
+    private String startedAt;    // As ISO datetime string
+    private String completedAt;  // As ISO datetime string
+}
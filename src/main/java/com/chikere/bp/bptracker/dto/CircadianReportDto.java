@@ -0,0 +1,19 @@
+package com.chikere.bp.bptracker.dto;
+
+import com.chikere.bp.bptracker.model.enums.DippingPattern;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class CircadianReportDto {
+    private String reportMonth;   // As yyyy-MM
+    private UUID patientId;
+    private int readings;
+    private Double morningSurge;
+    private Double nocturnalDipPercent;
+    private DippingPattern dippingPattern;
+    private double timeInTargetRange;
+    private Double systolicArv;
+    private Double diastolicArv;
+}
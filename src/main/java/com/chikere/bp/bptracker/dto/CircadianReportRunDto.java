@@ -0,0 +1,12 @@
+package com.chikere.bp.bptracker.dto;
+
+import lombok.Data;
+
+@Data
+public class CircadianReportRunDto {
+    private String reportMonth;   // As yyyy-MM
+    private long patients;        // Patients with readings in the month
+    private long readings;
+    private int parallelism;      // Worker threads computing the metrics
+    private long durationMillis;
+}
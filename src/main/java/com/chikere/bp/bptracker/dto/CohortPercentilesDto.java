@@ -0,0 +1,16 @@
+package com.chikere.bp.bptracker.dto;
+
+import com.chikere.bp.bptracker.model.enums.AgeBand;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class CohortPercentilesDto {
+    private String month;        // As yyyy-MM; null unless grouped by month
+    private AgeBand ageBand;     // null unless grouped by age band
+    private Gender gender;       // null unless grouped by gender, or for patients without one
+    private long readings;
+    private Map<String, Integer> systolicPercentiles;   // e.g. "p90" -> 142 mmHg
+}
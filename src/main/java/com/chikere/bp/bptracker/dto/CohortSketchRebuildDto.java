@@ -0,0 +1,11 @@
+package com.chikere.bp.bptracker.dto;
+
+import lombok.Data;
+
+@Data
+public class CohortSketchRebuildDto {
+    private int months;
+    private int buckets;      // Cohort buckets stored
+    private long readings;
+    private long durationMillis;
+}
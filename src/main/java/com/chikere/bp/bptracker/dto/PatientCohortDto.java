@@ -0,0 +1,11 @@
+package com.chikere.bp.bptracker.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PatientCohortDto {
+    private int count;                  // Patients in the cohort
+    private List<PatientDTO> patients;  // The first of them in index order, up to the limit
+}
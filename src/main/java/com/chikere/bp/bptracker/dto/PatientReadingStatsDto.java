@@ -0,0 +1,22 @@
+package com.chikere.bp.bptracker.dto;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class PatientReadingStatsDto {
+    private UUID patientId;
+    private long readings;
+    private double systolicMean;
+    private double systolicStdDev;
+    private double systolicEwma;
+    private double diastolicMean;
+    private double diastolicStdDev;
+    private double diastolicEwma;
+    private double heartRateMean;
+    private double heartRateStdDev;
+    private double heartRateEwma;
+    private String latestTimestamp;  // As ISO datetime string
+    private String updatedAt;        // As ISO datetime string
+}
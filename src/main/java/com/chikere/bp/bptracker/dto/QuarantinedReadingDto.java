@@ -0,0 +1,23 @@
+package com.chikere.bp.bptracker.dto;
+
+import com.chikere.bp.bptracker.model.enums.Arm;
+import com.chikere.bp.bptracker.model.enums.BodyPosition;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class QuarantinedReadingDto {
+    private UUID id;
+    private UUID patientId;
+    private int systolic;
+    private int diastolic;
+    private int heartRate;
+    private BodyPosition bodyPosition;
+    private Arm arm;
+    private String notes;
+    private String deviceId;
+    private List<String> reasons;
+    private String receivedAt;    // As ISO datetime string
+}
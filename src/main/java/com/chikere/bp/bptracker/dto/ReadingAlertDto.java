@@ -0,0 +1,18 @@
+package com.chikere.bp.bptracker.dto;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class ReadingAlertDto {
+    private UUID id;
+    private UUID patientId;
+    private UUID readingId;
+    private String ruleName;
+    private String rule;
+    private double observedValue;
+    private int readingsInWindow;
+    private String windowStart;   // As ISO datetime string
+    private String triggeredAt;   // As ISO datetime string
+}
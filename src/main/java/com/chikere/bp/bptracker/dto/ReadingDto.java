@@ -2,6 +2,7 @@ package com.chikere.bp.bptracker.dto;
 
 import com.chikere.bp.bptracker.model.enums.Arm;
 import com.chikere.bp.bptracker.model.enums.BodyPosition;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
 import lombok.Data;
 
 import java.util.UUID;
@@ -18,4 +19,5 @@ public class ReadingDto {
     private Arm arm;
     private String notes;
     private String deviceId;
+    private RiskLevel riskLevel;  // Classified with the rules loaded when the reading is saved
 }
@@ -0,0 +1,17 @@
+package com.chikere.bp.bptracker.dto;
+
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class RiskAssessmentJobDto {
+    private UUID id;
+    private UUID patientId;
+    private JobStatus status;
+    private String riskLevel;
+    private String errorMessage;
+    private String createdAt;    // As ISO datetime string
+    private String completedAt;  // As ISO datetime string
+}
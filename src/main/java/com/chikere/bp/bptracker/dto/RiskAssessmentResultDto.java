@@ -0,0 +1,14 @@
+package com.chikere.bp.bptracker.dto;
+
+import com.chikere.bp.bptracker.model.enums.AssessmentSource;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class RiskAssessmentResultDto {
+    private String riskLevel;
+    private AssessmentSource source;
+    private boolean provisional;  // true while the AI result is still pending on the job
+    private UUID jobId;
+}
@@ -0,0 +1,11 @@
+package com.chikere.bp.bptracker.dto;
+
+import lombok.Data;
+
+@Data
+public class RiskLevelBackfillDto {
+    private boolean reclassified;  // True if every reading was classified again, false if only those without a level
+    private long readings;         // Readings classified
+    private long updated;          // Readings whose stored risk level changed
+    private long durationMillis;
+}
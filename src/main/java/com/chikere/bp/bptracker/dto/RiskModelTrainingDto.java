@@ -0,0 +1,17 @@
+package com.chikere.bp.bptracker.dto;
+
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import lombok.Data;
+
+@Data
+public class RiskModelTrainingDto {
+    private JobStatus status;
+    private int samples;
+    private int aiLabelledSamples;     // Labelled from completed AI assessments; the rest from the rules
+    private double trainingAccuracy;
+    private long trainingMillis;
+    private String modelPath;
+    private String errorMessage;
+    private String startedAt;          // As ISO datetime string
+    private String trainedAt;          // As ISO datetime string
+}
@@ -0,0 +1,14 @@
+package com.chikere.bp.bptracker.dto;
+
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class RiskWorklistEntryDto {
+    private UUID patientId;
+    private RiskLevel highestRiskLevel;
+    private long readings;           // Readings in the range at or above the requested level
+    private String latestTimestamp;  // Most recent of those readings, as ISO datetime string
+}
@@ -0,0 +1,18 @@
+package com.chikere.bp.bptracker.event;
+
+import com.chikere.bp.bptracker.model.enums.Gender;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Published after a patient is created or updated, carrying the attributes cohorts are
+ * selected by so listeners do not need to load the patient again.
+ *
+ * @param patientId The ID of the patient
+ * @param gender The patient's gender
+ * @param birthDate The patient's date of birth
+ * @param knownConditions The patient's known conditions as entered
+ */
+public record PatientChangedEvent(UUID patientId, Gender gender, LocalDate birthDate, String knownConditions) {
+}
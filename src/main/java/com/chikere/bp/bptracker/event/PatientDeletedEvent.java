@@ -0,0 +1,11 @@
+package com.chikere.bp.bptracker.event;
+
+import java.util.UUID;
+
+/**
+ * Published after a patient is deleted.
+ *
+ * @param patientId The ID of the deleted patient
+ */
+public record PatientDeletedEvent(UUID patientId) {
+}
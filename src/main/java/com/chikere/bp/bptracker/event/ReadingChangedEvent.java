@@ -0,0 +1,62 @@
+package com.chikere.bp.bptracker.event;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Published when a reading is created, updated or deleted, carrying the values of the reading
+ * so listeners do not need to load it again.
+ * <p>
+ * It is published inside the transaction that changes the reading. Listeners are
+ * {@code @TransactionalEventListener}s, so they only see committed changes and a listener that
+ * fails is logged instead of failing the change. Listeners that write run with
+ * {@code NOT_SUPPORTED} propagation, so their writes are not joined to the committed transaction.
+ * </p>
+ *
+ * @param change What happened to the reading
+ * @param patientId The ID of the patient the reading belongs to
+ * @param readingId The ID of the reading
+ * @param timestamp When the reading was taken
+ * @param previous The values an updated reading had before, or null unless {@code change} is
+ *                 {@link Change#UPDATED}
+ */
+public record ReadingChangedEvent(Change change, UUID patientId, UUID readingId, LocalDateTime timestamp,
+                                  int systolic, int diastolic, int heartRate, Previous previous) {
+
+    public enum Change {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static ReadingChangedEvent created(UUID patientId, UUID readingId, LocalDateTime timestamp,
+                                              int systolic, int diastolic, int heartRate) {
+        return new ReadingChangedEvent(Change.CREATED, patientId, readingId, timestamp, systolic, diastolic, heartRate, null);
+    }
+
+    public static ReadingChangedEvent updated(UUID patientId, UUID readingId, LocalDateTime timestamp,
+                                              int systolic, int diastolic, int heartRate, Previous previous) {
+        return new ReadingChangedEvent(Change.UPDATED, patientId, readingId, timestamp, systolic, diastolic, heartRate, previous);
+    }
+
+    public static ReadingChangedEvent deleted(UUID patientId, UUID readingId, LocalDateTime timestamp,
+                                              int systolic, int diastolic, int heartRate) {
+        return new ReadingChangedEvent(Change.DELETED, patientId, readingId, timestamp, systolic, diastolic, heartRate, null);
+    }
+
+    /**
+     * Whether an update moved the reading from another patient, {@code previous().patientId()}.
+     */
+    public boolean movedPatient() {
+        return previous != null && !previous.patientId().equals(patientId);
+    }
+
+    /**
+     * The values of a reading before an update, which may have moved it to another patient or time.
+     *
+     * @param patientId The ID of the patient the reading belonged to
+     * @param timestamp When the reading was taken
+     */
+    public record Previous(UUID patientId, LocalDateTime timestamp, int systolic, int diastolic, int heartRate) {
+    }
+}
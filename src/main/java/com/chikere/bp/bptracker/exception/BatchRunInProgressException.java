@@ -0,0 +1,11 @@
+package com.chikere.bp.bptracker.exception;
+
+/**
+ * Thrown when a batch run is requested while another one is still running.
+ */
+public class BatchRunInProgressException extends RuntimeException {
+
+    public BatchRunInProgressException(String message) {
+        super(message);
+    }
+}
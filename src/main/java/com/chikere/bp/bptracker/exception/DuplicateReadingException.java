@@ -0,0 +1,11 @@
+package com.chikere.bp.bptracker.exception;
+
+/**
+ * Thrown when a reading is submitted again while the first submission is still being saved.
+ */
+public class DuplicateReadingException extends RuntimeException {
+
+    public DuplicateReadingException(String message) {
+        super(message);
+    }
+}
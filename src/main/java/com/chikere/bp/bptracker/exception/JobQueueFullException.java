@@ -0,0 +1,11 @@
+package com.chikere.bp.bptracker.exception;
+
+/**
+ * Thrown when a background job cannot be accepted because its executor queue is full.
+ */
+public class JobQueueFullException extends RuntimeException {
+
+    public JobQueueFullException(String message) {
+        super(message);
+    }
+}
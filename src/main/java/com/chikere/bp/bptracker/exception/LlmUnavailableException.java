@@ -0,0 +1,12 @@
+package com.chikere.bp.bptracker.exception;
+
+/**
+ * Thrown when an LLM call is refused locally, because the concurrency limit is reached or the
+ * circuit breaker is open, instead of waiting on a slow or failing provider.
+ */
+public class LlmUnavailableException extends RuntimeException {
+
+    public LlmUnavailableException(String message) {
+        super(message);
+    }
+}
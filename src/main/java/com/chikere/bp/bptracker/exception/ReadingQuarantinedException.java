@@ -0,0 +1,11 @@
+package com.chikere.bp.bptracker.exception;
+
+/**
+ * Thrown when a submitted reading is implausible and was quarantined instead of saved.
+ */
+public class ReadingQuarantinedException extends RuntimeException {
+
+    public ReadingQuarantinedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.chikere.bp.bptracker.exception;
+
+/**
+ * Thrown when a statistical risk assessment is requested before a model has been trained or loaded.
+ */
+public class RiskModelUnavailableException extends RuntimeException {
+
+    public RiskModelUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,123 @@
+package com.chikere.bp.bptracker.ingest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The latest reading received from each device, to recognise a reading submitted twice: the
+ * same patient and values from the same device within {@code windowMillis}. Holds at most
+ * {@code capacity} devices, dropping the one that sent a reading longest ago.
+ * <p>
+ * A reading is claimed before it is saved, so a second submission arriving while the first is
+ * still being saved is recognised too; {@link #complete} then records the saved reading's ID, or
+ * {@link #release} forgets the claim if it was not saved. Thread-safe.
+ * </p>
+ */
+public class DuplicateReadingIndex {
+
+    /**
+     * What makes two readings from one device the same.
+     */
+    public record Submission(UUID patientId, int systolic, int diastolic, int heartRate) {
+    }
+
+    /**
+     * The reading a submission duplicates.
+     *
+     * @param readingId The ID of the original reading, {@code null} while it is still being saved
+     */
+    public record Duplicate(UUID readingId) {
+    }
+
+    private static final class Entry {
+        private final Submission submission;
+        private final long receivedAt;
+        private UUID readingId;
+
+        private Entry(Submission submission, long receivedAt) {
+            this.submission = submission;
+            this.receivedAt = receivedAt;
+        }
+    }
+
+    private final int capacity;
+    private final long windowMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Entry> entries;
+
+    public DuplicateReadingIndex(int capacity, long windowMillis) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.windowMillis = windowMillis;
+        this.entries = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > DuplicateReadingIndex.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * The reading {@code submission} duplicates, if the device sent the same one within the
+     * window before {@code now}; otherwise claims it as the device's latest reading.
+     */
+    public Optional<Duplicate> claim(String deviceId, Submission submission, long now) {
+        lock.lock();
+        try {
+            Entry latest = entries.get(deviceId);
+            if (latest != null && latest.submission.equals(submission) && now - latest.receivedAt <= windowMillis) {
+                return Optional.of(new Duplicate(latest.readingId));
+            }
+            // Re-inserted so the device moves to the end of the eviction order
+            entries.remove(deviceId);
+            entries.put(deviceId, new Entry(submission, now));
+            return Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the ID of the saved reading claimed for {@code submission}.
+     */
+    public void complete(String deviceId, Submission submission, UUID readingId) {
+        lock.lock();
+        try {
+            Entry latest = entries.get(deviceId);
+            if (latest != null && latest.submission.equals(submission) && latest.readingId == null) {
+                latest.readingId = readingId;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets the claim for {@code submission}, which was not saved.
+     */
+    public void release(String deviceId, Submission submission) {
+        lock.lock();
+        try {
+            Entry latest = entries.get(deviceId);
+            if (latest != null && latest.submission.equals(submission) && latest.readingId == null) {
+                entries.remove(deviceId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
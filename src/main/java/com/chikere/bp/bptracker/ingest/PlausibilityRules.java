@@ -0,0 +1,39 @@
+package com.chikere.bp.bptracker.ingest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ranges outside of which a reading is taken to be a device or entry error rather than a
+ * measurement: each pressure and the heart rate within bounds, and systolic above diastolic by
+ * at least {@code minPulsePressure}. A heart rate of 0 means it was not measured and is not checked.
+ */
+public record PlausibilityRules(int systolicMin, int systolicMax, int diastolicMin, int diastolicMax,
+                                int heartRateMin, int heartRateMax, int minPulsePressure) {
+
+    public PlausibilityRules {
+        if (systolicMin > systolicMax || diastolicMin > diastolicMax || heartRateMin > heartRateMax) {
+            throw new IllegalArgumentException("Plausible ranges must not be empty");
+        }
+    }
+
+    /**
+     * Why the reading is implausible, empty if it is plausible.
+     */
+    public List<String> violations(int systolic, int diastolic, int heartRate) {
+        List<String> violations = new ArrayList<>(2);
+        if (systolic < systolicMin || systolic > systolicMax) {
+            violations.add("systolic " + systolic + " outside " + systolicMin + "-" + systolicMax);
+        }
+        if (diastolic < diastolicMin || diastolic > diastolicMax) {
+            violations.add("diastolic " + diastolic + " outside " + diastolicMin + "-" + diastolicMax);
+        }
+        if (systolic - diastolic < minPulsePressure) {
+            violations.add("systolic " + systolic + " not at least " + minPulsePressure + " above diastolic " + diastolic);
+        }
+        if (heartRate != 0 && (heartRate < heartRateMin || heartRate > heartRateMax)) {
+            violations.add("heart rate " + heartRate + " outside " + heartRateMin + "-" + heartRateMax);
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,14 @@
+package com.chikere.bp.bptracker.mapper;
+
+import com.chikere.bp.bptracker.dto.BatchRunDto;
+import com.chikere.bp.bptracker.model.BatchRun;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface BatchRunMapper {
+    /** BatchRun → BatchRunDto **/
+    @Mapping(source = "startedAt", target = "startedAt", dateFormat = "yyyy-MM-dd'T'HH:mm:ss")
+    @Mapping(source = "completedAt", target = "completedAt", dateFormat = "yyyy-MM-dd'T'HH:mm:ss")
+    BatchRunDto toDto(BatchRun run);
+}
@@ -0,0 +1,13 @@
+package com.chikere.bp.bptracker.mapper;
+
+import com.chikere.bp.bptracker.dto.CircadianReportDto;
+import com.chikere.bp.bptracker.model.CircadianReport;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface CircadianReportMapper {
+    /** CircadianReport → CircadianReportDto **/
+    @Mapping(source = "reportMonth", target = "reportMonth", dateFormat = "yyyy-MM")
+    CircadianReportDto toDto(CircadianReport report);
+}
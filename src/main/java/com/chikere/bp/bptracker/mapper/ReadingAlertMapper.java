@@ -0,0 +1,14 @@
+package com.chikere.bp.bptracker.mapper;
+
+import com.chikere.bp.bptracker.dto.ReadingAlertDto;
+import com.chikere.bp.bptracker.model.ReadingAlert;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface ReadingAlertMapper {
+    /** ReadingAlert → ReadingAlertDto **/
+    @Mapping(source = "windowStart", target = "windowStart", dateFormat = "yyyy-MM-dd'T'HH:mm:ss")
+    @Mapping(source = "triggeredAt", target = "triggeredAt", dateFormat = "yyyy-MM-dd'T'HH:mm:ss")
+    ReadingAlertDto toDto(ReadingAlert alert);
+}
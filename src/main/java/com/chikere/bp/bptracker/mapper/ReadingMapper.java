@@ -26,6 +26,7 @@ public interface ReadingMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "timestamp", ignore = true)
     @Mapping(target = "patient", ignore = true)
+    @Mapping(target = "riskLevel", ignore = true)
     Reading toEntity(NewReadingDto newReadingDto);
 
     /** Helper method to set patient in Reading entity **/
@@ -0,0 +1,14 @@
+package com.chikere.bp.bptracker.mapper;
+
+import com.chikere.bp.bptracker.dto.RiskAssessmentJobDto;
+import com.chikere.bp.bptracker.model.RiskAssessmentJob;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface RiskAssessmentJobMapper {
+    /** RiskAssessmentJob → RiskAssessmentJobDto **/
+    @Mapping(source = "createdAt", target = "createdAt", dateFormat = "yyyy-MM-dd'T'HH:mm:ss")
+    @Mapping(source = "completedAt", target = "completedAt", dateFormat = "yyyy-MM-dd'T'HH:mm:ss")
+    RiskAssessmentJobDto toDto(RiskAssessmentJob job);
+}
@@ -0,0 +1,126 @@
+package com.chikere.bp.bptracker.ml;
+
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Multinomial logistic regression over {@link RiskFeatures}, one class per {@link RiskLevel}.
+ * <p>
+ * Inputs are standardized with the means and scales seen in training. {@link #predict(double[])}
+ * only reads the model's arrays and allocates nothing, so an assessment costs a few hundred
+ * multiply-adds. Models are immutable; a retrained model replaces the old one as a whole.
+ * </p>
+ * <p>
+ * The file format is a fixed header (magic, format version, feature and class counts) followed by
+ * the means, scales, biases and row-major weights as big-endian doubles.
+ * </p>
+ */
+public final class LogisticRiskModel {
+
+    private static final int MAGIC = 0x4250524D; // "BPRM"
+    private static final int FORMAT_VERSION = 1;
+    private static final RiskLevel[] LEVELS = RiskLevel.values();
+
+    private final double[] means;
+    private final double[] scales;
+    private final double[] bias;
+    private final double[] weights;
+
+    LogisticRiskModel(double[] means, double[] scales, double[] bias, double[] weights) {
+        if (means.length != RiskFeatures.COUNT || scales.length != RiskFeatures.COUNT
+                || bias.length != LEVELS.length || weights.length != LEVELS.length * RiskFeatures.COUNT) {
+            throw new IllegalArgumentException("Model dimensions do not match " + RiskFeatures.COUNT
+                    + " features and " + LEVELS.length + " risk levels");
+        }
+        this.means = means;
+        this.scales = scales;
+        this.bias = bias;
+        this.weights = weights;
+    }
+
+    /**
+     * The most likely risk level for a feature vector.
+     *
+     * @param features Feature vector filled by {@link RiskFeatures#fill}
+     */
+    public RiskLevel predict(double[] features) {
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < LEVELS.length; c++) {
+            double score = bias[c];
+            int row = c * RiskFeatures.COUNT;
+            for (int f = 0; f < RiskFeatures.COUNT; f++) {
+                score += weights[row + f] * ((features[f] - means[f]) * scales[f]);
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return LEVELS[best];
+    }
+
+    /**
+     * Writes the model to a file, replacing it atomically.
+     */
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(RiskFeatures.COUNT);
+            out.writeInt(LEVELS.length);
+            writeAll(out, means);
+            writeAll(out, scales);
+            writeAll(out, bias);
+            writeAll(out, weights);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a model written by {@link #write(Path)}.
+     *
+     * @throws IOException if the file cannot be read, or holds a model of another format or shape
+     */
+    public static LogisticRiskModel read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a risk model file: " + path);
+            }
+            int version = in.readInt();
+            int features = in.readInt();
+            int classes = in.readInt();
+            if (version != FORMAT_VERSION || features != RiskFeatures.COUNT || classes != LEVELS.length) {
+                throw new IOException("Incompatible risk model file %s (format %d, %d features, %d classes)"
+                        .formatted(path, version, features, classes));
+            }
+            return new LogisticRiskModel(readAll(in, features), readAll(in, features),
+                    readAll(in, classes), readAll(in, classes * features));
+        }
+    }
+
+    private static void writeAll(DataOutputStream out, double[] values) throws IOException {
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static double[] readAll(DataInputStream in, int length) throws IOException {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,111 @@
+package com.chikere.bp.bptracker.ml;
+
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+
+import java.util.Arrays;
+
+/**
+ * Fits a {@link LogisticRiskModel} by full-batch gradient descent on the softmax cross-entropy
+ * with L2 regularization. Training is offline and single-threaded; it is meant for the few
+ * thousand labelled histories a deployment has, not for online learning.
+ */
+public final class LogisticRiskModelTrainer {
+
+    private static final int CLASSES = RiskLevel.values().length;
+
+    private final int epochs;
+    private final double learningRate;
+    private final double l2;
+
+    public LogisticRiskModelTrainer(int epochs, double learningRate, double l2) {
+        this.epochs = epochs;
+        this.learningRate = learningRate;
+        this.l2 = l2;
+    }
+
+    /**
+     * @param samples Feature vectors filled by {@link RiskFeatures#fill}
+     * @param labels The risk level of each sample
+     */
+    public LogisticRiskModel train(double[][] samples, RiskLevel[] labels) {
+        int n = samples.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("No training samples");
+        }
+        int features = RiskFeatures.COUNT;
+
+        double[] means = new double[features];
+        double[] scales = new double[features];
+        for (double[] sample : samples) {
+            for (int f = 0; f < features; f++) {
+                means[f] += sample[f] / n;
+            }
+        }
+        for (double[] sample : samples) {
+            for (int f = 0; f < features; f++) {
+                double d = sample[f] - means[f];
+                scales[f] += d * d / n;
+            }
+        }
+        for (int f = 0; f < features; f++) {
+            scales[f] = scales[f] > 0 ? 1 / Math.sqrt(scales[f]) : 1;
+        }
+        double[][] standardized = new double[n][features];
+        for (int i = 0; i < n; i++) {
+            for (int f = 0; f < features; f++) {
+                standardized[i][f] = (samples[i][f] - means[f]) * scales[f];
+            }
+        }
+
+        double[] bias = new double[CLASSES];
+        double[] weights = new double[CLASSES * features];
+        double[] biasGradient = new double[CLASSES];
+        double[] weightGradient = new double[CLASSES * features];
+        double[] probabilities = new double[CLASSES];
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            Arrays.fill(biasGradient, 0);
+            Arrays.fill(weightGradient, 0);
+            for (int i = 0; i < n; i++) {
+                double[] x = standardized[i];
+                softmax(bias, weights, x, probabilities);
+                int label = labels[i].ordinal();
+                for (int c = 0; c < CLASSES; c++) {
+                    double error = probabilities[c] - (c == label ? 1 : 0);
+                    biasGradient[c] += error;
+                    int row = c * features;
+                    for (int f = 0; f < features; f++) {
+                        weightGradient[row + f] += error * x[f];
+                    }
+                }
+            }
+            for (int c = 0; c < CLASSES; c++) {
+                bias[c] -= learningRate * biasGradient[c] / n;
+            }
+            for (int w = 0; w < weights.length; w++) {
+                weights[w] -= learningRate * (weightGradient[w] / n + l2 * weights[w]);
+            }
+        }
+        return new LogisticRiskModel(means, scales, bias, weights);
+    }
+
+    private static void softmax(double[] bias, double[] weights, double[] x, double[] into) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < CLASSES; c++) {
+            double score = bias[c];
+            int row = c * x.length;
+            for (int f = 0; f < x.length; f++) {
+                score += weights[row + f] * x[f];
+            }
+            into[c] = score;
+            max = Math.max(max, score);
+        }
+        double sum = 0;
+        for (int c = 0; c < CLASSES; c++) {
+            into[c] = Math.exp(into[c] - max);
+            sum += into[c];
+        }
+        for (int c = 0; c < CLASSES; c++) {
+            into[c] /= sum;
+        }
+    }
+}
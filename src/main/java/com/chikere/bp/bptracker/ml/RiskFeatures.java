@@ -0,0 +1,74 @@
+package com.chikere.bp.bptracker.ml;
+
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.service.ReadingFeatureExtractor;
+
+import java.util.List;
+
+/**
+ * The feature vector the statistical risk model is trained on and evaluated with: the latest
+ * reading plus the history features of {@link ReadingFeatureExtractor}.
+ * <p>
+ * The blood pressure categories are "either number over its threshold", which a linear model
+ * cannot express from systolic and diastolic alone. So the vector also holds a severity index,
+ * the higher of systolic and {@code 2 * diastolic - 40} (which maps the diastolic thresholds
+ * 90/100/110 onto the systolic ones 140/160/180), and the lower of the two pressures.
+ * </p>
+ */
+public final class RiskFeatures {
+
+    public static final int COUNT = 15;
+
+    static final String[] NAMES = {
+            "latestSystolic", "latestDiastolic",
+            "systolicMean", "diastolicMean",
+            "systolicStdDev", "diastolicStdDev",
+            "systolicTrend", "diastolicTrend",
+            "pulsePressureMean",
+            "systolicArv", "diastolicArv",
+            "logReadingCount",
+            "latestSeverity", "latestFloor", "meanSeverity"
+    };
+
+    private RiskFeatures() {
+    }
+
+    /**
+     * Writes the features of a reading history into {@code into}.
+     *
+     * @param history The readings, newest first; must not be empty
+     * @param into Array of at least {@link #COUNT} elements
+     */
+    public static void fill(List<Reading> history, double[] into) {
+        fill(history.get(0), ReadingFeatureExtractor.extract(history), into);
+    }
+
+    /**
+     * Writes the features of a reading history, already extracted, into {@code into}.
+     *
+     * @param latest The most recent reading of the history
+     * @param features The features of the history
+     * @param into Array of at least {@link #COUNT} elements
+     */
+    public static void fill(Reading latest, ReadingFeatureExtractor.Features features, double[] into) {
+        into[0] = latest.getSystolic();
+        into[1] = latest.getDiastolic();
+        into[2] = features.systolicMean();
+        into[3] = features.diastolicMean();
+        into[4] = features.systolicStdDev();
+        into[5] = features.diastolicStdDev();
+        into[6] = features.systolicTrend();
+        into[7] = features.diastolicTrend();
+        into[8] = features.pulsePressureMean();
+        into[9] = features.systolicArv();
+        into[10] = features.diastolicArv();
+        into[11] = Math.log1p(features.count());
+        into[12] = severity(latest.getSystolic(), latest.getDiastolic());
+        into[13] = Math.min(latest.getSystolic(), latest.getDiastolic());
+        into[14] = severity(features.systolicMean(), features.diastolicMean());
+    }
+
+    private static double severity(double systolic, double diastolic) {
+        return Math.max(systolic, 2 * diastolic - 40);
+    }
+}
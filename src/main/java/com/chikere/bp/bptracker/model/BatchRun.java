@@ -0,0 +1,43 @@
+package com.chikere.bp.bptracker.model;
+
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A population-wide AI risk assessment run.
+ * <p>
+ * Eligible patients are processed in patient ID order, and {@code lastPatientId} is the
+ * checkpoint: every eligible patient up to and including it has been assessed. A run left in
+ * {@code RUNNING} state by a restart resumes after the checkpoint.
+ * </p>
+ */
+@Entity
+@Data
+public class BatchRun {
+    @Id @GeneratedValue
+    private UUID id;
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
+    private UUID lastPatientId;
+    private long processed;
+    private long succeeded;
+    private long failed;
+    private long elapsedMillis;
+    private Double throughputPerMinute;
+    private Double latencyP50Millis;
+    private Double latencyP95Millis;
+    private Double latencyP99Millis;
+    private String errorMessage;
+    private LocalDateTime startedAt;
+    private LocalDateTime checkpointedAt;
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    private void onCreate() {
+        startedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,35 @@
+package com.chikere.bp.bptracker.model;
+
+import com.chikere.bp.bptracker.model.enums.DippingPattern;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Day-night blood pressure metrics of a patient's readings in a month, written by the monthly
+ * analytics job. See {@code CircadianMetrics} for the definitions. A run writes its rows
+ * unpublished and publishes them in place of the month's previous rows when it completes.
+ */
+@Entity
+@Data
+@Table(indexes = @Index(name = "idx_circadian_report_month_patient", columnList = "reportMonth,published,patientId"))
+public class CircadianReport {
+    @Id @GeneratedValue
+    private UUID id;
+    private LocalDate reportMonth;         // First day of the month
+    private UUID patientId;
+    private int readings;
+    private Double morningSurge;           // mmHg; null without morning or night readings
+    private Double nocturnalDipPercent;    // null without day or night readings
+    @Enumerated(EnumType.STRING)
+    private DippingPattern dippingPattern;
+    private double timeInTargetRange;      // Percentage of time
+    private Double systolicArv;            // Average real variability, mmHg
+    private Double diastolicArv;
+    private LocalDateTime createdAt;
+    private UUID runId;                    // Job run that wrote the row
+    private boolean published;             // False while the run is still writing
+}
@@ -0,0 +1,35 @@
+package com.chikere.bp.bptracker.model;
+
+import com.chikere.bp.bptracker.analytics.PressureHistogram;
+import com.chikere.bp.bptracker.model.enums.AgeBand;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The systolic pressure histogram of the readings taken in a month by patients of one gender and
+ * age band, the age being taken on the first day of the month.
+ */
+@Entity
+@Data
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cohort_sketch_bucket",
+        columnNames = {"reportMonth", "ageBand", "gender"}))
+public class CohortSketch {
+    @Id @GeneratedValue
+    private UUID id;
+    @Version
+    private Long version;
+    private LocalDate reportMonth;        // First day of the month
+    @Enumerated(EnumType.STRING)
+    private AgeBand ageBand;
+    @Enumerated(EnumType.STRING)
+    private Gender gender;                // null for patients without a gender
+    private long readings;
+    @Column(length = PressureHistogram.MAX_BYTES)
+    private byte[] systolicCounts;        // PressureHistogram.toBytes()
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,38 @@
+package com.chikere.bp.bptracker.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Running statistics of a patient's readings, updated as readings are recorded.
+ * <p>
+ * Means and sums of squared deviations ({@code M2}) are kept with Welford's method, so the
+ * variance is {@code M2 / (readings - 1)}. The exponentially weighted averages follow recent
+ * readings more closely than the means.
+ * </p>
+ */
+@Entity
+@Data
+public class PatientReadingStats {
+    @Id
+    private UUID patientId;
+    @Version
+    private Long version;
+    private long readings;
+    private double systolicMean;
+    private double systolicM2;
+    private double systolicEwma;
+    private double diastolicMean;
+    private double diastolicM2;
+    private double diastolicEwma;
+    private double heartRateMean;
+    private double heartRateM2;
+    private double heartRateEwma;
+    private LocalDateTime latestTimestamp;  // Time of the most recent reading included
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,36 @@
+package com.chikere.bp.bptracker.model;
+
+import com.chikere.bp.bptracker.model.enums.Arm;
+import com.chikere.bp.bptracker.model.enums.BodyPosition;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A submitted reading held back from the readings because its values are implausible, until it
+ * is released into the readings or discarded.
+ */
+@Entity
+@Data
+@Table(indexes = @Index(name = "idx_quarantined_reading_received", columnList = "receivedAt"))
+public class QuarantinedReading {
+    @Id @GeneratedValue
+    private UUID id;
+    private UUID patientId;
+    private int systolic;
+    private int diastolic;
+    private int heartRate;
+
+    @Enumerated(EnumType.STRING)
+    private BodyPosition bodyPosition;
+    @Enumerated(EnumType.STRING)
+    private Arm arm;
+
+    private String notes;
+    private String deviceId;
+    @Column(length = 1000)
+    private String reasons;            // The failed plausibility checks, separated by "; "
+    private LocalDateTime receivedAt;
+}
@@ -2,14 +2,30 @@ package com.chikere.bp.bptracker.model;
 
 import com.chikere.bp.bptracker.model.enums.Arm;
 import com.chikere.bp.bptracker.model.enums.BodyPosition;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
 import jakarta.persistence.*;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+/**
+ * A blood pressure reading.
+ * <p>
+ * The risk level the rules loaded at the time give the reading is stored with it when the reading
+ * is saved; a backfill classifies stored readings again after the rules change. The index on
+ * level, timestamp and patient answers the per-patient severity counts of a date range from the
+ * index alone, and finds the worklist readings of a date range without a table scan; those are
+ * whole readings, so the matching rows are still read from the table. The index on patient and
+ * timestamp serves a patient's readings in time order.
+ * </p>
+ */
 @Entity
 @Data
+@Table(indexes = {
+        @Index(name = "idx_reading_risk_timestamp", columnList = "riskLevel,timestamp,patient_id"),
+        @Index(name = "idx_reading_patient_timestamp", columnList = "patient_id,timestamp")
+})
 public class Reading {
     @Id @GeneratedValue
     private UUID id;
@@ -28,9 +44,14 @@ public class Reading {
     private String notes;
     private String deviceId;
 
+    @Enumerated(EnumType.STRING)
+    private RiskLevel riskLevel;
+
     @PrePersist
     private void onCreate() {
-        timestamp = LocalDateTime.now();
+        if (timestamp == null) {
+            timestamp = LocalDateTime.now();
+        }
     }
 
 
@@ -0,0 +1,30 @@
+package com.chikere.bp.bptracker.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An alert raised when a patient's readings matched an alert rule within its window.
+ */
+@Entity
+@Data
+@Table(indexes = {
+        @Index(name = "idx_reading_alert_patient_time", columnList = "patientId,triggeredAt"),
+        @Index(name = "idx_reading_alert_time", columnList = "triggeredAt")
+})
+public class ReadingAlert {
+    @Id @GeneratedValue
+    private UUID id;
+    private UUID patientId;
+    private UUID readingId;            // The reading that completed the pattern
+    private String ruleName;
+    private String rule;               // The rule as written when the alert was raised
+    private double observedValue;      // The rule's aggregate, e.g. the number of matching readings
+    private int readingsInWindow;
+    private LocalDateTime windowStart;
+    private LocalDateTime triggeredAt;
+    private LocalDateTime createdAt;
+}
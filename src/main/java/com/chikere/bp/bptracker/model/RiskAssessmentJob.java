@@ -0,0 +1,39 @@
+package com.chikere.bp.bptracker.model;
+
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An AI risk assessment that runs in the background.
+ * <p>
+ * A job is tied to the patient's most recent reading and the version of their reading history
+ * at submission time, so a completed job remains the valid result until a reading is recorded,
+ * updated or deleted.
+ * </p>
+ */
+@Entity
+@Data
+@Table(indexes = @Index(name = "idx_risk_job_patient_reading", columnList = "patientId,latestReadingId"))
+public class RiskAssessmentJob {
+    @Id @GeneratedValue
+    private UUID id;
+    private UUID patientId;
+    private UUID latestReadingId;
+    private String historyVersion;         // See PatientReadingStatsService.historyVersion
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
+    private String riskLevel;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    private void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
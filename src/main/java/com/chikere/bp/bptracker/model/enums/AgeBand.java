@@ -0,0 +1,42 @@
+package com.chikere.bp.bptracker.model.enums;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+/**
+ * Ten-year age bands for cohort statistics.
+ */
+public enum AgeBand {
+    UNDER_30(0, 29),
+    AGE_30_39(30, 39),
+    AGE_40_49(40, 49),
+    AGE_50_59(50, 59),
+    AGE_60_69(60, 69),
+    AGE_70_79(70, 79),
+    AGE_80_PLUS(80, Integer.MAX_VALUE),
+    UNKNOWN(-1, -1);   // No birth date
+
+    private final int minAge;
+    private final int maxAge;
+
+    AgeBand(int minAge, int maxAge) {
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * The band of someone born on {@code birthDate} at the age they are on {@code at}.
+     */
+    public static AgeBand of(LocalDate birthDate, LocalDate at) {
+        if (birthDate == null) {
+            return UNKNOWN;
+        }
+        int age = Math.max(0, Period.between(birthDate, at).getYears());
+        for (AgeBand band : values()) {
+            if (age >= band.minAge && age <= band.maxAge) {
+                return band;
+            }
+        }
+        return UNKNOWN;
+    }
+}
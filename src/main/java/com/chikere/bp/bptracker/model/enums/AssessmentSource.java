@@ -0,0 +1,9 @@
+package com.chikere.bp.bptracker.model.enums;
+
+/**
+ * Where a risk assessment result came from.
+ */
+public enum AssessmentSource {
+    AI,
+    RULE_BASED
+}
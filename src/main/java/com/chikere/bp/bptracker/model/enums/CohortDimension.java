@@ -0,0 +1,10 @@
+package com.chikere.bp.bptracker.model.enums;
+
+/**
+ * The dimensions cohort statistics can be grouped by.
+ */
+public enum CohortDimension {
+    MONTH,
+    AGE_BAND,
+    GENDER
+}
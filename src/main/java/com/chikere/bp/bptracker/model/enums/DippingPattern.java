@@ -0,0 +1,22 @@
+package com.chikere.bp.bptracker.model.enums;
+
+/**
+ * How much systolic pressure falls at night relative to the day.
+ */
+public enum DippingPattern {
+    REVERSE_DIPPER,   // Higher at night than during the day
+    NON_DIPPER,       // Falls by less than 10%
+    DIPPER,           // Falls by 10% to 20%
+    EXTREME_DIPPER;   // Falls by 20% or more
+
+    public static DippingPattern of(double dipPercent) {
+        if (dipPercent < 0) {
+            return REVERSE_DIPPER;
+        } else if (dipPercent < 10) {
+            return NON_DIPPER;
+        } else if (dipPercent < 20) {
+            return DIPPER;
+        }
+        return EXTREME_DIPPER;
+    }
+}
@@ -0,0 +1,11 @@
+package com.chikere.bp.bptracker.model.enums;
+
+/**
+ * Lifecycle states of an asynchronous AI risk assessment job.
+ */
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
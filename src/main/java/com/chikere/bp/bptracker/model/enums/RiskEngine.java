@@ -0,0 +1,19 @@
+package com.chikere.bp.bptracker.model.enums;
+
+/**
+ * The engines a risk assessment can be requested from.
+ */
+public enum RiskEngine {
+    /**
+     * Fixed blood pressure thresholds applied to the latest reading.
+     */
+    RULES,
+    /**
+     * Local logistic regression model over the reading history.
+     */
+    STATISTICAL,
+    /**
+     * The LLM, prompted with recent readings and a history summary.
+     */
+    AI
+}
@@ -0,0 +1,15 @@
+package com.chikere.bp.bptracker.model.enums;
+
+/**
+ * The response format requested from the model for AI risk assessments.
+ */
+public enum RiskOutputFormat {
+    /**
+     * Free-text reasoning followed by the risk level on its own line.
+     */
+    TEXT,
+    /**
+     * A compact JSON object with the level, a confidence and a short rationale.
+     */
+    JSON
+}
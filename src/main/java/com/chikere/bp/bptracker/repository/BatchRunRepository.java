@@ -0,0 +1,14 @@
+package com.chikere.bp.bptracker.repository;
+
+import com.chikere.bp.bptracker.model.BatchRun;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface BatchRunRepository extends JpaRepository<BatchRun, UUID> {
+    Optional<BatchRun> findFirstByStatusOrderByStartedAtDesc(JobStatus status);
+    List<BatchRun> findTop10ByOrderByStartedAtDesc();
+}
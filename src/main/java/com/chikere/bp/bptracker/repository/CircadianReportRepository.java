@@ -0,0 +1,48 @@
+package com.chikere.bp.bptracker.repository;
+
+import com.chikere.bp.bptracker.model.CircadianReport;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface CircadianReportRepository extends JpaRepository<CircadianReport, UUID> {
+    List<CircadianReport> findByReportMonthAndPublishedTrueOrderByPatientId(LocalDate reportMonth, Limit limit);
+
+    List<CircadianReport> findByReportMonthAndPatientIdAndPublishedTrue(LocalDate reportMonth, UUID patientId);
+
+    /**
+     * Replaces the published rows of a month with the rows written by a run, in one transaction.
+     *
+     * @return Number of rows published
+     */
+    @Transactional
+    default int publish(LocalDate reportMonth, UUID runId) {
+        deletePublished(reportMonth);
+        return markPublished(runId);
+    }
+
+    @Modifying
+    @Transactional
+    @Query("delete from CircadianReport c where c.reportMonth = :reportMonth and c.published = true")
+    int deletePublished(@Param("reportMonth") LocalDate reportMonth);
+
+    @Modifying
+    @Transactional
+    @Query("update CircadianReport c set c.published = true where c.runId = :runId")
+    int markPublished(@Param("runId") UUID runId);
+
+    /**
+     * Deletes the rows of a month that no run published, left by a run that failed.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from CircadianReport c where c.reportMonth = :reportMonth and c.published = false")
+    int deleteUnpublished(@Param("reportMonth") LocalDate reportMonth);
+}
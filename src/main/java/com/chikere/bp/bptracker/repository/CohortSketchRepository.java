@@ -0,0 +1,18 @@
+package com.chikere.bp.bptracker.repository;
+
+import com.chikere.bp.bptracker.model.CohortSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public interface CohortSketchRepository extends JpaRepository<CohortSketch, UUID> {
+    @Modifying
+    @Transactional
+    @Query("delete from CohortSketch c where c.reportMonth = :reportMonth")
+    int deleteByReportMonth(@Param("reportMonth") LocalDate reportMonth);
+}
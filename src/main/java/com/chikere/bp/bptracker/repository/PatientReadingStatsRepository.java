@@ -0,0 +1,9 @@
+package com.chikere.bp.bptracker.repository;
+
+import com.chikere.bp.bptracker.model.PatientReadingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface PatientReadingStatsRepository extends JpaRepository<PatientReadingStats, UUID> {
+}
@@ -1,11 +1,58 @@
 package com.chikere.bp.bptracker.repository;
 
 import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 public interface PatientRepository extends JpaRepository<Patient, UUID> {
     List<Patient> findByFullNameContainingIgnoreCase(String fullName);
+
+    /**
+     * Keyset page of IDs of patients with at least {@code minReadings} readings, in ID order,
+     * starting after {@code after} (or from the beginning when it is {@code null}).
+     */
+    @Query("""
+            select p.id from Patient p
+            where (:after is null or p.id > :after)
+              and (select count(r) from Reading r where r.patient = p) >= :minReadings
+            order by p.id""")
+    List<UUID> findEligibleIdsAfter(@Param("after") UUID after, @Param("minReadings") long minReadings, Limit limit);
+
+    /**
+     * Keyset page of patient IDs in ID order, starting after {@code after} (or from the beginning
+     * when it is {@code null}).
+     */
+    @Query("select p.id from Patient p where (:after is null or p.id > :after) order by p.id")
+    List<UUID> findIdsAfter(@Param("after") UUID after, Limit limit);
+
+    /**
+     * The attributes of a patient that cohorts are selected by.
+     */
+    interface CohortAttributes {
+        UUID getId();
+        Gender getGender();
+        LocalDate getBirthDate();
+        String getKnownConditions();
+        LocalDateTime getLatestReading();
+    }
+
+    /**
+     * Keyset page of the cohort attributes of patients in ID order, starting after {@code after}
+     * (or from the beginning when it is {@code null}), with the time of each one's latest reading.
+     */
+    @Query("""
+            select p.id as id, p.gender as gender, p.birthDate as birthDate, p.knownConditions as knownConditions,
+                   (select max(r.timestamp) from Reading r where r.patient = p) as latestReading
+            from Patient p
+            where (:after is null or p.id > :after)
+            order by p.id""")
+    List<CohortAttributes> findCohortAttributesAfter(@Param("after") UUID after, Limit limit);
 }
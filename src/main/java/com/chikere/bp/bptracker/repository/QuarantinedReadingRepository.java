@@ -0,0 +1,12 @@
+package com.chikere.bp.bptracker.repository;
+
+import com.chikere.bp.bptracker.model.QuarantinedReading;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface QuarantinedReadingRepository extends JpaRepository<QuarantinedReading, UUID> {
+    List<QuarantinedReading> findAllByOrderByReceivedAtDesc(Limit limit);
+}
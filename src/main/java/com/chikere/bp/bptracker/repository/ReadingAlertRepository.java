@@ -0,0 +1,19 @@
+package com.chikere.bp.bptracker.repository;
+
+import com.chikere.bp.bptracker.model.ReadingAlert;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface ReadingAlertRepository extends JpaRepository<ReadingAlert, UUID> {
+    List<ReadingAlert> findByPatientIdAndTriggeredAtGreaterThanEqual(UUID patientId, LocalDateTime since);
+
+    List<ReadingAlert> findByTriggeredAtGreaterThanEqualAndTriggeredAtLessThanOrderByTriggeredAtDesc(
+            LocalDateTime from, LocalDateTime to, Limit limit);
+
+    List<ReadingAlert> findByPatientIdAndTriggeredAtGreaterThanEqualAndTriggeredAtLessThanOrderByTriggeredAtDesc(
+            UUID patientId, LocalDateTime from, LocalDateTime to, Limit limit);
+}
@@ -1,9 +1,20 @@
 package com.chikere.bp.bptracker.repository;
 
+import com.chikere.bp.bptracker.analytics.ReadingSample;
 import com.chikere.bp.bptracker.model.Patient;
 import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -11,6 +22,118 @@ import java.util.UUID;
 public interface ReadingRepository extends JpaRepository<Reading, UUID> {
     List<Reading> findTop3ByPatientOrderByTimestampDesc(Patient patient);
     Optional<Reading> findFirstByPatientOrderByTimestampDesc(Patient patient);
+
+    /**
+     * When the patient's latest reading was taken, {@code null} if they have no readings.
+     */
+    @Query("select max(r.timestamp) from Reading r where r.patient.id = :patientId")
+    LocalDateTime findLatestTimestamp(@Param("patientId") UUID patientId);
     int countByPatient(Patient patient);
     List<Reading> findAllByPatientOrderByTimestampDesc(Patient patient);
+    List<Reading> findByPatientAndTimestampGreaterThanEqualOrderByTimestampDesc(Patient patient, LocalDateTime since, Limit limit);
+
+    /**
+     * Number of readings and the latest reading time of one patient at one risk level.
+     */
+    interface PatientRiskLevelCount {
+        UUID getPatientId();
+        RiskLevel getRiskLevel();
+        long getReadings();
+        LocalDateTime getLatestTimestamp();
+    }
+
+    /**
+     * The pressures and stored risk level of a reading, for reclassifying it.
+     */
+    interface ReadingPressures {
+        UUID getId();
+        int getSystolic();
+        int getDiastolic();
+        RiskLevel getRiskLevel();
+    }
+
+    /**
+     * Per patient and level, the readings at any of {@code levels} taken in [{@code from}, {@code to}).
+     * Only reads columns of the risk level index.
+     */
+    @Query("""
+            select r.patient.id as patientId, r.riskLevel as riskLevel,
+                   count(r) as readings, max(r.timestamp) as latestTimestamp
+            from Reading r
+            where r.riskLevel in :levels and r.timestamp >= :from and r.timestamp < :to
+            group by r.patient.id, r.riskLevel""")
+    List<PatientRiskLevelCount> countByPatientAndRiskLevel(@Param("levels") Collection<RiskLevel> levels,
+                                                           @Param("from") LocalDateTime from,
+                                                           @Param("to") LocalDateTime to);
+
+    /**
+     * Readings at any of {@code levels} taken in [{@code from}, {@code to}), most recent first.
+     * The level and timestamp index finds the matches, but each one is read from the table, and
+     * with several levels the matches are sorted by time before the limit applies.
+     */
+    @Query("""
+            select r from Reading r
+            where r.riskLevel in :levels and r.timestamp >= :from and r.timestamp < :to
+            order by r.timestamp desc""")
+    List<Reading> findByRiskLevels(@Param("levels") Collection<RiskLevel> levels,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to,
+                                   Limit limit);
+
+    /**
+     * Keyset page of readings in ID order, starting after {@code after} (or from the beginning when
+     * it is {@code null}): all readings if {@code all} is true, otherwise those without a risk level.
+     */
+    @Query("""
+            select r.id as id, r.systolic as systolic, r.diastolic as diastolic, r.riskLevel as riskLevel
+            from Reading r
+            where (:after is null or r.id > :after)
+              and (:all = true or r.riskLevel is null)
+            order by r.id""")
+    List<ReadingPressures> findPressuresAfter(@Param("after") UUID after, @Param("all") boolean all, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("update Reading r set r.riskLevel = :level where r.id in :ids")
+    int updateRiskLevel(@Param("level") RiskLevel level, @Param("ids") Collection<UUID> ids);
+
+    /**
+     * The readings of some patients taken in [{@code from}, {@code to}), ordered by patient and time.
+     */
+    @Query("""
+            select new com.chikere.bp.bptracker.analytics.ReadingSample(r.patient.id, r.timestamp, r.systolic, r.diastolic)
+            from Reading r
+            where r.patient.id in :patientIds and r.timestamp >= :from and r.timestamp < :to
+            order by r.patient.id, r.timestamp""")
+    List<ReadingSample> findSamples(@Param("patientIds") Collection<UUID> patientIds,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
+
+    /**
+     * Number of readings with one systolic pressure by patients of one gender and birth date.
+     */
+    interface SystolicCount {
+        int getSystolic();
+        Gender getGender();
+        LocalDate getBirthDate();
+        long getReadings();
+    }
+
+    interface TimestampRange {
+        LocalDateTime getFirst();
+        LocalDateTime getLast();
+    }
+
+    /**
+     * Readings taken in [{@code from}, {@code to}) counted per systolic pressure, gender and birth date.
+     */
+    @Query("""
+            select r.systolic as systolic, p.gender as gender, p.birthDate as birthDate, count(r) as readings
+            from Reading r join r.patient p
+            where r.timestamp >= :from and r.timestamp < :to
+            group by r.systolic, p.gender, p.birthDate""")
+    List<SystolicCount> countBySystolicAndCohort(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select min(r.timestamp) as first, max(r.timestamp) as last from Reading r")
+    TimestampRange findTimestampRange();
 }
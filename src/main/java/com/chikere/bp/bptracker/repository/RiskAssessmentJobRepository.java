@@ -0,0 +1,37 @@
+package com.chikere.bp.bptracker.repository;
+
+import com.chikere.bp.bptracker.model.RiskAssessmentJob;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface RiskAssessmentJobRepository extends JpaRepository<RiskAssessmentJob, UUID> {
+    Optional<RiskAssessmentJob> findFirstByPatientIdAndLatestReadingIdAndHistoryVersionAndStatusInOrderByCreatedAtDesc(
+            UUID patientId, UUID latestReadingId, String historyVersion, Collection<JobStatus> statuses);
+    List<RiskAssessmentJob> findByPatientIdAndStatus(UUID patientId, JobStatus status);
+
+    /**
+     * Marks every job in one of {@code statuses} failed with {@code errorMessage}.
+     *
+     * @return Number of jobs marked failed
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update RiskAssessmentJob j
+            set j.status = :failed, j.errorMessage = :errorMessage, j.completedAt = :completedAt
+            where j.status in :statuses""")
+    int failAll(@Param("statuses") Collection<JobStatus> statuses,
+                @Param("failed") JobStatus failed,
+                @Param("errorMessage") String errorMessage,
+                @Param("completedAt") LocalDateTime completedAt);
+}
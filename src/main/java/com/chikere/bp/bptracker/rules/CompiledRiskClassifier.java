@@ -0,0 +1,135 @@
+package com.chikere.bp.bptracker.rules;
+
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * A {@link RiskRuleSet} compiled into a dense lookup table indexed by systolic and diastolic pressure.
+ * <p>
+ * Every cell holds the level the rule set gives for that reading, so classifying costs two clamps
+ * and one array load however many thresholds there are. Readings beyond the table are clamped to
+ * its edge; since thresholds lie between 1 and the maximum pressures, that gives the same level as
+ * evaluating the rules. The table takes about 60 KB and is never modified once compiled.
+ * </p>
+ * <p>
+ * Arrays of readings are classified in bulk by {@link #classifyAll(int[], int[], byte[])}. Where the
+ * {@code jdk.incubator.vector} module is enabled ({@code --add-modules jdk.incubator.vector}) and the
+ * CPU has vectors of at least 256 bits, the thresholds are evaluated a vector of readings at a time;
+ * otherwise, and for the tail of each range, readings are looked up in the table one by one. Large
+ * arrays are split into chunks classified in parallel on the common fork/join pool.
+ * </p>
+ */
+public final class CompiledRiskClassifier {
+
+    public static final int MAX_SYSTOLIC = 300;
+    public static final int MAX_DIASTOLIC = 200;
+
+    private static final int STRIDE = MAX_DIASTOLIC + 1;
+    private static final RiskLevel[] LEVELS = RiskLevel.values();
+
+    // Below this many readings forking costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int CHUNK_SIZE = 1 << 14;
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && VectorRiskKernel.isSupported();
+
+    private final RiskRuleSet ruleSet;
+    private final byte[] table;
+    private final VectorRiskKernel vectorKernel;
+
+    private CompiledRiskClassifier(RiskRuleSet ruleSet, byte[] table) {
+        this.ruleSet = ruleSet;
+        this.table = table;
+        this.vectorKernel = VECTORIZED ? new VectorRiskKernel(ruleSet) : null;
+    }
+
+    /**
+     * Whether bulk classification uses the Vector API in this JVM.
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Width in bits of the vectors used for bulk classification, or 0 if it is scalar.
+     */
+    public static int vectorBitSize() {
+        return VECTORIZED ? VectorRiskKernel.vectorBitSize() : 0;
+    }
+
+    /**
+     * Evaluates the rule set for every reading in the table.
+     */
+    public static CompiledRiskClassifier compile(RiskRuleSet ruleSet) {
+        byte[] table = new byte[(MAX_SYSTOLIC + 1) * STRIDE];
+        for (int systolic = 0; systolic <= MAX_SYSTOLIC; systolic++) {
+            for (int diastolic = 0; diastolic <= MAX_DIASTOLIC; diastolic++) {
+                table[systolic * STRIDE + diastolic] = (byte) ruleSet.evaluate(systolic, diastolic).ordinal();
+            }
+        }
+        return new CompiledRiskClassifier(ruleSet, table);
+    }
+
+    /**
+     * Classifies a reading with the compiled table.
+     *
+     * @param systolic Systolic pressure in mmHg
+     * @param diastolic Diastolic pressure in mmHg
+     * @return The level the rule set gives for the reading
+     */
+    public RiskLevel classify(int systolic, int diastolic) {
+        int row = Math.min(Math.max(systolic, 0), MAX_SYSTOLIC);
+        int column = Math.min(Math.max(diastolic, 0), MAX_DIASTOLIC);
+        return LEVELS[table[row * STRIDE + column]];
+    }
+
+    /**
+     * Classifies arrays of readings, in parallel if they are large.
+     *
+     * @param systolic Systolic pressures in mmHg
+     * @param diastolic Diastolic pressures in mmHg, at the same indexes
+     * @param levels Receives the {@link RiskLevel} ordinal of each reading
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public void classifyAll(int[] systolic, int[] diastolic, byte[] levels) {
+        int count = systolic.length;
+        if (diastolic.length != count || levels.length != count) {
+            throw new IllegalArgumentException("Expected arrays of " + count + " readings, got "
+                    + diastolic.length + " diastolic pressures and " + levels.length + " levels");
+        }
+        if (count < PARALLEL_THRESHOLD) {
+            classifyRange(systolic, diastolic, levels, 0, count, true);
+            return;
+        }
+        IntStream.range(0, (count + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel().forEach(chunk -> {
+            int from = chunk * CHUNK_SIZE;
+            classifyRange(systolic, diastolic, levels, from, Math.min(count, from + CHUNK_SIZE), true);
+        });
+    }
+
+    /**
+     * Classifies the readings in {@code [from, to)} on the calling thread.
+     *
+     * @param vectorized Whether to use the Vector API where available; false always looks up the table
+     */
+    public void classifyRange(int[] systolic, int[] diastolic, byte[] levels, int from, int to, boolean vectorized) {
+        Objects.checkFromToIndex(from, to, systolic.length);
+        Objects.checkFromToIndex(from, to, diastolic.length);
+        Objects.checkFromToIndex(from, to, levels.length);
+        int i = from;
+        if (vectorized && vectorKernel != null) {
+            i = vectorKernel.classify(systolic, diastolic, levels, from, to);
+        }
+        for (; i < to; i++) {
+            int row = Math.min(Math.max(systolic[i], 0), MAX_SYSTOLIC);
+            int column = Math.min(Math.max(diastolic[i], 0), MAX_DIASTOLIC);
+            levels[i] = table[row * STRIDE + column];
+        }
+    }
+
+    public RiskRuleSet getRuleSet() {
+        return ruleSet;
+    }
+}
@@ -0,0 +1,88 @@
+package com.chikere.bp.bptracker.rules;
+
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+
+import java.util.List;
+
+/**
+ * Blood pressure thresholds as data: an ordered list of thresholds, the first of which a reading
+ * reaches decides its level, and the level of readings that reach none.
+ * <p>
+ * A threshold with {@link Match#ANY} is reached when either pressure is at or above its value,
+ * one with {@link Match#ALL} when both are. Threshold values must lie between 1 and the maximum
+ * pressures of {@link CompiledRiskClassifier}, so the compiled table gives exactly the levels
+ * {@link #evaluate(int, int)} gives.
+ * </p>
+ *
+ * @param thresholds Thresholds, checked in order
+ * @param otherwise Level of readings below every threshold
+ */
+public record RiskRuleSet(List<Threshold> thresholds, RiskLevel otherwise) {
+
+    /**
+     * The thresholds the application has always used.
+     */
+    public static final RiskRuleSet DEFAULT = new RiskRuleSet(List.of(
+            new Threshold(RiskLevel.SEVERE_HYPERTENSIVE, 180, 110, Match.ANY),
+            new Threshold(RiskLevel.MODERATE_HYPERTENSIVE, 160, 100, Match.ANY),
+            new Threshold(RiskLevel.MILD_HYPERTENSIVE, 140, 90, Match.ANY),
+            new Threshold(RiskLevel.NORMAL, 80, 80, Match.ALL)),
+            RiskLevel.LOW);
+
+    public enum Match {
+        ANY, ALL
+    }
+
+    /**
+     * @param match Whether either or both pressures must reach the threshold; defaults to {@link Match#ANY}
+     */
+    public record Threshold(RiskLevel level, int systolic, int diastolic, Match match) {
+
+        public Threshold {
+            if (level == null) {
+                throw new IllegalArgumentException("Threshold level is required");
+            }
+            if (systolic < 1 || systolic > CompiledRiskClassifier.MAX_SYSTOLIC
+                    || diastolic < 1 || diastolic > CompiledRiskClassifier.MAX_DIASTOLIC) {
+                throw new IllegalArgumentException("Threshold " + systolic + "/" + diastolic + " for " + level
+                        + " is outside 1-" + CompiledRiskClassifier.MAX_SYSTOLIC
+                        + "/1-" + CompiledRiskClassifier.MAX_DIASTOLIC);
+            }
+            if (match == null) {
+                match = Match.ANY;
+            }
+        }
+
+        boolean reachedBy(int systolic, int diastolic) {
+            return match == Match.ALL
+                    ? systolic >= this.systolic && diastolic >= this.diastolic
+                    : systolic >= this.systolic || diastolic >= this.diastolic;
+        }
+    }
+
+    public RiskRuleSet {
+        if (thresholds == null || thresholds.isEmpty()) {
+            throw new IllegalArgumentException("A rule set needs at least one threshold");
+        }
+        if (otherwise == null) {
+            throw new IllegalArgumentException("A rule set needs a level for readings below every threshold");
+        }
+        thresholds = List.copyOf(thresholds);
+    }
+
+    /**
+     * Classifies a reading by checking the thresholds in order.
+     *
+     * @param systolic Systolic pressure in mmHg
+     * @param diastolic Diastolic pressure in mmHg
+     * @return The level of the first threshold reached, or {@link #otherwise()}
+     */
+    public RiskLevel evaluate(int systolic, int diastolic) {
+        for (Threshold threshold : thresholds) {
+            if (threshold.reachedBy(systolic, diastolic)) {
+                return threshold.level();
+            }
+        }
+        return otherwise;
+    }
+}
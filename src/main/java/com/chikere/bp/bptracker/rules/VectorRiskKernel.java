@@ -0,0 +1,89 @@
+package com.chikere.bp.bptracker.rules;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.List;
+
+/**
+ * Classifies readings a vector of lanes at a time by evaluating the thresholds of a rule set
+ * with SIMD compares and blends, using the JDK Vector API.
+ * <p>
+ * Thresholds are applied from last to first, each overwriting the lanes that reach it, so every
+ * lane ends up with the level of the first threshold it reaches, exactly as
+ * {@link RiskRuleSet#evaluate(int, int)}. Levels are computed in int lanes and narrowed to bytes
+ * on store. Only loaded when the {@code jdk.incubator.vector} module is present; see
+ * {@link CompiledRiskClassifier}.
+ * </p>
+ */
+final class VectorRiskKernel {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Narrowing needs a byte shape of at least 64 bits, so int vectors of 256 bits or more
+    private static final VectorSpecies<Byte> BYTES = INTS.vectorBitSize() >= 256
+            ? VectorSpecies.of(byte.class, VectorShape.forBitSize(INTS.length() * Byte.SIZE))
+            : null;
+
+    private final int[] systolic;
+    private final int[] diastolic;
+    private final boolean[] all;
+    private final int[] levels;
+    private final int otherwise;
+
+    VectorRiskKernel(RiskRuleSet ruleSet) {
+        List<RiskRuleSet.Threshold> thresholds = ruleSet.thresholds().reversed();
+        int count = thresholds.size();
+        systolic = new int[count];
+        diastolic = new int[count];
+        all = new boolean[count];
+        levels = new int[count];
+        for (int t = 0; t < count; t++) {
+            RiskRuleSet.Threshold threshold = thresholds.get(t);
+            systolic[t] = threshold.systolic();
+            diastolic[t] = threshold.diastolic();
+            all[t] = threshold.match() == RiskRuleSet.Match.ALL;
+            levels[t] = threshold.level().ordinal();
+        }
+        otherwise = ruleSet.otherwise().ordinal();
+    }
+
+    /**
+     * Whether the platform's preferred vectors are wide enough for this kernel.
+     */
+    static boolean isSupported() {
+        return BYTES != null;
+    }
+
+    static int vectorBitSize() {
+        return INTS.vectorBitSize();
+    }
+
+    /**
+     * Classifies the whole vectors of readings in {@code [from, to)}.
+     *
+     * @return The index of the first reading left for the scalar tail
+     */
+    int classify(int[] systolicReadings, int[] diastolicReadings, byte[] out, int from, int to) {
+        int i = from;
+        int upper = from + INTS.loopBound(to - from);
+        IntVector otherwiseLevel = IntVector.broadcast(INTS, otherwise);
+        for (; i < upper; i += INTS.length()) {
+            IntVector s = IntVector.fromArray(INTS, systolicReadings, i);
+            IntVector d = IntVector.fromArray(INTS, diastolicReadings, i);
+            IntVector level = otherwiseLevel;
+            for (int t = 0; t < levels.length; t++) {
+                VectorMask<Integer> systolicReached = s.compare(VectorOperators.GE, systolic[t]);
+                VectorMask<Integer> diastolicReached = d.compare(VectorOperators.GE, diastolic[t]);
+                VectorMask<Integer> reached = all[t]
+                        ? systolicReached.and(diastolicReached)
+                        : systolicReached.or(diastolicReached);
+                level = level.blend(levels[t], reached);
+            }
+            level.convertShape(VectorOperators.I2B, BYTES, 0).reinterpretAsBytes().intoArray(out, i);
+        }
+        return i;
+    }
+}
@@ -1,28 +1,57 @@
 package com.chikere.bp.bptracker.service;
 
+import com.chikere.bp.bptracker.ai.BoundedChatMemory;
+import com.chikere.bp.bptracker.ai.PromptCompactionAdvisor;
+import com.chikere.bp.bptracker.exception.LlmUnavailableException;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import jakarta.annotation.PostConstruct;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service for handling AI chat interactions in the sidebar.
+ * <p>
+ * The first question of a conversation is looked up in {@link ChatAnswerCache}, which also
+ * matches reworded questions. Follow-up questions may refer to earlier answers, so once a
+ * conversation has history it bypasses the cache and always goes to the model.
+ * </p>
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AIChatService {
 
+    /**
+     * Upper bound on tokens buffered between the model stream and a slow client.
+     */
+    static final int MAX_BUFFERED_TOKENS = 512;
+
     private final ChatClient chatClient;
+    private final MessageChatMemoryAdvisor chatMemoryAdvisor;
+    private final PromptCompactionAdvisor promptCompactionAdvisor;
+    private final BoundedChatMemory chatMemory;
+    private final ChatAnswerCache chatAnswerCache;
     private final MeterRegistry meterRegistry;
 
     // Create counters for monitoring
     private Counter aiChatSuccessCounter;
     private Counter aiChatFailureCounter;
+    private Counter aiChatStreamCancelledCounter;
+    private Counter aiChatCacheBypassCounter;
+    private Timer timeToFirstTokenTimer;
 
     /**
      * Initialize counters after constructor
@@ -31,26 +60,49 @@ public class AIChatService {
     public void initCounters() {
         this.aiChatSuccessCounter = meterRegistry.counter("ai.chat.success");
         this.aiChatFailureCounter = meterRegistry.counter("ai.chat.failure");
+        this.aiChatStreamCancelledCounter = meterRegistry.counter("ai.chat.stream.cancelled");
+        this.aiChatCacheBypassCounter = meterRegistry.counter("ai.chat.cache.bypass");
+        this.timeToFirstTokenTimer = Timer.builder("ai.chat.time.to.first.token")
+                .description("Time from sending a streamed question to receiving the first token")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     /**
      * Process a user question and get a response from the AI.
      *
+     * @param conversationId The conversation the question belongs to, used to look up its history
      * @param question The user's question
      * @return The AI's response
      */
-    public String processQuestion(String question) {
+    public String processQuestion(String conversationId, String question) {
         log.info("Processing user question: {}", question);
 
+        boolean cacheable = isCacheable(conversationId);
+        if (cacheable) {
+            Optional<String> cached = answerFromCache(conversationId, question);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
         try {
             // Send question to LLM via Spring AI
-            String response = chatClient.prompt(question).call().content();
+            String response = prompt(conversationId, question).call().content();
 
             // Increment success counter
             aiChatSuccessCounter.increment();
+            if (cacheable) {
+                chatAnswerCache.put(question, response);
+            }
 
             log.debug("AI response: {}", response);
             return response;
+        } catch (LlmUnavailableException e) {
+            // Refused locally without reaching the provider
+            aiChatFailureCounter.increment();
+            log.warn("AI service unavailable: {}", e.getMessage());
+            return "The AI assistant is busy right now. Please try again in a moment.";
         } catch (Exception e) {
             // Increment failure counter
             aiChatFailureCounter.increment();
@@ -59,4 +111,86 @@ public class AIChatService {
             return "I'm sorry, I couldn't process your question at the moment. Please try again later.";
         }
     }
+
+    /**
+     * Stream the AI's response to a user question token by token.
+     * <p>
+     * The returned Flux is cold: the model is only called on subscription. Cancelling the
+     * subscription (for example when the browser closes the event stream) cancels the
+     * upstream model request, which stops generation. Demand from the subscriber is
+     * propagated to the model stream; tokens are buffered up to {@link #MAX_BUFFERED_TOKENS}
+     * if the model emits faster than the client consumes.
+     * </p>
+     *
+     * @param conversationId The conversation the question belongs to, used to look up its history
+     * @param question The user's question
+     * @return The AI's response as a stream of tokens
+     */
+    public Flux<String> streamQuestion(String conversationId, String question) {
+        return Flux.defer(() -> {
+            log.info("Streaming answer to user question: {}", question);
+            boolean cacheable = isCacheable(conversationId);
+            if (cacheable) {
+                Optional<String> cached = answerFromCache(conversationId, question);
+                if (cached.isPresent()) {
+                    return Flux.just(cached.get());
+                }
+            }
+
+            long start = System.nanoTime();
+            AtomicBoolean firstToken = new AtomicBoolean(true);
+            StringBuilder answer = new StringBuilder();
+
+            return prompt(conversationId, question).stream().content()
+                    .doOnNext(token -> {
+                        if (firstToken.compareAndSet(true, false)) {
+                            timeToFirstTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        answer.append(token);
+                    })
+                    .onBackpressureBuffer(MAX_BUFFERED_TOKENS)
+                    .doOnComplete(() -> {
+                        aiChatSuccessCounter.increment();
+                        if (cacheable) {
+                            chatAnswerCache.put(question, answer.toString());
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        aiChatStreamCancelledCounter.increment();
+                        log.info("AI response stream cancelled by client");
+                    })
+                    .doOnError(e -> {
+                        aiChatFailureCounter.increment();
+                        log.error("Error streaming AI response: {}", e.getMessage(), e);
+                    });
+        });
+    }
+
+    /**
+     * Only questions that open a conversation can be answered from the cache; later ones may
+     * depend on what was said before.
+     */
+    private boolean isCacheable(String conversationId) {
+        if (chatMemory.get(conversationId, 1).isEmpty()) {
+            return true;
+        }
+        aiChatCacheBypassCounter.increment();
+        return false;
+    }
+
+    private Optional<String> answerFromCache(String conversationId, String question) {
+        Optional<String> cached = chatAnswerCache.get(question);
+        cached.ifPresent(answer -> {
+            log.debug("Answered question from the chat answer cache");
+            // Record the exchange so follow-up questions still have their context
+            chatMemory.add(conversationId, List.of(new UserMessage(question), new AssistantMessage(answer)));
+        });
+        return cached;
+    }
+
+    private ChatClient.ChatClientRequestSpec prompt(String conversationId, String question) {
+        return chatClient.prompt(question)
+                .advisors(chatMemoryAdvisor, promptCompactionAdvisor)
+                .advisors(advisor -> advisor.param(MessageChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY, conversationId));
+    }
 }
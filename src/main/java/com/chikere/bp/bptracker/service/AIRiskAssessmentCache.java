@@ -0,0 +1,197 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
+import com.chikere.bp.bptracker.model.Reading;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Content-addressed cache of AI risk assessments.
+ * <p>
+ * The risk prompt is fully determined by the patient's readings and the prompt template, so an
+ * assessment is cached under a SHA-256 of the prompt version, a version of the patient's reading
+ * history and the exact IDs, values and timestamps of the readings quoted in the prompt. Identical
+ * inputs always hit, and any change to the readings produces a different key. Entries for a
+ * patient are also evicted when one of their readings changes, and the least recently used
+ * entry is evicted once {@code max-entries} is reached.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AIRiskAssessmentCache {
+
+    private static final String CACHE_NAME = "ai-risk-assessments";
+
+    /**
+     * A cached assessment: the parsed risk level and the full AI response explaining it.
+     */
+    public record CachedAssessment(UUID patientId, String riskLevel, String explanation) {
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.ai.cache.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<UUID, Set<String>> keysByPatient = new ConcurrentHashMap<>();
+    private Map<String, CachedAssessment> entries;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter evictionCounter;
+
+    /**
+     * Create the LRU map and register metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAssessment> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getValue().patientId(), eldest.getKey());
+                evictionCounter.increment();
+                return true;
+            }
+        };
+
+        // Same meter names as Spring's cache metrics, so dashboards can compute the hit rate
+        hitCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+                .description("Number of AI risk assessments served from the cache")
+                .register(meterRegistry);
+        missCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+                .description("Number of AI risk assessments not found in the cache")
+                .register(meterRegistry);
+        evictionCounter = Counter.builder("cache.evictions").tag("cache", CACHE_NAME)
+                .description("Number of AI risk assessments evicted from the cache")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, AIRiskAssessmentCache::size).tag("cache", CACHE_NAME)
+                .description("Number of cached AI risk assessments")
+                .register(meterRegistry);
+        Gauge.builder("ai.risk.cache.hit.ratio", this, AIRiskAssessmentCache::hitRatio)
+                .description("Fraction of AI risk assessments served from the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Computes the cache key for a prompt built from the given readings.
+     *
+     * @param promptVersion The version of the prompt template
+     * @param historyVersion Changes whenever any of the patient's readings change
+     * @param readings The readings quoted in the prompt, in prompt order
+     * @return The hex-encoded SHA-256 key
+     */
+    public static String key(String promptVersion, String historyVersion, List<Reading> readings) {
+        StringBuilder content = new StringBuilder(promptVersion).append('\n').append(historyVersion).append('\n');
+        for (Reading reading : readings) {
+            content.append(reading.getId()).append('|')
+                    .append(reading.getSystolic()).append('|')
+                    .append(reading.getDiastolic()).append('|')
+                    .append(reading.getTimestamp()).append('\n');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Looks up a cached assessment and records a hit or miss.
+     */
+    public Optional<CachedAssessment> get(String key) {
+        CachedAssessment cached;
+        lock.lock();
+        try {
+            cached = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+        (cached != null ? hitCounter : missCounter).increment();
+        return Optional.ofNullable(cached);
+    }
+
+    /**
+     * Stores an assessment under its content key.
+     */
+    public void put(String key, CachedAssessment assessment) {
+        lock.lock();
+        try {
+            keysByPatient.computeIfAbsent(assessment.patientId(), id -> ConcurrentHashMap.newKeySet()).add(key);
+            entries.put(key, assessment);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evicts every cached assessment for the patient.
+     */
+    public void evictPatient(UUID patientId) {
+        lock.lock();
+        try {
+            Set<String> keys = keysByPatient.remove(patientId);
+            if (keys != null) {
+                keys.forEach(entries::remove);
+                log.debug("Evicted {} cached AI risk assessments for patient with ID: {}", keys.size(), patientId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReadingChanged(ReadingChangedEvent event) {
+        evictPatient(event.patientId());
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double hitRatio() {
+        double hits = hitCounter.count();
+        double total = hits + missCounter.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+
+    private void unindex(UUID patientId, String key) {
+        Set<String> keys = keysByPatient.get(patientId);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByPatient.remove(patientId, keys);
+            }
+        }
+    }
+}
@@ -1,24 +1,56 @@
 package com.chikere.bp.bptracker.service;
 
+import com.chikere.bp.bptracker.dto.AIRiskAssessmentBatchOutput;
+import com.chikere.bp.bptracker.dto.AIRiskAssessmentOutput;
 import com.chikere.bp.bptracker.exception.EntityNotFoundException;
 import com.chikere.bp.bptracker.model.Patient;
 import com.chikere.bp.bptracker.model.Reading;
 import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.chikere.bp.bptracker.model.enums.RiskOutputFormat;
 import com.chikere.bp.bptracker.repository.PatientRepository;
 import com.chikere.bp.bptracker.repository.ReadingRepository;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * Service for AI-based risk assessment of blood pressure readings.
+ * <p>
+ * The prompt contains the last 3 readings verbatim and a fixed-size summary of the patient's whole
+ * history (see {@link ReadingFeatureExtractor}), so longer histories inform the assessment without
+ * growing the prompt.
+ * </p>
+ * <p>
+ * In {@link RiskOutputFormat#JSON JSON} mode the model answers with a compact JSON object (level,
+ * confidence and a one-sentence rationale) bound to {@link AIRiskAssessmentOutput}, capped at
+ * {@code max-tokens} output tokens. In {@link RiskOutputFormat#TEXT TEXT} mode it explains its
+ * reasoning in free text and the level is found by name in the response. Output tokens and model
+ * latency are recorded per format ({@code ai.risk.output.tokens}, {@code ai.risk.model.latency})
+ * so the two can be compared.
+ * </p>
  */
 @Service
 @RequiredArgsConstructor
@@ -27,44 +59,157 @@ public class AIRiskAssessmentService {
 
     private final PatientRepository patientRepository;
     private final ReadingRepository readingRepository;
+    private final PatientReadingStatsService patientReadingStatsService;
     private final ChatClient chatClient;
     private final Counter aiServiceSuccessCounter;
     private final Counter aiServiceFailureCounter;
     private final MeterRegistry meterRegistry;
+    private final AIRiskAssessmentCache assessmentCache;
+    private final TokenCountEstimator tokenCountEstimator;
+
+    @Value("${bptracker.ai.risk.output-format:json}")
+    private RiskOutputFormat outputFormat = RiskOutputFormat.JSON;
+
+    @Value("${bptracker.ai.risk.max-tokens:150}")
+    private int maxTokens = 150;
+
+    private final BeanOutputConverter<AIRiskAssessmentOutput> outputConverter =
+            new BeanOutputConverter<>(AIRiskAssessmentOutput.class);
+    private final BeanOutputConverter<AIRiskAssessmentBatchOutput> batchOutputConverter =
+            new BeanOutputConverter<>(AIRiskAssessmentBatchOutput.class);
 
     private static final String UNKNOWN = "UNKNOWN";
     private static final int MIN_READINGS_REQUIRED = 3;
+    // Part of the cache key; bump whenever a prompt or the response parsing changes
+    static final String PROMPT_VERSION = "risk-v2";
+    static final String JSON_PROMPT_VERSION = "risk-json-v2";
+    private static final String BATCH_FORMAT_TAG = "json-batch";
 
     /**
-     * Uses AI to assess patient risk based on their last 3 readings.
+     * Uses AI to assess patient risk based on their last 3 readings and a summary of their history.
      *
      * @param patientId The ID of the patient
      * @return The risk level as a string
      */
     public String assessRiskWithAI(UUID patientId) {
+        RiskOutputFormat format = outputFormat;
+        List<PendingAssessment> pending = new ArrayList<>(1);
+        String resolved = resolveWithoutModel(patientId, format, pending);
+        return resolved != null ? resolved : assessWithModel(pending.get(0), format);
+    }
+
+    /**
+     * Uses AI to assess several patients with a single prompt.
+     * <p>
+     * Patients without enough readings or with a cached assessment are resolved without the model.
+     * The rest are packed into one JSON-mode prompt that states the classification once and labels
+     * each patient P1, P2, ..., and the answer is mapped back to patients by label. Patients whose
+     * entry is missing, duplicated or unparseable, or all of them if the answer is not valid JSON,
+     * are assessed again with single prompts. In text mode every patient gets a single prompt.
+     * </p>
+     *
+     * @param patientIds The IDs of the patients
+     * @return The risk level of each patient as a string, in the order given
+     */
+    public Map<UUID, String> assessRiskWithAI(List<UUID> patientIds) {
+        RiskOutputFormat format = outputFormat;
+        Map<UUID, String> results = new HashMap<>();
+        List<PendingAssessment> pending = new ArrayList<>();
+        for (UUID patientId : new LinkedHashSet<>(patientIds)) {
+            String resolved = resolveWithoutModel(patientId, format, pending);
+            if (resolved != null) {
+                results.put(patientId, resolved);
+            }
+        }
+        if (format == RiskOutputFormat.JSON && pending.size() > 1) {
+            results.putAll(assessBatchWithModel(pending));
+        } else {
+            pending.forEach(assessment -> results.put(assessment.patientId(), assessWithModel(assessment, format)));
+        }
+
+        Map<UUID, String> ordered = new LinkedHashMap<>();
+        patientIds.forEach(patientId -> ordered.put(patientId, results.get(patientId)));
+        return ordered;
+    }
+
+    /**
+     * A patient whose assessment needs the model, with everything its prompt is built from.
+     */
+    private record PendingAssessment(UUID patientId, String cacheKey, String readingsSummary, String historySummary) {
+    }
+
+    /**
+     * Resolves the assessment without the model if the patient has too few readings or a cached
+     * assessment; otherwise adds the patient to {@code pending}.
+     *
+     * @return The risk level, or null if the model is needed
+     */
+    private String resolveWithoutModel(UUID patientId, RiskOutputFormat format, List<PendingAssessment> pending) {
         log.info("Fetching recent blood pressure readings for patient with ID: {}", patientId);
-        String readingsSummary = fetchAndValidateRecentBPReadings(patientId);
-        if (UNKNOWN.equals(readingsSummary)) {
+        Patient patient = fetchPatient(patientId);
+        List<Reading> recentReadings = readingRepository.findTop3ByPatientOrderByTimestampDesc(patient);
+        if (recentReadings == null || recentReadings.size() < MIN_READINGS_REQUIRED) {
             log.info("Not enough readings found for patient with ID: {}", patientId);
             return UNKNOWN;
         }
+
+        // Any change to the older readings also changes the history version, so an unchanged key
+        // means an unchanged prompt without reading the whole history
+        String cacheKey = AIRiskAssessmentCache.key(
+                format == RiskOutputFormat.JSON ? JSON_PROMPT_VERSION : PROMPT_VERSION,
+                patientReadingStatsService.historyVersion(patient), recentReadings);
+        Optional<AIRiskAssessmentCache.CachedAssessment> cached = assessmentCache.get(cacheKey);
+        if (cached.isPresent()) {
+            log.info("Using cached AI risk assessment for patient with ID: {}", patientId);
+            return cached.get().riskLevel();
+        }
+
+        String readingsSummary = formatReadings(recentReadings);
         log.info("Recent blood pressure readings for patient with ID: {}: {}", patientId, readingsSummary);
+        List<Reading> history = readingRepository.findAllByPatientOrderByTimestampDesc(patient);
+        String historySummary = formatFeatures(ReadingFeatureExtractor.extract(history));
+        pending.add(new PendingAssessment(patientId, cacheKey, readingsSummary, historySummary));
+        return null;
+    }
 
-        String prompt = buildPrompt(readingsSummary);
+    private String assessWithModel(PendingAssessment assessment, RiskOutputFormat format) {
+        String prompt = format == RiskOutputFormat.JSON
+                ? buildJsonPrompt(assessment.readingsSummary(), assessment.historySummary())
+                : buildPrompt(assessment.readingsSummary(), assessment.historySummary());
         log.info("Prompt sent to AI: {}", prompt);
 
-        String bpResponse;
+        String riskLevel;
+        String explanation;
         try {
             // Send prompt to LLM via Spring AI
-            bpResponse = chatClient.prompt(prompt).call().content();
+            ChatClient.ChatClientRequestSpec request = chatClient.prompt(prompt);
+            if (format == RiskOutputFormat.JSON) {
+                request = request.options(ChatOptions.builder().maxTokens(maxTokens).build());
+            }
+            long start = System.nanoTime();
+            ChatResponse chatResponse = request.call().chatResponse();
+            String bpResponse = chatResponse.getResult().getOutput().getText();
+            recordModelCall(format.name().toLowerCase(), 1, System.nanoTime() - start, chatResponse, prompt, bpResponse);
 
             // Increment success counter
             aiServiceSuccessCounter.increment();
+            log.debug("AI response: {}", bpResponse);
 
-            // Add response to the patient's notes by updating the patient entity
-            updatePatientNotes(patientId, bpResponse);
+            if (format == RiskOutputFormat.JSON) {
+                AIRiskAssessmentOutput output = parseJsonResponse(bpResponse);
+                riskLevel = output != null && output.getRiskLevel() != null
+                        ? output.getRiskLevel().name()
+                        : extractRiskLevelFromAIResponse(bpResponse);
+                explanation = output != null
+                        ? formatStructuredNote(output.getRiskLevel(), output.getConfidence(), output.getRationale())
+                        : bpResponse;
+            } else {
+                riskLevel = extractRiskLevelFromAIResponse(bpResponse);
+                explanation = bpResponse;
+            }
 
-            log.debug("AI response: {}", bpResponse);
+            // Add response to the patient's notes by updating the patient entity
+            updatePatientNotes(assessment.patientId(), explanation);
         } catch (Exception e) {
             // Increment failure counter
             aiServiceFailureCounter.increment();
@@ -72,22 +217,164 @@ public class AIRiskAssessmentService {
             return UNKNOWN;
         }
 
-        // extract risk level from AI response and return it
-        return extractRiskLevelFromAIResponse(bpResponse);
+        if (!UNKNOWN.equals(riskLevel)) {
+            assessmentCache.put(assessment.cacheKey(),
+                    new AIRiskAssessmentCache.CachedAssessment(assessment.patientId(), riskLevel, explanation));
+        }
+        return riskLevel;
     }
 
-    private String fetchAndValidateRecentBPReadings(UUID patientId) {
-        log.info("Fetching patient with ID: {}", patientId);
-        Patient patient = patientRepository.findById(patientId)
-                .orElseThrow(() -> new EntityNotFoundException("Patient not found " + patientId));
-        log.info("Patient found: {}", patient);
+    private Map<UUID, String> assessBatchWithModel(List<PendingAssessment> pending) {
+        Map<String, PendingAssessment> byLabel = new LinkedHashMap<>();
+        for (PendingAssessment assessment : pending) {
+            byLabel.put("P" + (byLabel.size() + 1), assessment);
+        }
+        String prompt = buildBatchPrompt(byLabel);
+        log.info("Batched prompt for {} patients sent to AI: {}", pending.size(), prompt);
 
-        List<Reading> recentReadings = readingRepository.findTop3ByPatientOrderByTimestampDesc(patient);
+        AIRiskAssessmentBatchOutput output;
+        try {
+            long start = System.nanoTime();
+            ChatResponse chatResponse = chatClient.prompt(prompt)
+                    .options(ChatOptions.builder().maxTokens(maxTokens * pending.size()).build())
+                    .call()
+                    .chatResponse();
+            String bpResponse = chatResponse.getResult().getOutput().getText();
+            recordModelCall(BATCH_FORMAT_TAG, pending.size(), System.nanoTime() - start, chatResponse, prompt, bpResponse);
+            aiServiceSuccessCounter.increment();
+            log.debug("AI response: {}", bpResponse);
+            output = parseBatchResponse(bpResponse);
+        } catch (Exception e) {
+            aiServiceFailureCounter.increment();
+            log.error("Error calling AI service for {} patients: {}", pending.size(), e.getMessage(), e);
+            Map<UUID, String> failed = new HashMap<>();
+            pending.forEach(assessment -> failed.put(assessment.patientId(), UNKNOWN));
+            return failed;
+        }
+
+        // Accept exactly one entry with a risk level per label; anything else is assessed on its own
+        Map<String, List<AIRiskAssessmentBatchOutput.PatientAssessment>> entries = new HashMap<>();
+        if (output != null && output.getAssessments() != null) {
+            for (AIRiskAssessmentBatchOutput.PatientAssessment entry : output.getAssessments()) {
+                if (entry != null && entry.getPatient() != null) {
+                    entries.computeIfAbsent(entry.getPatient().strip(), label -> new ArrayList<>()).add(entry);
+                }
+            }
+        }
+        Map<UUID, String> results = new HashMap<>();
+        for (Map.Entry<String, PendingAssessment> labelled : byLabel.entrySet()) {
+            PendingAssessment assessment = labelled.getValue();
+            List<AIRiskAssessmentBatchOutput.PatientAssessment> answers = entries.getOrDefault(labelled.getKey(), List.of());
+            if (answers.size() == 1 && answers.get(0).getRiskLevel() != null) {
+                results.put(assessment.patientId(), applyBatchAnswer(assessment, answers.get(0)));
+            } else {
+                meterRegistry.counter("ai.risk.batch.prompt.fallbacks", "reason", output == null ? "parse" : "mapping")
+                        .increment();
+                log.warn("No usable answer for patient {} ({}) in batched response, assessing on its own",
+                        labelled.getKey(), assessment.patientId());
+                results.put(assessment.patientId(), assessWithModel(assessment, RiskOutputFormat.JSON));
+            }
+        }
+        return results;
+    }
 
-        if (recentReadings == null || recentReadings.isEmpty() || recentReadings.size() < MIN_READINGS_REQUIRED) {
+    private String applyBatchAnswer(PendingAssessment assessment, AIRiskAssessmentBatchOutput.PatientAssessment answer) {
+        String riskLevel = answer.getRiskLevel().name();
+        String explanation = formatStructuredNote(answer.getRiskLevel(), answer.getConfidence(), answer.getRationale());
+        try {
+            updatePatientNotes(assessment.patientId(), explanation);
+        } catch (Exception e) {
+            log.error("Error storing AI risk assessment for patient with ID: {}: {}", assessment.patientId(), e.getMessage(), e);
             return UNKNOWN;
         }
-        return formatReadings(recentReadings);
+        assessmentCache.put(assessment.cacheKey(),
+                new AIRiskAssessmentCache.CachedAssessment(assessment.patientId(), riskLevel, explanation));
+        return riskLevel;
+    }
+
+    /**
+     * Records the model latency of a risk assessment call and its prompt and output tokens per
+     * patient, tagged by format. Token counts come from the provider's usage metadata, or are
+     * counted locally if it has none.
+     */
+    private void recordModelCall(String format, int patients, long latencyNanos, ChatResponse chatResponse,
+                                 String prompt, String content) {
+        Timer.builder("ai.risk.model.latency")
+                .description("Time for the model to answer a risk assessment prompt")
+                .tag("format", format)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
+
+        Usage usage = chatResponse.getMetadata() != null ? chatResponse.getMetadata().getUsage() : null;
+        Integer promptTokens = usage != null ? usage.getPromptTokens() : null;
+        Integer completionTokens = usage != null ? usage.getCompletionTokens() : null;
+        DistributionSummary.builder("ai.risk.prompt.tokens")
+                .description("Prompt tokens of risk assessment requests, per patient assessed")
+                .baseUnit("tokens")
+                .tag("format", format)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record((double) tokens(promptTokens, prompt) / patients);
+        DistributionSummary.builder("ai.risk.output.tokens")
+                .description("Output tokens of risk assessment responses, per patient assessed")
+                .baseUnit("tokens")
+                .tag("format", format)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record((double) tokens(completionTokens, content) / patients);
+    }
+
+    private int tokens(Integer reported, String text) {
+        if (reported != null && reported > 0) {
+            return reported;
+        }
+        return text == null ? 0 : tokenCountEstimator.estimate(text);
+    }
+
+    /**
+     * Binds a JSON response to {@link AIRiskAssessmentOutput}.
+     *
+     * @return The parsed output, or null if the response is not valid JSON for the schema
+     */
+    private AIRiskAssessmentOutput parseJsonResponse(String response) {
+        try {
+            return outputConverter.convert(response);
+        } catch (RuntimeException e) {
+            meterRegistry.counter("ai.risk.output.parse.failures", "format", "json").increment();
+            log.warn("AI response is not valid risk assessment JSON, falling back to text parsing: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Binds a batched JSON response to {@link AIRiskAssessmentBatchOutput}.
+     *
+     * @return The parsed output, or null if the response is not valid JSON for the schema
+     */
+    private AIRiskAssessmentBatchOutput parseBatchResponse(String response) {
+        try {
+            return batchOutputConverter.convert(response);
+        } catch (RuntimeException e) {
+            meterRegistry.counter("ai.risk.output.parse.failures", "format", BATCH_FORMAT_TAG).increment();
+            log.warn("AI response is not valid batched risk assessment JSON: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String formatStructuredNote(RiskLevel riskLevel, Double confidence, String rationale) {
+        if (confidence == null) {
+            return "%s: %s".formatted(riskLevel, rationale);
+        }
+        return "%s (confidence %.2f): %s".formatted(riskLevel, confidence, rationale);
+    }
+
+    private Patient fetchPatient(UUID patientId) {
+        log.info("Fetching patient with ID: {}", patientId);
+        Patient patient = patientRepository.findById(patientId)
+                .orElseThrow(() -> new EntityNotFoundException("Patient not found " + patientId));
+        log.info("Patient found: {}", patient);
+        return patient;
     }
 
     private String formatReadings(List<Reading> readings) {
@@ -97,6 +384,33 @@ public class AIRiskAssessmentService {
                 .collect(Collectors.joining("\n"));
     }
 
+    private String formatFeatures(ReadingFeatureExtractor.Features features) {
+        return String.format(Locale.ROOT, """
+                        - %d readings over %d days
+                        - Mean: %.0f/%.0f mmHg, standard deviation %.1f/%.1f
+                        - Trend: %+.1f/%+.1f mmHg per week
+                        - Morning (04:00-12:00) mean: %s; evening (18:00-24:00) mean: %s
+                        - Mean pulse pressure: %.0f mmHg
+                        - Mean change between consecutive readings: %.1f/%.1f mmHg
+                        - Mean heart rate: %s""",
+                features.count(), features.span().toDays(),
+                features.systolicMean(), features.diastolicMean(),
+                features.systolicStdDev(), features.diastolicStdDev(),
+                features.systolicTrend(), features.diastolicTrend(),
+                formatTimeOfDay(features.morning()), formatTimeOfDay(features.evening()),
+                features.pulsePressureMean(),
+                features.systolicArv(), features.diastolicArv(),
+                features.heartRateMean() > 0 ? String.format(Locale.ROOT, "%.0f bpm", features.heartRateMean()) : "not recorded");
+    }
+
+    private String formatTimeOfDay(ReadingFeatureExtractor.TimeOfDay timeOfDay) {
+        if (timeOfDay.count() == 0) {
+            return "no readings";
+        }
+        return String.format(Locale.ROOT, "%.0f/%.0f mmHg (%d readings)",
+                timeOfDay.systolicMean(), timeOfDay.diastolicMean(), timeOfDay.count());
+    }
+
     private String extractRiskLevelFromAIResponse(String aiResponse) {
         for (RiskLevel level : RiskLevel.values()) {
             if (aiResponse.contains(level.name())) {
@@ -129,11 +443,58 @@ public class AIRiskAssessmentService {
         log.info("Updated notes for patient with ID: {}", patientId);
     }
 
-    private String buildPrompt(String readingsSummary) {
+    private String buildJsonPrompt(String readingsSummary, String historySummary) {
+        return """
+            Assess the risk level of a patient from these 3 recent blood pressure readings (systolic/diastolic):
+            %s
+
+            Summary of the patient's full reading history:
+            %s
+
+            Blood pressure classification:
+            - 180/110 and above: SEVERE_HYPERTENSIVE
+            - 160-180/100-110: MODERATE_HYPERTENSIVE
+            - 140-160/90-100: MILD_HYPERTENSIVE
+            - 80-140/80-90: NORMAL
+            - 80/80 and below: LOW
+
+            Answer with the JSON object only, with a one-sentence rationale.
+            %s
+            """.formatted(readingsSummary, historySummary, outputConverter.getFormat());
+    }
+
+    private String buildBatchPrompt(Map<String, PendingAssessment> byLabel) {
+        StringBuilder patients = new StringBuilder();
+        byLabel.forEach((label, assessment) -> patients
+                .append("Patient ").append(label).append(":\n")
+                .append("Recent readings:\n").append(assessment.readingsSummary()).append('\n')
+                .append("History summary:\n").append(assessment.historySummary()).append("\n\n"));
+        return """
+            Assess the risk level of each patient below from their 3 recent blood pressure readings (systolic/diastolic)
+            and the summary of their full reading history.
+
+            Blood pressure classification:
+            - 180/110 and above: SEVERE_HYPERTENSIVE
+            - 160-180/100-110: MODERATE_HYPERTENSIVE
+            - 140-160/90-100: MILD_HYPERTENSIVE
+            - 80-140/80-90: NORMAL
+            - 80/80 and below: LOW
+
+            %s\
+            Answer with the JSON object only: one entry per patient, identified by its label (%s),
+            each with a one-sentence rationale.
+            %s
+            """.formatted(patients, String.join(", ", byLabel.keySet()), batchOutputConverter.getFormat());
+    }
+
+    private String buildPrompt(String readingsSummary, String historySummary) {
         return """
             Based on these 3 recent blood pressure readings (systolic/diastolic):
             %s
 
+            And this summary of the patient's full reading history:
+            %s
+
             Please assess the patient's risk level and respond with one of the following options in CAPITAL LETTERS: 
             LOW, NORMAL, MILD_HYPERTENSIVE, MODERATE_HYPERTENSIVE, or SEVERE_HYPERTENSIVE.
 
@@ -146,6 +507,6 @@ public class AIRiskAssessmentService {
             - 140-160/90-100: MILD_HYPERTENSIVE
             - 160-180/100-110: MODERATE_HYPERTENSIVE
             - 180/110 and above: SEVERE_HYPERTENSIVE
-            """.formatted(readingsSummary);
+            """.formatted(readingsSummary, historySummary);
     }
 }
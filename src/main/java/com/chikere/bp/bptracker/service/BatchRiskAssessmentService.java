@@ -0,0 +1,281 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.BatchRunDto;
+import com.chikere.bp.bptracker.exception.BatchRunInProgressException;
+import com.chikere.bp.bptracker.exception.EntityNotFoundException;
+import com.chikere.bp.bptracker.mapper.BatchRunMapper;
+import com.chikere.bp.bptracker.model.BatchRun;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import com.chikere.bp.bptracker.repository.BatchRunRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.util.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Re-assesses the risk of every patient with enough readings using the AI service.
+ * <p>
+ * Eligible patients are streamed in keyset pages ordered by patient ID. At most
+ * {@code concurrency} assessments are in flight at once and new ones are started no faster
+ * than {@code rate-per-second}. Each page is split into chunks of {@code patients-per-prompt}
+ * patients that the AI service assesses with a single prompt; the concurrency and rate limits
+ * count prompts, not patients. Progress is checkpointed on the {@link BatchRun} after each
+ * page, so an interrupted run resumes after its last completed page.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchRiskAssessmentService {
+
+    private static final long MIN_READINGS_REQUIRED = 3;
+
+    private final PatientRepository patientRepository;
+    private final BatchRunRepository batchRunRepository;
+    private final RiskAssessmentJobService riskAssessmentJobService;
+    private final BatchRunMapper batchRunMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.ai.batch.concurrency:4}")
+    private int concurrency = 4;
+
+    @Value("${bptracker.ai.batch.rate-per-second:2}")
+    private double ratePerSecond = 2;
+
+    @Value("${bptracker.ai.batch.page-size:100}")
+    private int pageSize = 100;
+
+    @Value("${bptracker.ai.batch.patients-per-prompt:5}")
+    private int patientsPerPrompt = 5;
+
+    @Value("${bptracker.ai.batch.resume-on-startup:false}")
+    private boolean resumeOnStartup;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Starts a batch run in the background, resuming an interrupted run if there is one.
+     *
+     * @return The run as it was when started
+     * @throws BatchRunInProgressException if a run is already in progress
+     */
+    public BatchRunDto startRun() {
+        BatchRun run = claimRun();
+        Thread.ofVirtual().name("risk-batch-run").start(() -> execute(run));
+        return batchRunMapper.toDto(run);
+    }
+
+    /**
+     * Runs a batch to completion on the calling thread, resuming an interrupted run if there is one.
+     *
+     * @return The finished run
+     * @throws BatchRunInProgressException if a run is already in progress
+     */
+    public BatchRunDto runNow() {
+        return batchRunMapper.toDto(execute(claimRun()));
+    }
+
+    /**
+     * Nightly run; disabled unless {@code bptracker.ai.batch.cron} is set.
+     */
+    @Scheduled(cron = "${bptracker.ai.batch.cron:-}")
+    public void scheduledRun() {
+        try {
+            runNow();
+        } catch (BatchRunInProgressException e) {
+            log.warn("Skipping scheduled batch risk assessment: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Resumes a run interrupted by a shutdown once the application is ready, if enabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRun() {
+        if (resumeOnStartup && batchRunRepository.findFirstByStatusOrderByStartedAtDesc(JobStatus.RUNNING).isPresent()) {
+            log.info("Resuming interrupted batch risk assessment run");
+            startRun();
+        }
+    }
+
+    /**
+     * Get a batch run by ID
+     */
+    public BatchRunDto getRun(UUID runId) {
+        return batchRunRepository.findById(runId)
+                .map(batchRunMapper::toDto)
+                .orElseThrow(() -> new EntityNotFoundException("Batch run not found with ID: " + runId));
+    }
+
+    /**
+     * Get the most recent batch runs, newest first
+     */
+    public List<BatchRunDto> getRecentRuns() {
+        return batchRunRepository.findTop10ByOrderByStartedAtDesc().stream()
+                .map(batchRunMapper::toDto)
+                .toList();
+    }
+
+    private BatchRun claimRun() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BatchRunInProgressException("A batch risk assessment run is already in progress");
+        }
+        try {
+            return batchRunRepository.findFirstByStatusOrderByStartedAtDesc(JobStatus.RUNNING)
+                    .orElseGet(() -> {
+                        BatchRun run = new BatchRun();
+                        run.setStatus(JobStatus.RUNNING);
+                        return batchRunRepository.save(run);
+                    });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    private BatchRun execute(BatchRun run) {
+        log.info("Batch risk assessment run {} starting after patient {}", run.getId(), run.getLastPatientId());
+        // Per-run latency distribution; the application-wide timer below aggregates all runs
+        Timer runLatency = Timer.builder("ai.risk.batch.run.latency")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(new SimpleMeterRegistry());
+        RateLimiter rateLimiter = new RateLimiter(ratePerSecond);
+        Semaphore permits = new Semaphore(concurrency);
+        long sessionStart = System.nanoTime();
+        long elapsedBefore = run.getElapsedMillis();
+
+        try (ExecutorService workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("risk-batch-", 0).factory())) {
+            List<UUID> page;
+            while (!(page = patientRepository.findEligibleIdsAfter(run.getLastPatientId(), MIN_READINGS_REQUIRED, Limit.of(pageSize))).isEmpty()) {
+                List<Future<Integer>> results = new ArrayList<>();
+                int chunkSize = Math.max(1, patientsPerPrompt);
+                for (int from = 0; from < page.size(); from += chunkSize) {
+                    List<UUID> chunk = page.subList(from, Math.min(from + chunkSize, page.size()));
+                    permits.acquire();
+                    rateLimiter.acquire();
+                    results.add(workers.submit(() -> {
+                        try {
+                            return assess(chunk, runLatency);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                int succeeded = 0;
+                for (Future<Integer> result : results) {
+                    succeeded += result.get();
+                }
+                run.setSucceeded(run.getSucceeded() + succeeded);
+                run.setFailed(run.getFailed() + page.size() - succeeded);
+
+                run.setProcessed(run.getProcessed() + page.size());
+                run.setLastPatientId(page.get(page.size() - 1));
+                run.setCheckpointedAt(LocalDateTime.now());
+                updateStatistics(run, runLatency, elapsedBefore, sessionStart);
+                run = batchRunRepository.save(run);
+                log.info("Batch risk assessment run {} checkpointed: {} processed, {} failed",
+                        run.getId(), run.getProcessed(), run.getFailed());
+            }
+            run.setStatus(JobStatus.COMPLETED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Leave the run RUNNING so the next run resumes from the checkpoint
+            log.warn("Batch risk assessment run {} interrupted after patient {}", run.getId(), run.getLastPatientId());
+        } catch (ExecutionException | RuntimeException e) {
+            log.error("Batch risk assessment run {} failed", run.getId(), e);
+            run.setStatus(JobStatus.FAILED);
+            run.setErrorMessage(e.getMessage());
+        } finally {
+            running.set(false);
+        }
+
+        if (run.getStatus() != JobStatus.RUNNING) {
+            run.setCompletedAt(LocalDateTime.now());
+        }
+        updateStatistics(run, runLatency, elapsedBefore, sessionStart);
+        BatchRun saved = batchRunRepository.save(run);
+        meterRegistry.counter("ai.risk.batch.runs", "status", saved.getStatus().name()).increment();
+        log.info("Batch risk assessment run {} finished with status {}: {} processed, {} succeeded, {} failed, {} per minute",
+                saved.getId(), saved.getStatus(), saved.getProcessed(), saved.getSucceeded(), saved.getFailed(),
+                saved.getThroughputPerMinute());
+        return saved;
+    }
+
+    /**
+     * Assesses a chunk of patients and records its latency once per patient.
+     *
+     * @return The number of patients assessed successfully
+     */
+    private int assess(List<UUID> patientIds, Timer runLatency) {
+        long start = System.nanoTime();
+        List<Boolean> outcomes;
+        try {
+            outcomes = patientIds.size() == 1
+                    ? List.of(riskAssessmentJobService.assessNow(patientIds.get(0)).getStatus() == JobStatus.COMPLETED)
+                    : riskAssessmentJobService.assessNow(patientIds).stream()
+                            .map(job -> job.getStatus() == JobStatus.COMPLETED)
+                            .toList();
+        } catch (Exception e) {
+            log.warn("Batch risk assessment failed for patients with IDs: {}: {}", patientIds, e.getMessage());
+            outcomes = patientIds.stream().map(patientId -> false).toList();
+        }
+        long elapsed = System.nanoTime() - start;
+        int succeeded = 0;
+        for (boolean success : outcomes) {
+            runLatency.record(elapsed, TimeUnit.NANOSECONDS);
+            Timer.builder("ai.risk.batch.assessment")
+                    .description("Latency of AI risk assessments made by batch runs")
+                    .tag("outcome", success ? "success" : "failure")
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            if (success) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+
+    private static void updateStatistics(BatchRun run, Timer runLatency, long elapsedBefore, long sessionStart) {
+        long elapsedMillis = elapsedBefore + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sessionStart);
+        run.setElapsedMillis(elapsedMillis);
+        if (elapsedMillis > 0) {
+            run.setThroughputPerMinute(run.getProcessed() * 60_000.0 / elapsedMillis);
+        }
+        // Percentiles cover the assessments made since this run was last (re)started
+        if (runLatency.count() > 0) {
+            for (ValueAtPercentile value : runLatency.takeSnapshot().percentileValues()) {
+                double millis = value.value(TimeUnit.MILLISECONDS);
+                if (value.percentile() == 0.5) {
+                    run.setLatencyP50Millis(millis);
+                } else if (value.percentile() == 0.95) {
+                    run.setLatencyP95Millis(millis);
+                } else if (value.percentile() == 0.99) {
+                    run.setLatencyP99Millis(millis);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.chikere.bp.bptracker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of sidebar chat answers that also matches reworded questions.
+ * <p>
+ * Questions are normalized into the numbers they contain and a bag of stemmed terms without
+ * stop words. A cached answer is only considered when the numbers match exactly, so
+ * "what does 150/95 mean?" never answers a question about 160/100. Among those, the answer
+ * whose question has the highest TF-IDF cosine similarity is returned if it reaches
+ * {@code similarity-threshold}. IDF weights are computed from the cached questions themselves,
+ * so no external embedding service is involved. Entries expire after {@code ttl}, and the least
+ * recently used entry is evicted once {@code max-entries} is reached.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChatAnswerCache {
+
+    private static final String CACHE_NAME = "ai-chat-answers";
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:[./]\\d+)*");
+    private static final Pattern WORD = Pattern.compile("[a-z]+");
+
+    // Every question in the sidebar is about blood pressure, so the domain words carry no signal either
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "is", "are", "was", "were", "be", "been", "am", "do", "does", "did",
+            "of", "to", "in", "on", "for", "and", "or", "at", "by", "with", "about", "from",
+            "it", "that", "this", "these", "those", "what", "which", "how", "my", "i", "me", "you", "your",
+            "can", "could", "should", "would", "will", "please", "tell", "explain", "if", "there",
+            "blood", "pressure", "bp", "reading", "mmhg", "level", "value");
+
+    /**
+     * A normalized question: the numbers it mentions, in order, and its term frequencies.
+     */
+    record Question(String numbers, Map<String, Integer> terms) {
+
+        String key() {
+            return numbers + "|" + new TreeMap<>(terms);
+        }
+    }
+
+    private record Entry(Question question, String answer, long createdNanos) {
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.ai.chat-cache.similarity-threshold:0.8}")
+    private double similarityThreshold = 0.8;
+
+    @Value("${bptracker.ai.chat-cache.ttl:1h}")
+    private Duration ttl = Duration.ofHours(1);
+
+    @Value("${bptracker.ai.chat-cache.max-entries:1000}")
+    private int maxEntries = 1000;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Map<String, Entry>> entriesByNumbers = new HashMap<>();
+    private final Map<String, Integer> documentFrequency = new HashMap<>();
+    private Map<String, Entry> entries;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter evictionCounter;
+
+    /**
+     * Create the LRU map and register metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getKey(), eldest.getValue());
+                evictionCounter.increment();
+                return true;
+            }
+        };
+
+        hitCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+                .description("Number of chat questions answered from the cache")
+                .register(meterRegistry);
+        missCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+                .description("Number of chat questions with no similar cached question")
+                .register(meterRegistry);
+        evictionCounter = Counter.builder("cache.evictions").tag("cache", CACHE_NAME)
+                .description("Number of chat answers evicted or expired from the cache")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, ChatAnswerCache::size).tag("cache", CACHE_NAME)
+                .description("Number of cached chat answers")
+                .register(meterRegistry);
+        Gauge.builder("ai.chat.cache.hit.ratio", this, ChatAnswerCache::hitRatio)
+                .description("Fraction of chat questions answered from the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Finds the answer to the most similar cached question and records a hit or miss.
+     *
+     * @param question The user's question
+     * @return The cached answer, if a question with the same numbers is similar enough
+     */
+    public Optional<String> get(String question) {
+        Question query = analyze(question);
+        Entry best = null;
+        lock.lock();
+        try {
+            Map<String, Entry> candidates = entriesByNumbers.getOrDefault(query.numbers(), Map.of());
+            long now = System.nanoTime();
+            double bestSimilarity = similarityThreshold;
+            for (Entry candidate : List.copyOf(candidates.values())) {
+                if (now - candidate.createdNanos() >= ttl.toNanos()) {
+                    remove(candidate.question().key());
+                    evictionCounter.increment();
+                    continue;
+                }
+                double similarity = similarity(query, candidate.question());
+                if (similarity >= bestSimilarity) {
+                    best = candidate;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best != null) {
+                // Mark as recently used
+                entries.get(best.question().key());
+            }
+        } finally {
+            lock.unlock();
+        }
+        (best != null ? hitCounter : missCounter).increment();
+        return Optional.ofNullable(best).map(Entry::answer);
+    }
+
+    /**
+     * Stores the answer to a question.
+     */
+    public void put(String question, String answer) {
+        Question analyzed = analyze(question);
+        String key = analyzed.key();
+        lock.lock();
+        try {
+            remove(key);
+            Entry entry = new Entry(analyzed, answer, System.nanoTime());
+            entriesByNumbers.computeIfAbsent(analyzed.numbers(), numbers -> new HashMap<>()).put(key, entry);
+            analyzed.terms().keySet().forEach(term -> documentFrequency.merge(term, 1, Integer::sum));
+            entries.put(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static Question analyze(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        List<String> numbers = new ArrayList<>();
+        Matcher numberMatcher = NUMBER.matcher(lower);
+        while (numberMatcher.find()) {
+            numbers.add(numberMatcher.group());
+        }
+
+        Map<String, Integer> terms = new HashMap<>();
+        Matcher wordMatcher = WORD.matcher(NUMBER.matcher(lower).replaceAll(" "));
+        while (wordMatcher.find()) {
+            String word = wordMatcher.group();
+            if (STOP_WORDS.contains(word)) {
+                continue;
+            }
+            String term = stem(word);
+            if (!STOP_WORDS.contains(term)) {
+                terms.merge(term, 1, Integer::sum);
+            }
+        }
+        return new Question(String.join(" ", numbers), terms);
+    }
+
+    private static String stem(String word) {
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    private double similarity(Question a, Question b) {
+        if (a.terms().isEmpty() || b.terms().isEmpty()) {
+            return a.terms().isEmpty() && b.terms().isEmpty() ? 1.0 : 0.0;
+        }
+        double dot = 0;
+        double normA = 0;
+        for (Map.Entry<String, Integer> term : a.terms().entrySet()) {
+            double weight = term.getValue() * idf(term.getKey());
+            normA += weight * weight;
+            Integer other = b.terms().get(term.getKey());
+            if (other != null) {
+                dot += weight * other * idf(term.getKey());
+            }
+        }
+        double normB = 0;
+        for (Map.Entry<String, Integer> term : b.terms().entrySet()) {
+            double weight = term.getValue() * idf(term.getKey());
+            normB += weight * weight;
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private double idf(String term) {
+        // Smoothed, so terms never seen before weigh the most but stay finite
+        return Math.log((entries.size() + 1.0) / (documentFrequency.getOrDefault(term, 0) + 1.0)) + 1.0;
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            unindex(key, entry);
+        }
+    }
+
+    private void unindex(String key, Entry entry) {
+        Map<String, Entry> candidates = entriesByNumbers.get(entry.question().numbers());
+        if (candidates != null) {
+            candidates.remove(key);
+            if (candidates.isEmpty()) {
+                entriesByNumbers.remove(entry.question().numbers());
+            }
+        }
+        entry.question().terms().keySet().forEach(term ->
+                documentFrequency.computeIfPresent(term, (t, count) -> count > 1 ? count - 1 : null));
+    }
+
+    private double hitRatio() {
+        double hits = hitCounter.count();
+        double total = hits + missCounter.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+}
@@ -0,0 +1,234 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.analytics.CircadianMetrics;
+import com.chikere.bp.bptracker.analytics.CircadianMetricsTask;
+import com.chikere.bp.bptracker.analytics.PatientSeries;
+import com.chikere.bp.bptracker.analytics.ReadingSample;
+import com.chikere.bp.bptracker.dto.CircadianReportDto;
+import com.chikere.bp.bptracker.dto.CircadianReportRunDto;
+import com.chikere.bp.bptracker.exception.BatchRunInProgressException;
+import com.chikere.bp.bptracker.mapper.CircadianReportMapper;
+import com.chikere.bp.bptracker.model.CircadianReport;
+import com.chikere.bp.bptracker.repository.CircadianReportRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Computes the {@link CircadianMetrics} of every patient's readings in a month and writes them
+ * to the circadian report.
+ * <p>
+ * Patients are read in keyset pages of {@code page-size}, and the readings of each page in one
+ * query ordered by patient and time. The metrics of a page are computed on a dedicated
+ * fork/join pool of {@code parallelism} workers, splitting the page down to {@code partition-size}
+ * patients per task, while the next page is read. The rows are written unpublished under the
+ * run's ID and replace the month's report in one transaction when the run completes, so readers
+ * see the previous report until then. The job runs for the previous month on {@code cron}.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CircadianAnalyticsService {
+
+    public static final int MAX_REPORT_ROWS = 1000;
+
+    private final PatientRepository patientRepository;
+    private final ReadingRepository readingRepository;
+    private final CircadianReportRepository circadianReportRepository;
+    private final CircadianReportMapper circadianReportMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.analytics.circadian.page-size:1000}")
+    private int pageSize = 1000;
+
+    @Value("${bptracker.analytics.circadian.partition-size:32}")
+    private int partitionSize = 32;
+
+    // 0 for one worker per available processor
+    @Value("${bptracker.analytics.circadian.parallelism:0}")
+    private int parallelism;
+
+    @Value("${bptracker.analytics.circadian.target-systolic-min:110}")
+    private int targetSystolicMin = 110;
+
+    @Value("${bptracker.analytics.circadian.target-systolic-max:130}")
+    private int targetSystolicMax = 130;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    private ForkJoinPool pool;
+    private CircadianMetrics.TargetRange target;
+    private Timer runTimer;
+    private Counter patientsCounter;
+    private Counter readingsCounter;
+
+    /**
+     * Create the worker pool and register metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        target = new CircadianMetrics.TargetRange(targetSystolicMin, targetSystolicMax);
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        runTimer = Timer.builder("analytics.circadian.run")
+                .description("Time to compute the circadian report of a month")
+                .register(meterRegistry);
+        patientsCounter = Counter.builder("analytics.circadian.patients")
+                .description("Number of patients whose circadian metrics were computed")
+                .register(meterRegistry);
+        readingsCounter = Counter.builder("analytics.circadian.readings")
+                .description("Number of readings read for circadian metrics")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Monthly report of the previous month.
+     */
+    @Scheduled(cron = "${bptracker.analytics.circadian.cron:0 30 2 1 * *}")
+    public void scheduledRun() {
+        try {
+            CircadianReportRunDto run = run(YearMonth.now().minusMonths(1));
+            log.info("Circadian report for {}: {} patients, {} readings in {} ms",
+                    run.getReportMonth(), run.getPatients(), run.getReadings(), run.getDurationMillis());
+        } catch (BatchRunInProgressException e) {
+            log.warn("Skipping scheduled circadian report: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the circadian metrics of every patient with readings in a month, replacing the
+     * month's report.
+     *
+     * @throws BatchRunInProgressException if a report is already being computed
+     */
+    public CircadianReportRunDto run(YearMonth month) {
+        if (!runLock.tryLock()) {
+            throw new BatchRunInProgressException("A circadian report is already being computed");
+        }
+        try {
+            long start = System.nanoTime();
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            UUID runId = UUID.randomUUID();
+            // Rows of an earlier run that failed before publishing
+            circadianReportRepository.deleteUnpublished(month.atDay(1));
+
+            long patients = 0;
+            long readings = 0;
+            Page computing = null;
+            UUID after = null;
+            while (true) {
+                List<UUID> ids = patientRepository.findIdsAfter(after, Limit.of(pageSize));
+                Page next = null;
+                if (!ids.isEmpty()) {
+                    after = ids.getLast();
+                    List<ReadingSample> samples = readingRepository.findSamples(ids, from, to);
+                    readings += samples.size();
+                    next = submit(PatientSeries.group(samples));
+                }
+                // Write the previous page while the pool computes the one just read
+                if (computing != null) {
+                    patients += save(month, runId, computing);
+                }
+                if (next == null) {
+                    break;
+                }
+                computing = next;
+            }
+            circadianReportRepository.publish(month.atDay(1), runId);
+
+            long elapsed = System.nanoTime() - start;
+            runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            readingsCounter.increment(readings);
+            CircadianReportRunDto run = new CircadianReportRunDto();
+            run.setReportMonth(month.toString());
+            run.setPatients(patients);
+            run.setReadings(readings);
+            run.setParallelism(pool.getParallelism());
+            run.setDurationMillis(elapsed / 1_000_000);
+            return run;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * A page of patients whose metrics are being computed.
+     */
+    private record Page(CircadianMetrics[] results, ForkJoinTask<Void> task) {
+    }
+
+    private Page submit(List<PatientSeries> series) {
+        CircadianMetrics[] results = new CircadianMetrics[series.size()];
+        return new Page(results, pool.submit(new CircadianMetricsTask(series, results, partitionSize, target)));
+    }
+
+    private int save(YearMonth month, UUID runId, Page page) {
+        page.task().join();
+        LocalDateTime now = LocalDateTime.now();
+        List<CircadianReport> reports = new ArrayList<>(page.results().length);
+        for (CircadianMetrics metrics : page.results()) {
+            reports.add(toEntity(month, runId, metrics, now));
+        }
+        circadianReportRepository.saveAll(reports);
+        patientsCounter.increment(reports.size());
+        return reports.size();
+    }
+
+    /**
+     * The report of a month in patient ID order.
+     *
+     * @param patientId Only this patient's row, or null for all patients
+     * @param limit Maximum number of rows to return, at most {@link #MAX_REPORT_ROWS}
+     */
+    public List<CircadianReportDto> getReport(YearMonth month, UUID patientId, int limit) {
+        List<CircadianReport> reports = patientId == null
+                ? circadianReportRepository.findByReportMonthAndPublishedTrueOrderByPatientId(month.atDay(1),
+                        Limit.of(Math.clamp(limit, 1, MAX_REPORT_ROWS)))
+                : circadianReportRepository.findByReportMonthAndPatientIdAndPublishedTrue(month.atDay(1), patientId);
+        return reports.stream().map(circadianReportMapper::toDto).collect(Collectors.toList());
+    }
+
+    private static CircadianReport toEntity(YearMonth month, UUID runId, CircadianMetrics metrics,
+                                            LocalDateTime createdAt) {
+        CircadianReport report = new CircadianReport();
+        report.setReportMonth(month.atDay(1));
+        report.setPatientId(metrics.patientId());
+        report.setReadings(metrics.readings());
+        report.setMorningSurge(metrics.morningSurge());
+        report.setNocturnalDipPercent(metrics.nocturnalDipPercent());
+        report.setDippingPattern(metrics.dippingPattern());
+        report.setTimeInTargetRange(metrics.timeInTargetRange());
+        report.setSystolicArv(metrics.systolicArv());
+        report.setDiastolicArv(metrics.diastolicArv());
+        report.setCreatedAt(createdAt);
+        report.setRunId(runId);
+        return report;
+    }
+}
@@ -0,0 +1,364 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.analytics.PressureHistogram;
+import com.chikere.bp.bptracker.dto.CohortPercentilesDto;
+import com.chikere.bp.bptracker.dto.CohortSketchRebuildDto;
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
+import com.chikere.bp.bptracker.exception.BatchRunInProgressException;
+import com.chikere.bp.bptracker.model.CohortSketch;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.enums.AgeBand;
+import com.chikere.bp.bptracker.model.enums.CohortDimension;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.repository.CohortSketchRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository.SystolicCount;
+import com.chikere.bp.bptracker.repository.ReadingRepository.TimestampRange;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers systolic percentile queries over any cohort of months, age bands and genders from
+ * per-bucket histograms instead of the readings.
+ * <p>
+ * Each bucket of month, age band and gender keeps a {@link PressureHistogram} of its readings'
+ * systolic pressures, in memory and in the {@link CohortSketch} table. A created reading is added
+ * to its bucket and a deleted one removed, each in constant time. An updated reading is removed
+ * from the bucket of its previous values and added to the bucket of its new ones. A query
+ * merges the histograms of the matching buckets. Changes to a patient's gender or birth date
+ * are picked up by {@link #rebuildAll()}, which also runs on startup when no buckets are stored.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CohortPercentileService {
+
+    public static final double[] DEFAULT_PERCENTILES = {50, 90, 99};
+
+    private final CohortSketchRepository cohortSketchRepository;
+    private final ReadingRepository readingRepository;
+    private final PatientRepository patientRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.sketches.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup = true;
+
+    /**
+     * A cohort bucket; {@code gender} is null for patients without one.
+     */
+    record BucketKey(YearMonth month, AgeBand ageBand, Gender gender) {
+    }
+
+    private static final class Bucket {
+        // Not a monitor, which would pin a virtual thread's carrier while the bucket is saved
+        final ReentrantLock lock = new ReentrantLock();
+        CohortSketch sketch;
+        final PressureHistogram histogram;
+
+        Bucket(CohortSketch sketch, PressureHistogram histogram) {
+            this.sketch = sketch;
+            this.histogram = histogram;
+        }
+    }
+
+    private final ConcurrentHashMap<BucketKey, Bucket> buckets = new ConcurrentHashMap<>();
+    // Rebuilding a month replaces its buckets, so it excludes adding to them
+    private final ReentrantReadWriteLock bucketsLock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildAllLock = new ReentrantLock();
+
+    private Timer queryTimer;
+
+    /**
+     * Register metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        queryTimer = Timer.builder("sketches.query")
+                .description("Time to answer a cohort percentile query from the histograms")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("sketches.buckets", buckets, Map::size)
+                .description("Number of cohort buckets held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the stored buckets once the application is ready, or builds them in the background if
+     * none are stored and rebuilding on startup is enabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        load();
+        if (buckets.isEmpty() && rebuildOnStartup) {
+            Thread.ofVirtual().name("cohort-sketch-rebuild").start(() -> {
+                try {
+                    CohortSketchRebuildDto result = rebuildAll();
+                    if (result.getReadings() > 0) {
+                        log.info("Built {} cohort buckets from {} readings in {} ms",
+                                result.getBuckets(), result.getReadings(), result.getDurationMillis());
+                    }
+                } catch (BatchRunInProgressException e) {
+                    log.debug("Cohort buckets already being rebuilt");
+                } catch (RuntimeException e) {
+                    log.error("Failed to build cohort buckets", e);
+                }
+            });
+        }
+    }
+
+    void load() {
+        for (CohortSketch sketch : cohortSketchRepository.findAll()) {
+            buckets.put(keyOf(sketch), new Bucket(sketch, PressureHistogram.fromBytes(sketch.getSystolicCounts())));
+        }
+        log.info("Loaded {} cohort buckets", buckets.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onReadingChanged(ReadingChangedEvent event) {
+        if (event.change() == ReadingChangedEvent.Change.DELETED) {
+            readingDeleted(event);
+        } else {
+            readingRecorded(event);
+        }
+    }
+
+    /**
+     * Adds a created reading to its bucket, or moves an updated reading from the bucket of its
+     * previous values to the bucket of its new ones.
+     */
+    private void readingRecorded(ReadingChangedEvent event) {
+        LocalDateTime timestamp = event.timestamp() != null ? event.timestamp() : LocalDateTime.now();
+        ReadingChangedEvent.Previous previous = event.previous();
+        if (previous != null && previous.timestamp() != null) {
+            if (previous.patientId().equals(event.patientId()) && previous.systolic() == event.systolic()
+                    && YearMonth.from(previous.timestamp()).equals(YearMonth.from(timestamp))) {
+                return;
+            }
+            patientRepository.findById(previous.patientId())
+                    .ifPresent(patient -> add(keyOf(patient, previous.timestamp()), previous.systolic(), -1));
+        }
+        patientRepository.findById(event.patientId())
+                .ifPresent(patient -> add(keyOf(patient, timestamp), event.systolic(), 1));
+    }
+
+    /**
+     * Removes a deleted reading from its bucket.
+     */
+    private void readingDeleted(ReadingChangedEvent event) {
+        if (event.timestamp() != null) {
+            patientRepository.findById(event.patientId())
+                    .ifPresent(patient -> add(keyOf(patient, event.timestamp()), event.systolic(), -1));
+        }
+    }
+
+    private void add(BucketKey key, int systolic, long count) {
+        boolean conflict = false;
+        bucketsLock.readLock().lock();
+        try {
+            Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(newSketch(k), new PressureHistogram()));
+            bucket.lock.lock();
+            try {
+                bucket.histogram.add(systolic, count);
+                bucket.sketch = save(bucket);
+            } finally {
+                bucket.lock.unlock();
+            }
+        } catch (OptimisticLockingFailureException e) {
+            conflict = true;
+        } finally {
+            bucketsLock.readLock().unlock();
+        }
+        if (conflict) {
+            // Changed by another instance in the meantime
+            log.debug("Cohort bucket {} changed concurrently, rebuilding its month", key);
+            rebuildMonth(key.month());
+        }
+    }
+
+    /**
+     * Rebuilds every bucket from the readings, month by month.
+     *
+     * @throws BatchRunInProgressException if a rebuild is already running
+     */
+    public CohortSketchRebuildDto rebuildAll() {
+        if (!rebuildAllLock.tryLock()) {
+            throw new BatchRunInProgressException("Cohort buckets are already being rebuilt");
+        }
+        try {
+            long start = System.nanoTime();
+            CohortSketchRebuildDto result = new CohortSketchRebuildDto();
+            TimestampRange range = readingRepository.findTimestampRange();
+            Set<YearMonth> months = new TreeSet<>();
+            if (range != null && range.getFirst() != null) {
+                YearMonth last = YearMonth.from(range.getLast());
+                for (YearMonth month = YearMonth.from(range.getFirst()); !month.isAfter(last); month = month.plusMonths(1)) {
+                    months.add(month);
+                }
+            }
+            // Including months whose readings have all been deleted or moved
+            buckets.keySet().forEach(key -> months.add(key.month()));
+            for (YearMonth month : months) {
+                List<Bucket> rebuilt = rebuildMonth(month);
+                result.setMonths(result.getMonths() + 1);
+                result.setBuckets(result.getBuckets() + rebuilt.size());
+                result.setReadings(result.getReadings() + rebuilt.stream().mapToLong(b -> b.histogram.total()).sum());
+            }
+            result.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+            return result;
+        } finally {
+            rebuildAllLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the buckets of a month with histograms counted from its readings.
+     */
+    private List<Bucket> rebuildMonth(YearMonth month) {
+        bucketsLock.writeLock().lock();
+        try {
+            Map<BucketKey, PressureHistogram> histograms = new HashMap<>();
+            for (SystolicCount count : readingRepository.countBySystolicAndCohort(
+                    month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay())) {
+                BucketKey key = new BucketKey(month, AgeBand.of(count.getBirthDate(), month.atDay(1)), count.getGender());
+                histograms.computeIfAbsent(key, k -> new PressureHistogram()).add(count.getSystolic(), count.getReadings());
+            }
+
+            cohortSketchRepository.deleteByReportMonth(month.atDay(1));
+            buckets.keySet().removeIf(key -> key.month().equals(month));
+            List<Bucket> rebuilt = new ArrayList<>();
+            histograms.forEach((key, histogram) -> {
+                Bucket bucket = new Bucket(newSketch(key), histogram);
+                bucket.sketch = save(bucket);
+                buckets.put(key, bucket);
+                rebuilt.add(bucket);
+            });
+            return rebuilt;
+        } finally {
+            bucketsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Systolic percentiles of the readings of a cohort in a range of months, optionally grouped.
+     *
+     * @param from First month, inclusive
+     * @param to Last month, inclusive
+     * @param ageBands Age bands to include, or empty for all
+     * @param genders Genders to include, or empty for all, including patients without one
+     * @param groupBy Dimensions to report separately; empty for a single row
+     * @param percentiles Percentiles to report, each in (0, 100]
+     * @return One row per group with readings, ordered by month, age band and gender
+     */
+    public List<CohortPercentilesDto> query(YearMonth from, YearMonth to, Set<AgeBand> ageBands, Set<Gender> genders,
+                                            Set<CohortDimension> groupBy, double[] percentiles) {
+        for (double percentile : percentiles) {
+            if (percentile <= 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentiles must be in (0, 100] but one is " + percentile);
+            }
+        }
+        long start = System.nanoTime();
+        Map<BucketKey, PressureHistogram> groups = new HashMap<>();
+        buckets.forEach((key, bucket) -> {
+            if (key.month().isBefore(from) || key.month().isAfter(to)
+                    || !ageBands.isEmpty() && !ageBands.contains(key.ageBand())
+                    || !genders.isEmpty() && !genders.contains(key.gender())) {
+                return;
+            }
+            BucketKey group = new BucketKey(
+                    groupBy.contains(CohortDimension.MONTH) ? key.month() : null,
+                    groupBy.contains(CohortDimension.AGE_BAND) ? key.ageBand() : null,
+                    groupBy.contains(CohortDimension.GENDER) ? key.gender() : null);
+            PressureHistogram merged = groups.computeIfAbsent(group, k -> new PressureHistogram());
+            bucket.lock.lock();
+            try {
+                merged.merge(bucket.histogram);
+            } finally {
+                bucket.lock.unlock();
+            }
+        });
+
+        List<CohortPercentilesDto> rows = groups.entrySet().stream()
+                .filter(entry -> entry.getValue().total() > 0)
+                .sorted(Map.Entry.comparingByKey(Comparator
+                        .comparing(BucketKey::month, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(BucketKey::ageBand, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(BucketKey::gender, Comparator.nullsFirst(Comparator.naturalOrder()))))
+                .map(entry -> toDto(entry.getKey(), entry.getValue(), percentiles))
+                .toList();
+        queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return rows;
+    }
+
+    private CohortSketch save(Bucket bucket) {
+        bucket.sketch.setReadings(bucket.histogram.total());
+        bucket.sketch.setSystolicCounts(bucket.histogram.toBytes());
+        bucket.sketch.setUpdatedAt(LocalDateTime.now());
+        return cohortSketchRepository.save(bucket.sketch);
+    }
+
+    private static CohortSketch newSketch(BucketKey key) {
+        CohortSketch sketch = new CohortSketch();
+        sketch.setReportMonth(key.month().atDay(1));
+        sketch.setAgeBand(key.ageBand());
+        sketch.setGender(key.gender());
+        return sketch;
+    }
+
+    private static BucketKey keyOf(Patient patient, LocalDateTime timestamp) {
+        YearMonth month = YearMonth.from(timestamp);
+        return new BucketKey(month, AgeBand.of(patient.getBirthDate(), month.atDay(1)), patient.getGender());
+    }
+
+    private static BucketKey keyOf(CohortSketch sketch) {
+        return new BucketKey(YearMonth.from(sketch.getReportMonth()), sketch.getAgeBand(), sketch.getGender());
+    }
+
+    private static CohortPercentilesDto toDto(BucketKey group, PressureHistogram histogram, double[] percentiles) {
+        CohortPercentilesDto dto = new CohortPercentilesDto();
+        dto.setMonth(group.month() != null ? group.month().toString() : null);
+        dto.setAgeBand(group.ageBand());
+        dto.setGender(group.gender());
+        dto.setReadings(histogram.total());
+        Map<String, Integer> values = new LinkedHashMap<>();
+        for (double percentile : percentiles) {
+            values.put(label(percentile), histogram.percentile(percentile));
+        }
+        dto.setSystolicPercentiles(values);
+        return dto;
+    }
+
+    // p50, p99.9
+    private static String label(double percentile) {
+        return percentile == Math.rint(percentile) ? "p" + (long) percentile : "p" + percentile;
+    }
+}
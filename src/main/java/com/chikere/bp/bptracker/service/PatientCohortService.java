@@ -0,0 +1,212 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.cohort.CompressedBitmap;
+import com.chikere.bp.bptracker.cohort.PatientCohortIndex;
+import com.chikere.bp.bptracker.dto.PatientCohortDto;
+import com.chikere.bp.bptracker.event.PatientChangedEvent;
+import com.chikere.bp.bptracker.event.PatientDeletedEvent;
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
+import com.chikere.bp.bptracker.mapper.PatientMapper;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository.CohortAttributes;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Selects cohorts of patients by gender, age, known conditions and reading recency from an
+ * in-memory {@link PatientCohortIndex} instead of joining patients and readings.
+ * <p>
+ * The index is loaded from the database on startup and kept current from patient and reading
+ * events: a created reading can only move its patient's latest reading day forward, while an
+ * updated or deleted one may move it back, so the latest reading time is then read again. A
+ * query ANDs and ORs the bitmaps of the filter and only then loads the first matching patients.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PatientCohortService {
+
+    public static final int MAX_PATIENTS = 1000;
+
+    private final PatientRepository patientRepository;
+    private final ReadingRepository readingRepository;
+    private final PatientMapper patientMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.cohort.load-page-size:5000}")
+    private int loadPageSize = 5000;
+
+    private final PatientCohortIndex index = new PatientCohortIndex();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Timer queryTimer;
+
+    /**
+     * Register metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        queryTimer = Timer.builder("cohort.query")
+                .description("Time to select a patient cohort from the bitmap index, without loading the patients")
+                .register(meterRegistry);
+        Gauge.builder("cohort.index.patients", this, service -> service.read(service.index::size))
+                .description("Number of patients in the cohort index")
+                .register(meterRegistry);
+        Gauge.builder("cohort.index.bytes", this, service -> service.read(service.index::bitmapBytes))
+                .description("Approximate memory held by the cohort index bitmaps")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads every patient into the index, a page at a time.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        UUID after = null;
+        int patients = 0;
+        List<CohortAttributes> page;
+        do {
+            page = patientRepository.findCohortAttributesAfter(after, Limit.of(loadPageSize));
+            lock.writeLock().lock();
+            try {
+                for (CohortAttributes attributes : page) {
+                    index.put(attributes.getId(), attributes.getGender(), attributes.getBirthDate(),
+                            attributes.getKnownConditions());
+                    index.setLatestReading(attributes.getId(), day(attributes.getLatestReading()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            patients += page.size();
+            if (!page.isEmpty()) {
+                after = page.getLast().getId();
+            }
+        } while (page.size() == loadPageSize);
+        log.info("Loaded {} patients into the cohort index in {} ms", patients, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @EventListener
+    public void onPatientChanged(PatientChangedEvent event) {
+        write(() -> index.put(event.patientId(), event.gender(), event.birthDate(), event.knownConditions()));
+    }
+
+    @EventListener
+    public void onPatientDeleted(PatientDeletedEvent event) {
+        write(() -> index.remove(event.patientId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReadingChanged(ReadingChangedEvent event) {
+        if (event.change() == ReadingChangedEvent.Change.DELETED) {
+            readingDeleted(event);
+        } else {
+            readingRecorded(event);
+        }
+    }
+
+    private void readingRecorded(ReadingChangedEvent event) {
+        if (event.change() == ReadingChangedEvent.Change.CREATED) {
+            write(() -> index.addReading(event.patientId(), event.timestamp().toLocalDate()));
+        } else {
+            refreshLatestReading(event.patientId());
+            // An update may have moved the reading away from the patient it was the latest of
+            if (event.movedPatient()) {
+                refreshLatestReading(event.previous().patientId());
+            }
+        }
+    }
+
+    private void readingDeleted(ReadingChangedEvent event) {
+        refreshLatestReading(event.patientId());
+    }
+
+    /**
+     * The patients matching {@code filter}: how many there are, and the first {@code limit} of
+     * them (at most {@link #MAX_PATIENTS}).
+     */
+    public PatientCohortDto query(PatientCohortIndex.Filter filter, int limit) {
+        if (filter.minAge() != null && filter.maxAge() != null && filter.minAge() > filter.maxAge()) {
+            throw new IllegalArgumentException("minAge " + filter.minAge() + " is above maxAge " + filter.maxAge());
+        }
+        if (filter.readingWithinDays() != null && filter.readingWithinDays() < 0) {
+            throw new IllegalArgumentException("readingWithinDays must not be negative");
+        }
+        long start = System.nanoTime();
+        int count;
+        List<UUID> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            CompressedBitmap cohort = index.match(filter);
+            count = cohort.cardinality();
+            for (int ordinal : cohort.first(Math.clamp(limit, 0, MAX_PATIENTS))) {
+                ids.add(index.patientId(ordinal));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        Map<UUID, Patient> patients = new HashMap<>();
+        for (Patient patient : patientRepository.findAllById(ids)) {
+            patients.put(patient.getId(), patient);
+        }
+        PatientCohortDto dto = new PatientCohortDto();
+        dto.setCount(count);
+        dto.setPatients(ids.stream().map(patients::get).filter(Objects::nonNull)
+                .map(patientMapper::toDto).toList());
+        return dto;
+    }
+
+    private void refreshLatestReading(UUID patientId) {
+        LocalDate latest = day(readingRepository.findLatestTimestamp(patientId));
+        write(() -> index.setLatestReading(patientId, latest));
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> T read(Supplier<T> supplier) {
+        lock.readLock().lock();
+        try {
+            return supplier.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static LocalDate day(LocalDateTime timestamp) {
+        return timestamp != null ? timestamp.toLocalDate() : null;
+    }
+}
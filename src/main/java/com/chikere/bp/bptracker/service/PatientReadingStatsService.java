@@ -0,0 +1,267 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.PatientReadingStatsDto;
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.PatientReadingStats;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.repository.PatientReadingStatsRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps running statistics of each patient's readings, so they can be shown without reading
+ * the patient's history.
+ * <p>
+ * A new reading later than the patient's latest one is added in constant time: the means and
+ * variances with Welford's method, the exponentially weighted averages with weight
+ * {@code bptracker.stats.ewma-alpha} on the new reading. Updated, deleted and out-of-order
+ * readings change the history the averages were built from, so the patient's statistics are
+ * then recomputed from all their readings, as they are for patients without stored statistics.
+ * A reading moved to another patient also recomputes the patient it was moved from. Readings of
+ * one patient are applied one at a time.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PatientReadingStatsService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final PatientReadingStatsRepository statsRepository;
+    private final ReadingRepository readingRepository;
+    private final PatientRepository patientRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.stats.ewma-alpha:0.2}")
+    private double ewmaAlpha = 0.2;
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    private Counter incrementalCounter;
+    private Counter recomputedCounter;
+
+    /**
+     * Create the locks and register metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        if (ewmaAlpha <= 0 || ewmaAlpha > 1) {
+            throw new IllegalStateException("bptracker.stats.ewma-alpha must be in (0, 1] but is " + ewmaAlpha);
+        }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        incrementalCounter = Counter.builder("reading.stats.updates").tag("mode", "incremental")
+                .description("Number of readings added to a patient's statistics")
+                .register(meterRegistry);
+        recomputedCounter = Counter.builder("reading.stats.updates").tag("mode", "recompute")
+                .description("Number of times a patient's statistics were recomputed from all their readings")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onReadingChanged(ReadingChangedEvent event) {
+        if (event.change() == ReadingChangedEvent.Change.DELETED) {
+            readingDeleted(event);
+        } else {
+            readingRecorded(event);
+        }
+    }
+
+    /**
+     * Adds a new reading to its patient's statistics, or recomputes them if the reading was
+     * updated or is older than the latest reading included. Recomputes the previous patient's
+     * statistics too if the update moved the reading to another patient.
+     */
+    private void readingRecorded(ReadingChangedEvent event) {
+        ReentrantLock lock = lockFor(event.patientId());
+        lock.lock();
+        try {
+            Optional<PatientReadingStats> stored = statsRepository.findById(event.patientId());
+            if (event.change() == ReadingChangedEvent.Change.CREATED && stored.isPresent() && isInOrder(stored.get(), event.timestamp())) {
+                PatientReadingStats stats = stored.get();
+                add(stats, event.systolic(), event.diastolic(), event.heartRate(), event.timestamp());
+                stats.setUpdatedAt(LocalDateTime.now());
+                statsRepository.save(stats);
+                incrementalCounter.increment();
+            } else {
+                recompute(event.patientId());
+            }
+        } catch (OptimisticLockingFailureException e) {
+            // Changed by another instance in the meantime
+            log.debug("Statistics of patient {} changed concurrently, recomputing", event.patientId());
+            recompute(event.patientId());
+        } finally {
+            lock.unlock();
+        }
+        if (event.movedPatient()) {
+            recomputeLocked(event.previous().patientId());
+        }
+    }
+
+    /**
+     * Recomputes the statistics of the deleted reading's patient.
+     */
+    private void readingDeleted(ReadingChangedEvent event) {
+        recomputeLocked(event.patientId());
+    }
+
+    private void recomputeLocked(UUID patientId) {
+        ReentrantLock lock = lockFor(patientId);
+        lock.lock();
+        try {
+            recompute(patientId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A version of the patient's reading history that changes whenever one of their readings is
+     * recorded, updated or deleted: the reading count and the time their statistics last changed,
+     * or just the count if none are stored yet. Reads no readings.
+     */
+    public String historyVersion(Patient patient) {
+        return statsRepository.findById(patient.getId())
+                .map(stats -> stats.getReadings() + "@" + stats.getUpdatedAt())
+                .orElseGet(() -> String.valueOf(readingRepository.countByPatient(patient)));
+    }
+
+    /**
+     * The statistics of a patient's readings, computed from their readings first if not stored yet.
+     *
+     * @return The statistics, or empty if the patient has no readings
+     */
+    public Optional<PatientReadingStatsDto> getStatistics(UUID patientId) {
+        Optional<PatientReadingStats> stats = statsRepository.findById(patientId);
+        if (stats.isEmpty()) {
+            ReentrantLock lock = lockFor(patientId);
+            lock.lock();
+            try {
+                stats = statsRepository.findById(patientId).or(() -> recompute(patientId));
+            } finally {
+                lock.unlock();
+            }
+        }
+        return stats.map(PatientReadingStatsService::toDto);
+    }
+
+    /**
+     * Recomputes a patient's statistics from all their readings and stores them, or removes
+     * them if the patient has no readings left.
+     */
+    private Optional<PatientReadingStats> recompute(UUID patientId) {
+        List<Reading> readings = readingRepository.findAllByPatientOrderByTimestampDesc(
+                patientRepository.getReferenceById(patientId));
+        Optional<PatientReadingStats> stored = statsRepository.findById(patientId);
+        recomputedCounter.increment();
+        if (readings.isEmpty()) {
+            stored.ifPresent(statsRepository::delete);
+            return Optional.empty();
+        }
+
+        PatientReadingStats stats = new PatientReadingStats();
+        stats.setPatientId(patientId);
+        stored.ifPresent(existing -> stats.setVersion(existing.getVersion()));
+        // Oldest first, so the weighted averages end on the most recent reading
+        for (Reading reading : readings.reversed()) {
+            add(stats, reading.getSystolic(), reading.getDiastolic(), reading.getHeartRate(), reading.getTimestamp());
+        }
+        stats.setUpdatedAt(LocalDateTime.now());
+        return Optional.of(statsRepository.save(stats));
+    }
+
+    private static boolean isInOrder(PatientReadingStats stats, LocalDateTime timestamp) {
+        return timestamp != null && (stats.getLatestTimestamp() == null || !timestamp.isBefore(stats.getLatestTimestamp()));
+    }
+
+    private void add(PatientReadingStats stats, int systolic, int diastolic, int heartRate, LocalDateTime timestamp) {
+        long n = stats.getReadings() + 1;
+        Moments s = new Moments(stats.getSystolicMean(), stats.getSystolicM2(), stats.getSystolicEwma())
+                .add(systolic, n, ewmaAlpha);
+        Moments d = new Moments(stats.getDiastolicMean(), stats.getDiastolicM2(), stats.getDiastolicEwma())
+                .add(diastolic, n, ewmaAlpha);
+        Moments h = new Moments(stats.getHeartRateMean(), stats.getHeartRateM2(), stats.getHeartRateEwma())
+                .add(heartRate, n, ewmaAlpha);
+        stats.setReadings(n);
+        stats.setSystolicMean(s.mean());
+        stats.setSystolicM2(s.m2());
+        stats.setSystolicEwma(s.ewma());
+        stats.setDiastolicMean(d.mean());
+        stats.setDiastolicM2(d.m2());
+        stats.setDiastolicEwma(d.ewma());
+        stats.setHeartRateMean(h.mean());
+        stats.setHeartRateM2(h.m2());
+        stats.setHeartRateEwma(h.ewma());
+        if (timestamp != null && (stats.getLatestTimestamp() == null || timestamp.isAfter(stats.getLatestTimestamp()))) {
+            stats.setLatestTimestamp(timestamp);
+        }
+    }
+
+    /**
+     * Mean, sum of squared deviations from the mean and exponentially weighted average of a series.
+     */
+    record Moments(double mean, double m2, double ewma) {
+
+        /**
+         * @param n Number of values including {@code value}
+         */
+        Moments add(double value, long n, double alpha) {
+            double delta = value - mean;
+            double newMean = mean + delta / n;
+            return new Moments(newMean, m2 + delta * (value - newMean), n == 1 ? value : ewma + alpha * (value - ewma));
+        }
+
+        double stdDev(long n) {
+            return n > 1 ? Math.sqrt(m2 / (n - 1)) : 0;
+        }
+    }
+
+    private ReentrantLock lockFor(UUID patientId) {
+        return locks[Math.floorMod(patientId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static PatientReadingStatsDto toDto(PatientReadingStats stats) {
+        long n = stats.getReadings();
+        PatientReadingStatsDto dto = new PatientReadingStatsDto();
+        dto.setPatientId(stats.getPatientId());
+        dto.setReadings(n);
+        dto.setSystolicMean(stats.getSystolicMean());
+        dto.setSystolicStdDev(new Moments(stats.getSystolicMean(), stats.getSystolicM2(), 0).stdDev(n));
+        dto.setSystolicEwma(stats.getSystolicEwma());
+        dto.setDiastolicMean(stats.getDiastolicMean());
+        dto.setDiastolicStdDev(new Moments(stats.getDiastolicMean(), stats.getDiastolicM2(), 0).stdDev(n));
+        dto.setDiastolicEwma(stats.getDiastolicEwma());
+        dto.setHeartRateMean(stats.getHeartRateMean());
+        dto.setHeartRateStdDev(new Moments(stats.getHeartRateMean(), stats.getHeartRateM2(), 0).stdDev(n));
+        dto.setHeartRateEwma(stats.getHeartRateEwma());
+        if (stats.getLatestTimestamp() != null) {
+            dto.setLatestTimestamp(stats.getLatestTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        }
+        if (stats.getUpdatedAt() != null) {
+            dto.setUpdatedAt(stats.getUpdatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        }
+        return dto;
+    }
+}
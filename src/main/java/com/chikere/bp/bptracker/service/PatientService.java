@@ -1,10 +1,13 @@
 package com.chikere.bp.bptracker.service;
 
+import com.chikere.bp.bptracker.event.PatientChangedEvent;
+import com.chikere.bp.bptracker.event.PatientDeletedEvent;
 import com.chikere.bp.bptracker.exception.EntityNotFoundException;
 import com.chikere.bp.bptracker.model.Patient;
 import com.chikere.bp.bptracker.repository.PatientRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -15,12 +18,14 @@ import java.util.UUID;
 @Slf4j
 public class PatientService {
     private final PatientRepository patientRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Patient createPatient(Patient patient){
         // this should be used to create a new patient
         log.debug("Creating new patient: {}", patient);
         Patient savedPatient = patientRepository.save(patient);
         log.info("Patient created successfully with ID: {}", savedPatient.getId());
+        eventPublisher.publishEvent(changed(savedPatient));
         return savedPatient;
     }
 
@@ -44,7 +49,9 @@ public class PatientService {
     public Patient updatePatient(UUID id, Patient patient) {
         // this should be used to update a patient's information
         patient.setId(id);
-        return patientRepository.save(patient);
+        Patient savedPatient = patientRepository.save(patient);
+        eventPublisher.publishEvent(changed(savedPatient));
+        return savedPatient;
     }
 
     public List<Patient> findAll() {
@@ -55,11 +62,14 @@ public class PatientService {
     public void deletePatient(UUID id) {
         // this should be used to delete a patient
         patientRepository.deleteById(id);
+        eventPublisher.publishEvent(new PatientDeletedEvent(id));
     }
 
     public void deleteAllPatients() {
         // this should be used to delete all patients
+        List<Patient> patients = patientRepository.findAll();
         patientRepository.deleteAll();
+        patients.forEach(patient -> eventPublisher.publishEvent(new PatientDeletedEvent(patient.getId())));
     }
 
     public Patient get(UUID id) {
@@ -75,4 +85,8 @@ public class PatientService {
         }
     }
 
+    private static PatientChangedEvent changed(Patient patient) {
+        return new PatientChangedEvent(patient.getId(), patient.getGender(), patient.getBirthDate(),
+                patient.getKnownConditions());
+    }
 }
@@ -0,0 +1,278 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.alerts.AlertEngine;
+import com.chikere.bp.bptracker.alerts.AlertRule;
+import com.chikere.bp.bptracker.alerts.ReadingWindow;
+import com.chikere.bp.bptracker.dto.ReadingAlertDto;
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
+import com.chikere.bp.bptracker.mapper.ReadingAlertMapper;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.ReadingAlert;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingAlertRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Raises alerts on patterns of readings, such as several high readings within a day or a
+ * sustained upward trend, as readings are recorded.
+ * <p>
+ * Rules are written in the {@link AlertRule} language, one per line, in the file at
+ * {@code bptracker.alerts.rules-path}; without the file, or if it does not parse, the built-in
+ * {@link #DEFAULT_RULES} are used. Every created or updated reading is fed to an in-memory
+ * {@link AlertEngine} holding a bounded window of recent readings per patient, so evaluating
+ * the rules needs no database access. Deleted readings, and readings moved to another patient,
+ * are removed from their window so they no longer count towards later alerts. The window of a
+ * patient not seen since startup is first loaded from the stored readings and alerts, so
+ * restarts neither miss patterns nor repeat alerts. Raised alerts are stored; a rule that already fired for a patient is not raised again
+ * until its window has passed. Windows of patients without recent readings are dropped every
+ * {@code sweep-interval}.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReadingAlertService {
+
+    public static final List<String> DEFAULT_RULES = List.of(
+            "severe-cluster: count(systolic >= 160 or diastolic >= 100) >= 3 within 24h",
+            "crisis: count(systolic >= 180 or diastolic >= 120) >= 1 within 1h",
+            "rising-systolic: slope(systolic) >= 1 within 14d min 5");
+
+    public static final int MAX_ALERTS = 1000;
+
+    private final ReadingRepository readingRepository;
+    private final PatientRepository patientRepository;
+    private final ReadingAlertRepository readingAlertRepository;
+    private final ReadingAlertMapper readingAlertMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.alerts.rules-path:./data/alert-rules.txt}")
+    private Path rulesPath = Path.of("./data/alert-rules.txt");
+
+    @Value("${bptracker.alerts.window-capacity:32}")
+    private int windowCapacity = 32;
+
+    private AlertEngine engine;
+    private Timer evaluationTimer;
+    private Counter windowsLoadedCounter;
+    private Counter windowsEvictedCounter;
+    private final Map<String, Counter> raisedCounters = new HashMap<>();
+    private final Map<String, Counter> suppressedCounters = new HashMap<>();
+
+    /**
+     * Load the rules and register metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        engine = new AlertEngine(loadRules(), windowCapacity);
+        log.info("Evaluating {} alert rules over windows of up to {} readings: {}",
+                engine.rules().size(), windowCapacity, engine.rules());
+
+        evaluationTimer = Timer.builder("alerts.evaluation")
+                .description("Time to add a reading to its patient's window and evaluate the alert rules")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        windowsLoadedCounter = Counter.builder("alerts.windows.loaded")
+                .description("Number of patient windows loaded from the stored readings")
+                .register(meterRegistry);
+        windowsEvictedCounter = Counter.builder("alerts.windows.evicted")
+                .description("Number of patient windows dropped for lack of recent readings")
+                .register(meterRegistry);
+        Gauge.builder("alerts.windows", engine, AlertEngine::windowCount)
+                .description("Number of patients with a window of recent readings in memory")
+                .register(meterRegistry);
+        for (AlertRule rule : engine.rules()) {
+            raisedCounters.put(rule.name(), Counter.builder("alerts.raised").tag("rule", rule.name())
+                    .description("Number of alerts raised")
+                    .register(meterRegistry));
+            suppressedCounters.put(rule.name(), Counter.builder("alerts.suppressed").tag("rule", rule.name())
+                    .description("Number of alerts not raised again within the rule's window")
+                    .register(meterRegistry));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onReadingChanged(ReadingChangedEvent event) {
+        if (event.change() == ReadingChangedEvent.Change.DELETED) {
+            readingDeleted(event);
+        } else {
+            readingRecorded(event);
+        }
+    }
+
+    /**
+     * Evaluates the alert rules on a created or updated reading and stores any alerts raised.
+     */
+    private void readingRecorded(ReadingChangedEvent event) {
+        if (event.movedPatient()) {
+            engine.remove(event.previous().patientId(), event.readingId());
+        }
+        LocalDateTime timestamp = event.timestamp() != null ? event.timestamp() : LocalDateTime.now();
+        long timestampMillis = toMillis(timestamp);
+        if (!engine.hasWindow(event.patientId())) {
+            engine.seed(event.patientId(), loadWindow(event.patientId(), timestamp));
+        }
+
+        long start = System.nanoTime();
+        AlertEngine.Outcome outcome = engine.record(event.patientId(), event.readingId(), timestampMillis,
+                event.systolic(), event.diastolic(), event.heartRate());
+        evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        outcome.suppressed().forEach(rule -> suppressedCounters.get(rule.name()).increment());
+        for (AlertEngine.Alert alert : outcome.raised()) {
+            raisedCounters.get(alert.rule().name()).increment();
+            readingAlertRepository.save(toEntity(alert));
+            log.info("Alert {} raised for patient {}: {} = {}", alert.rule().name(), alert.patientId(),
+                    alert.rule().expression(), alert.evaluation().value());
+        }
+    }
+
+    /**
+     * Removes a deleted reading from its patient's window.
+     */
+    private void readingDeleted(ReadingChangedEvent event) {
+        engine.remove(event.patientId(), event.readingId());
+    }
+
+    /**
+     * Drops the windows of patients without a reading within the longest rule window.
+     */
+    @Scheduled(fixedDelayString = "${bptracker.alerts.sweep-interval:PT5M}")
+    public void evictIdleWindows() {
+        windowsEvictedCounter.increment(engine.evictIdle(toMillis(LocalDateTime.now())));
+    }
+
+    /**
+     * Alerts raised in a date range, most recent first.
+     *
+     * @param patientId Only alerts of this patient, or null for all patients
+     * @param from Start of the range, inclusive
+     * @param to End of the range, exclusive
+     * @param limit Maximum number of alerts to return, at most {@link #MAX_ALERTS}
+     */
+    public List<ReadingAlertDto> getAlerts(UUID patientId, LocalDateTime from, LocalDateTime to, int limit) {
+        Limit max = Limit.of(Math.clamp(limit, 1, MAX_ALERTS));
+        List<ReadingAlert> alerts = patientId == null
+                ? readingAlertRepository.findByTriggeredAtGreaterThanEqualAndTriggeredAtLessThanOrderByTriggeredAtDesc(from, to, max)
+                : readingAlertRepository.findByPatientIdAndTriggeredAtGreaterThanEqualAndTriggeredAtLessThanOrderByTriggeredAtDesc(
+                        patientId, from, to, max);
+        return alerts.stream().map(readingAlertMapper::toDto).collect(Collectors.toList());
+    }
+
+    /**
+     * The alert rules in use, as written.
+     */
+    public List<String> getRules() {
+        return engine.rules().stream().map(AlertRule::toString).collect(Collectors.toList());
+    }
+
+    private List<AlertRule> loadRules() {
+        if (Files.isRegularFile(rulesPath)) {
+            try {
+                List<AlertRule> rules = parseRules(Files.readAllLines(rulesPath));
+                // Rejects duplicate rule names
+                new AlertEngine(rules, windowCapacity);
+                return rules;
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Ignoring alert rules in {}, using the built-in rules: {}", rulesPath, e.getMessage());
+            }
+        }
+        return parseRules(DEFAULT_RULES);
+    }
+
+    /**
+     * Parses rules, one per line; blank lines and lines starting with # are skipped.
+     *
+     * @throws IllegalArgumentException naming the line of the first rule that does not parse
+     */
+    static List<AlertRule> parseRules(List<String> lines) {
+        List<AlertRule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                rules.add(AlertRule.parse(line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * A window with the patient's readings within the retention before {@code until} and the
+     * alerts raised for them since.
+     */
+    private ReadingWindow loadWindow(UUID patientId, LocalDateTime until) {
+        LocalDateTime since = until.minus(engine.retention());
+        ReadingWindow window = engine.newWindow();
+        List<Reading> readings = readingRepository.findByPatientAndTimestampGreaterThanEqualOrderByTimestampDesc(
+                patientRepository.getReferenceById(patientId), since, Limit.of(engine.capacity()));
+        for (Reading reading : readings) {
+            window.add(reading.getId(), toMillis(reading.getTimestamp()),
+                    reading.getSystolic(), reading.getDiastolic(), reading.getHeartRate());
+        }
+        for (ReadingAlert alert : readingAlertRepository.findByPatientIdAndTriggeredAtGreaterThanEqual(patientId, since)) {
+            int rule = engine.indexOf(alert.getRuleName());
+            if (rule >= 0) {
+                window.setLastAlertMillis(rule, toMillis(alert.getTriggeredAt()));
+            }
+        }
+        windowsLoadedCounter.increment();
+        return window;
+    }
+
+    private ReadingAlert toEntity(AlertEngine.Alert alert) {
+        ReadingAlert entity = new ReadingAlert();
+        entity.setPatientId(alert.patientId());
+        entity.setReadingId(alert.readingId());
+        entity.setRuleName(alert.rule().name());
+        entity.setRule(alert.rule().expression());
+        entity.setObservedValue(alert.evaluation().value());
+        entity.setReadingsInWindow(alert.evaluation().readings());
+        entity.setWindowStart(toDateTime(alert.evaluation().windowStartMillis()));
+        entity.setTriggeredAt(toDateTime(alert.timestampMillis()));
+        entity.setCreatedAt(LocalDateTime.now());
+        return entity;
+    }
+
+    // Only differences between times matter to the rules, so any fixed offset will do
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+}
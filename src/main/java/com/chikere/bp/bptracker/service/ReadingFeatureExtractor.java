@@ -0,0 +1,186 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.model.Reading;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Summarizes a patient's whole reading history into a fixed set of features, so the AI risk
+ * assessment can take long histories into account at a constant prompt size.
+ * <p>
+ * All features are computed in a single pass over the readings, with numerically stable running
+ * updates (Welford) for the means, variances and the least-squares trend. Readings may be in
+ * chronological or reverse chronological order; readings without a timestamp count towards the
+ * overall statistics but not towards the trend or the time-of-day split. Heart rates of 0 are
+ * treated as not recorded. An {@link Accumulator} keeps the same running state, so the features
+ * of every prefix of a history can be read off in one pass.
+ * </p>
+ */
+public final class ReadingFeatureExtractor {
+
+    // Home monitoring guidance compares readings taken after waking with readings taken before bed
+    private static final int MORNING_START_HOUR = 4;
+    private static final int MORNING_END_HOUR = 12;
+    private static final int EVENING_START_HOUR = 18;
+
+    private static final double SECONDS_PER_DAY = 86_400.0;
+
+    /**
+     * Mean systolic and diastolic pressure of the readings taken in one part of the day.
+     */
+    public record TimeOfDay(int count, double systolicMean, double diastolicMean) {
+    }
+
+    /**
+     * Features of a reading history. Standard deviations need at least 2 readings, the trend
+     * at least 2 readings at different times; otherwise they are 0.
+     *
+     * @param systolicTrend Least-squares slope of systolic pressure, in mmHg per week
+     * @param systolicArv Average real variability: mean absolute change between consecutive readings
+     * @param heartRateMean Mean of the recorded heart rates, or 0 if none were recorded
+     */
+    public record Features(int count, Duration span,
+                           double systolicMean, double diastolicMean,
+                           double systolicStdDev, double diastolicStdDev,
+                           double systolicTrend, double diastolicTrend,
+                           double pulsePressureMean,
+                           double systolicArv, double diastolicArv,
+                           double heartRateMean,
+                           TimeOfDay morning, TimeOfDay evening) {
+    }
+
+    private ReadingFeatureExtractor() {
+    }
+
+    /**
+     * Computes the features of the given readings in one pass.
+     *
+     * @param readings The readings, sorted by timestamp in either direction
+     * @return The features; all zero for an empty list
+     */
+    public static Features extract(List<Reading> readings) {
+        Accumulator accumulator = new Accumulator();
+        readings.forEach(accumulator::add);
+        return accumulator.features();
+    }
+
+    /**
+     * Running state of the features, updated one reading at a time. Readings must be added in
+     * timestamp order, in either direction.
+     */
+    public static final class Accumulator {
+        private int count;
+        private double systolicMean;
+        private double diastolicMean;
+        private double systolicM2;
+        private double diastolicM2;
+        private double pulsePressureMean;
+
+        // Least-squares trend against time in days, relative to the first timestamped reading
+        private LocalDateTime origin;
+        private LocalDateTime first;
+        private LocalDateTime last;
+        private int timed;
+        private double dayMean;
+        private double dayM2;
+        private double timedSystolicMean;
+        private double timedDiastolicMean;
+        private double systolicCoMoment;
+        private double diastolicCoMoment;
+
+        private double systolicChanges;
+        private double diastolicChanges;
+        private Reading previous;
+
+        private int heartRates;
+        private double heartRateMean;
+
+        private int morningCount;
+        private double morningSystolic;
+        private double morningDiastolic;
+        private int eveningCount;
+        private double eveningSystolic;
+        private double eveningDiastolic;
+
+        public void add(Reading reading) {
+            int systolic = reading.getSystolic();
+            int diastolic = reading.getDiastolic();
+
+            count++;
+            double systolicDelta = systolic - systolicMean;
+            systolicMean += systolicDelta / count;
+            systolicM2 += systolicDelta * (systolic - systolicMean);
+            double diastolicDelta = diastolic - diastolicMean;
+            diastolicMean += diastolicDelta / count;
+            diastolicM2 += diastolicDelta * (diastolic - diastolicMean);
+            pulsePressureMean += ((systolic - diastolic) - pulsePressureMean) / count;
+
+            if (previous != null) {
+                systolicChanges += Math.abs(systolic - previous.getSystolic());
+                diastolicChanges += Math.abs(diastolic - previous.getDiastolic());
+            }
+            previous = reading;
+
+            if (reading.getHeartRate() > 0) {
+                heartRates++;
+                heartRateMean += (reading.getHeartRate() - heartRateMean) / heartRates;
+            }
+
+            LocalDateTime timestamp = reading.getTimestamp();
+            if (timestamp == null) {
+                return;
+            }
+            if (origin == null) {
+                origin = timestamp;
+                first = timestamp;
+                last = timestamp;
+            } else if (timestamp.isBefore(first)) {
+                first = timestamp;
+            } else if (timestamp.isAfter(last)) {
+                last = timestamp;
+            }
+
+            timed++;
+            double day = Duration.between(origin, timestamp).toSeconds() / SECONDS_PER_DAY;
+            double dayDelta = day - dayMean;
+            dayMean += dayDelta / timed;
+            dayM2 += dayDelta * (day - dayMean);
+            timedSystolicMean += (systolic - timedSystolicMean) / timed;
+            timedDiastolicMean += (diastolic - timedDiastolicMean) / timed;
+            systolicCoMoment += dayDelta * (systolic - timedSystolicMean);
+            diastolicCoMoment += dayDelta * (diastolic - timedDiastolicMean);
+
+            int hour = timestamp.getHour();
+            if (hour >= MORNING_START_HOUR && hour < MORNING_END_HOUR) {
+                morningCount++;
+                morningSystolic += (systolic - morningSystolic) / morningCount;
+                morningDiastolic += (diastolic - morningDiastolic) / morningCount;
+            } else if (hour >= EVENING_START_HOUR) {
+                eveningCount++;
+                eveningSystolic += (systolic - eveningSystolic) / eveningCount;
+                eveningDiastolic += (diastolic - eveningDiastolic) / eveningCount;
+            }
+        }
+
+        /**
+         * The features of the readings added so far.
+         */
+        public Features features() {
+            return new Features(count,
+                    first == null ? Duration.ZERO : Duration.between(first, last),
+                    systolicMean, diastolicMean,
+                    count > 1 ? Math.sqrt(systolicM2 / (count - 1)) : 0,
+                    count > 1 ? Math.sqrt(diastolicM2 / (count - 1)) : 0,
+                    dayM2 > 0 ? systolicCoMoment / dayM2 * 7 : 0,
+                    dayM2 > 0 ? diastolicCoMoment / dayM2 * 7 : 0,
+                    pulsePressureMean,
+                    count > 1 ? systolicChanges / (count - 1) : 0,
+                    count > 1 ? diastolicChanges / (count - 1) : 0,
+                    heartRateMean,
+                    new TimeOfDay(morningCount, morningSystolic, morningDiastolic),
+                    new TimeOfDay(eveningCount, eveningSystolic, eveningDiastolic));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.NewReadingDto;
+import com.chikere.bp.bptracker.dto.QuarantinedReadingDto;
+import com.chikere.bp.bptracker.exception.DuplicateReadingException;
+import com.chikere.bp.bptracker.exception.EntityNotFoundException;
+import com.chikere.bp.bptracker.exception.ReadingQuarantinedException;
+import com.chikere.bp.bptracker.ingest.DuplicateReadingIndex;
+import com.chikere.bp.bptracker.ingest.DuplicateReadingIndex.Submission;
+import com.chikere.bp.bptracker.ingest.PlausibilityRules;
+import com.chikere.bp.bptracker.model.QuarantinedReading;
+import com.chikere.bp.bptracker.repository.QuarantinedReadingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Screens readings before {@link ReadingService} saves them, so device glitches and double
+ * submissions do not reach the readings, their aggregates or the AI.
+ * <p>
+ * A reading outside the {@link PlausibilityRules} is quarantined: stored apart from the readings
+ * until it is released or discarded. With {@code bptracker.ingest.quarantine-implausible} off it
+ * is saved anyway and only counted. A reading from a device that sent the same patient and
+ * values within {@code bptracker.ingest.duplicate-window} is not saved again; readings without a
+ * device ID, entered by hand, are never taken for duplicates. Outcomes are counted in
+ * {@code readings.ingest}.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReadingIngestService {
+
+    public static final int MAX_QUARANTINED = 1000;
+
+    private final QuarantinedReadingRepository quarantinedReadingRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.ingest.systolic-min:50}")
+    private int systolicMin = 50;
+
+    @Value("${bptracker.ingest.systolic-max:260}")
+    private int systolicMax = 260;
+
+    @Value("${bptracker.ingest.diastolic-min:20}")
+    private int diastolicMin = 20;
+
+    @Value("${bptracker.ingest.diastolic-max:180}")
+    private int diastolicMax = 180;
+
+    @Value("${bptracker.ingest.heart-rate-min:25}")
+    private int heartRateMin = 25;
+
+    @Value("${bptracker.ingest.heart-rate-max:250}")
+    private int heartRateMax = 250;
+
+    @Value("${bptracker.ingest.min-pulse-pressure:10}")
+    private int minPulsePressure = 10;
+
+    @Value("${bptracker.ingest.quarantine-implausible:true}")
+    private boolean quarantineImplausible = true;
+
+    @Value("${bptracker.ingest.duplicate-window:PT2M}")
+    private Duration duplicateWindow = Duration.ofMinutes(2);
+
+    @Value("${bptracker.ingest.duplicate-index-capacity:100000}")
+    private int duplicateIndexCapacity = 100_000;
+
+    private PlausibilityRules rules;
+    private DuplicateReadingIndex duplicates;
+
+    private Counter acceptedCounter;
+    private Counter flaggedCounter;
+    private Counter quarantinedCounter;
+    private Counter duplicateCounter;
+
+    /**
+     * Build the rules and duplicate index and register metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        rules = new PlausibilityRules(systolicMin, systolicMax, diastolicMin, diastolicMax,
+                heartRateMin, heartRateMax, minPulsePressure);
+        duplicates = new DuplicateReadingIndex(duplicateIndexCapacity, duplicateWindow.toMillis());
+        acceptedCounter = outcome("accepted", "Readings passed on to be saved");
+        flaggedCounter = outcome("flagged", "Implausible readings saved because quarantine is off");
+        quarantinedCounter = outcome("quarantined", "Implausible readings quarantined instead of saved");
+        duplicateCounter = outcome("duplicate", "Readings not saved because their device just sent the same one");
+        Gauge.builder("readings.ingest.duplicate-index.size", duplicates, DuplicateReadingIndex::size)
+                .description("Number of devices whose latest reading is held for duplicate detection")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Screens a reading about to be saved for {@code patientId}.
+     *
+     * @return The ID of the reading this one duplicates, or empty if it is to be saved, in which
+     *         case {@link #saved} or {@link #notSaved} must follow
+     * @throws ReadingQuarantinedException If the reading is implausible and was quarantined
+     * @throws DuplicateReadingException If the reading duplicates one still being saved
+     */
+    public Optional<UUID> admit(UUID patientId, NewReadingDto reading) {
+        List<String> violations = rules.violations(reading.getSystolic(), reading.getDiastolic(), reading.getHeartRate());
+        if (!violations.isEmpty()) {
+            if (quarantineImplausible) {
+                QuarantinedReading quarantined = quarantinedReadingRepository.save(quarantine(patientId, reading, violations));
+                quarantinedCounter.increment();
+                log.warn("Quarantined implausible reading {} for patient {}: {}", quarantined.getId(), patientId, violations);
+                throw new ReadingQuarantinedException("Reading quarantined as " + quarantined.getId() + ": "
+                        + String.join("; ", violations));
+            }
+            flaggedCounter.increment();
+            log.warn("Saving implausible reading for patient {}: {}", patientId, violations);
+        }
+        if (hasDevice(reading)) {
+            Optional<DuplicateReadingIndex.Duplicate> duplicate = duplicates.claim(reading.getDeviceId(),
+                    submission(patientId, reading), System.currentTimeMillis());
+            if (duplicate.isPresent()) {
+                duplicateCounter.increment();
+                log.info("Reading from device {} for patient {} duplicates {}", reading.getDeviceId(), patientId,
+                        duplicate.get().readingId());
+                if (duplicate.get().readingId() == null) {
+                    throw new DuplicateReadingException("The same reading from device " + reading.getDeviceId()
+                            + " is already being saved");
+                }
+                return Optional.of(duplicate.get().readingId());
+            }
+        }
+        acceptedCounter.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Records the ID of an admitted reading once it is saved.
+     */
+    public void saved(UUID patientId, NewReadingDto reading, UUID readingId) {
+        if (hasDevice(reading)) {
+            duplicates.complete(reading.getDeviceId(), submission(patientId, reading), readingId);
+        }
+    }
+
+    /**
+     * Forgets an admitted reading that could not be saved, so it is not taken for a duplicate
+     * when submitted again.
+     */
+    public void notSaved(UUID patientId, NewReadingDto reading) {
+        if (hasDevice(reading)) {
+            duplicates.release(reading.getDeviceId(), submission(patientId, reading));
+        }
+    }
+
+    /**
+     * The quarantined readings, most recently received first.
+     */
+    public List<QuarantinedReadingDto> getQuarantined(int limit) {
+        return quarantinedReadingRepository.findAllByOrderByReceivedAtDesc(Limit.of(Math.clamp(limit, 1, MAX_QUARANTINED)))
+                .stream()
+                .map(ReadingIngestService::toDto)
+                .toList();
+    }
+
+    public QuarantinedReading getQuarantinedReading(UUID id) {
+        return quarantinedReadingRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Quarantined reading not found with ID: " + id));
+    }
+
+    /**
+     * Deletes a reading from quarantine.
+     */
+    public void discard(UUID id) {
+        quarantinedReadingRepository.delete(getQuarantinedReading(id));
+    }
+
+    private static boolean hasDevice(NewReadingDto reading) {
+        return reading.getDeviceId() != null && !reading.getDeviceId().isBlank();
+    }
+
+    private static Submission submission(UUID patientId, NewReadingDto reading) {
+        return new Submission(patientId, reading.getSystolic(), reading.getDiastolic(), reading.getHeartRate());
+    }
+
+    private static QuarantinedReading quarantine(UUID patientId, NewReadingDto reading, List<String> violations) {
+        QuarantinedReading quarantined = new QuarantinedReading();
+        quarantined.setPatientId(patientId);
+        quarantined.setSystolic(reading.getSystolic());
+        quarantined.setDiastolic(reading.getDiastolic());
+        quarantined.setHeartRate(reading.getHeartRate());
+        quarantined.setBodyPosition(reading.getBodyPosition());
+        quarantined.setArm(reading.getArm());
+        quarantined.setNotes(reading.getNotes());
+        quarantined.setDeviceId(reading.getDeviceId());
+        quarantined.setReasons(String.join("; ", violations));
+        quarantined.setReceivedAt(LocalDateTime.now());
+        return quarantined;
+    }
+
+    private static QuarantinedReadingDto toDto(QuarantinedReading quarantined) {
+        QuarantinedReadingDto dto = new QuarantinedReadingDto();
+        dto.setId(quarantined.getId());
+        dto.setPatientId(quarantined.getPatientId());
+        dto.setSystolic(quarantined.getSystolic());
+        dto.setDiastolic(quarantined.getDiastolic());
+        dto.setHeartRate(quarantined.getHeartRate());
+        dto.setBodyPosition(quarantined.getBodyPosition());
+        dto.setArm(quarantined.getArm());
+        dto.setNotes(quarantined.getNotes());
+        dto.setDeviceId(quarantined.getDeviceId());
+        dto.setReasons(Arrays.asList(quarantined.getReasons().split("; ")));
+        dto.setReceivedAt(quarantined.getReceivedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return dto;
+    }
+
+    private Counter outcome(String outcome, String description) {
+        return Counter.builder("readings.ingest").tag("outcome", outcome)
+                .description(description)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,158 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.RiskLevelBackfillDto;
+import com.chikere.bp.bptracker.exception.BatchRunInProgressException;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository.ReadingPressures;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stores the risk level of readings saved before risk levels were stored, or classified with
+ * rules that have since changed.
+ * <p>
+ * Readings are read in keyset pages of their pressures only, classified in bulk with the default
+ * rule set, and only the readings whose level changes are written, with one update per level and
+ * page. On startup, readings without a level are filled in the background if enabled.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReadingRiskLevelBackfillService {
+
+    private static final RiskLevel[] LEVELS = RiskLevel.values();
+
+    private final ReadingRepository readingRepository;
+    private final RiskRuleService riskRuleService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.risk.backfill.page-size:1000}")
+    private int pageSize = 1000;
+
+    @Value("${bptracker.risk.backfill.on-startup:true}")
+    private boolean backfillOnStartup = true;
+
+    private final ReentrantLock backfillLock = new ReentrantLock();
+
+    private Counter classifiedCounter;
+    private Counter updatedCounter;
+
+    /**
+     * Register metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        classifiedCounter = Counter.builder("risk.level.backfill.readings")
+                .description("Number of readings classified by risk level backfills")
+                .register(meterRegistry);
+        updatedCounter = Counter.builder("risk.level.backfill.updated")
+                .description("Number of readings whose stored risk level was changed by a backfill")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fills in missing risk levels in the background once the application is ready, if enabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissingOnStartup() {
+        if (backfillOnStartup) {
+            Thread.ofVirtual().name("risk-level-backfill").start(() -> {
+                try {
+                    RiskLevelBackfillDto result = backfill(false);
+                    if (result.getUpdated() > 0) {
+                        log.info("Stored the risk level of {} readings in {} ms", result.getUpdated(), result.getDurationMillis());
+                    }
+                } catch (BatchRunInProgressException e) {
+                    log.debug("Skipping risk level backfill on startup: {}", e.getMessage());
+                } catch (RuntimeException e) {
+                    log.warn("Risk level backfill on startup failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Classifies stored readings with the default rule set and stores the levels that changed.
+     * Runs on the calling thread.
+     *
+     * @param reclassifyAll True to classify every reading again, e.g. after the rules changed;
+     *                      false to classify only readings without a risk level
+     * @return How many readings were classified and updated
+     * @throws BatchRunInProgressException if a backfill is already running
+     */
+    public RiskLevelBackfillDto backfill(boolean reclassifyAll) {
+        if (!backfillLock.tryLock()) {
+            throw new BatchRunInProgressException("A risk level backfill is already running");
+        }
+        try {
+            long start = System.nanoTime();
+            long readings = 0;
+            long updated = 0;
+            UUID after = null;
+            List<ReadingPressures> page;
+            do {
+                page = readingRepository.findPressuresAfter(after, reclassifyAll, Limit.of(pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                readings += page.size();
+                updated += classifyPage(page);
+                after = page.get(page.size() - 1).getId();
+            } while (page.size() == pageSize);
+
+            RiskLevelBackfillDto result = new RiskLevelBackfillDto();
+            result.setReclassified(reclassifyAll);
+            result.setReadings(readings);
+            result.setUpdated(updated);
+            result.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+            return result;
+        } finally {
+            backfillLock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of readings whose level changed
+     */
+    private int classifyPage(List<ReadingPressures> page) {
+        int[] systolic = new int[page.size()];
+        int[] diastolic = new int[page.size()];
+        for (int i = 0; i < page.size(); i++) {
+            systolic[i] = page.get(i).getSystolic();
+            diastolic[i] = page.get(i).getDiastolic();
+        }
+        byte[] levels = riskRuleService.classifyAll(null, systolic, diastolic);
+
+        Map<RiskLevel, List<UUID>> changed = new EnumMap<>(RiskLevel.class);
+        for (int i = 0; i < page.size(); i++) {
+            RiskLevel level = LEVELS[levels[i]];
+            if (level != page.get(i).getRiskLevel()) {
+                changed.computeIfAbsent(level, l -> new ArrayList<>()).add(page.get(i).getId());
+            }
+        }
+        int updated = 0;
+        for (Map.Entry<RiskLevel, List<UUID>> entry : changed.entrySet()) {
+            updated += readingRepository.updateRiskLevel(entry.getKey(), entry.getValue());
+        }
+        classifiedCounter.increment(page.size());
+        updatedCounter.increment(updated);
+        return updated;
+    }
+}
@@ -2,17 +2,31 @@ package com.chikere.bp.bptracker.service;
 
 import com.chikere.bp.bptracker.dto.NewReadingDto;
 import com.chikere.bp.bptracker.dto.ReadingDto;
+import com.chikere.bp.bptracker.dto.RiskWorklistEntryDto;
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
 import com.chikere.bp.bptracker.exception.EntityNotFoundException;
 import com.chikere.bp.bptracker.mapper.ReadingMapper;
 import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.QuarantinedReading;
 import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
 import com.chikere.bp.bptracker.repository.PatientRepository;
 import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository.PatientRiskLevelCount;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -20,35 +34,89 @@ import java.util.stream.Collectors;
 @Service
 public class ReadingService {
     public static final String PATIENT_NOT_FOUND_WITH_ID = "Patient not found with ID: ";
+    public static final int MAX_WORKLIST_READINGS = 1000;
     private final ReadingRepository readingRepository;
     private final PatientRepository patientRepository;
     private final ReadingMapper readingMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RiskRuleService riskRuleService;
+    private final ReadingIngestService readingIngestService;
 
     /**
-     * Create a new reading from DTO
+     * Create a new reading from DTO, once {@link ReadingIngestService} has screened it. A
+     * duplicate of a reading just saved returns that reading instead.
      */
+    @Transactional
     public ReadingDto create(NewReadingDto newReadingDto) {
         // Find the patient
         Patient patient = patientRepository.findById(newReadingDto.getPatientId())
                 .orElseThrow(() -> new EntityNotFoundException(PATIENT_NOT_FOUND_WITH_ID + newReadingDto.getPatientId()));
 
+        Optional<Reading> original = readingIngestService.admit(patient.getId(), newReadingDto)
+                .flatMap(readingRepository::findById);
+        if (original.isPresent()) {
+            return readingMapper.toDto(original.get());
+        }
+        Reading saved;
+        try {
+            saved = save(patient, newReadingDto, null);
+        } catch (RuntimeException e) {
+            readingIngestService.notSaved(patient.getId(), newReadingDto);
+            throw e;
+        }
+        readingIngestService.saved(patient.getId(), newReadingDto, saved.getId());
+        return readingMapper.toDto(saved);
+    }
+
+    /**
+     * Saves a quarantined reading as a new reading after all, without screening it again. The
+     * reading keeps the time it was received, and leaves quarantine in the same transaction.
+     */
+    @Transactional
+    public ReadingDto releaseFromQuarantine(UUID quarantineId) {
+        QuarantinedReading quarantined = readingIngestService.getQuarantinedReading(quarantineId);
+        Patient patient = patientRepository.findById(quarantined.getPatientId())
+                .orElseThrow(() -> new EntityNotFoundException(PATIENT_NOT_FOUND_WITH_ID + quarantined.getPatientId()));
+        NewReadingDto newReadingDto = new NewReadingDto();
+        newReadingDto.setPatientId(patient.getId());
+        newReadingDto.setSystolic(quarantined.getSystolic());
+        newReadingDto.setDiastolic(quarantined.getDiastolic());
+        newReadingDto.setHeartRate(quarantined.getHeartRate());
+        newReadingDto.setBodyPosition(quarantined.getBodyPosition());
+        newReadingDto.setArm(quarantined.getArm());
+        newReadingDto.setNotes(quarantined.getNotes());
+        newReadingDto.setDeviceId(quarantined.getDeviceId());
+        Reading saved = save(patient, newReadingDto, quarantined.getReceivedAt());
+        readingIngestService.discard(quarantineId);
+        return readingMapper.toDto(saved);
+    }
+
+    /**
+     * @param timestamp When the reading was taken, or null for now
+     */
+    private Reading save(Patient patient, NewReadingDto newReadingDto, LocalDateTime timestamp) {
         // Convert DTO to entity and set patient
         Reading reading = readingMapper.toEntity(newReadingDto);
         reading.setPatient(patient);
+        reading.setTimestamp(timestamp);
+        reading.setRiskLevel(riskRuleService.classify(reading.getSystolic(), reading.getDiastolic()));
 
-        // Save and return as DTO
         Reading saved = readingRepository.save(reading);
-        return readingMapper.toDto(saved);
+        eventPublisher.publishEvent(ReadingChangedEvent.created(patient.getId(), saved.getId(), saved.getTimestamp(),
+                saved.getSystolic(), saved.getDiastolic(), saved.getHeartRate()));
+        return saved;
     }
 
     /**
      * Update an existing reading
      */
+    @Transactional
     public ReadingDto update(UUID id, ReadingDto readingDto) {
-        // Verify reading exists
-        if (!readingRepository.existsById(id)) {
-            throw new EntityNotFoundException("Reading not found with ID: " + id);
-        }
+        // Verify reading exists, keeping the values it had for listeners
+        Reading existing = readingRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Reading not found with ID: " + id));
+        ReadingChangedEvent.Previous previous = new ReadingChangedEvent.Previous(existing.getPatient().getId(),
+                existing.getTimestamp(), existing.getSystolic(), existing.getDiastolic(), existing.getHeartRate());
 
         // Set ID and convert to entity
         readingDto.setId(id);
@@ -58,9 +126,12 @@ public class ReadingService {
         Patient patient = patientRepository.findById(readingDto.getPatientId())
                 .orElseThrow(() -> new EntityNotFoundException(PATIENT_NOT_FOUND_WITH_ID + readingDto.getPatientId()));
         reading.setPatient(patient);
+        reading.setRiskLevel(riskRuleService.classify(reading.getSystolic(), reading.getDiastolic()));
 
         // Save and return as DTO
         Reading updated = readingRepository.save(reading);
+        eventPublisher.publishEvent(ReadingChangedEvent.updated(patient.getId(), id, updated.getTimestamp(),
+                updated.getSystolic(), updated.getDiastolic(), updated.getHeartRate(), previous));
         return readingMapper.toDto(updated);
     }
 
@@ -85,11 +156,13 @@ public class ReadingService {
     /**
      * Delete a reading
      */
+    @Transactional
     public void delete(UUID id) {
-        if (!readingRepository.existsById(id)) {
-            throw new EntityNotFoundException("Reading not found with ID: " + id);
-        }
+        Reading reading = readingRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Reading not found with ID: " + id));
         readingRepository.deleteById(id);
+        eventPublisher.publishEvent(ReadingChangedEvent.deleted(reading.getPatient().getId(), id, reading.getTimestamp(),
+                reading.getSystolic(), reading.getDiastolic(), reading.getHeartRate()));
     }
 
     /**
@@ -170,6 +243,66 @@ public class ReadingService {
         return readingRepository.countByPatient(patient) > 0;
     }
 
+    /**
+     * Patients with readings at or above a risk level in a date range, most severe and then most
+     * recent first. Answered from the risk level index without reading the readings themselves.
+     *
+     * @param minLevel The lowest risk level to include
+     * @param from Start of the range, inclusive
+     * @param to End of the range, exclusive
+     */
+    public List<RiskWorklistEntryDto> getRiskWorklist(RiskLevel minLevel, LocalDateTime from, LocalDateTime to) {
+        Map<UUID, WorklistEntry> entries = new HashMap<>();
+        for (PatientRiskLevelCount count : readingRepository.countByPatientAndRiskLevel(levelsFrom(minLevel), from, to)) {
+            entries.merge(count.getPatientId(),
+                    new WorklistEntry(count.getPatientId(), count.getRiskLevel(), count.getReadings(), count.getLatestTimestamp()),
+                    WorklistEntry::combine);
+        }
+        return entries.values().stream()
+                .sorted(Comparator.comparing(WorklistEntry::highestRiskLevel)
+                        .thenComparing(WorklistEntry::latestTimestamp)
+                        .reversed())
+                .map(WorklistEntry::toDto)
+                .collect(Collectors.toList());
+    }
+
+    private record WorklistEntry(UUID patientId, RiskLevel highestRiskLevel, long readings, LocalDateTime latestTimestamp) {
+
+        WorklistEntry combine(WorklistEntry other) {
+            return new WorklistEntry(patientId,
+                    highestRiskLevel.compareTo(other.highestRiskLevel) >= 0 ? highestRiskLevel : other.highestRiskLevel,
+                    readings + other.readings,
+                    latestTimestamp.isAfter(other.latestTimestamp) ? latestTimestamp : other.latestTimestamp);
+        }
+
+        RiskWorklistEntryDto toDto() {
+            RiskWorklistEntryDto dto = new RiskWorklistEntryDto();
+            dto.setPatientId(patientId);
+            dto.setHighestRiskLevel(highestRiskLevel);
+            dto.setReadings(readings);
+            dto.setLatestTimestamp(latestTimestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            return dto;
+        }
+    }
+
+    /**
+     * Readings at or above a risk level in a date range, most recent first.
+     *
+     * @param minLevel The lowest risk level to include
+     * @param from Start of the range, inclusive
+     * @param to End of the range, exclusive
+     * @param limit Maximum number of readings to return, at most {@link #MAX_WORKLIST_READINGS}
+     */
+    public List<ReadingDto> getReadingsAtRisk(RiskLevel minLevel, LocalDateTime from, LocalDateTime to, int limit) {
+        return readingRepository.findByRiskLevels(levelsFrom(minLevel), from, to, Limit.of(Math.clamp(limit, 1, MAX_WORKLIST_READINGS))).stream()
+                .map(readingMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    private static EnumSet<RiskLevel> levelsFrom(RiskLevel minLevel) {
+        return EnumSet.range(minLevel, RiskLevel.SEVERE_HYPERTENSIVE);
+    }
+
     /**
      * Get all readings as CSV, including patient information
      */
@@ -0,0 +1,492 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.RiskAssessmentJobDto;
+import com.chikere.bp.bptracker.dto.RiskAssessmentResultDto;
+import com.chikere.bp.bptracker.exception.EntityNotFoundException;
+import com.chikere.bp.bptracker.exception.JobQueueFullException;
+import com.chikere.bp.bptracker.mapper.RiskAssessmentJobMapper;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.RiskAssessmentJob;
+import com.chikere.bp.bptracker.model.enums.AssessmentSource;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.repository.RiskAssessmentJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs AI risk assessments as background jobs.
+ * <p>
+ * Submitting returns immediately with a persisted job; the LLM call runs on a bounded
+ * executor with a bounded queue. Results are stored on the job and reused for as long as
+ * the patient's readings are unchanged, so reloading a page never triggers a second LLM call. Clients either poll the job or subscribe to its completion via Server-Sent Events.
+ * </p>
+ * <p>
+ * The executor is in memory, so queued and running jobs only live as long as the process that
+ * submitted them. Those left by an earlier process are marked failed on startup, and only this
+ * process's own queued and running jobs are reused.
+ * </p>
+ * <p>
+ * In deadline mode the caller waits for the job only up to a deadline. If the AI has not
+ * answered by then, the rule-based level is returned marked provisional together with the job,
+ * which delivers the AI result later.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RiskAssessmentJobService {
+
+    private static final Set<JobStatus> REUSABLE_STATUSES = EnumSet.of(JobStatus.QUEUED, JobStatus.RUNNING, JobStatus.COMPLETED);
+    private static final Set<JobStatus> ACTIVE_STATUSES = EnumSet.of(JobStatus.QUEUED, JobStatus.RUNNING);
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final RiskAssessmentJobRepository jobRepository;
+    private final PatientRepository patientRepository;
+    private final ReadingRepository readingRepository;
+    private final PatientReadingStatsService patientReadingStatsService;
+    private final RiskService riskService;
+    private final RiskAssessmentJobMapper jobMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bptracker.ai.jobs.concurrency:4}")
+    private int concurrency = 4;
+
+    @Value("${bptracker.ai.jobs.queue-capacity:100}")
+    private int queueCapacity = 100;
+
+    @Value("${bptracker.ai.deadline:2s}")
+    private Duration defaultDeadline = Duration.ofSeconds(2);
+
+    @Value("${spring.mvc.async.request-timeout:120s}")
+    private Duration emitterTimeout = Duration.ofSeconds(120);
+
+    // Serialises the find-or-create step so concurrent submits for the same readings share one job
+    private final ReentrantLock submitLock = new ReentrantLock();
+    private final Map<UUID, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<RiskAssessmentJobDto>> completions = new ConcurrentHashMap<>();
+    // Queued and running jobs submitted by this process
+    private final Set<UUID> ownJobs = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor executor;
+    private Counter submittedCounter;
+    private Counter reusedCounter;
+    private Counter rejectedCounter;
+    private Timer queueWaitTimer;
+
+    /**
+     * Fail the jobs an earlier process left unfinished, create the bounded executor and register
+     * metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        int interrupted = jobRepository.failAll(ACTIVE_STATUSES, JobStatus.FAILED,
+                "Interrupted by a restart before it finished", LocalDateTime.now());
+        if (interrupted > 0) {
+            log.warn("Marked {} AI risk assessment jobs interrupted by a restart as failed", interrupted);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "risk-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        submittedCounter = meterRegistry.counter("ai.risk.jobs.submitted");
+        reusedCounter = meterRegistry.counter("ai.risk.jobs.reused");
+        rejectedCounter = meterRegistry.counter("ai.risk.jobs.rejected");
+        queueWaitTimer = Timer.builder("ai.risk.jobs.queue.wait")
+                .description("Time AI risk assessment jobs wait in the queue before running")
+                .register(meterRegistry);
+        Gauge.builder("ai.risk.jobs.queue.size", executor, e -> e.getQueue().size())
+                .description("Number of AI risk assessment jobs waiting for an executor thread")
+                .register(meterRegistry);
+        Gauge.builder("ai.risk.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Number of AI risk assessment jobs currently running")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Submits an AI risk assessment for the patient, or returns the existing job if one is
+     * completed for the patient's current readings, or queued or running on this process.
+     *
+     * @param patientId The ID of the patient
+     * @return The job tracking the assessment
+     * @throws EntityNotFoundException if the patient or their readings are not found
+     * @throws JobQueueFullException if the executor queue is full
+     */
+    public RiskAssessmentJobDto submit(UUID patientId) {
+        ReadingsVersion readings = readingsVersion(patientId);
+
+        submitLock.lock();
+        try {
+            Optional<RiskAssessmentJob> existing = findJob(patientId, readings, REUSABLE_STATUSES);
+            if (existing.isPresent() && isReusable(existing.get())) {
+                log.info("Reusing AI risk assessment job {} for patient with ID: {}", existing.get().getId(), patientId);
+                reusedCounter.increment();
+                return jobMapper.toDto(existing.get());
+            }
+
+            RiskAssessmentJob job = newJob(patientId, readings);
+            job.setStatus(JobStatus.QUEUED);
+            RiskAssessmentJob saved = jobRepository.save(job);
+            ownJobs.add(saved.getId());
+
+            long queuedAt = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                    run(saved.getId());
+                });
+            } catch (RejectedExecutionException e) {
+                rejectedCounter.increment();
+                ownJobs.remove(saved.getId());
+                jobRepository.delete(saved);
+                log.warn("AI risk assessment queue is full, rejecting job for patient with ID: {}", patientId);
+                throw new JobQueueFullException("AI risk assessment queue is full, please retry later");
+            }
+
+            submittedCounter.increment();
+            log.info("Submitted AI risk assessment job {} for patient with ID: {}", saved.getId(), patientId);
+            return jobMapper.toDto(saved);
+        } finally {
+            submitLock.unlock();
+        }
+    }
+
+    /**
+     * Runs a fresh AI risk assessment for the patient on the calling thread and stores it as a job.
+     * Used by batch runs, which do their own concurrency limiting.
+     *
+     * @param patientId The ID of the patient
+     * @return The finished job
+     */
+    public RiskAssessmentJobDto assessNow(UUID patientId) {
+        RiskAssessmentJob job = newJob(patientId, readingsVersion(patientId));
+        job.setStatus(JobStatus.QUEUED);
+        RiskAssessmentJob saved = jobRepository.save(job);
+        ownJobs.add(saved.getId());
+        return jobMapper.toDto(run(saved.getId()));
+    }
+
+    /**
+     * Runs fresh AI risk assessments for several patients on the calling thread, batching them
+     * into as few LLM calls as the AI service allows, and stores one job per patient.
+     * Used by batch runs, which do their own concurrency limiting.
+     *
+     * @param patientIds The IDs of the patients
+     * @return The finished jobs, in the order of the patients
+     */
+    public List<RiskAssessmentJobDto> assessNow(List<UUID> patientIds) {
+        List<RiskAssessmentJob> jobs = new ArrayList<>(patientIds.size());
+        for (UUID patientId : patientIds) {
+            RiskAssessmentJob job = newJob(patientId, readingsVersion(patientId));
+            job.setStatus(JobStatus.RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+            RiskAssessmentJob saved = jobRepository.save(job);
+            ownJobs.add(saved.getId());
+            jobs.add(saved);
+        }
+
+        Map<UUID, String> riskLevels = Map.of();
+        Exception failure = null;
+        try {
+            riskLevels = riskService.accessRiskWithAI(patientIds);
+        } catch (Exception e) {
+            log.error("AI risk assessment failed for {} patients", patientIds.size(), e);
+            failure = e;
+        }
+        List<RiskAssessmentJobDto> finished = new ArrayList<>(jobs.size());
+        for (RiskAssessmentJob job : jobs) {
+            finished.add(jobMapper.toDto(finish(job, riskLevels.get(job.getPatientId()), failure)));
+        }
+        return finished;
+    }
+
+    /**
+     * Assesses the patient within the configured deadline.
+     *
+     * @see #assessWithinDeadline(UUID, Duration)
+     */
+    public RiskAssessmentResultDto assessWithinDeadline(UUID patientId) {
+        return assessWithinDeadline(patientId, defaultDeadline);
+    }
+
+    /**
+     * Submits an AI assessment and waits for it up to the deadline. If the AI answers in time
+     * its level is returned. Otherwise the rule-based level is returned straight away, marked
+     * provisional while the job is still running, and the job ID can be used to collect the AI
+     * result later.
+     *
+     * @param patientId The ID of the patient
+     * @param deadline How long to wait for the AI result
+     * @return The AI result, or the rule-based fallback
+     * @throws EntityNotFoundException if the patient or their readings are not found
+     */
+    public RiskAssessmentResultDto assessWithinDeadline(UUID patientId, Duration deadline) {
+        long start = System.nanoTime();
+        RiskAssessmentJobDto job;
+        try {
+            job = submit(patientId);
+        } catch (JobQueueFullException e) {
+            // No AI result will follow, so the rule-based level is final
+            return fallback(patientId, "rejected", null);
+        }
+
+        CompletableFuture<RiskAssessmentJobDto> completion = completion(job.getId());
+        try {
+            RiskAssessmentJobDto finished = completion.get(deadline.toNanos(), TimeUnit.NANOSECONDS);
+            if (finished.getStatus() == JobStatus.FAILED) {
+                return fallback(patientId, "failed", null);
+            }
+            meterRegistry.counter("ai.risk.deadline.requests", "outcome", "ai").increment();
+            RiskAssessmentResultDto result = new RiskAssessmentResultDto();
+            result.setRiskLevel(finished.getRiskLevel());
+            result.setSource(AssessmentSource.AI);
+            result.setJobId(finished.getId());
+            return result;
+        } catch (TimeoutException e) {
+            RiskAssessmentResultDto result = fallback(patientId, "deadline", job.getId());
+            log.info("AI risk assessment for patient with ID: {} missed the {} ms deadline, returned provisional {}",
+                    patientId, deadline.toMillis(), result.getRiskLevel());
+            completion.thenAccept(late -> recordLateResult(result.getRiskLevel(), late, start));
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback(patientId, "interrupted", job.getId());
+        } catch (ExecutionException e) {
+            return fallback(patientId, "failed", null);
+        }
+    }
+
+    /**
+     * Get a job by ID
+     */
+    public RiskAssessmentJobDto getJob(UUID jobId) {
+        return jobMapper.toDto(findJob(jobId));
+    }
+
+    /**
+     * Returns the completed assessment for the patient's current readings, if any.
+     */
+    public Optional<RiskAssessmentJobDto> findCompletedJob(UUID patientId) {
+        Patient patient = patientRepository.findById(patientId).orElse(null);
+        if (patient == null) {
+            return Optional.empty();
+        }
+        return readingRepository.findFirstByPatientOrderByTimestampDesc(patient)
+                .flatMap(reading -> findJob(patientId,
+                        new ReadingsVersion(reading.getId(), patientReadingStatsService.historyVersion(patient)),
+                        EnumSet.of(JobStatus.COMPLETED)))
+                .map(jobMapper::toDto);
+    }
+
+    /**
+     * Subscribes to a job's completion. The emitter receives a single {@code completed} or
+     * {@code failed} event carrying the job and is then closed.
+     */
+    public SseEmitter subscribe(UUID jobId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        RiskAssessmentJob job = findJob(jobId);
+        if (isFinished(job)) {
+            sendAndComplete(emitter, job);
+            return emitter;
+        }
+
+        List<SseEmitter> jobEmitters = emitters.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+        jobEmitters.add(emitter);
+        emitter.onCompletion(() -> jobEmitters.remove(emitter));
+        emitter.onTimeout(() -> jobEmitters.remove(emitter));
+        emitter.onError(e -> jobEmitters.remove(emitter));
+
+        // The job may have finished between the lookup and the registration
+        RiskAssessmentJob current = findJob(jobId);
+        if (isFinished(current) && jobEmitters.remove(emitter)) {
+            sendAndComplete(emitter, current);
+        }
+        return emitter;
+    }
+
+    RiskAssessmentJob run(UUID jobId) {
+        RiskAssessmentJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return null;
+        }
+        job.setStatus(JobStatus.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = jobRepository.save(job);
+
+        String riskLevel = null;
+        Exception failure = null;
+        try {
+            riskLevel = riskService.accessRiskWithAI(job.getPatientId());
+        } catch (Exception e) {
+            log.error("AI risk assessment job {} failed for patient with ID: {}", jobId, job.getPatientId(), e);
+            failure = e;
+        }
+        return finish(job, riskLevel, failure);
+    }
+
+    /**
+     * Stores the outcome of a running job and notifies its subscribers.
+     */
+    private RiskAssessmentJob finish(RiskAssessmentJob job, String riskLevel, Exception failure) {
+        if (failure != null) {
+            job.setStatus(JobStatus.FAILED);
+            job.setErrorMessage(failure.getMessage());
+        } else if (riskLevel == null || UNKNOWN.equals(riskLevel)) {
+            // The AI service reports its own failures as UNKNOWN; do not keep that as a result
+            job.setStatus(JobStatus.FAILED);
+            job.setErrorMessage("AI service could not assess the risk level");
+        } else {
+            job.setStatus(JobStatus.COMPLETED);
+            job.setRiskLevel(riskLevel);
+        }
+        job.setCompletedAt(LocalDateTime.now());
+        RiskAssessmentJob finished = jobRepository.save(job);
+        UUID jobId = finished.getId();
+        ownJobs.remove(jobId);
+        log.info("AI risk assessment job {} finished with status {}", jobId, finished.getStatus());
+
+        List<SseEmitter> jobEmitters = emitters.remove(jobId);
+        if (jobEmitters != null) {
+            jobEmitters.forEach(emitter -> sendAndComplete(emitter, finished));
+        }
+        CompletableFuture<RiskAssessmentJobDto> completion = completions.remove(jobId);
+        if (completion != null) {
+            completion.complete(jobMapper.toDto(finished));
+        }
+        return finished;
+    }
+
+    private CompletableFuture<RiskAssessmentJobDto> completion(UUID jobId) {
+        CompletableFuture<RiskAssessmentJobDto> completion = completions.computeIfAbsent(jobId, id -> new CompletableFuture<>());
+        // The job may have finished before the future was registered
+        RiskAssessmentJob current = findJob(jobId);
+        if (isFinished(current)) {
+            completions.remove(jobId, completion);
+            completion.complete(jobMapper.toDto(current));
+        }
+        return completion;
+    }
+
+    private RiskAssessmentResultDto fallback(UUID patientId, String reason, UUID pendingJobId) {
+        meterRegistry.counter("ai.risk.deadline.requests", "outcome", "fallback").increment();
+        meterRegistry.counter("ai.risk.deadline.fallback", "reason", reason).increment();
+        RiskAssessmentResultDto result = new RiskAssessmentResultDto();
+        result.setRiskLevel(riskService.captureAndAssessImmediateReading(patientId));
+        result.setSource(AssessmentSource.RULE_BASED);
+        result.setProvisional(pendingJobId != null);
+        result.setJobId(pendingJobId);
+        return result;
+    }
+
+    private void recordLateResult(String provisionalLevel, RiskAssessmentJobDto late, long start) {
+        String aiLevel = late.getStatus() == JobStatus.COMPLETED ? late.getRiskLevel() : UNKNOWN;
+        meterRegistry.counter("ai.risk.deadline.fallback.resolved",
+                "ai_level", aiLevel,
+                "agreed", String.valueOf(aiLevel.equals(provisionalLevel))).increment();
+        Timer.builder("ai.risk.deadline.fallback.resolution")
+                .description("Time from the request until the AI result replaced a provisional fallback")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private RiskAssessmentJob findJob(UUID jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new EntityNotFoundException("Risk assessment job not found with ID: " + jobId));
+    }
+
+    /**
+     * The patient's latest reading and the version of their reading history a job is valid for.
+     */
+    private record ReadingsVersion(UUID latestReadingId, String historyVersion) {
+    }
+
+    private ReadingsVersion readingsVersion(UUID patientId) {
+        Patient patient = patientRepository.findById(patientId)
+                .orElseThrow(() -> new EntityNotFoundException("Patient not found with ID: " + patientId));
+        UUID latestReadingId = readingRepository.findFirstByPatientOrderByTimestampDesc(patient)
+                .map(Reading::getId)
+                .orElseThrow(() -> new EntityNotFoundException("No readings found for patient with ID: " + patientId));
+        return new ReadingsVersion(latestReadingId, patientReadingStatsService.historyVersion(patient));
+    }
+
+    private Optional<RiskAssessmentJob> findJob(UUID patientId, ReadingsVersion readings, Set<JobStatus> statuses) {
+        return jobRepository.findFirstByPatientIdAndLatestReadingIdAndHistoryVersionAndStatusInOrderByCreatedAtDesc(
+                patientId, readings.latestReadingId(), readings.historyVersion(), statuses);
+    }
+
+    private static RiskAssessmentJob newJob(UUID patientId, ReadingsVersion readings) {
+        RiskAssessmentJob job = new RiskAssessmentJob();
+        job.setPatientId(patientId);
+        job.setLatestReadingId(readings.latestReadingId());
+        job.setHistoryVersion(readings.historyVersion());
+        return job;
+    }
+
+    /**
+     * A completed job, or one still queued or running on this process's executor.
+     */
+    private boolean isReusable(RiskAssessmentJob job) {
+        return job.getStatus() == JobStatus.COMPLETED || ownJobs.contains(job.getId());
+    }
+
+    private static boolean isFinished(RiskAssessmentJob job) {
+        return job.getStatus() == JobStatus.COMPLETED || job.getStatus() == JobStatus.FAILED;
+    }
+
+    private void sendAndComplete(SseEmitter emitter, RiskAssessmentJob job) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(job.getStatus().name().toLowerCase())
+                    .data(jobMapper.toDto(job)));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not notify subscriber of job {}: {}", job.getId(), e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.exception.EntityNotFoundException;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.chikere.bp.bptracker.rules.CompiledRiskClassifier;
+import com.chikere.bp.bptracker.rules.RiskRuleSet;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Named blood pressure rule sets, compiled into lookup tables and reloaded when their file changes.
+ * <p>
+ * Rule sets are read from the JSON file at {@code bptracker.risk.rules.path}, an object mapping each
+ * rule set name to its {@link RiskRuleSet}. A {@code default} rule set is used when none is named;
+ * if the file has none, or there is no file, the built-in {@link RiskRuleSet#DEFAULT} thresholds are
+ * used. The file is checked every {@code reload-interval}; when it has changed, every rule set is
+ * compiled before the new tables replace the old ones in a single atomic swap, so classifications
+ * never take a lock and never see a mix of old and new rules. A file that does not parse or
+ * validate is logged and ignored, and the rules in use stay in place.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RiskRuleService {
+
+    public static final String DEFAULT_RULE_SET = "default";
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    @Value("${bptracker.risk.rules.path:./data/risk-rules.json}")
+    private Path rulesPath = Path.of("./data/risk-rules.json");
+
+    private final AtomicReference<RuleSets> ruleSets = new AtomicReference<>(RuleSets.BUILT_IN);
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    /**
+     * The compiled rule sets in use and the version of the file they were read from. The default
+     * classifier is kept apart so the common case skips the lookup by name.
+     */
+    private record RuleSets(Map<String, CompiledRiskClassifier> classifiers, CompiledRiskClassifier defaultClassifier,
+                            FileTime modified, long size) {
+
+        static final RuleSets BUILT_IN = of(
+                Map.of(DEFAULT_RULE_SET, CompiledRiskClassifier.compile(RiskRuleSet.DEFAULT)), null, -1);
+
+        static RuleSets of(Map<String, CompiledRiskClassifier> classifiers, FileTime modified, long size) {
+            return new RuleSets(Map.copyOf(classifiers), classifiers.get(DEFAULT_RULE_SET), modified, size);
+        }
+
+        boolean isVersion(FileTime modified, long size) {
+            return modified.equals(this.modified) && size == this.size;
+        }
+    }
+
+    /**
+     * Load the rule sets and register metrics after constructor
+     */
+    @PostConstruct
+    public void init() {
+        reloadIfChanged();
+        if (CompiledRiskClassifier.isVectorized()) {
+            log.info("Bulk risk classification uses {}-bit vectors", CompiledRiskClassifier.vectorBitSize());
+        } else {
+            log.info("Bulk risk classification is scalar; start the JVM with --add-modules jdk.incubator.vector to vectorize it");
+        }
+        Gauge.builder("risk.rules.sets", ruleSets, current -> current.get().classifiers().size())
+                .description("Number of risk rule sets in use")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reloads the rule sets if the rules file has been created, changed or deleted since it was last read.
+     *
+     * @return Whether new rules are in use
+     */
+    @Scheduled(fixedDelayString = "${bptracker.risk.rules.reload-interval:PT10S}")
+    public boolean reloadIfChanged() {
+        reloadLock.lock();
+        try {
+            RuleSets current = ruleSets.get();
+            if (!Files.isRegularFile(rulesPath)) {
+                if (current == RuleSets.BUILT_IN) {
+                    return false;
+                }
+                log.warn("Risk rules file {} is gone, using the built-in thresholds", rulesPath);
+                ruleSets.set(RuleSets.BUILT_IN);
+                return true;
+            }
+
+            BasicFileAttributes attributes = Files.readAttributes(rulesPath, BasicFileAttributes.class);
+            if (current.isVersion(attributes.lastModifiedTime(), attributes.size())) {
+                return false;
+            }
+            Map<String, RiskRuleSet> definitions = objectMapper.readValue(rulesPath.toFile(), new TypeReference<>() {
+            });
+            Map<String, CompiledRiskClassifier> classifiers = new LinkedHashMap<>();
+            classifiers.put(DEFAULT_RULE_SET, RuleSets.BUILT_IN.defaultClassifier());
+            definitions.forEach((name, ruleSet) -> classifiers.put(name, CompiledRiskClassifier.compile(ruleSet)));
+            ruleSets.set(RuleSets.of(classifiers, attributes.lastModifiedTime(), attributes.size()));
+            meterRegistry.counter("risk.rules.reloads", "outcome", "success").increment();
+            log.info("Loaded risk rule sets {} from {}", classifiers.keySet(), rulesPath);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            meterRegistry.counter("risk.rules.reloads", "outcome", "failure").increment();
+            log.warn("Could not load risk rules from {}, keeping the rules in use: {}", rulesPath, e.getMessage());
+            return false;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Classifies a reading with the default rule set.
+     */
+    public RiskLevel classify(int systolic, int diastolic) {
+        return ruleSets.get().defaultClassifier().classify(systolic, diastolic);
+    }
+
+    /**
+     * Classifies a reading with a named rule set.
+     *
+     * @param ruleSet The rule set name, or null for the default rule set
+     * @param systolic Systolic pressure in mmHg
+     * @param diastolic Diastolic pressure in mmHg
+     * @return The risk level
+     * @throws EntityNotFoundException if there is no rule set with that name
+     */
+    public RiskLevel classify(String ruleSet, int systolic, int diastolic) {
+        if (ruleSet == null || ruleSet.isBlank()) {
+            return classify(systolic, diastolic);
+        }
+        return classifier(ruleSet).classify(systolic, diastolic);
+    }
+
+    /**
+     * Classifies arrays of readings with a named rule set, vectorized and in parallel where possible.
+     *
+     * @param ruleSet The rule set name, or null for the default rule set
+     * @param systolic Systolic pressures in mmHg
+     * @param diastolic Diastolic pressures in mmHg, at the same indexes
+     * @return The {@link RiskLevel} ordinal of each reading
+     * @throws EntityNotFoundException if there is no rule set with that name
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public byte[] classifyAll(String ruleSet, int[] systolic, int[] diastolic) {
+        byte[] levels = new byte[systolic.length];
+        classifier(ruleSet).classifyAll(systolic, diastolic, levels);
+        return levels;
+    }
+
+    private CompiledRiskClassifier classifier(String ruleSet) {
+        RuleSets current = ruleSets.get();
+        if (ruleSet == null || ruleSet.isBlank()) {
+            return current.defaultClassifier();
+        }
+        CompiledRiskClassifier classifier = current.classifiers().get(ruleSet);
+        if (classifier == null) {
+            throw new EntityNotFoundException("Risk rule set not found: " + ruleSet);
+        }
+        return classifier;
+    }
+
+    /**
+     * Get the rule sets in use, by name
+     */
+    public Map<String, RiskRuleSet> getRuleSets() {
+        Map<String, RiskRuleSet> definitions = new LinkedHashMap<>();
+        ruleSets.get().classifiers().forEach((name, classifier) -> definitions.put(name, classifier.getRuleSet()));
+        return definitions;
+    }
+}
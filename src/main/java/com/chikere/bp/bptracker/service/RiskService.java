@@ -1,5 +1,6 @@
 package com.chikere.bp.bptracker.service;
 
+import com.chikere.bp.bptracker.model.enums.RiskEngine;
 import com.chikere.bp.bptracker.model.enums.RiskLevel;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -8,6 +9,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -21,8 +24,10 @@ public class RiskService {
 
     private final RuleBasedRiskService ruleBasedRiskService;
     private final AIRiskAssessmentService aiRiskAssessmentService;
+    private final StatisticalRiskService statisticalRiskService;
     private final Timer ruleBasedRiskAssessmentTimer;
     private final Timer aiRiskAssessmentTimer;
+    private final Timer statisticalRiskAssessmentTimer;
     private final Counter riskLevelCounter;
     private final MeterRegistry meterRegistry;
 
@@ -36,9 +41,22 @@ public class RiskService {
      * @return The risk level as a string
      */
     public String captureAndAssessImmediateReading(UUID patientId) {
+        return captureAndAssessImmediateReading(patientId, null);
+    }
+
+    /**
+     * Assesses the risk level based on the patient's most recent blood pressure reading
+     * with a named rule set.
+     * Delegates to RuleBasedRiskService.
+     *
+     * @param patientId The ID of the patient
+     * @param ruleSet The rule set to classify with, or null for the default rule set
+     * @return The risk level as a string
+     */
+    public String captureAndAssessImmediateReading(UUID patientId, String ruleSet) {
         log.info("Delegating immediate risk assessment for patient with ID: {} to RuleBasedRiskService", patientId);
         return ruleBasedRiskAssessmentTimer.record(() -> {
-            String riskLevel = ruleBasedRiskService.captureAndAssessImmediateReading(patientId);
+            String riskLevel = ruleBasedRiskService.captureAndAssessImmediateReading(patientId, ruleSet);
             // Increment counter with risk level tag
             Counter.builder("risk.level.assessment")
                     .tag("level", riskLevel)
@@ -69,4 +87,73 @@ public class RiskService {
             return riskLevel;
         });
     }
+
+    /**
+     * Uses AI to assess several patients, batching them into as few prompts as possible.
+     * Delegates to AIRiskAssessmentService.
+     *
+     * @param patientIds The IDs of the patients
+     * @return The risk level of each patient as a string
+     */
+    public Map<UUID, String> accessRiskWithAI(List<UUID> patientIds) {
+        log.info("Delegating AI-based risk assessment for {} patients to AIRiskAssessmentService", patientIds.size());
+        return aiRiskAssessmentTimer.record(() -> {
+            Map<UUID, String> riskLevels = aiRiskAssessmentService.assessRiskWithAI(patientIds);
+            // Increment counter with risk level tag
+            riskLevels.values().forEach(riskLevel -> Counter.builder("risk.level.assessment")
+                    .tag("level", riskLevel)
+                    .tag("method", "ai-based")
+                    .register(meterRegistry)
+                    .increment());
+            return riskLevels;
+        });
+    }
+
+    /**
+     * Assesses patient risk with the local statistical model.
+     * Delegates to StatisticalRiskService.
+     *
+     * @param patientId The ID of the patient
+     * @return The risk level as a string
+     */
+    public String assessRiskWithStatisticalModel(UUID patientId) {
+        log.info("Delegating statistical risk assessment for patient with ID: {} to StatisticalRiskService", patientId);
+        return statisticalRiskAssessmentTimer.record(() -> {
+            String riskLevel = statisticalRiskService.assess(patientId);
+            // Increment counter with risk level tag
+            Counter.builder("risk.level.assessment")
+                    .tag("level", riskLevel)
+                    .tag("method", "statistical")
+                    .register(meterRegistry)
+                    .increment();
+            return riskLevel;
+        });
+    }
+
+    /**
+     * Assesses patient risk with the requested engine.
+     *
+     * @param patientId The ID of the patient
+     * @param engine The engine to assess with
+     * @return The risk level as a string
+     */
+    public String assessRisk(UUID patientId, RiskEngine engine) {
+        return assessRisk(patientId, engine, null);
+    }
+
+    /**
+     * Assesses patient risk with the requested engine.
+     *
+     * @param patientId The ID of the patient
+     * @param engine The engine to assess with
+     * @param ruleSet The rule set for the RULES engine, or null for the default rule set
+     * @return The risk level as a string
+     */
+    public String assessRisk(UUID patientId, RiskEngine engine, String ruleSet) {
+        return switch (engine) {
+            case RULES -> captureAndAssessImmediateReading(patientId, ruleSet);
+            case STATISTICAL -> assessRiskWithStatisticalModel(patientId);
+            case AI -> accessRiskWithAI(patientId);
+        };
+    }
 }
@@ -16,6 +16,10 @@ import java.util.UUID;
 
 /**
  * Service for rule-based risk assessment of blood pressure readings.
+ * <p>
+ * Readings are classified with the compiled rule sets of {@link RiskRuleService}, so thresholds
+ * can be changed, and named rule sets added, without a redeploy.
+ * </p>
  */
 @Service
 @RequiredArgsConstructor
@@ -25,15 +29,29 @@ public class RuleBasedRiskService {
     private final PatientRepository patientRepository;
     private final ReadingRepository readingRepository;
     private final MeterRegistry meterRegistry;
+    private final RiskRuleService riskRuleService;
 
     /**
-     * Assesses the risk level based on the patient's most recent blood pressure reading.
+     * Assesses the risk level based on the patient's most recent blood pressure reading,
+     * with the default rule set.
      *
      * @param patientId The ID of the patient
      * @return The risk level as a string
      * @throws EntityNotFoundException if the patient or reading is not found
      */
     public String captureAndAssessImmediateReading(UUID patientId) {
+        return captureAndAssessImmediateReading(patientId, null);
+    }
+
+    /**
+     * Assesses the risk level based on the patient's most recent blood pressure reading.
+     *
+     * @param patientId The ID of the patient
+     * @param ruleSet The rule set to classify with, or null for the default rule set
+     * @return The risk level as a string
+     * @throws EntityNotFoundException if the patient, reading or rule set is not found
+     */
+    public String captureAndAssessImmediateReading(UUID patientId, String ruleSet) {
         // Create a timer for this operation
         Timer.Sample sample = Timer.start(meterRegistry);
 
@@ -48,24 +66,8 @@ public class RuleBasedRiskService {
             int systolic = latestReading.getSystolic();
             int diastolic = latestReading.getDiastolic();
 
-            RiskLevel riskLevel;
-
-            if (systolic >= 180 || diastolic >= 110) {
-                log.info("Severe Hypertensive BP Levels for: {} , reading taken: {}", patient, latestReading.getTimestamp());
-                riskLevel = RiskLevel.SEVERE_HYPERTENSIVE;
-            } else if (systolic >= 160 || diastolic >= 100) {
-                log.info("Moderate Hypertensive BP Levels for: {} , reading taken: {}", patient, latestReading.getTimestamp());
-                riskLevel = RiskLevel.MODERATE_HYPERTENSIVE;
-            } else if (systolic >= 140 || diastolic >= 90) {
-                log.info("Mild Hypertensive BP Levels for: {} , reading taken: {}", patient, latestReading.getTimestamp());
-                riskLevel = RiskLevel.MILD_HYPERTENSIVE;
-            } else if (systolic >= 80 && diastolic >= 80) {
-                log.info("Normal BP Levels for: {} , reading taken: {}", patient, latestReading.getTimestamp());
-                riskLevel = RiskLevel.NORMAL;
-            } else {
-                log.info("Low BP Levels for: {} , reading taken: {}", patient, latestReading.getTimestamp());
-                riskLevel = RiskLevel.LOW;
-            }
+            RiskLevel riskLevel = riskRuleService.classify(ruleSet, systolic, diastolic);
+            log.info("{} BP Levels for: {} , reading taken: {}", riskLevel, patient, latestReading.getTimestamp());
 
             // Record metrics for this risk level
             meterRegistry.counter("bp.risk.level", "level", riskLevel.name()).increment();
@@ -0,0 +1,322 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.RiskModelTrainingDto;
+import com.chikere.bp.bptracker.exception.BatchRunInProgressException;
+import com.chikere.bp.bptracker.exception.EntityNotFoundException;
+import com.chikere.bp.bptracker.exception.RiskModelUnavailableException;
+import com.chikere.bp.bptracker.ml.LogisticRiskModel;
+import com.chikere.bp.bptracker.ml.LogisticRiskModelTrainer;
+import com.chikere.bp.bptracker.ml.RiskFeatures;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.RiskAssessmentJob;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.repository.RiskAssessmentJobRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Risk assessment with a local statistical model, as a fast alternative to the LLM.
+ * <p>
+ * The model is a {@link LogisticRiskModel} over the latest reading and the features of the
+ * patient's reading history. It is trained offline with {@link #train()} from the stored readings:
+ * prefixes of a patient's history are samples, labelled with the completed AI assessment for
+ * their latest reading where there is one and with the live rule set otherwise. The features
+ * of every prefix come from one oldest-to-newest pass, and of the rule-labelled prefixes only
+ * an evenly spaced {@code max-samples-per-patient} are kept. The trained model is written to
+ * {@code bptracker.risk.model.path}, loaded from there on startup, and swapped in atomically, so
+ * assessments never wait for training.
+ * </p>
+ * <p>
+ * A patient's features are kept with the history version they were computed for, so an
+ * assessment costs two primary-key lookups (the patient and their reading statistics) and the
+ * model's dot product. Only the first assessment after the patient's readings change loads their
+ * history and recomputes the features, in one pass.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatisticalRiskService {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final PatientRepository patientRepository;
+    private final ReadingRepository readingRepository;
+    private final RiskAssessmentJobRepository riskAssessmentJobRepository;
+    private final MeterRegistry meterRegistry;
+    private final RiskRuleService riskRuleService;
+    private final PatientReadingStatsService patientReadingStatsService;
+
+    @Value("${bptracker.risk.model.path:./data/risk-model.bin}")
+    private Path modelPath = Path.of("./data/risk-model.bin");
+
+    @Value("${bptracker.risk.model.epochs:1000}")
+    private int epochs = 1000;
+
+    @Value("${bptracker.risk.model.learning-rate:1.0}")
+    private double learningRate = 1.0;
+
+    @Value("${bptracker.risk.model.l2:0.0001}")
+    private double l2 = 0.0001;
+
+    @Value("${bptracker.risk.model.max-samples-per-patient:100}")
+    private int maxSamplesPerPatient = 100;
+
+    private final AtomicReference<LogisticRiskModel> model = new AtomicReference<>();
+    private final ReentrantLock trainingLock = new ReentrantLock();
+    private final AtomicBoolean training = new AtomicBoolean();
+    private final AtomicReference<RiskModelTrainingDto> lastTraining = new AtomicReference<>();
+    private final Map<UUID, PatientFeatures> featuresByPatient = new ConcurrentHashMap<>();
+
+    /**
+     * The model features of a patient's readings at one version of their history.
+     */
+    private record PatientFeatures(String historyVersion, double[] values) {
+    }
+
+    /**
+     * Load the last trained model, if there is one, and register metrics
+     */
+    @PostConstruct
+    public void init() {
+        if (Files.isRegularFile(modelPath)) {
+            try {
+                model.set(LogisticRiskModel.read(modelPath));
+                log.info("Loaded statistical risk model from {}", modelPath);
+            } catch (IOException e) {
+                log.warn("Could not load statistical risk model from {}: {}", modelPath, e.getMessage());
+            }
+        }
+        Gauge.builder("risk.model.loaded", model, current -> current.get() != null ? 1 : 0)
+                .description("Whether a statistical risk model is loaded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Assesses a patient's risk with the statistical model.
+     * <p>
+     * Reuses the patient's features while their history version is unchanged, and otherwise
+     * loads all of their readings to recompute them.
+     * </p>
+     *
+     * @param patientId The ID of the patient
+     * @return The risk level as a string
+     * @throws RiskModelUnavailableException if no model has been trained yet
+     * @throws EntityNotFoundException if the patient is not found or has no readings
+     */
+    public String assess(UUID patientId) {
+        LogisticRiskModel current = model.get();
+        if (current == null) {
+            throw new RiskModelUnavailableException("No statistical risk model has been trained yet");
+        }
+        Patient patient = patientRepository.findById(patientId)
+                .orElseThrow(() -> new EntityNotFoundException("Patient not found " + patientId));
+        String historyVersion = patientReadingStatsService.historyVersion(patient);
+        PatientFeatures features = featuresByPatient.get(patientId);
+        if (features == null || !features.historyVersion().equals(historyVersion)) {
+            List<Reading> history = readingRepository.findAllByPatientOrderByTimestampDesc(patient);
+            if (history.isEmpty()) {
+                featuresByPatient.remove(patientId);
+                throw new EntityNotFoundException("No readings found for patient " + patientId);
+            }
+            double[] values = new double[RiskFeatures.COUNT];
+            RiskFeatures.fill(history, values);
+            features = new PatientFeatures(historyVersion, values);
+            featuresByPatient.put(patientId, features);
+        }
+        return current.predict(features.values()).name();
+    }
+
+    public boolean isModelAvailable() {
+        return model.get() != null;
+    }
+
+    /**
+     * Starts training a new model in the background.
+     *
+     * @return The training as it was when started
+     * @throws BatchRunInProgressException if a model is already being trained in the background
+     */
+    public RiskModelTrainingDto startTraining() {
+        if (!training.compareAndSet(false, true)) {
+            throw new BatchRunInProgressException("The statistical risk model is already being trained");
+        }
+        RiskModelTrainingDto started = new RiskModelTrainingDto();
+        started.setStatus(JobStatus.RUNNING);
+        started.setModelPath(modelPath.toString());
+        started.setStartedAt(LocalDateTime.now().toString());
+        lastTraining.set(started);
+        try {
+            Thread.ofVirtual().name("risk-model-training").start(() -> {
+                try {
+                    RiskModelTrainingDto result = train();
+                    result.setStartedAt(started.getStartedAt());
+                    lastTraining.set(result);
+                } catch (RuntimeException e) {
+                    log.error("Failed to train statistical risk model", e);
+                    RiskModelTrainingDto failed = new RiskModelTrainingDto();
+                    failed.setStatus(JobStatus.FAILED);
+                    failed.setModelPath(started.getModelPath());
+                    failed.setStartedAt(started.getStartedAt());
+                    failed.setErrorMessage(e.getMessage());
+                    lastTraining.set(failed);
+                } finally {
+                    training.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            training.set(false);
+            throw e;
+        }
+        return started;
+    }
+
+    /**
+     * The training started last with {@link #startTraining()}, running or finished.
+     */
+    public Optional<RiskModelTrainingDto> getLastTraining() {
+        return Optional.ofNullable(lastTraining.get());
+    }
+
+    /**
+     * Trains a new model from the stored readings and assessments, writes it to the model file
+     * and starts using it. Runs on the calling thread; concurrent calls train one after the other.
+     * Requests use {@link #startTraining()} instead.
+     *
+     * @return Size and training accuracy of the new model
+     * @throws IllegalStateException if there are no readings to train on
+     */
+    public RiskModelTrainingDto train() {
+        trainingLock.lock();
+        try {
+            long start = System.nanoTime();
+            List<double[]> samples = new ArrayList<>();
+            List<RiskLevel> labels = new ArrayList<>();
+            int aiLabelled = collectSamples(samples, labels);
+            if (samples.isEmpty()) {
+                throw new IllegalStateException("No readings to train the statistical risk model on");
+            }
+
+            double[][] x = samples.toArray(double[][]::new);
+            RiskLevel[] y = labels.toArray(RiskLevel[]::new);
+            LogisticRiskModel trained = new LogisticRiskModelTrainer(epochs, learningRate, l2).train(x, y);
+            int correct = 0;
+            for (int i = 0; i < x.length; i++) {
+                if (trained.predict(x[i]) == y[i]) {
+                    correct++;
+                }
+            }
+            try {
+                trained.write(modelPath);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write statistical risk model to " + modelPath, e);
+            }
+            model.set(trained);
+
+            RiskModelTrainingDto result = new RiskModelTrainingDto();
+            result.setStatus(JobStatus.COMPLETED);
+            result.setSamples(x.length);
+            result.setAiLabelledSamples(aiLabelled);
+            result.setTrainingAccuracy((double) correct / x.length);
+            result.setTrainingMillis((System.nanoTime() - start) / 1_000_000);
+            result.setModelPath(modelPath.toString());
+            result.setTrainedAt(LocalDateTime.now().toString());
+            log.info("Trained statistical risk model on {} samples ({} AI labelled), training accuracy {}",
+                    result.getSamples(), aiLabelled, result.getTrainingAccuracy());
+            return result;
+        } finally {
+            trainingLock.unlock();
+        }
+    }
+
+    /**
+     * Adds samples for the readings of every patient, in keyset pages of patients.
+     *
+     * @return The number of samples labelled from AI assessments
+     */
+    private int collectSamples(List<double[]> samples, List<RiskLevel> labels) {
+        int aiLabelled = 0;
+        UUID after = null;
+        List<UUID> page;
+        do {
+            page = patientRepository.findEligibleIdsAfter(after, 1, Limit.of(PAGE_SIZE));
+            for (UUID patientId : page) {
+                aiLabelled += collectSamples(patientId, samples, labels);
+            }
+            after = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == PAGE_SIZE);
+        return aiLabelled;
+    }
+
+    private int collectSamples(UUID patientId, List<double[]> samples, List<RiskLevel> labels) {
+        Map<UUID, RiskLevel> aiLevels = new HashMap<>();
+        for (RiskAssessmentJob job : riskAssessmentJobRepository.findByPatientIdAndStatus(patientId, JobStatus.COMPLETED)) {
+            parseLevel(job.getRiskLevel()).ifPresent(level -> aiLevels.put(job.getLatestReadingId(), level));
+        }
+
+        List<Reading> history = readingRepository.findAllByPatientOrderByTimestampDesc(
+                patientRepository.getReferenceById(patientId));
+        int stride = Math.max(1, Math.ceilDiv(history.size(), Math.max(1, maxSamplesPerPatient)));
+        int aiLabelled = 0;
+        // Oldest first, so the features as of each reading are those of the readings added so far
+        ReadingFeatureExtractor.Accumulator accumulator = new ReadingFeatureExtractor.Accumulator();
+        List<Reading> chronological = history.reversed();
+        for (int i = 0; i < chronological.size(); i++) {
+            Reading latest = chronological.get(i);
+            accumulator.add(latest);
+            RiskLevel label = aiLevels.get(latest.getId());
+            // Every AI-labelled reading, and every stride-th of the rest counting back from the
+            // newest
+            if (label == null && (chronological.size() - 1 - i) % stride != 0) {
+                continue;
+            }
+            double[] features = new double[RiskFeatures.COUNT];
+            RiskFeatures.fill(latest, accumulator.features(), features);
+            if (label != null) {
+                aiLabelled++;
+            } else {
+                label = riskRuleService.classify(latest.getSystolic(), latest.getDiastolic());
+            }
+            samples.add(features);
+            labels.add(label);
+        }
+        return aiLabelled;
+    }
+
+    private static Optional<RiskLevel> parseLevel(String level) {
+        if (level == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(RiskLevel.valueOf(level));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.chikere.bp.bptracker.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long BASELINE = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void rejectsCallsAboveTheLimit() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10).bindTo(meterRegistry, "test.limiter");
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1.0, meterRegistry.counter("test.limiter.rejected").count());
+
+        limiter.release(BASELINE, false);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRisesAndRecoversWhenItFalls() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 50);
+        runSaturated(limiter, BASELINE, 200);
+        double steadyLimit = limiter.getLimit();
+
+        runSaturated(limiter, BASELINE * 4, 50);
+        double slowLimit = limiter.getLimit();
+        assertTrue(slowLimit < steadyLimit / 2, "limit should drop well below " + steadyLimit + " but was " + slowLimit);
+
+        runSaturated(limiter, BASELINE, 200);
+        assertTrue(limiter.getLimit() > slowLimit);
+    }
+
+    @Test
+    void failuresCutTheLimitButNotBelowTheMinimum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 3, 50);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(BASELINE, true);
+        }
+
+        assertEquals(3.0, limiter.getLimit());
+    }
+
+    /**
+     * Completes calls while keeping the limiter full, as a saturated caller would.
+     */
+    private void runSaturated(AdaptiveConcurrencyLimiter limiter, long rttNanos, int calls) {
+        for (int i = 0; i < calls; i++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int j = 0; j < acquired; j++) {
+                limiter.release(rttNanos, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.chikere.bp.bptracker.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedChatMemoryTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void conversationKeepsOnlyItsLastMessages() {
+        BoundedChatMemory memory = memory(4, 10_000);
+
+        for (int i = 0; i < 3; i++) {
+            memory.add("a", List.of(new UserMessage("question " + i), new AssistantMessage("answer " + i)));
+        }
+
+        List<Message> messages = memory.get("a", 100);
+        assertEquals(4, messages.size());
+        assertEquals("question 1", messages.get(0).getText());
+        assertEquals(2.0, meterRegistry.counter("ai.chat.memory.trimmed").count());
+    }
+
+    @Test
+    void leastRecentlyUsedConversationIsEvictedWhenTotalIsExceeded() {
+        BoundedChatMemory memory = memory(20, 30);
+        memory.add("a", List.of(new UserMessage("0123456789")));
+        memory.add("b", List.of(new UserMessage("0123456789")));
+        memory.get("a", 10);
+
+        memory.add("c", List.of(new UserMessage("0123456789")));
+        memory.add("d", List.of(new UserMessage("0123456789")));
+
+        assertTrue(memory.get("b", 10).isEmpty());
+        assertEquals(1, memory.get("a", 10).size());
+        assertEquals(3, memory.conversationCount());
+        assertTrue(memory.totalChars() <= 30);
+        assertEquals(1.0, meterRegistry.counter("ai.chat.memory.evictions", "reason", "lru").count());
+    }
+
+    @Test
+    void idleConversationsExpire() {
+        BoundedChatMemory memory = memory(20, 10_000);
+        memory.add("a", List.of(new UserMessage("hello")));
+        memory.add("b", List.of(new UserMessage("hello")));
+
+        clock.addAndGet(Duration.ofMinutes(20).toNanos());
+        memory.get("b", 10);
+        clock.addAndGet(Duration.ofMinutes(15).toNanos());
+
+        assertEquals(1, memory.evictIdle());
+        assertEquals(1, memory.conversationCount());
+        assertEquals("hello".length(), memory.totalChars());
+        assertEquals(1.0, meterRegistry.counter("ai.chat.memory.evictions", "reason", "idle").count());
+    }
+
+    private BoundedChatMemory memory(int maxMessages, long maxTotalChars) {
+        return new BoundedChatMemory(maxMessages, maxTotalChars, Duration.ofMinutes(30), clock::get)
+                .bindTo(meterRegistry, "ai.chat.memory");
+    }
+}
@@ -0,0 +1,95 @@
+package com.chikere.bp.bptracker.ai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FakeLlmChatModelTest {
+
+    @Test
+    void sameSeedGivesSameLatenciesAndFailures() {
+        FakeLlmChatModel first = new FakeLlmChatModel(Duration.ofMillis(300), Duration.ofSeconds(2), 0, 0.2, 7);
+        FakeLlmChatModel second = new FakeLlmChatModel(Duration.ofMillis(300), Duration.ofSeconds(2), 0, 0.2, 7);
+
+        for (long i = 0; i < 100; i++) {
+            assertEquals(first.sample(i), second.sample(i));
+        }
+    }
+
+    @Test
+    void latencyFollowsConfiguredMedianAndP99() {
+        FakeLlmChatModel model = new FakeLlmChatModel(Duration.ofMillis(300), Duration.ofSeconds(2), 0, 0, 42);
+
+        long[] millis = LongStream.range(0, 20_000).map(i -> model.sample(i).latency().toMillis()).sorted().toArray();
+
+        assertEquals(300, millis[millis.length / 2], 30);
+        assertEquals(2000, millis[(int) (millis.length * 0.99)], 300);
+    }
+
+    @Test
+    void errorRateControlsShareOfFailures() {
+        FakeLlmChatModel model = new FakeLlmChatModel(Duration.ofMillis(1), Duration.ofMillis(1), 0, 0.1, 42);
+
+        long failures = LongStream.range(0, 10_000).filter(i -> model.sample(i).fails()).count();
+
+        assertEquals(1000, failures, 150);
+    }
+
+    @Test
+    void riskPromptIsAnsweredWithLevelOfAverageReading() {
+        String prompt = """
+                Systolic: 150, Diastolic: 95, Time: 2025-01-01T08:00
+                Systolic: 146, Diastolic: 92, Time: 2025-01-02T08:00
+                Systolic: 148, Diastolic: 93, Time: 2025-01-03T08:00
+                """;
+
+        assertTrue(FakeLlmChatModel.answer(prompt).endsWith("\nMILD_HYPERTENSIVE"));
+        assertTrue(FakeLlmChatModel.answer("Systolic: 75, Diastolic: 70").endsWith("\nLOW"));
+        assertEquals(FakeLlmChatModel.CHAT_ANSWER, FakeLlmChatModel.answer("What does 150/95 mean?"));
+        assertTrue(FakeLlmChatModel.answer(prompt + "Answer in JSON").contains("\"riskLevel\":\"MILD_HYPERTENSIVE\""));
+    }
+
+    @Test
+    void batchedPromptIsAnsweredPerPatient() {
+        String prompt = """
+                Patient P1:
+                Systolic: 150, Diastolic: 95, Time: 2025-01-01T08:00
+                Patient P2:
+                Systolic: 185, Diastolic: 100, Time: 2025-01-01T08:00
+                Answer with the JSON object only
+                """;
+
+        String answer = FakeLlmChatModel.answer(prompt);
+
+        assertTrue(answer.startsWith("{\"assessments\":["));
+        assertTrue(answer.contains("{\"patient\":\"P1\",\"riskLevel\":\"MILD_HYPERTENSIVE\""));
+        assertTrue(answer.contains("{\"patient\":\"P2\",\"riskLevel\":\"SEVERE_HYPERTENSIVE\""));
+    }
+
+    @Test
+    void streamEmitsAnswerTokenByToken() {
+        FakeLlmChatModel model = new FakeLlmChatModel(Duration.ofMillis(20), Duration.ofMillis(20), 1000, 0, 42);
+
+        List<ChatResponse> tokens = model.stream(new Prompt("What does 150/95 mean?")).collectList().block();
+
+        assertEquals(FakeLlmChatModel.CHAT_ANSWER.split(" ").length, tokens.size());
+        assertEquals(FakeLlmChatModel.CHAT_ANSWER, String.join("", tokens.stream()
+                .map(response -> response.getResult().getOutput().getText())
+                .toList()));
+        assertEquals(1, model.getCalls());
+    }
+
+    @Test
+    void injectedFailuresAreThrownFromCall() {
+        FakeLlmChatModel model = new FakeLlmChatModel(Duration.ofMillis(1), Duration.ofMillis(1), 0, 1.0, 42);
+
+        assertThrows(IllegalStateException.class, () -> model.call(new Prompt("What does 150/95 mean?")));
+        assertEquals(1, model.getFailures());
+    }
+}
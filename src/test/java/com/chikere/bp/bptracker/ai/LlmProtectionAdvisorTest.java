@@ -0,0 +1,74 @@
+package com.chikere.bp.bptracker.ai;
+
+import com.chikere.bp.bptracker.exception.LlmUnavailableException;
+import com.chikere.bp.bptracker.support.FakeChatModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmProtectionAdvisorTest {
+
+    private FakeChatModel chatModel;
+    private AdaptiveConcurrencyLimiter limiter;
+    private CircuitBreaker circuitBreaker;
+    private ChatClient chatClient;
+
+    @BeforeEach
+    void setUp() {
+        chatModel = new FakeChatModel(Duration.ofMillis(5), "Blood pressure");
+        limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        circuitBreaker = new CircuitBreaker("test", 0.5, 4, 4, Duration.ofMinutes(1), 1);
+        chatClient = ChatClient.builder(chatModel)
+                .defaultAdvisors(new LlmProtectionAdvisor(limiter, circuitBreaker))
+                .build();
+    }
+
+    @Test
+    void callsAboveTheLimitFailFastWhileProviderIsSlow() throws Exception {
+        chatModel.setLatency(Duration.ofMillis(500));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slowCall = executor.submit(() -> chatClient.prompt("What is BP?").call().content());
+            while (limiter.getInflight() == 0) {
+                Thread.onSpinWait();
+            }
+
+            long start = System.nanoTime();
+            assertThrows(LlmUnavailableException.class, () -> chatClient.prompt("What is BP?").call().content());
+            assertTrue(System.nanoTime() - start < Duration.ofMillis(250).toNanos());
+
+            assertEquals("Blood pressure", slowCall.get());
+            assertEquals(1, chatModel.getCalls());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void openCircuitStopsCallingFailingProvider() {
+        chatModel.setFailing(true);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> chatClient.prompt("What is BP?").call().content());
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(LlmUnavailableException.class, () -> chatClient.prompt("What is BP?").call().content());
+        assertEquals(4, chatModel.getCalls());
+    }
+
+    @Test
+    void streamedCallsReleaseTheirSlot() {
+        String answer = String.join("", chatClient.prompt("What is BP?").stream().content().collectList().block());
+
+        assertEquals("Blood pressure", answer);
+        assertEquals(0, limiter.getInflight());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+}
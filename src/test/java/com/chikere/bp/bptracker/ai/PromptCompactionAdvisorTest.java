@@ -0,0 +1,89 @@
+package com.chikere.bp.bptracker.ai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PromptCompactionAdvisorTest {
+
+    private BoundedChatMemory chatMemory;
+    private PromptCompactionAdvisor advisor;
+
+    @BeforeEach
+    void setUp() {
+        chatMemory = new BoundedChatMemory(50, 100_000, Duration.ofMinutes(30));
+        advisor = new PromptCompactionAdvisor(chatMemory, new JTokkitTokenCountEstimator(), 80, 40);
+    }
+
+    @Test
+    void historyWithinBudgetIsLeftAlone() {
+        List<Message> history = List.of(new UserMessage("Is 120/80 normal?"), new AssistantMessage("Yes, it is normal."));
+
+        AdvisedRequest request = request(history);
+
+        assertSame(request, advisor.compact(request));
+    }
+
+    @Test
+    void olderTurnsAreFoldedIntoSummaryInPromptAndMemory() {
+        List<Message> history = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            history.add(new UserMessage("I measured my blood pressure this morning. It was 14" + i + "/92 after resting."));
+            history.add(new AssistantMessage("That reading is in the mildly elevated range. Keep measuring daily."));
+        }
+        chatMemory.add("session-1", history);
+
+        List<Message> compacted = advisor.compact(request(history)).messages();
+
+        Message summary = compacted.get(0);
+        assertInstanceOf(SystemMessage.class, summary);
+        assertTrue(summary.getText().startsWith(PromptCompactionAdvisor.SUMMARY_PREFIX));
+        assertTrue(summary.getText().contains("It was 14"));
+        assertEquals(history.get(history.size() - 1), compacted.get(compacted.size() - 1));
+        assertTrue(compacted.size() < history.size());
+
+        List<Message> memory = chatMemory.get("session-1", 100);
+        assertSame(summary, memory.get(0));
+        assertEquals(compacted.size(), memory.size());
+    }
+
+    @Test
+    void earlierSummaryIsCarriedForward() {
+        Message previous = new SystemMessage(PromptCompactionAdvisor.SUMMARY_PREFIX + "\n- User asked: Is 150/95 high?");
+
+        String summary = advisor.summarize(List.of(previous, new UserMessage("What about 130/85?")));
+
+        assertEquals(PromptCompactionAdvisor.SUMMARY_PREFIX
+                + "\n- User asked: Is 150/95 high?\n- User asked: What about 130/85?", summary);
+    }
+
+    @Test
+    void keySentencePrefersSentencesWithNumbers() {
+        assertEquals("It was 150/95.", PromptCompactionAdvisor.keySentence("I felt dizzy. It was 150/95. What now?"));
+        assertEquals("I felt dizzy.", PromptCompactionAdvisor.keySentence("I felt dizzy. What now?"));
+    }
+
+    private AdvisedRequest request(List<Message> history) {
+        return AdvisedRequest.builder()
+                .chatModel(mock(ChatModel.class))
+                .userText("And what should I do next?")
+                .messages(history)
+                .advisorParams(Map.of(AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY, "session-1"))
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.chikere.bp.bptracker.alerts;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertEngineTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    private final AlertEngine engine = new AlertEngine(List.of(
+            AlertRule.parse("cluster: count(systolic >= 160) >= 3 within 24h")), 4);
+
+    @Test
+    void alertIsRaisedOnceWithinTheRuleWindow() {
+        UUID patientId = UUID.randomUUID();
+
+        assertTrue(record(patientId, 0, 165).raised().isEmpty());
+        assertTrue(record(patientId, HOUR, 170).raised().isEmpty());
+        AlertEngine.Outcome third = record(patientId, 2 * HOUR, 175);
+        assertEquals(1, third.raised().size());
+        assertEquals("cluster", third.raised().get(0).rule().name());
+        assertEquals(3, third.raised().get(0).evaluation().value());
+
+        AlertEngine.Outcome fourth = record(patientId, 3 * HOUR, 180);
+        assertTrue(fourth.raised().isEmpty());
+        assertEquals(1, fourth.suppressed().size());
+
+        // A day after the alert, three new high readings raise it again
+        assertTrue(record(patientId, 30 * HOUR, 165).raised().isEmpty());
+        assertTrue(record(patientId, 31 * HOUR, 165).raised().isEmpty());
+        assertEquals(1, record(patientId, 32 * HOUR, 165).raised().size());
+    }
+
+    @Test
+    void patientsHaveSeparateWindows() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        record(first, 0, 165);
+        record(second, 0, 165);
+        record(first, HOUR, 165);
+
+        assertTrue(record(second, HOUR, 120).raised().isEmpty());
+        assertEquals(1, record(first, 2 * HOUR, 165).raised().size());
+        assertEquals(2, engine.windowCount());
+    }
+
+    @Test
+    void updatedReadingReplacesTheOriginal() {
+        UUID patientId = UUID.randomUUID();
+        UUID readingId = UUID.randomUUID();
+        record(patientId, 0, 165);
+        engine.record(patientId, readingId, HOUR, 165, 80, 70);
+        engine.record(patientId, readingId, HOUR, 120, 80, 70);
+
+        assertTrue(record(patientId, 2 * HOUR, 165).raised().isEmpty());
+    }
+
+    @Test
+    void removedReadingNoLongerCounts() {
+        UUID patientId = UUID.randomUUID();
+        UUID readingId = UUID.randomUUID();
+        record(patientId, 0, 165);
+        engine.record(patientId, readingId, HOUR, 185, 80, 70);
+
+        assertTrue(engine.remove(patientId, readingId));
+        assertFalse(engine.remove(patientId, readingId));
+        assertFalse(engine.remove(UUID.randomUUID(), readingId));
+        assertTrue(record(patientId, 2 * HOUR, 165).raised().isEmpty());
+    }
+
+    @Test
+    void windowKeepsTheMostRecentReadingsUpToItsCapacity() {
+        ReadingWindow window = new ReadingWindow(3, 0);
+        for (int i = 0; i < 5; i++) {
+            window.add(UUID.randomUUID(), i * HOUR, 120 + i, 80, 70);
+        }
+        window.add(UUID.randomUUID(), 3 * HOUR + 1, 200, 80, 70);
+        // Older than everything in the full window
+        window.add(UUID.randomUUID(), 0, 210, 80, 70);
+
+        assertEquals(3, window.size());
+        assertEquals(123, window.systolic(0));
+        assertEquals(200, window.systolic(1));
+        assertEquals(124, window.systolic(2));
+        assertEquals(4 * HOUR, window.newestTimestamp());
+
+        window.dropBefore(4 * HOUR);
+        assertEquals(1, window.size());
+    }
+
+    @Test
+    void idleWindowsAreEvicted() {
+        UUID patientId = UUID.randomUUID();
+        record(patientId, 0, 120);
+
+        assertEquals(0, engine.evictIdle(20 * HOUR));
+        assertEquals(1, engine.evictIdle(25 * HOUR));
+        assertFalse(engine.hasWindow(patientId));
+    }
+
+    @Test
+    void seededWindowSuppressesAlertsAlreadyRaised() {
+        UUID patientId = UUID.randomUUID();
+        ReadingWindow window = engine.newWindow();
+        window.add(UUID.randomUUID(), 0, 165, 80, 70);
+        window.add(UUID.randomUUID(), HOUR, 165, 80, 70);
+        window.add(UUID.randomUUID(), 2 * HOUR, 165, 80, 70);
+        window.setLastAlertMillis(engine.indexOf("cluster"), 2 * HOUR);
+        engine.seed(patientId, window);
+
+        AlertEngine.Outcome outcome = record(patientId, 3 * HOUR, 165);
+        assertTrue(outcome.raised().isEmpty());
+        assertEquals(1, outcome.suppressed().size());
+    }
+
+    @Test
+    void ruleNamesMustBeUnique() {
+        AlertRule rule = AlertRule.parse("same: avg(systolic) > 140 within 1h");
+        assertThrows(IllegalArgumentException.class, () -> new AlertEngine(List.of(rule, rule), 4));
+    }
+
+    private AlertEngine.Outcome record(UUID patientId, long timestampMillis, int systolic) {
+        return engine.record(patientId, UUID.randomUUID(), timestampMillis, systolic, 80, 70);
+    }
+}
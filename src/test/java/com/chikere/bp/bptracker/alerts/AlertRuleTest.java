@@ -0,0 +1,106 @@
+package com.chikere.bp.bptracker.alerts;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertRuleTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    @Test
+    void parsesCountRuleWithCondition() {
+        AlertRule rule = AlertRule.parse("severe-cluster: count(systolic >= 160 or diastolic >= 100 and heartRate > 90) >= 3 within 24h");
+
+        assertEquals("severe-cluster", rule.name());
+        assertEquals("count(systolic >= 160 or diastolic >= 100 and heartRate > 90) >= 3 within 24h", rule.expression());
+        assertEquals(AlertRule.Aggregate.COUNT, rule.aggregate());
+        assertEquals(2, rule.condition().anyOf().size());
+        assertEquals(2, rule.condition().anyOf().get(1).size());
+        assertEquals(AlertRule.Comparison.GE, rule.comparison());
+        assertEquals(3, rule.threshold());
+        assertEquals(Duration.ofHours(24), rule.window());
+        assertEquals(1, rule.minReadings());
+    }
+
+    @Test
+    void parsesAggregateRuleWithIsoWindowAndMinimum() {
+        AlertRule rule = AlertRule.parse("rising:slope(systolic)>=1.5 within P14D min 5");
+
+        assertEquals(AlertRule.Aggregate.SLOPE, rule.aggregate());
+        assertEquals(AlertRule.Field.SYSTOLIC, rule.field());
+        assertEquals(1.5, rule.threshold());
+        assertEquals(Duration.ofDays(14), rule.window());
+        assertEquals(5, rule.minReadings());
+    }
+
+    @Test
+    void rejectsMalformedRules() {
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parse("no-colon count(systolic > 1) > 1 within 1h"));
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parse("x: sum(systolic) > 1 within 1h"));
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parse("x: avg(weight) > 1 within 1h"));
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parse("x: avg(systolic) = 1 within 1h"));
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parse("x: avg(systolic) > 1 within 1y"));
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parse("x: avg(systolic) > 1 within 1h extra"));
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parse("x: avg(systolic) > 1 within"));
+        assertThrows(IllegalArgumentException.class, () -> AlertRule.parse("x: avg(systolic) > 1 within 1h; drop"));
+    }
+
+    @Test
+    void countOnlyIncludesReadingsInTheWindow() {
+        AlertRule rule = AlertRule.parse("cluster: count(systolic >= 160 or diastolic >= 100) >= 3 within 24h");
+        ReadingWindow window = new ReadingWindow(8, 1);
+        window.add(UUID.randomUUID(), 0, 170, 90, 70);
+        window.add(UUID.randomUUID(), 2 * HOUR, 150, 105, 70);
+        window.add(UUID.randomUUID(), 3 * HOUR, 130, 80, 70);
+
+        assertNull(rule.evaluate(window, 3 * HOUR));
+
+        window.add(UUID.randomUUID(), 20 * HOUR, 165, 95, 70);
+        AlertRule.Evaluation evaluation = rule.evaluate(window, 20 * HOUR);
+        assertNotNull(evaluation);
+        assertEquals(3, evaluation.value());
+        assertEquals(4, evaluation.readings());
+        assertEquals(0, evaluation.windowStartMillis());
+
+        // The first reading has left the window
+        window.add(UUID.randomUUID(), 25 * HOUR, 120, 80, 70);
+        assertNull(rule.evaluate(window, 25 * HOUR));
+    }
+
+    @Test
+    void slopeIsTheTrendPerDayOnceThereAreEnoughReadings() {
+        AlertRule rule = AlertRule.parse("rising: slope(systolic) >= 1 within 14d min 4");
+        ReadingWindow window = new ReadingWindow(8, 1);
+        for (int day = 0; day < 3; day++) {
+            window.add(UUID.randomUUID(), day * DAY, 130 + 2 * day, 85, 70);
+        }
+        assertNull(rule.evaluate(window, 2 * DAY));
+
+        window.add(UUID.randomUUID(), 3 * DAY, 136, 85, 70);
+        AlertRule.Evaluation evaluation = rule.evaluate(window, 3 * DAY);
+        assertNotNull(evaluation);
+        assertEquals(2.0, evaluation.value(), 1e-9);
+        assertTrue(evaluation.readings() >= 4);
+    }
+
+    @Test
+    void averageOfPulsePressure() {
+        AlertRule rule = AlertRule.parse("wide: avg(pulsePressure) > 60 within 7d");
+        ReadingWindow window = new ReadingWindow(8, 1);
+        window.add(UUID.randomUUID(), 0, 160, 90, 70);
+        window.add(UUID.randomUUID(), DAY, 150, 80, 70);
+
+        assertNotNull(rule.evaluate(window, DAY));
+        window.add(UUID.randomUUID(), 2 * DAY, 130, 90, 70);
+        assertNull(rule.evaluate(window, 2 * DAY));
+    }
+}
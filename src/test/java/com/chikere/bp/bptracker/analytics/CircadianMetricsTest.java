@@ -0,0 +1,119 @@
+package com.chikere.bp.bptracker.analytics;
+
+import com.chikere.bp.bptracker.model.enums.DippingPattern;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CircadianMetricsTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 4, 0, 0);
+    private static final CircadianMetrics.TargetRange TARGET = new CircadianMetrics.TargetRange(110, 130);
+
+    private final UUID patientId = UUID.randomUUID();
+
+    @Test
+    void surgeAndDipCompareClockPeriods() {
+        CircadianMetrics metrics = CircadianMetrics.of(series(
+                sample(DAY.withHour(2), 110, 70),
+                sample(DAY.withHour(4), 114, 72),
+                sample(DAY.withHour(7), 140, 88),
+                sample(DAY.withHour(14), 130, 82),
+                sample(DAY.withHour(20), 120, 78)), TARGET);
+
+        assertEquals(5, metrics.readings());
+        // Morning 140 against night (110 + 114) / 2
+        assertEquals(28.0, metrics.morningSurge(), 1e-9);
+        // Day (130 + 120) / 2 = 125 against night 112
+        assertEquals(100 * 13.0 / 125, metrics.nocturnalDipPercent(), 1e-9);
+        assertEquals(DippingPattern.DIPPER, metrics.dippingPattern());
+        // |4| + |26| + |10| + |10| over 4 differences
+        assertEquals(12.5, metrics.systolicArv(), 1e-9);
+        assertEquals((2 + 16 + 6 + 4) / 4.0, metrics.diastolicArv(), 1e-9);
+    }
+
+    @Test
+    void metricsWithoutReadingsInAPeriodAreNull() {
+        CircadianMetrics metrics = CircadianMetrics.of(series(sample(DAY.withHour(14), 125, 80)), TARGET);
+
+        assertNull(metrics.morningSurge());
+        assertNull(metrics.nocturnalDipPercent());
+        assertNull(metrics.dippingPattern());
+        assertNull(metrics.systolicArv());
+        assertEquals(100.0, metrics.timeInTargetRange(), 1e-9);
+    }
+
+    @Test
+    void timeInTargetRangeInterpolatesBetweenReadings() {
+        // 100 -> 140 over 4 hours is in 110..130 for half the time, then 140 -> 140 for 4 hours is out
+        CircadianMetrics metrics = CircadianMetrics.of(series(
+                sample(DAY.withHour(8), 100, 70),
+                sample(DAY.withHour(12), 140, 90),
+                sample(DAY.withHour(16), 140, 90)), TARGET);
+
+        assertEquals(25.0, metrics.timeInTargetRange(), 1e-9);
+        assertEquals(0.5, CircadianMetrics.fractionInRange(140, 100, TARGET), 1e-9);
+        assertEquals(1.0, CircadianMetrics.fractionInRange(115, 125, TARGET), 1e-9);
+        assertEquals(0.0, CircadianMetrics.fractionInRange(135, 150, TARGET), 1e-9);
+    }
+
+    @Test
+    void readingsTooFarApartAreNotInterpolated() {
+        CircadianMetrics metrics = CircadianMetrics.of(series(
+                sample(DAY, 120, 80),
+                sample(DAY.plusDays(10), 150, 95)), TARGET);
+
+        assertEquals(50.0, metrics.timeInTargetRange(), 1e-9);
+    }
+
+    @Test
+    void groupSplitsSamplesByPatient() {
+        UUID other = UUID.randomUUID();
+        List<PatientSeries> series = PatientSeries.group(List.of(
+                new ReadingSample(patientId, DAY, 120, 80),
+                new ReadingSample(patientId, DAY.plusHours(1), 125, 82),
+                new ReadingSample(other, DAY, 140, 90)));
+
+        assertEquals(2, series.size());
+        assertEquals(patientId, series.get(0).patientId());
+        assertArrayEquals(new int[]{120, 125}, series.get(0).systolic());
+        assertEquals(60, series.get(0).minutes()[1] - series.get(0).minutes()[0]);
+        assertEquals(other, series.get(1).patientId());
+    }
+
+    @Test
+    void taskComputesEveryPatientInParallel() {
+        List<PatientSeries> series = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            series.add(PatientSeries.group(List.of(
+                    new ReadingSample(id, DAY.withHour(3), 100 + i, 70),
+                    new ReadingSample(id, DAY.withHour(7), 110 + i, 75))).getFirst());
+        }
+        CircadianMetrics[] results = new CircadianMetrics[series.size()];
+
+        try (ForkJoinPool pool = new ForkJoinPool(4)) {
+            pool.invoke(new CircadianMetricsTask(series, results, 8, TARGET));
+        }
+
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals(CircadianMetrics.of(series.get(i), TARGET), results[i]);
+        }
+    }
+
+    private PatientSeries series(ReadingSample... samples) {
+        return PatientSeries.group(List.of(samples)).getFirst();
+    }
+
+    private ReadingSample sample(LocalDateTime timestamp, int systolic, int diastolic) {
+        return new ReadingSample(patientId, timestamp, systolic, diastolic);
+    }
+}
@@ -0,0 +1,81 @@
+package com.chikere.bp.bptracker.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PressureHistogramTest {
+
+    @Test
+    void percentilesMatchNearestRankOfTheSortedReadings() {
+        SplittableRandom random = new SplittableRandom(7);
+        int[] readings = new int[10_001];
+        PressureHistogram histogram = new PressureHistogram();
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = (int) Math.round(130 + 20 * random.nextGaussian());
+            histogram.add(readings[i]);
+        }
+        Arrays.sort(readings);
+
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9, 100}) {
+            int rank = (int) Math.ceil(percentile / 100 * readings.length);
+            assertEquals(readings[rank - 1], histogram.percentile(percentile), "p" + percentile);
+        }
+    }
+
+    @Test
+    void mergedHistogramEqualsOneOfAllReadings() {
+        PressureHistogram january = new PressureHistogram();
+        PressureHistogram february = new PressureHistogram();
+        PressureHistogram both = new PressureHistogram();
+        for (int systolic = 100; systolic < 160; systolic++) {
+            (systolic % 3 == 0 ? january : february).add(systolic);
+            both.add(systolic);
+        }
+
+        january.merge(february);
+
+        assertEquals(both, january);
+        assertEquals(60, january.total());
+        assertEquals(129, january.percentile(50));
+    }
+
+    @Test
+    void removingAndClampingKeepCountsConsistent() {
+        PressureHistogram histogram = new PressureHistogram();
+        histogram.add(20);
+        histogram.add(350);
+        histogram.add(120, 3);
+        histogram.add(120, -1);
+        histogram.add(125, -5);
+
+        assertEquals(4, histogram.total());
+        assertEquals(PressureHistogram.MIN, histogram.percentile(25));
+        assertEquals(120, histogram.percentile(75));
+        assertEquals(PressureHistogram.MAX, histogram.percentile(100));
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        PressureHistogram histogram = new PressureHistogram();
+        histogram.add(118, 5_000_000_000L);
+        histogram.add(142, 7);
+
+        byte[] bytes = histogram.toBytes();
+
+        assertEquals(20, bytes.length);
+        assertEquals(histogram, PressureHistogram.fromBytes(bytes));
+        assertEquals(5_000_000_007L, PressureHistogram.fromBytes(bytes).total());
+    }
+
+    @Test
+    void emptyHistogramHasNoPercentiles() {
+        assertNull(new PressureHistogram().percentile(50));
+        assertThrows(IllegalArgumentException.class, () -> new PressureHistogram().percentile(0));
+    }
+}
@@ -0,0 +1,78 @@
+package com.chikere.bp.bptracker.cohort;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedBitmapTest {
+
+    @Test
+    void andAndOrMatchBitSetsForSparseAndDenseChunks() {
+        SplittableRandom random = new SplittableRandom(7);
+        // One chunk sparse in both, one dense in both, one dense in only one of them
+        BitSet expectedA = new BitSet();
+        BitSet expectedB = new BitSet();
+        CompressedBitmap a = new CompressedBitmap();
+        CompressedBitmap b = new CompressedBitmap();
+        for (int i = 0; i < 20_000; i++) {
+            int sparse = random.nextInt(65_536);
+            int dense = 65_536 + random.nextInt(65_536);
+            int mixed = 2 * 65_536 + random.nextInt(65_536);
+            add(a, expectedA, i % 10 == 0 ? sparse : dense);
+            add(b, expectedB, i % 10 == 1 ? sparse : dense);
+            add(a, expectedA, mixed);
+            if (i % 20 == 0) {
+                add(b, expectedB, mixed);
+            }
+        }
+
+        BitSet and = (BitSet) expectedA.clone();
+        and.and(expectedB);
+        BitSet or = (BitSet) expectedA.clone();
+        or.or(expectedB);
+        assertArrayEquals(and.stream().toArray(), a.and(b).first(Integer.MAX_VALUE));
+        assertArrayEquals(or.stream().toArray(), a.or(b).first(Integer.MAX_VALUE));
+        assertEquals(expectedA.cardinality(), a.cardinality());
+        assertEquals(a, a.copy());
+    }
+
+    @Test
+    void removingValuesFromADenseChunkKeepsTheRest() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            bitmap.add(i);
+        }
+        for (int i = 0; i < 10_000; i += 4) {
+            bitmap.remove(i + 1);
+            bitmap.remove(i + 2);
+            bitmap.remove(i + 3);
+        }
+
+        assertEquals(2500, bitmap.cardinality());
+        assertTrue(bitmap.contains(9996));
+        assertFalse(bitmap.contains(9997));
+        assertArrayEquals(new int[]{0, 4, 8}, bitmap.first(3));
+    }
+
+    @Test
+    void emptyChunksAreDropped() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        bitmap.add(1_000_000);
+        bitmap.remove(1_000_000);
+        bitmap.remove(5);
+
+        assertTrue(bitmap.isEmpty());
+        assertEquals(new CompressedBitmap(), bitmap);
+    }
+
+    private static void add(CompressedBitmap bitmap, BitSet expected, int value) {
+        bitmap.add(value);
+        expected.set(value);
+    }
+}
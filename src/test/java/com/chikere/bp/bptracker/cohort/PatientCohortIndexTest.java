@@ -0,0 +1,82 @@
+package com.chikere.bp.bptracker.cohort;
+
+import com.chikere.bp.bptracker.model.enums.Gender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class PatientCohortIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+
+    private final PatientCohortIndex index = new PatientCohortIndex();
+    private final UUID justFifty = new UUID(0, 1);
+    private final UUID sixtyFive = new UUID(0, 2);
+    private final UUID almostSixtySix = new UUID(0, 3);
+    private final UUID man = new UUID(0, 4);
+    private final UUID youngWoman = new UUID(0, 5);
+
+    @BeforeEach
+    void setUp() {
+        index.put(justFifty, Gender.FEMALE, LocalDate.of(1974, 6, 15), "Hypertension, Diabetes");
+        index.put(sixtyFive, Gender.FEMALE, LocalDate.of(1959, 1, 1), "hypertension");
+        index.put(almostSixtySix, Gender.FEMALE, LocalDate.of(1958, 6, 16), "Hypertension");
+        index.put(man, Gender.MALE, LocalDate.of(1965, 3, 3), "Hypertension");
+        index.put(youngWoman, Gender.FEMALE, LocalDate.of(1974, 6, 16), "None");
+        index.addReading(justFifty, TODAY.minusDays(2));
+        index.addReading(sixtyFive, TODAY.minusDays(45));
+        index.addReading(almostSixtySix, TODAY.minusDays(1));
+        index.addReading(man, TODAY);
+    }
+
+    @Test
+    void dimensionsAreAndedAndValuesWithinADimensionOred() {
+        assertEquals(Set.of(justFifty, sixtyFive, almostSixtySix),
+                match(Set.of(Gender.FEMALE), 50, 65, Set.of("hypertension"), null));
+        assertEquals(Set.of(justFifty, almostSixtySix),
+                match(Set.of(Gender.FEMALE), 50, 65, Set.of(" Hypertension "), 30));
+        assertEquals(Set.of(justFifty, sixtyFive, almostSixtySix, man),
+                match(Set.of(Gender.FEMALE, Gender.MALE), null, null, Set.of("hypertension", "diabetes"), null));
+        assertEquals(Set.of(youngWoman), match(null, null, 49, null, null));
+        assertEquals(Set.of(), match(null, null, null, Set.of("none"), null));
+        assertEquals(5, index.match(filter(null, null, null, null, null)).cardinality());
+    }
+
+    @Test
+    void changesMoveThePatientBetweenBitmaps() {
+        index.put(man, Gender.MALE, LocalDate.of(1965, 3, 3), "Asthma");
+        index.setLatestReading(almostSixtySix, TODAY.minusDays(60));
+        index.remove(justFifty);
+
+        assertEquals(Set.of(sixtyFive, almostSixtySix), match(null, null, null, Set.of("hypertension"), null));
+        assertEquals(Set.of(man), match(null, null, null, null, 30));
+
+        // The freed ordinal is reused
+        UUID newPatient = new UUID(0, 6);
+        index.put(newPatient, Gender.OTHER, null, null);
+        assertArrayEquals(new int[]{0}, index.match(filter(Set.of(Gender.OTHER), null, null, null, null)).first(10));
+        assertEquals(newPatient, index.patientId(0));
+        // Without a birth date the patient has no age to match
+        assertFalse(match(null, 0, null, null, null).contains(newPatient));
+    }
+
+    private Set<UUID> match(Set<Gender> genders, Integer minAge, Integer maxAge, Set<String> conditions, Integer days) {
+        return Arrays.stream(index.match(filter(genders, minAge, maxAge, conditions, days)).first(100))
+                .mapToObj(index::patientId)
+                .collect(Collectors.toSet());
+    }
+
+    private static PatientCohortIndex.Filter filter(Set<Gender> genders, Integer minAge, Integer maxAge,
+                                                    Set<String> conditions, Integer days) {
+        return new PatientCohortIndex.Filter(genders, minAge, maxAge, conditions, days, TODAY);
+    }
+}
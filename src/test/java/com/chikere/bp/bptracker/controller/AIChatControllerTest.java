@@ -0,0 +1,73 @@
+package com.chikere.bp.bptracker.controller;
+
+import com.chikere.bp.bptracker.service.AIChatService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class AIChatControllerTest {
+
+    @Mock
+    private AIChatService aiChatService;
+
+    @InjectMocks
+    private AIChatController aiChatController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(aiChatController).build();
+    }
+
+    @Test
+    void processQuestionShouldReturnResponse() throws Exception {
+        when(aiChatService.processQuestion(anyString(), eq("What is BP?"))).thenReturn("Blood pressure");
+
+        mockMvc.perform(post("/api/chat")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"question\":\"What is BP?\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.response").value("Blood pressure"));
+    }
+
+    @Test
+    void streamQuestionShouldSendTokenEventsFollowedByDone() throws Exception {
+        when(aiChatService.streamQuestion(anyString(), eq("What is BP?"))).thenReturn(Flux.just("Blood", " pressure"));
+
+        MvcResult result = mockMvc.perform(get("/api/chat/stream").param("question", "What is BP?"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("event:token\ndata:{\"token\":\"Blood\"}")))
+                .andExpect(content().string(containsString("data:{\"token\":\" pressure\"}")))
+                .andExpect(content().string(containsString("event:done")));
+    }
+
+    @Test
+    void streamQuestionWithEmptyQuestionShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/chat/stream").param("question", " "))
+                .andExpect(status().isBadRequest());
+    }
+}
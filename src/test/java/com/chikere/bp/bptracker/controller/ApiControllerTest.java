@@ -1,7 +1,30 @@
 package com.chikere.bp.bptracker.controller;
 
+import com.chikere.bp.bptracker.dto.BatchRunDto;
+import com.chikere.bp.bptracker.dto.CircadianReportRunDto;
+import com.chikere.bp.bptracker.dto.CohortPercentilesDto;
+import com.chikere.bp.bptracker.dto.RiskAssessmentJobDto;
+import com.chikere.bp.bptracker.dto.RiskAssessmentResultDto;
+import com.chikere.bp.bptracker.dto.RiskWorklistEntryDto;
+import com.chikere.bp.bptracker.model.enums.AgeBand;
+import com.chikere.bp.bptracker.model.enums.AssessmentSource;
+import com.chikere.bp.bptracker.model.enums.CohortDimension;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import com.chikere.bp.bptracker.model.enums.RiskEngine;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.chikere.bp.bptracker.service.BatchRiskAssessmentService;
+import com.chikere.bp.bptracker.service.CircadianAnalyticsService;
+import com.chikere.bp.bptracker.service.CohortPercentileService;
+import com.chikere.bp.bptracker.service.PatientCohortService;
+import com.chikere.bp.bptracker.service.ReadingIngestService;
+import com.chikere.bp.bptracker.service.ReadingAlertService;
+import com.chikere.bp.bptracker.service.ReadingRiskLevelBackfillService;
 import com.chikere.bp.bptracker.service.ReadingService;
+import com.chikere.bp.bptracker.service.RiskAssessmentJobService;
+import com.chikere.bp.bptracker.service.RiskRuleService;
 import com.chikere.bp.bptracker.service.RiskService;
+import com.chikere.bp.bptracker.service.StatisticalRiskService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,11 +34,22 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +61,36 @@ class ApiControllerTest {
     @Mock
     private RiskService riskService;
 
+    @Mock
+    private RiskAssessmentJobService riskAssessmentJobService;
+
+    @Mock
+    private BatchRiskAssessmentService batchRiskAssessmentService;
+
+    @Mock
+    private StatisticalRiskService statisticalRiskService;
+
+    @Mock
+    private RiskRuleService riskRuleService;
+
+    @Mock
+    private ReadingRiskLevelBackfillService readingRiskLevelBackfillService;
+
+    @Mock
+    private ReadingAlertService readingAlertService;
+
+    @Mock
+    private CircadianAnalyticsService circadianAnalyticsService;
+
+    @Mock
+    private CohortPercentileService cohortPercentileService;
+
+    @Mock
+    private PatientCohortService patientCohortService;
+
+    @Mock
+    private ReadingIngestService readingIngestService;
+
     @InjectMocks
     private ApiController apiController;
 
@@ -68,4 +132,139 @@ class ApiControllerTest {
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().string("Error performing AI risk analysis: Test exception"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void analyzeRiskShouldUseRequestedEngine() throws Exception {
+        when(riskService.assessRisk(patientId, RiskEngine.STATISTICAL, null)).thenReturn("MILD_HYPERTENSIVE");
+
+        mockMvc.perform(get("/v1/api/risk/{patientId}/analyze", patientId).param("engine", "STATISTICAL"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("MILD_HYPERTENSIVE"));
+    }
+
+    @Test
+    void analyzeRiskShouldPassRuleSetToRulesEngine() throws Exception {
+        when(riskService.assessRisk(patientId, RiskEngine.RULES, "strict")).thenReturn("MODERATE_HYPERTENSIVE");
+
+        mockMvc.perform(get("/v1/api/risk/{patientId}/analyze", patientId).param("ruleSet", "strict"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("MODERATE_HYPERTENSIVE"));
+    }
+
+    @Test
+    void analyzeRiskWithAiEngineAndNotEnoughReadingsShouldReturnBadRequest() throws Exception {
+        when(readingService.hasAtLeastThreeReadings(patientId)).thenReturn(false);
+
+        mockMvc.perform(get("/v1/api/risk/{patientId}/analyze", patientId).param("engine", "AI"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void submitRiskAnalysisJobShouldReturnAcceptedWithLocation() throws Exception {
+        RiskAssessmentJobDto job = new RiskAssessmentJobDto();
+        job.setId(UUID.randomUUID());
+        job.setPatientId(patientId);
+        job.setStatus(JobStatus.QUEUED);
+        when(readingService.hasAtLeastThreeReadings(patientId)).thenReturn(true);
+        when(riskAssessmentJobService.submit(patientId)).thenReturn(job);
+
+        mockMvc.perform(post("/v1/api/risk/{patientId}/analyzeAI/jobs", patientId))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/v1/api/risk/jobs/" + job.getId()))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void submitRiskAnalysisJobWithNotEnoughReadingsShouldReturnBadRequest() throws Exception {
+        when(readingService.hasAtLeastThreeReadings(patientId)).thenReturn(false);
+
+        mockMvc.perform(post("/v1/api/risk/{patientId}/analyzeAI/jobs", patientId))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void startBatchRunShouldReturnAccepted() throws Exception {
+        BatchRunDto run = new BatchRunDto();
+        run.setId(UUID.randomUUID());
+        run.setStatus(JobStatus.RUNNING);
+        when(batchRiskAssessmentService.startRun()).thenReturn(run);
+
+        mockMvc.perform(post("/v1/api/risk/batch-runs"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/v1/api/risk/batch-runs/" + run.getId()))
+                .andExpect(jsonPath("$.status").value("RUNNING"));
+    }
+
+    @Test
+    void assessRiskWithinDeadlineShouldReturnProvisionalFallback() throws Exception {
+        RiskAssessmentResultDto result = new RiskAssessmentResultDto();
+        result.setRiskLevel("MILD_HYPERTENSIVE");
+        result.setSource(AssessmentSource.RULE_BASED);
+        result.setProvisional(true);
+        result.setJobId(UUID.randomUUID());
+        when(readingService.hasAtLeastThreeReadings(patientId)).thenReturn(true);
+        when(riskAssessmentJobService.assessWithinDeadline(patientId, Duration.ofMillis(500))).thenReturn(result);
+
+        mockMvc.perform(get("/v1/api/risk/{patientId}/assessment", patientId).param("deadlineMillis", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.source").value("RULE_BASED"))
+                .andExpect(jsonPath("$.provisional").value(true))
+                .andExpect(jsonPath("$.jobId").value(result.getJobId().toString()));
+    }
+
+    @Test
+    void getRiskWorklistShouldPassLevelAndRange() throws Exception {
+        RiskWorklistEntryDto entry = new RiskWorklistEntryDto();
+        entry.setPatientId(patientId);
+        entry.setHighestRiskLevel(RiskLevel.SEVERE_HYPERTENSIVE);
+        entry.setReadings(2);
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 8, 0, 0);
+        when(readingService.getRiskWorklist(RiskLevel.MODERATE_HYPERTENSIVE, from, to)).thenReturn(List.of(entry));
+
+        mockMvc.perform(get("/v1/api/risk/worklist")
+                        .param("minLevel", "MODERATE_HYPERTENSIVE")
+                        .param("from", "2024-01-01T00:00:00")
+                        .param("to", "2024-01-08T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].patientId").value(patientId.toString()))
+                .andExpect(jsonPath("$[0].highestRiskLevel").value("SEVERE_HYPERTENSIVE"))
+                .andExpect(jsonPath("$[0].readings").value(2));
+    }
+
+    @Test
+    void runCircadianReportShouldParseMonth() throws Exception {
+        CircadianReportRunDto run = new CircadianReportRunDto();
+        run.setReportMonth("2024-03");
+        run.setPatients(2);
+        when(circadianAnalyticsService.run(YearMonth.of(2024, 3))).thenReturn(run);
+
+        mockMvc.perform(post("/v1/api/analytics/circadian").param("month", "2024-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reportMonth").value("2024-03"))
+                .andExpect(jsonPath("$.patients").value(2));
+    }
+
+    @Test
+    void getSystolicPercentilesShouldPassCohortAndGrouping() throws Exception {
+        CohortPercentilesDto row = new CohortPercentilesDto();
+        row.setAgeBand(AgeBand.AGE_40_49);
+        row.setReadings(12);
+        row.setSystolicPercentiles(Map.of("p90", 150));
+        when(cohortPercentileService.query(eq(YearMonth.of(2024, 1)), eq(YearMonth.of(2024, 6)),
+                eq(Set.of(AgeBand.AGE_40_49, AgeBand.AGE_50_59)), eq(Set.of(Gender.MALE)),
+                eq(Set.of(CohortDimension.AGE_BAND)), aryEq(new double[]{90})))
+                .thenReturn(List.of(row));
+
+        mockMvc.perform(get("/v1/api/analytics/systolic-percentiles")
+                        .param("from", "2024-01")
+                        .param("to", "2024-06")
+                        .param("ageBand", "AGE_40_49", "AGE_50_59")
+                        .param("gender", "MALE")
+                        .param("groupBy", "AGE_BAND")
+                        .param("percentiles", "90"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].ageBand").value("AGE_40_49"))
+                .andExpect(jsonPath("$[0].systolicPercentiles.p90").value(150));
+    }
+}
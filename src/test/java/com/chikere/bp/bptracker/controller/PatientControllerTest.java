@@ -6,6 +6,7 @@ import com.chikere.bp.bptracker.dto.ReadingDto;
 import com.chikere.bp.bptracker.mapper.PatientMapper;
 import com.chikere.bp.bptracker.model.Patient;
 import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.service.PatientReadingStatsService;
 import com.chikere.bp.bptracker.service.PatientService;
 import com.chikere.bp.bptracker.service.ReadingService;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,6 +43,9 @@ class PatientControllerTest {
     @Mock
     private PatientMapper patientMapper;
 
+    @Mock
+    private PatientReadingStatsService patientReadingStatsService;
+
     @InjectMocks
     private PatientController patientController;
 
@@ -2,6 +2,8 @@ package com.chikere.bp.bptracker.controller;
 
 import com.chikere.bp.bptracker.dto.NewReadingDto;
 import com.chikere.bp.bptracker.dto.ReadingDto;
+import com.chikere.bp.bptracker.exception.DuplicateReadingException;
+import com.chikere.bp.bptracker.exception.ReadingQuarantinedException;
 import com.chikere.bp.bptracker.model.Patient;
 import com.chikere.bp.bptracker.model.enums.Arm;
 import com.chikere.bp.bptracker.model.enums.BodyPosition;
@@ -141,6 +143,49 @@ class ReadingControllerTest {
                 .andExpect(redirectedUrl("/readings/" + readingId));
     }
 
+    @Test
+    void createReadingShouldShowFormAgainWhenReadingIsQuarantined() throws Exception {
+        String reason = "Reading quarantined as " + UUID.randomUUID() + ": systolic 400 is outside 50-300";
+        when(readingService.create(any(NewReadingDto.class))).thenThrow(new ReadingQuarantinedException(reason));
+        when(patientService.get(patientId)).thenReturn(patient);
+
+        mockMvc.perform(post("/readings/new")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("patientId", patientId.toString())
+                .param("systolic", "400")
+                .param("diastolic", "80")
+                .param("heartRate", "72")
+                .param("arm", "LEFT")
+                .param("bodyPosition", "SITTING"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("readings/new"))
+                .andExpect(model().attribute("readingError", reason))
+                .andExpect(model().attribute("patient", patient))
+                .andExpect(model().attributeExists("reading"))
+                .andExpect(model().attributeExists("bodyPositions"))
+                .andExpect(model().attributeExists("arms"));
+    }
+
+    @Test
+    void createReadingShouldShowFormAgainWhenReadingIsADuplicate() throws Exception {
+        when(readingService.create(any(NewReadingDto.class)))
+                .thenThrow(new DuplicateReadingException("The same reading from device cuff-1 is already being saved"));
+        when(patientService.get(patientId)).thenReturn(patient);
+
+        mockMvc.perform(post("/readings/new")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("patientId", patientId.toString())
+                .param("systolic", "120")
+                .param("diastolic", "80")
+                .param("heartRate", "72")
+                .param("arm", "LEFT")
+                .param("bodyPosition", "SITTING"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("readings/new"))
+                .andExpect(model().attributeExists("readingError"))
+                .andExpect(model().attribute("patient", patient));
+    }
+
     @Test
     void downloadAllReadingsAsCsvShouldReturnCsvFile() throws Exception {
         String csvContent = "Patient Name,Systolic,Diastolic,Heart Rate,Arm,Body Position,Timestamp\n" +
@@ -1,10 +1,13 @@
 package com.chikere.bp.bptracker.controller;
 
 import com.chikere.bp.bptracker.dto.ReadingDto;
+import com.chikere.bp.bptracker.dto.RiskAssessmentJobDto;
 import com.chikere.bp.bptracker.model.Patient;
 import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
 import com.chikere.bp.bptracker.service.PatientService;
 import com.chikere.bp.bptracker.service.ReadingService;
+import com.chikere.bp.bptracker.service.RiskAssessmentJobService;
 import com.chikere.bp.bptracker.service.RiskService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -35,6 +38,9 @@ class RiskAssessmentControllerTest {
     @Mock
     private RiskService riskService;
 
+    @Mock
+    private RiskAssessmentJobService riskAssessmentJobService;
+
     @Mock
     private RedirectAttributes redirectAttributes;
 
@@ -83,7 +89,7 @@ class RiskAssessmentControllerTest {
         when(readingService.hasAtLeastThreeReadings(patientId)).thenReturn(true);
         when(patientService.get(patientId)).thenReturn(patient);
         when(readingService.getLatestReadingForPatient(patientId)).thenReturn(readingDto);
-        when(riskService.accessRiskWithAI(patientId)).thenReturn("NORMAL");
+        when(riskAssessmentJobService.submit(patientId)).thenReturn(job(JobStatus.COMPLETED, "NORMAL"));
 
         mockMvc.perform(get("/patients/{patientId}/risk", patientId)
                 .param("analyze", "true"))
@@ -94,6 +100,21 @@ class RiskAssessmentControllerTest {
                 .andExpect(model().attributeExists("aiRisk"));
     }
 
+    @Test
+    void riskAssessmentWithPendingAiAnalysisShouldExposeJob() throws Exception {
+        when(readingService.hasAtLeastThreeReadings(patientId)).thenReturn(true);
+        when(patientService.get(patientId)).thenReturn(patient);
+        when(readingService.getLatestReadingForPatient(patientId)).thenReturn(readingDto);
+        when(riskAssessmentJobService.submit(patientId)).thenReturn(job(JobStatus.QUEUED, null));
+
+        mockMvc.perform(get("/patients/{patientId}/risk", patientId)
+                .param("analyze", "true"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("risk/assessment"))
+                .andExpect(model().attributeExists("aiJob"))
+                .andExpect(model().attributeDoesNotExist("aiRisk"));
+    }
+
     @Test
     void riskAssessmentWithNotEnoughReadingsShouldRedirectToPatientView() throws Exception {
         when(readingService.hasAtLeastThreeReadings(patientId)).thenReturn(false);
@@ -111,4 +132,13 @@ class RiskAssessmentControllerTest {
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/patients/" + patientId + "/risk"));
     }
-}
\ No newline at end of file
+
+    private RiskAssessmentJobDto job(JobStatus status, String riskLevel) {
+        RiskAssessmentJobDto job = new RiskAssessmentJobDto();
+        job.setId(UUID.randomUUID());
+        job.setPatientId(patientId);
+        job.setStatus(status);
+        job.setRiskLevel(riskLevel);
+        return job;
+    }
+}
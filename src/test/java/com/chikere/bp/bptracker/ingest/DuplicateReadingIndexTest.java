@@ -0,0 +1,62 @@
+package com.chikere.bp.bptracker.ingest;
+
+import com.chikere.bp.bptracker.ingest.DuplicateReadingIndex.Duplicate;
+import com.chikere.bp.bptracker.ingest.DuplicateReadingIndex.Submission;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateReadingIndexTest {
+
+    private static final long WINDOW = 120_000;
+    private static final UUID PATIENT = new UUID(0, 1);
+    private static final UUID READING = new UUID(0, 2);
+
+    private final DuplicateReadingIndex index = new DuplicateReadingIndex(2, WINDOW);
+    private final Submission submission = new Submission(PATIENT, 120, 80, 72);
+
+    @Test
+    void sameReadingFromDeviceWithinWindowIsDuplicate() {
+        assertTrue(index.claim("cuff-1", submission, 0).isEmpty());
+        assertEquals(Optional.of(new Duplicate(null)), index.claim("cuff-1", submission, 1000));
+
+        index.complete("cuff-1", submission, READING);
+
+        assertEquals(Optional.of(new Duplicate(READING)), index.claim("cuff-1", submission, WINDOW));
+    }
+
+    @Test
+    void otherValuesDevicesAndLateReadingsAreNotDuplicates() {
+        index.claim("cuff-1", submission, 0);
+
+        assertTrue(index.claim("cuff-2", submission, 0).isEmpty());
+        assertTrue(index.claim("cuff-1", new Submission(PATIENT, 121, 80, 72), 0).isEmpty());
+        assertTrue(index.claim("cuff-1", new Submission(PATIENT, 121, 80, 72), WINDOW + 1).isEmpty());
+    }
+
+    @Test
+    void releasedClaimIsForgotten() {
+        index.claim("cuff-1", submission, 0);
+
+        index.release("cuff-1", submission);
+
+        assertEquals(0, index.size());
+        assertTrue(index.claim("cuff-1", submission, 1000).isEmpty());
+    }
+
+    @Test
+    void deviceThatSentLongestAgoIsEvictedAtCapacity() {
+        index.claim("cuff-1", submission, 0);
+        index.claim("cuff-2", submission, 0);
+        index.claim("cuff-1", new Submission(PATIENT, 130, 85, 70), 10);
+
+        index.claim("cuff-3", submission, 20);
+
+        assertEquals(2, index.size());
+        assertTrue(index.claim("cuff-2", submission, 30).isEmpty());
+    }
+}
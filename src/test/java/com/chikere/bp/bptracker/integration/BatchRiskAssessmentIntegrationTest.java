@@ -0,0 +1,137 @@
+package com.chikere.bp.bptracker.integration;
+
+import com.chikere.bp.bptracker.dto.BatchRunDto;
+import com.chikere.bp.bptracker.model.BatchRun;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import com.chikere.bp.bptracker.repository.BatchRunRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.repository.RiskAssessmentJobRepository;
+import com.chikere.bp.bptracker.service.BatchRiskAssessmentService;
+import com.chikere.bp.bptracker.support.FakeChatModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Import(BatchRiskAssessmentIntegrationTest.FakeChatModelConfiguration.class)
+@TestPropertySource(properties = {
+        "bptracker.ai.batch.concurrency=2",
+        "bptracker.ai.batch.rate-per-second=0",
+        "bptracker.ai.batch.page-size=2",
+        "bptracker.ai.batch.patients-per-prompt=1"
+})
+class BatchRiskAssessmentIntegrationTest {
+
+    @Autowired
+    private BatchRiskAssessmentService batchRiskAssessmentService;
+
+    @Autowired
+    private BatchRunRepository batchRunRepository;
+
+    @Autowired
+    private RiskAssessmentJobRepository riskAssessmentJobRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ReadingRepository readingRepository;
+
+    @Autowired
+    private FakeChatModel chatModel;
+
+    @TestConfiguration
+    static class FakeChatModelConfiguration {
+        @Bean
+        @Primary
+        FakeChatModel fakeChatModel() {
+            return new FakeChatModel(Duration.ofMillis(20), "The readings are elevated.\nMILD_HYPERTENSIVE");
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Clean up any existing data
+        batchRunRepository.deleteAll();
+        riskAssessmentJobRepository.deleteAll();
+        readingRepository.deleteAll();
+        patientRepository.deleteAll();
+
+        for (int i = 0; i < 5; i++) {
+            createPatientWithReadings("Eligible Patient " + i, 3);
+        }
+        createPatientWithReadings("Ineligible Patient", 2);
+    }
+
+    @Test
+    void runNowAssessesEveryEligiblePatient() {
+        int callsBefore = chatModel.getCalls();
+
+        BatchRunDto run = batchRiskAssessmentService.runNow();
+
+        assertEquals(JobStatus.COMPLETED, run.getStatus());
+        assertEquals(5, run.getProcessed());
+        assertEquals(5, run.getSucceeded());
+        assertEquals(0, run.getFailed());
+        assertNotNull(run.getLatencyP95Millis());
+        assertNotNull(run.getThroughputPerMinute());
+        assertEquals(5, chatModel.getCalls() - callsBefore);
+        assertEquals(5, riskAssessmentJobRepository.findAll().stream()
+                .filter(job -> "MILD_HYPERTENSIVE".equals(job.getRiskLevel()))
+                .count());
+    }
+
+    @Test
+    void runNowResumesInterruptedRunFromCheckpoint() {
+        // An interrupted run that had already checkpointed the first two eligible patients
+        List<UUID> firstPage = patientRepository.findEligibleIdsAfter(null, 3, Limit.of(2));
+        BatchRun interrupted = new BatchRun();
+        interrupted.setStatus(JobStatus.RUNNING);
+        interrupted.setLastPatientId(firstPage.get(1));
+        interrupted.setProcessed(2);
+        interrupted.setSucceeded(2);
+        interrupted = batchRunRepository.save(interrupted);
+        int callsBefore = chatModel.getCalls();
+
+        BatchRunDto run = batchRiskAssessmentService.runNow();
+
+        assertEquals(interrupted.getId(), run.getId());
+        assertEquals(JobStatus.COMPLETED, run.getStatus());
+        assertEquals(5, run.getProcessed());
+        assertEquals(3, chatModel.getCalls() - callsBefore);
+    }
+
+    private void createPatientWithReadings(String name, int readings) {
+        Patient patient = new Patient();
+        patient.setFullName(name);
+        patient.setGender(Gender.FEMALE);
+        patient.setBirthDate(LocalDate.now().minusYears(50));
+        patient = patientRepository.save(patient);
+        for (int i = 0; i < readings; i++) {
+            Reading reading = new Reading();
+            reading.setPatient(patient);
+            reading.setSystolic(145 + i);
+            reading.setDiastolic(92);
+            reading.setHeartRate(70);
+            readingRepository.save(reading);
+        }
+    }
+}
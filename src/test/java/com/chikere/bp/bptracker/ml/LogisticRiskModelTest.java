@@ -0,0 +1,104 @@
+package com.chikere.bp.bptracker.ml;
+
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.chikere.bp.bptracker.rules.CompiledRiskClassifier;
+import com.chikere.bp.bptracker.rules.RiskRuleSet;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogisticRiskModelTest {
+
+    private static double[][] samples;
+    private static RiskLevel[] labels;
+    private static LogisticRiskModel model;
+
+    @BeforeAll
+    static void train() {
+        Random random = new Random(7);
+        CompiledRiskClassifier rules = CompiledRiskClassifier.compile(RiskRuleSet.DEFAULT);
+        int n = 2000;
+        samples = new double[n][];
+        labels = new RiskLevel[n];
+        for (int i = 0; i < n; i++) {
+            List<Reading> history = new ArrayList<>();
+            int baseSystolic = 70 + random.nextInt(130);
+            int baseDiastolic = 60 + random.nextInt(65);
+            int count = 1 + random.nextInt(10);
+            for (int r = 0; r < count; r++) {
+                Reading reading = new Reading();
+                reading.setSystolic(baseSystolic + random.nextInt(11) - 5);
+                reading.setDiastolic(baseDiastolic + random.nextInt(7) - 3);
+                reading.setTimestamp(LocalDateTime.of(2025, 1, 1, 8, 0).minusDays(r));
+                history.add(reading);
+            }
+            samples[i] = new double[RiskFeatures.COUNT];
+            RiskFeatures.fill(history, samples[i]);
+            labels[i] = rules.classify(history.get(0).getSystolic(), history.get(0).getDiastolic());
+        }
+        model = new LogisticRiskModelTrainer(1000, 1.0, 0.0001).train(samples, labels);
+    }
+
+    @Test
+    void learnsTheThresholdRulesFromLabelledHistories() {
+        int agree = 0;
+        for (int i = 0; i < samples.length; i++) {
+            if (model.predict(samples[i]) == labels[i]) {
+                agree++;
+            }
+        }
+
+        assertTrue(agree >= samples.length * 0.9, "agreement with the rules was " + agree + "/" + samples.length);
+    }
+
+    @Test
+    void writtenModelReadsBackWithIdenticalPredictions(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("model.bin");
+        model.write(file);
+
+        LogisticRiskModel read = LogisticRiskModel.read(file);
+
+        for (double[] sample : samples) {
+            assertEquals(model.predict(sample), read.predict(sample));
+        }
+        assertTrue(Files.size(file) < 1024, "model file is compact");
+    }
+
+    @Test
+    void rejectsFileThatIsNotAModel(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("model.bin");
+        Files.writeString(file, "not a model, just some text");
+
+        assertThrows(IOException.class, () -> LogisticRiskModel.read(file));
+    }
+
+    @Test
+    void predictionAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        double[] sample = samples[0];
+        for (int i = 0; i < 20_000; i++) {
+            model.predict(sample);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            model.predict(samples[i % samples.length]);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes over 100000 predictions");
+    }
+}
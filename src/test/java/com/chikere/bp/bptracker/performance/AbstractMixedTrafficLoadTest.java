@@ -0,0 +1,204 @@
+package com.chikere.bp.bptracker.performance;
+
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.Arm;
+import com.chikere.bp.bptracker.model.enums.BodyPosition;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a mix of database-bound page views and slow LLM chat calls against a running server.
+ * <p>
+ * Subclasses pin the threading mode. Tomcat's platform pool is deliberately kept small so that
+ * the difference between the two modes is visible: with platform threads the slow chat calls
+ * occupy the pool and the database traffic queues behind them, with virtual threads it does not.
+ * Results are printed and appended to {@code target/load-tests/mixed-traffic.csv}. Client count and
+ * durations can be tuned with {@code -Dload.clients}, {@code -Dload.warmup-seconds} and {@code -Dload.seconds}.
+ * </p>
+ */
+@Tag("load")
+@ActiveProfiles("fake-llm")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "server.tomcat.threads.max=20",
+                // A constant 250ms per LLM call, answered in one piece
+                "bptracker.fake-llm.latency-median=250ms",
+                "bptracker.fake-llm.latency-p99=250ms",
+                "bptracker.fake-llm.tokens-per-second=0",
+                // Every chat request must reach the model, so no answer may come from the similarity cache
+                "bptracker.ai.chat-cache.similarity-threshold=2",
+                "logging.level.org.springframework.ai=WARN",
+                "logging.level.com.chikere.bp.bptracker=WARN"
+        })
+abstract class AbstractMixedTrafficLoadTest {
+
+    static final int CLIENTS = Integer.getInteger("load.clients", 64);
+    static final double LLM_SHARE = 0.2;
+    static final Duration WARM_UP = Duration.ofSeconds(Integer.getInteger("load.warmup-seconds", 5));
+    static final Duration MEASUREMENT = Duration.ofSeconds(Integer.getInteger("load.seconds", 10));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ReadingRepository readingRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private UUID patientId;
+
+    protected abstract String mode();
+
+    @BeforeEach
+    void setUp() {
+        Patient patient = new Patient();
+        patient.setFullName("Load Test Patient");
+        patient.setGender(Gender.FEMALE);
+        patient.setBirthDate(LocalDate.of(1970, 1, 1));
+        patient = patientRepository.save(patient);
+        for (int i = 0; i < 3; i++) {
+            Reading reading = new Reading();
+            reading.setPatient(patient);
+            reading.setSystolic(130 + i * 10);
+            reading.setDiastolic(85 + i * 5);
+            reading.setHeartRate(70);
+            reading.setArm(Arm.LEFT);
+            reading.setBodyPosition(BodyPosition.SITTING);
+            readingRepository.save(reading);
+        }
+        patientId = patient.getId();
+    }
+
+    @Test
+    void mixedDatabaseAndLlmTraffic() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        Queue<Long> dbLatencies = new ConcurrentLinkedQueue<>();
+        Queue<Long> llmLatencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger errors = new AtomicInteger();
+
+        long measureFrom = System.nanoTime() + WARM_UP.toNanos();
+        long measureUntil = measureFrom + MEASUREMENT.toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.submit(() -> runClient(client, measureFrom, measureUntil, dbLatencies, llmLatencies, errors));
+            }
+            clients.shutdown();
+            assertTrue(clients.awaitTermination(WARM_UP.plus(MEASUREMENT).toSeconds() + 60, TimeUnit.SECONDS));
+        }
+
+        double pinned = meterRegistry.find("jvm.threads.virtual.pinned").counters().stream()
+                .mapToDouble(Counter::count).sum();
+        List<String> lines = List.of(
+                summarize("db", dbLatencies, errors.get(), pinned),
+                summarize("llm", llmLatencies, errors.get(), pinned));
+        lines.forEach(System.out::println);
+        writeResults(lines);
+
+        assertTrue(!dbLatencies.isEmpty() && !llmLatencies.isEmpty(), "both traffic classes completed requests");
+    }
+
+    private void runClient(HttpClient client, long measureFrom, long measureUntil,
+                           Queue<Long> dbLatencies, Queue<Long> llmLatencies, AtomicInteger errors) {
+        while (System.nanoTime() < measureUntil) {
+            boolean llm = ThreadLocalRandom.current().nextDouble() < LLM_SHARE;
+            HttpRequest request = llm ? chatRequest() : patientPageRequest();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                long elapsed = System.nanoTime() - start;
+                if (response.statusCode() >= 400) {
+                    errors.incrementAndGet();
+                } else if (start >= measureFrom && start + elapsed <= measureUntil) {
+                    (llm ? llmLatencies : dbLatencies).add(elapsed);
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private HttpRequest patientPageRequest() {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/patients/" + patientId))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest chatRequest() {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/chat"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"question\":\"What does 150/95 mean?\"}"))
+                .build();
+    }
+
+    private String summarize(String trafficClass, Queue<Long> latencies, int errors, double pinned) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        sorted.sort(null);
+        double throughput = sorted.size() / (double) MEASUREMENT.toSeconds();
+        return String.format("%s,%s,%d,%.1f,%.1f,%.1f,%d,%.0f",
+                mode(), trafficClass, sorted.size(), throughput,
+                percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99), errors, pinned);
+    }
+
+    private static double percentileMillis(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private static void writeResults(List<String> lines) throws IOException {
+        Path file = Path.of("target", "load-tests", "mixed-traffic.csv");
+        Files.createDirectories(file.getParent());
+        if (!Files.exists(file)) {
+            Files.writeString(file, "mode,class,requests,throughput_rps,p50_ms,p99_ms,errors,pinned_events\n");
+        }
+        Files.write(file, lines, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,194 @@
+package com.chikere.bp.bptracker.performance;
+
+import com.chikere.bp.bptracker.ai.FakeLlmChatModel;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the deadline-bounded AI risk assessment endpoint against the offline fake LLM.
+ * <p>
+ * The fake model has a long-tailed latency and fails a share of calls, so the run exercises the
+ * whole pipeline: the job queue, the concurrency limiter and circuit breaker, and the rule-based
+ * fallback when the AI misses the deadline. The assessment cache is disabled so that every request
+ * reaches the model. Latencies are reported separately for AI answers and provisional rule-based
+ * answers, and results are appended to {@code target/load-tests/ai-pipeline.csv}. Client count and
+ * duration can be tuned with {@code -Dload.clients} and {@code -Dload.seconds}.
+ * </p>
+ */
+@Tag("load")
+@ActiveProfiles("fake-llm")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "bptracker.fake-llm.latency-median=300ms",
+                "bptracker.fake-llm.latency-p99=3s",
+                "bptracker.fake-llm.error-rate=0.05",
+                "bptracker.ai.cache.max-entries=0",
+                "bptracker.ai.deadline=1s",
+                "logging.level.org.springframework.ai=WARN",
+                "logging.level.com.chikere.bp.bptracker=WARN"
+        })
+class AiPipelineLoadTest {
+
+    static final int CLIENTS = Integer.getInteger("load.clients", 32);
+    static final int PATIENTS = 50;
+    static final Duration MEASUREMENT = Duration.ofSeconds(Integer.getInteger("load.seconds", 20));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ReadingRepository readingRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private FakeLlmChatModel chatModel;
+
+    private final List<UUID> patientIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int p = 0; p < PATIENTS; p++) {
+            Patient patient = new Patient();
+            patient.setFullName("AI Load Test Patient " + p);
+            patient.setGender(Gender.MALE);
+            patient.setBirthDate(LocalDate.of(1960, 1, 1));
+            patient = patientRepository.save(patient);
+            for (int i = 0; i < 3; i++) {
+                Reading reading = new Reading();
+                reading.setPatient(patient);
+                reading.setSystolic(110 + p + i * 5);
+                reading.setDiastolic(70 + p / 2 + i * 3);
+                reading.setHeartRate(70);
+                readingRepository.save(reading);
+            }
+            patientIds.add(patient.getId());
+        }
+    }
+
+    @Test
+    void deadlineBoundedAssessmentsUnderLoad() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        Queue<Long> aiLatencies = new ConcurrentLinkedQueue<>();
+        Queue<Long> fallbackLatencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger errors = new AtomicInteger();
+        long measureUntil = System.nanoTime() + MEASUREMENT.toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.submit(() -> runClient(client, measureUntil, aiLatencies, fallbackLatencies, errors));
+            }
+            clients.shutdown();
+            assertTrue(clients.awaitTermination(MEASUREMENT.toSeconds() + 60, TimeUnit.SECONDS));
+        }
+
+        double limiterRejected = counter("ai.llm.limiter.rejected");
+        double circuitRejected = counter("ai.llm.circuit.rejected");
+        List<String> lines = List.of(
+                summarize("ai", aiLatencies, errors.get(), limiterRejected, circuitRejected),
+                summarize("fallback", fallbackLatencies, errors.get(), limiterRejected, circuitRejected));
+        lines.forEach(System.out::println);
+        System.out.printf("fake LLM calls=%d failures=%d%n", chatModel.getCalls(), chatModel.getFailures());
+        writeResults(lines);
+
+        assertTrue(!aiLatencies.isEmpty(), "some assessments completed within the deadline");
+    }
+
+    private void runClient(HttpClient client, long measureUntil,
+                           Queue<Long> aiLatencies, Queue<Long> fallbackLatencies, AtomicInteger errors) {
+        while (System.nanoTime() < measureUntil) {
+            UUID patientId = patientIds.get(ThreadLocalRandom.current().nextInt(patientIds.size()));
+            HttpRequest request = HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + port + "/v1/api/risk/" + patientId + "/assessment"))
+                    .GET()
+                    .build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                long elapsed = System.nanoTime() - start;
+                if (response.statusCode() >= 400) {
+                    errors.incrementAndGet();
+                } else {
+                    (response.body().contains("\"RULE_BASED\"") ? fallbackLatencies : aiLatencies).add(elapsed);
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private double counter(String name) {
+        return meterRegistry.find(name).counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private String summarize(String source, Queue<Long> latencies, int errors, double limiterRejected, double circuitRejected) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        sorted.sort(null);
+        return String.format("%s,%d,%.1f,%.1f,%.1f,%d,%.0f,%.0f",
+                source, sorted.size(), sorted.size() / (double) MEASUREMENT.toSeconds(),
+                percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99), errors, limiterRejected, circuitRejected);
+    }
+
+    private static double percentileMillis(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private static void writeResults(List<String> lines) throws IOException {
+        Path file = Path.of("target", "load-tests", "ai-pipeline.csv");
+        Files.createDirectories(file.getParent());
+        if (!Files.exists(file)) {
+            Files.writeString(file, "source,requests,throughput_rps,p50_ms,p99_ms,errors,limiter_rejected,circuit_rejected\n");
+        }
+        Files.write(file, lines, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,148 @@
+package com.chikere.bp.bptracker.performance;
+
+import com.chikere.bp.bptracker.dto.BatchRunDto;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import com.chikere.bp.bptracker.repository.BatchRunRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.repository.RiskAssessmentJobRepository;
+import com.chikere.bp.bptracker.service.BatchRiskAssessmentService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares batch runs that send one prompt per patient with runs that pack several patients into
+ * each prompt, against the fake LLM.
+ * <p>
+ * The same patients are assessed by a full batch run once per setting, with the assessment cache
+ * disabled so every patient reaches the model. The concurrency limit counts prompts, so packing
+ * patients into prompts raises throughput; the classification and instructions are sent once per
+ * prompt, so prompt tokens per patient drop. Throughput, latency percentiles and mean prompt and
+ * output tokens per patient are appended to {@code target/load-tests/batched-prompts.csv}. The
+ * number of patients can be tuned with {@code -Dload.patients}.
+ * </p>
+ */
+@Tag("load")
+@ActiveProfiles("fake-llm")
+@SpringBootTest(properties = {
+        "bptracker.fake-llm.latency-median=500ms",
+        "bptracker.fake-llm.latency-p99=500ms",
+        "bptracker.fake-llm.tokens-per-second=100",
+        "bptracker.ai.cache.max-entries=0",
+        "bptracker.ai.batch.concurrency=4",
+        "bptracker.ai.batch.rate-per-second=0",
+        "bptracker.ai.batch.page-size=100",
+        "logging.level.org.springframework.ai=WARN",
+        "logging.level.com.chikere.bp.bptracker=WARN"
+})
+class BatchedPromptLoadTest {
+
+    static final int PATIENTS = Integer.getInteger("load.patients", 40);
+    static final int PATIENTS_PER_PROMPT = 5;
+
+    @Autowired
+    private BatchRiskAssessmentService batchRiskAssessmentService;
+
+    @Autowired
+    private BatchRunRepository batchRunRepository;
+
+    @Autowired
+    private RiskAssessmentJobRepository riskAssessmentJobRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ReadingRepository readingRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        batchRunRepository.deleteAll();
+        riskAssessmentJobRepository.deleteAll();
+        readingRepository.deleteAll();
+        patientRepository.deleteAll();
+        for (int p = 0; p < PATIENTS; p++) {
+            Patient patient = new Patient();
+            patient.setFullName("Batched Prompt Patient " + p);
+            patient.setGender(Gender.MALE);
+            patient.setBirthDate(LocalDate.of(1965, 1, 1));
+            patient = patientRepository.save(patient);
+            for (int i = 0; i < 3; i++) {
+                Reading reading = new Reading();
+                reading.setPatient(patient);
+                reading.setSystolic(115 + p * 2 + i * 3);
+                reading.setDiastolic(75 + p + i);
+                reading.setHeartRate(70);
+                readingRepository.save(reading);
+            }
+        }
+    }
+
+    @Test
+    void batchedPromptsRaiseThroughputAndSaveTokens() throws IOException {
+        String single = measure(1, "json");
+        String batched = measure(PATIENTS_PER_PROMPT, "json-batch");
+        System.out.println(single);
+        System.out.println(batched);
+        writeResults(List.of(single, batched));
+
+        assertTrue(promptTokens("json-batch").mean() < promptTokens("json").mean(),
+                "batched prompts use fewer prompt tokens per patient");
+        assertTrue(meterRegistry.find("ai.risk.batch.prompt.fallbacks").counters().isEmpty(),
+                "every batched answer maps back to its patients");
+    }
+
+    private String measure(int patientsPerPrompt, String format) {
+        ReflectionTestUtils.setField(batchRiskAssessmentService, "patientsPerPrompt", patientsPerPrompt);
+        BatchRunDto run = batchRiskAssessmentService.runNow();
+
+        assertEquals(JobStatus.COMPLETED, run.getStatus());
+        assertEquals(PATIENTS, run.getSucceeded());
+        return String.format("%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f",
+                patientsPerPrompt, run.getProcessed(), run.getThroughputPerMinute(),
+                run.getLatencyP50Millis(), run.getLatencyP99Millis(),
+                promptTokens(format).mean(), outputTokens(format).mean());
+    }
+
+    private DistributionSummary promptTokens(String format) {
+        return meterRegistry.get("ai.risk.prompt.tokens").tag("format", format).summary();
+    }
+
+    private DistributionSummary outputTokens(String format) {
+        return meterRegistry.get("ai.risk.output.tokens").tag("format", format).summary();
+    }
+
+    private static void writeResults(List<String> lines) throws IOException {
+        Path file = Path.of("target", "load-tests", "batched-prompts.csv");
+        Files.createDirectories(file.getParent());
+        if (!Files.exists(file)) {
+            Files.writeString(file, "patients_per_prompt,patients,per_minute,p50_ms,p99_ms,"
+                    + "mean_prompt_tokens_per_patient,mean_output_tokens_per_patient\n");
+        }
+        Files.write(file, lines, StandardOpenOption.APPEND);
+    }
+}
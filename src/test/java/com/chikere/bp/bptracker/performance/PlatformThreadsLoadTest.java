@@ -0,0 +1,15 @@
+package com.chikere.bp.bptracker.performance;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Mixed traffic load test with Tomcat and {@code @Async} work on bounded platform thread pools.
+ */
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadsLoadTest extends AbstractMixedTrafficLoadTest {
+
+    @Override
+    protected String mode() {
+        return "platform";
+    }
+}
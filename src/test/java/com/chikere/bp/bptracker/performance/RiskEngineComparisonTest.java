@@ -0,0 +1,182 @@
+package com.chikere.bp.bptracker.performance;
+
+import com.chikere.bp.bptracker.ml.LogisticRiskModel;
+import com.chikere.bp.bptracker.ml.RiskFeatures;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.RiskEngine;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.service.RiskService;
+import com.chikere.bp.bptracker.service.StatisticalRiskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the three risk engines on the same patients: latency of a full assessment (including
+ * loading the readings) and how often each engine agrees with the rules and with the AI.
+ * <p>
+ * The statistical model is trained on the seeded histories first; the AI is the fake LLM with a
+ * constant latency and the assessment cache disabled. A separate row reports the latency of model
+ * evaluation alone, without the database. Results are appended to
+ * {@code target/load-tests/risk-engines.csv}. The number of patients can be tuned with
+ * {@code -Dload.patients}.
+ * </p>
+ */
+@Tag("load")
+@ActiveProfiles("fake-llm")
+@SpringBootTest(properties = {
+        "bptracker.fake-llm.latency-median=100ms",
+        "bptracker.fake-llm.latency-p99=100ms",
+        "bptracker.fake-llm.tokens-per-second=0",
+        "bptracker.ai.cache.max-entries=0",
+        "bptracker.risk.model.path=target/load-tests/risk-model.bin",
+        "logging.level.org.springframework.ai=WARN",
+        "logging.level.com.chikere.bp.bptracker=WARN"
+})
+class RiskEngineComparisonTest {
+
+    static final int PATIENTS = Integer.getInteger("load.patients", 40);
+    static final int READINGS_PER_PATIENT = 10;
+
+    @Autowired
+    private RiskService riskService;
+
+    @Autowired
+    private StatisticalRiskService statisticalRiskService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ReadingRepository readingRepository;
+
+    private final List<UUID> patientIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(11);
+        for (int p = 0; p < PATIENTS; p++) {
+            Patient patient = new Patient();
+            patient.setFullName("Engine Comparison Patient " + p);
+            patient.setGender(Gender.MALE);
+            patient.setBirthDate(LocalDate.of(1955, 6, 1));
+            patient = patientRepository.save(patient);
+            int systolic = 95 + random.nextInt(100);
+            int diastolic = 65 + random.nextInt(50);
+            for (int i = 0; i < READINGS_PER_PATIENT; i++) {
+                Reading reading = new Reading();
+                reading.setPatient(patient);
+                reading.setSystolic(systolic + random.nextInt(13) - 6);
+                reading.setDiastolic(diastolic + random.nextInt(9) - 4);
+                reading.setHeartRate(60 + random.nextInt(30));
+                readingRepository.save(reading);
+            }
+            patientIds.add(patient.getId());
+        }
+    }
+
+    @Test
+    void compareEngines() throws IOException {
+        statisticalRiskService.train();
+
+        Map<RiskEngine, List<String>> levels = new EnumMap<>(RiskEngine.class);
+        Map<RiskEngine, List<Long>> latencies = new EnumMap<>(RiskEngine.class);
+        for (RiskEngine engine : RiskEngine.values()) {
+            levels.put(engine, new ArrayList<>());
+            latencies.put(engine, new ArrayList<>());
+            // Warm up, so the first measurements are not dominated by class loading and JIT compilation
+            for (int i = 0; i < Math.min(5, patientIds.size()); i++) {
+                riskService.assessRisk(patientIds.get(i), engine);
+            }
+        }
+        for (UUID patientId : patientIds) {
+            for (RiskEngine engine : RiskEngine.values()) {
+                long start = System.nanoTime();
+                levels.get(engine).add(riskService.assessRisk(patientId, engine));
+                latencies.get(engine).add(System.nanoTime() - start);
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (RiskEngine engine : RiskEngine.values()) {
+            lines.add(summarize(engine.name().toLowerCase(), latencies.get(engine),
+                    agreement(levels.get(engine), levels.get(RiskEngine.RULES)),
+                    agreement(levels.get(engine), levels.get(RiskEngine.AI))));
+        }
+        lines.add(summarize("statistical-model-only", modelOnlyLatencies(), Double.NaN, Double.NaN));
+        lines.forEach(System.out::println);
+        writeResults(lines);
+
+        assertTrue(percentile(latencies.get(RiskEngine.STATISTICAL), 0.5) < percentile(latencies.get(RiskEngine.AI), 0.5),
+                "the statistical engine is faster than the AI");
+    }
+
+    private List<Long> modelOnlyLatencies() throws IOException {
+        LogisticRiskModel model = LogisticRiskModel.read(Path.of("target", "load-tests", "risk-model.bin"));
+        Patient patient = patientRepository.findById(patientIds.get(0)).orElseThrow();
+        double[] features = new double[RiskFeatures.COUNT];
+        RiskFeatures.fill(readingRepository.findAllByPatientOrderByTimestampDesc(patient), features);
+        for (int i = 0; i < 100_000; i++) {
+            model.predict(features);
+        }
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long start = System.nanoTime();
+            model.predict(features);
+            latencies.add(System.nanoTime() - start);
+        }
+        return latencies;
+    }
+
+    private static double agreement(List<String> levels, List<String> reference) {
+        int agree = 0;
+        for (int i = 0; i < levels.size(); i++) {
+            if (levels.get(i).equals(reference.get(i))) {
+                agree++;
+            }
+        }
+        return (double) agree / levels.size();
+    }
+
+    private static String summarize(String engine, List<Long> latencies, double agreementWithRules, double agreementWithAi) {
+        return String.format("%s,%d,%.1f,%.1f,%.2f,%.2f", engine, latencies.size(),
+                percentile(latencies, 0.50) / 1_000.0, percentile(latencies, 0.99) / 1_000.0,
+                agreementWithRules, agreementWithAi);
+    }
+
+    private static long percentile(List<Long> latencies, double percentile) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        sorted.sort(null);
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+
+    private static void writeResults(List<String> lines) throws IOException {
+        Path file = Path.of("target", "load-tests", "risk-engines.csv");
+        Files.createDirectories(file.getParent());
+        if (!Files.exists(file)) {
+            Files.writeString(file, "engine,assessments,p50_us,p99_us,agreement_with_rules,agreement_with_ai\n");
+        }
+        Files.write(file, lines, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,139 @@
+package com.chikere.bp.bptracker.performance;
+
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.RiskOutputFormat;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.service.AIRiskAssessmentService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the free-text and JSON output formats of the AI risk assessment against the fake LLM.
+ * <p>
+ * The same patients are assessed once in each format, with the assessment cache disabled so every
+ * assessment reaches the model. The fake model generates tokens at a fixed rate, so end-to-end
+ * latency grows with the length of the answer as it would with a real provider. Mean output tokens
+ * and latency percentiles per format are appended to {@code target/load-tests/risk-output-format.csv}.
+ * The number of assessments per format can be tuned with {@code -Dload.assessments}.
+ * </p>
+ */
+@Tag("load")
+@ActiveProfiles("fake-llm")
+@SpringBootTest(properties = {
+        "bptracker.fake-llm.latency-median=200ms",
+        "bptracker.fake-llm.latency-p99=200ms",
+        "bptracker.fake-llm.tokens-per-second=100",
+        "bptracker.ai.cache.max-entries=0",
+        "logging.level.org.springframework.ai=WARN",
+        "logging.level.com.chikere.bp.bptracker=WARN"
+})
+class RiskOutputFormatComparisonTest {
+
+    static final int ASSESSMENTS = Integer.getInteger("load.assessments", 20);
+
+    @Autowired
+    private AIRiskAssessmentService aiRiskAssessmentService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ReadingRepository readingRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<UUID> patientIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int p = 0; p < ASSESSMENTS; p++) {
+            Patient patient = new Patient();
+            patient.setFullName("Output Format Patient " + p);
+            patient.setGender(Gender.FEMALE);
+            patient.setBirthDate(LocalDate.of(1970, 1, 1));
+            patient = patientRepository.save(patient);
+            for (int i = 0; i < 3; i++) {
+                Reading reading = new Reading();
+                reading.setPatient(patient);
+                reading.setSystolic(115 + p * 4 + i * 3);
+                reading.setDiastolic(75 + p * 2 + i);
+                reading.setHeartRate(70);
+                readingRepository.save(reading);
+            }
+            patientIds.add(patient.getId());
+        }
+    }
+
+    @Test
+    void jsonOutputUsesFewerTokensAndLessTime() throws IOException {
+        String text = measure(RiskOutputFormat.TEXT);
+        String json = measure(RiskOutputFormat.JSON);
+        System.out.println(text);
+        System.out.println(json);
+        writeResults(List.of(text, json));
+
+        assertTrue(outputTokens(RiskOutputFormat.JSON).mean() < outputTokens(RiskOutputFormat.TEXT).mean(),
+                "JSON answers are shorter than free-text answers");
+        assertEquals(0, meterRegistry.find("ai.risk.output.parse.failures").counters().size(),
+                "every JSON answer is bound to the schema");
+    }
+
+    private String measure(RiskOutputFormat format) {
+        ReflectionTestUtils.setField(aiRiskAssessmentService, "outputFormat", format);
+        List<Long> latencies = new ArrayList<>();
+        int unknown = 0;
+        for (UUID patientId : patientIds) {
+            long start = System.nanoTime();
+            String level = aiRiskAssessmentService.assessRiskWithAI(patientId);
+            latencies.add(System.nanoTime() - start);
+            if ("UNKNOWN".equals(level)) {
+                unknown++;
+            }
+        }
+        latencies.sort(null);
+        return String.format("%s,%d,%.1f,%.1f,%.1f,%d",
+                format.name().toLowerCase(), latencies.size(), outputTokens(format).mean(),
+                percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.99), unknown);
+    }
+
+    private DistributionSummary outputTokens(RiskOutputFormat format) {
+        return meterRegistry.get("ai.risk.output.tokens").tag("format", format.name().toLowerCase()).summary();
+    }
+
+    private static double percentileMillis(List<Long> sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+
+    private static void writeResults(List<String> lines) throws IOException {
+        Path file = Path.of("target", "load-tests", "risk-output-format.csv");
+        Files.createDirectories(file.getParent());
+        if (!Files.exists(file)) {
+            Files.writeString(file, "format,assessments,mean_output_tokens,p50_ms,p99_ms,unknown\n");
+        }
+        Files.write(file, lines, StandardOpenOption.APPEND);
+    }
+}
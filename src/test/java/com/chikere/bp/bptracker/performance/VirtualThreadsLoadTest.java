@@ -0,0 +1,15 @@
+package com.chikere.bp.bptracker.performance;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Mixed traffic load test with Tomcat and {@code @Async} work on virtual threads.
+ */
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadsLoadTest extends AbstractMixedTrafficLoadTest {
+
+    @Override
+    protected String mode() {
+        return "virtual";
+    }
+}
@@ -1,12 +1,14 @@
 package com.chikere.bp.bptracker.repository;
 
 import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
 import com.chikere.bp.bptracker.model.enums.Gender;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -38,6 +40,13 @@ class PatientRepositoryTest {
         // Save patients to the test database
         entityManager.persist(patient1);
         entityManager.persist(patient2);
+
+        Reading reading = new Reading();
+        reading.setPatient(patient1);
+        reading.setSystolic(130);
+        reading.setDiastolic(85);
+        reading.setHeartRate(70);
+        entityManager.persist(reading);
         entityManager.flush();
     }
 
@@ -61,4 +70,19 @@ class PatientRepositoryTest {
         List<Patient> results4 = patientRepository.findByFullNameContainingIgnoreCase("XYZ");
         assertEquals(0, results4.size());
     }
+
+    @Test
+    void findCohortAttributesAfterShouldPageThroughPatientsWithTheirLatestReading() {
+        List<PatientRepository.CohortAttributes> first = patientRepository.findCohortAttributesAfter(null, Limit.of(1));
+        List<PatientRepository.CohortAttributes> second = patientRepository.findCohortAttributesAfter(first.getFirst().getId(), Limit.of(1));
+
+        assertEquals(1, first.size());
+        assertEquals(1, second.size());
+        assertNotEquals(first.getFirst().getId(), second.getFirst().getId());
+        PatientRepository.CohortAttributes john = first.getFirst().getGender() == Gender.MALE ? first.getFirst() : second.getFirst();
+        assertEquals(LocalDate.of(1980, 1, 1), john.getBirthDate());
+        assertNotNull(john.getLatestReading());
+        PatientRepository.CohortAttributes jane = john == first.getFirst() ? second.getFirst() : first.getFirst();
+        assertNull(jane.getLatestReading());
+    }
 }
@@ -1,18 +1,22 @@
 package com.chikere.bp.bptracker.repository;
 
+import com.chikere.bp.bptracker.analytics.ReadingSample;
 import com.chikere.bp.bptracker.model.Patient;
 import com.chikere.bp.bptracker.model.Reading;
 import com.chikere.bp.bptracker.model.enums.Arm;
 import com.chikere.bp.bptracker.model.enums.BodyPosition;
 import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -79,6 +83,11 @@ class ReadingRepositoryTest {
         reading4.setArm(Arm.RIGHT);
         reading4.setTimestamp(LocalDateTime.now());
         
+        // Stored risk levels; reading1 was saved before levels were stored
+        reading2.setRiskLevel(RiskLevel.NORMAL);
+        reading3.setRiskLevel(RiskLevel.MODERATE_HYPERTENSIVE);
+        reading4.setRiskLevel(RiskLevel.SEVERE_HYPERTENSIVE);
+
         // Save readings to the test database
         entityManager.persist(reading1);
         entityManager.persist(reading2);
@@ -123,4 +132,74 @@ class ReadingRepositoryTest {
         assertEquals(reading2.getId(), readings.get(2).getId());
         assertEquals(reading1.getId(), readings.get(3).getId()); // Oldest
     }
-}
\ No newline at end of file
+
+    @Test
+    void countByPatientAndRiskLevelShouldOnlyCountReadingsAtTheLevels() {
+        List<ReadingRepository.PatientRiskLevelCount> counts = readingRepository.countByPatientAndRiskLevel(
+                EnumSet.of(RiskLevel.MODERATE_HYPERTENSIVE, RiskLevel.SEVERE_HYPERTENSIVE),
+                LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1));
+
+        assertEquals(2, counts.size());
+        assertTrue(counts.stream().allMatch(count -> count.getPatientId().equals(patient.getId()) && count.getReadings() == 1));
+        ReadingRepository.PatientRiskLevelCount severe = counts.stream()
+                .filter(count -> count.getRiskLevel() == RiskLevel.SEVERE_HYPERTENSIVE).findFirst().orElseThrow();
+        assertEquals(reading4.getTimestamp().withNano(0), severe.getLatestTimestamp().withNano(0));
+    }
+
+    @Test
+    void countByPatientAndRiskLevelShouldExcludeReadingsOutsideTheRange() {
+        List<ReadingRepository.PatientRiskLevelCount> counts = readingRepository.countByPatientAndRiskLevel(
+                EnumSet.of(RiskLevel.SEVERE_HYPERTENSIVE),
+                LocalDateTime.now().minusDays(7), LocalDateTime.now().minusDays(1));
+
+        assertTrue(counts.isEmpty());
+    }
+
+    @Test
+    void findByRiskLevelsShouldReturnMostRecentFirst() {
+        List<Reading> readings = readingRepository.findByRiskLevels(
+                EnumSet.of(RiskLevel.NORMAL, RiskLevel.SEVERE_HYPERTENSIVE),
+                LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1), Limit.of(10));
+
+        assertEquals(List.of(reading4.getId(), reading2.getId()), readings.stream().map(Reading::getId).toList());
+    }
+
+    @Test
+    void findPressuresAfterShouldFindReadingsWithoutRiskLevel() {
+        List<ReadingRepository.ReadingPressures> missing = readingRepository.findPressuresAfter(null, false, Limit.of(10));
+        assertEquals(1, missing.size());
+        assertEquals(reading1.getId(), missing.get(0).getId());
+        assertEquals(120, missing.get(0).getSystolic());
+
+        assertEquals(1, readingRepository.updateRiskLevel(RiskLevel.NORMAL, List.of(reading1.getId())));
+
+        assertTrue(readingRepository.findPressuresAfter(null, false, Limit.of(10)).isEmpty());
+        assertEquals(4, readingRepository.findPressuresAfter(null, true, Limit.of(10)).size());
+    }
+
+    @Test
+    void findSamplesShouldReturnPatientReadingsInTimeOrder() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ReadingSample> samples = readingRepository.findSamples(List.of(patient.getId()), now.minusDays(1), now.plusDays(1));
+
+        assertEquals(4, samples.size());
+        for (int i = 0; i < samples.size(); i++) {
+            assertEquals(patient.getId(), samples.get(i).patientId());
+            assertTrue(i == 0 || !samples.get(i).timestamp().isBefore(samples.get(i - 1).timestamp()));
+        }
+        assertTrue(readingRepository.findSamples(List.of(patient.getId()), now.plusDays(1), now.plusDays(2)).isEmpty());
+    }
+
+    @Test
+    void countBySystolicAndCohortShouldGroupByPressureAndPatient() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ReadingRepository.SystolicCount> counts = readingRepository.countBySystolicAndCohort(now.minusDays(1), now.plusDays(1));
+
+        assertEquals(4, counts.size());
+        assertTrue(counts.stream().allMatch(count -> count.getGender() == Gender.MALE
+                && count.getBirthDate().equals(LocalDate.of(1980, 1, 1)) && count.getReadings() == 1));
+
+        ReadingRepository.TimestampRange range = readingRepository.findTimestampRange();
+        assertFalse(range.getFirst().isAfter(range.getLast()));
+    }
+}
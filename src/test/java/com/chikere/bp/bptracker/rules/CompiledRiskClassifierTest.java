@@ -0,0 +1,88 @@
+package com.chikere.bp.bptracker.rules;
+
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledRiskClassifierTest {
+
+    private static final RiskRuleSet STRICT = new RiskRuleSet(List.of(
+            new RiskRuleSet.Threshold(RiskLevel.SEVERE_HYPERTENSIVE, 170, 105, RiskRuleSet.Match.ANY),
+            new RiskRuleSet.Threshold(RiskLevel.MILD_HYPERTENSIVE, 130, 85, null),
+            new RiskRuleSet.Threshold(RiskLevel.NORMAL, 90, 60, RiskRuleSet.Match.ALL)),
+            RiskLevel.LOW);
+
+    @Test
+    void defaultRuleSetKeepsTheOriginalThresholds() {
+        CompiledRiskClassifier classifier = CompiledRiskClassifier.compile(RiskRuleSet.DEFAULT);
+
+        assertEquals(RiskLevel.SEVERE_HYPERTENSIVE, classifier.classify(180, 70));
+        assertEquals(RiskLevel.SEVERE_HYPERTENSIVE, classifier.classify(120, 110));
+        assertEquals(RiskLevel.MODERATE_HYPERTENSIVE, classifier.classify(179, 109));
+        assertEquals(RiskLevel.MILD_HYPERTENSIVE, classifier.classify(159, 90));
+        assertEquals(RiskLevel.NORMAL, classifier.classify(139, 89));
+        assertEquals(RiskLevel.NORMAL, classifier.classify(80, 80));
+        assertEquals(RiskLevel.LOW, classifier.classify(120, 79));
+    }
+
+    @Test
+    void compiledTableAgreesWithRulesEverywhere() {
+        for (RiskRuleSet ruleSet : List.of(RiskRuleSet.DEFAULT, STRICT)) {
+            CompiledRiskClassifier classifier = CompiledRiskClassifier.compile(ruleSet);
+            for (int systolic = -20; systolic <= CompiledRiskClassifier.MAX_SYSTOLIC + 50; systolic++) {
+                for (int diastolic = -20; diastolic <= CompiledRiskClassifier.MAX_DIASTOLIC + 50; diastolic++) {
+                    assertEquals(ruleSet.evaluate(systolic, diastolic), classifier.classify(systolic, diastolic),
+                            systolic + "/" + diastolic);
+                }
+            }
+            assertEquals(ruleSet.evaluate(Integer.MAX_VALUE, Integer.MIN_VALUE),
+                    classifier.classify(Integer.MAX_VALUE, Integer.MIN_VALUE));
+        }
+    }
+
+    @Test
+    void bulkClassificationMatchesSingleReadings() {
+        // Larger than the parallel threshold and not a multiple of any vector length
+        int count = 200_003;
+        int[] systolic = new int[count];
+        int[] diastolic = new int[count];
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < count; i++) {
+            systolic[i] = random.nextInt(-10, 320);
+            diastolic[i] = random.nextInt(-10, 220);
+        }
+        for (RiskRuleSet ruleSet : List.of(RiskRuleSet.DEFAULT, STRICT)) {
+            CompiledRiskClassifier classifier = CompiledRiskClassifier.compile(ruleSet);
+            byte[] all = new byte[count];
+            byte[] vector = new byte[count];
+            byte[] scalar = new byte[count];
+
+            classifier.classifyAll(systolic, diastolic, all);
+            classifier.classifyRange(systolic, diastolic, vector, 0, count, true);
+            classifier.classifyRange(systolic, diastolic, scalar, 0, count, false);
+
+            for (int i = 0; i < count; i++) {
+                int expected = ruleSet.evaluate(systolic[i], diastolic[i]).ordinal();
+                assertEquals(expected, all[i], systolic[i] + "/" + diastolic[i]);
+                assertEquals(expected, vector[i], systolic[i] + "/" + diastolic[i]);
+                assertEquals(expected, scalar[i], systolic[i] + "/" + diastolic[i]);
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> CompiledRiskClassifier.compile(RiskRuleSet.DEFAULT).classifyAll(systolic, new int[1], new byte[count]));
+    }
+
+    @Test
+    void thresholdsOutsideTheTableAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RiskRuleSet.Threshold(RiskLevel.SEVERE_HYPERTENSIVE, 400, 110, RiskRuleSet.Match.ANY));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RiskRuleSet.Threshold(RiskLevel.NORMAL, 0, 80, RiskRuleSet.Match.ALL));
+        assertThrows(IllegalArgumentException.class, () -> new RiskRuleSet(List.of(), RiskLevel.LOW));
+    }
+}
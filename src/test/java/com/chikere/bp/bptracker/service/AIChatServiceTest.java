@@ -0,0 +1,105 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.support.FakeChatModel;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.chikere.bp.bptracker.ai.BoundedChatMemory;
+import com.chikere.bp.bptracker.ai.PromptCompactionAdvisor;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AIChatServiceTest {
+
+    private static final String ANSWER = "A reading of 150/95 mmHg indicates mild hypertension.";
+
+    private FakeChatModel chatModel;
+    private SimpleMeterRegistry meterRegistry;
+    private AIChatService aiChatService;
+
+    @BeforeEach
+    void setUp() {
+        chatModel = new FakeChatModel(Duration.ofMillis(20), Duration.ofMillis(5), ANSWER);
+        meterRegistry = new SimpleMeterRegistry();
+        BoundedChatMemory chatMemory = new BoundedChatMemory(20, 100_000, Duration.ofMinutes(30));
+        PromptCompactionAdvisor compactionAdvisor = new PromptCompactionAdvisor(
+                chatMemory, new JTokkitTokenCountEstimator(), 60, 30).bindTo(meterRegistry, "ai.chat.prompt");
+        ChatAnswerCache chatAnswerCache = new ChatAnswerCache(meterRegistry);
+        chatAnswerCache.init();
+        aiChatService = new AIChatService(ChatClient.builder(chatModel).build(),
+                new MessageChatMemoryAdvisor(chatMemory, "default", 20), compactionAdvisor,
+                chatMemory, chatAnswerCache, meterRegistry);
+        aiChatService.initCounters();
+    }
+
+    @Test
+    void processQuestionReturnsModelAnswer() {
+        assertEquals(ANSWER, aiChatService.processQuestion("session-1", "What does 150/95 mean?"));
+        assertEquals(1.0, meterRegistry.counter("ai.chat.success").count());
+    }
+
+    @Test
+    void streamQuestionEmitsTokensAndRecordsTimeToFirstToken() {
+        List<String> tokens = aiChatService.streamQuestion("session-1", "What does 150/95 mean?").collectList().block();
+
+        assertEquals(ANSWER, String.join("", tokens));
+        assertEquals(1, meterRegistry.timer("ai.chat.time.to.first.token").count());
+        assertEquals(1.0, meterRegistry.counter("ai.chat.success").count());
+    }
+
+    @Test
+    void cancellingStreamStopsUpstreamGeneration() {
+        List<String> tokens = aiChatService.streamQuestion("session-1", "What does 150/95 mean?").take(2).collectList().block();
+
+        assertEquals(2, tokens.size());
+        assertEquals(1, chatModel.getCancelledStreams());
+        assertEquals(1.0, meterRegistry.counter("ai.chat.stream.cancelled").count());
+        assertEquals(0.0, meterRegistry.counter("ai.chat.success").count());
+    }
+
+    @Test
+    void followUpQuestionsSeeOnlyTheirOwnConversationHistory() {
+        aiChatService.processQuestion("session-1", "What does 150/95 mean?");
+
+        aiChatService.processQuestion("session-1", "Is that dangerous?");
+        assertEquals(3, chatModel.getLastPrompt().getInstructions().size());
+
+        aiChatService.processQuestion("session-2", "Is that dangerous?");
+        assertEquals(1, chatModel.getLastPrompt().getInstructions().size());
+    }
+
+    @Test
+    void longConversationsAreCompactedToStayWithinTheTokenBudget() {
+        for (int i = 0; i < 6; i++) {
+            aiChatService.processQuestion("session-1", "My reading today was 15" + i + "/95, what does it mean?");
+        }
+
+        assertEquals(SystemMessage.class, chatModel.getLastPrompt().getInstructions().get(0).getClass());
+        assertTrue(meterRegistry.counter("ai.chat.prompt.compactions").count() > 0);
+        DistributionSummary uncompacted = meterRegistry.find("ai.chat.prompt.tokens").tag("stage", "uncompacted").summary();
+        DistributionSummary sent = meterRegistry.find("ai.chat.prompt.tokens").tag("stage", "sent").summary();
+        assertTrue(sent.max() < uncompacted.max());
+    }
+
+    @Test
+    void rewordedOpeningQuestionIsAnsweredFromCacheButFollowUpsAreNot() {
+        aiChatService.processQuestion("session-1", "What does 150/95 mean?");
+
+        assertEquals(ANSWER, aiChatService.processQuestion("session-2", "what does a blood pressure of 150/95 mean"));
+        assertEquals(1, chatModel.getCalls());
+
+        aiChatService.processQuestion("session-2", "What does 150/95 mean?");
+        assertEquals(2, chatModel.getCalls());
+        assertEquals(3, chatModel.getLastPrompt().getInstructions().size());
+        assertEquals(1.0, meterRegistry.counter("ai.chat.cache.bypass").count());
+    }
+}
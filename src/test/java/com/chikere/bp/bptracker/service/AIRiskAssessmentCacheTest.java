@@ -0,0 +1,97 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
+import com.chikere.bp.bptracker.model.Reading;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AIRiskAssessmentCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AIRiskAssessmentCache cache;
+    private UUID patientId;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AIRiskAssessmentCache(meterRegistry);
+        cache.init();
+        patientId = UUID.randomUUID();
+    }
+
+    @Test
+    void keyDependsOnReadingValuesPromptVersionAndHistoryVersion() {
+        Reading first = reading(150, 95);
+        Reading second = reading(130, 85);
+
+        String key = AIRiskAssessmentCache.key("v1", "3", List.of(first, second));
+        assertEquals(key, AIRiskAssessmentCache.key("v1", "3", List.of(first, second)));
+        assertNotEquals(key, AIRiskAssessmentCache.key("v2", "3", List.of(first, second)));
+        assertNotEquals(key, AIRiskAssessmentCache.key("v1", "4", List.of(first, second)));
+
+        second.setDiastolic(86);
+        assertNotEquals(key, AIRiskAssessmentCache.key("v1", "3", List.of(first, second)));
+    }
+
+    @Test
+    void getRecordsHitsAndMisses() {
+        String key = AIRiskAssessmentCache.key("v1", "3", List.of(reading(150, 95)));
+
+        assertTrue(cache.get(key).isEmpty());
+        cache.put(key, new AIRiskAssessmentCache.CachedAssessment(patientId, "MILD_HYPERTENSIVE", "explanation"));
+
+        assertEquals("MILD_HYPERTENSIVE", cache.get(key).orElseThrow().riskLevel());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+        assertEquals(0.5, meterRegistry.get("ai.risk.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void readingChangeEvictsPatientEntries() {
+        String key = AIRiskAssessmentCache.key("v1", "3", List.of(reading(150, 95)));
+        String otherKey = AIRiskAssessmentCache.key("v1", "3", List.of(reading(120, 80)));
+        UUID otherPatientId = UUID.randomUUID();
+        cache.put(key, new AIRiskAssessmentCache.CachedAssessment(patientId, "MILD_HYPERTENSIVE", "explanation"));
+        cache.put(otherKey, new AIRiskAssessmentCache.CachedAssessment(otherPatientId, "NORMAL", "explanation"));
+
+        cache.onReadingChanged(ReadingChangedEvent.deleted(patientId, UUID.randomUUID(), LocalDateTime.now(), 120, 80, 70));
+
+        assertTrue(cache.get(key).isEmpty());
+        assertTrue(cache.get(otherKey).isPresent());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedWhenFull() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        cache.init();
+        String first = AIRiskAssessmentCache.key("v1", "3", List.of(reading(150, 95)));
+        String second = AIRiskAssessmentCache.key("v1", "3", List.of(reading(130, 85)));
+        String third = AIRiskAssessmentCache.key("v1", "3", List.of(reading(120, 80)));
+
+        cache.put(first, new AIRiskAssessmentCache.CachedAssessment(patientId, "MILD_HYPERTENSIVE", "explanation"));
+        cache.put(second, new AIRiskAssessmentCache.CachedAssessment(patientId, "NORMAL", "explanation"));
+        cache.get(first);
+        cache.put(third, new AIRiskAssessmentCache.CachedAssessment(patientId, "NORMAL", "explanation"));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(first).isPresent());
+        assertTrue(cache.get(second).isEmpty());
+    }
+
+    private Reading reading(int systolic, int diastolic) {
+        Reading reading = new Reading();
+        reading.setId(UUID.randomUUID());
+        reading.setSystolic(systolic);
+        reading.setDiastolic(diastolic);
+        reading.setTimestamp(LocalDateTime.of(2024, 1, 1, 9, 0));
+        return reading;
+    }
+}
@@ -0,0 +1,222 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.RiskOutputFormat;
+import com.chikere.bp.bptracker.repository.PatientReadingStatsRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.support.FakeChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AIRiskAssessmentServiceTest {
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    @Mock
+    private ReadingRepository readingRepository;
+
+    @Mock
+    private PatientReadingStatsRepository patientReadingStatsRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AIRiskAssessmentCache cache;
+    private FakeChatModel chatModel;
+    private AIRiskAssessmentService aiRiskAssessmentService;
+    private Patient patient;
+    private List<Reading> readings;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AIRiskAssessmentCache(meterRegistry);
+        cache.init();
+        useModel(new FakeChatModel(Duration.ZERO, "The readings are elevated.\nMILD_HYPERTENSIVE"));
+
+        patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        readings = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Reading reading = new Reading();
+            reading.setId(UUID.randomUUID());
+            reading.setSystolic(145 + i);
+            reading.setDiastolic(92);
+            reading.setTimestamp(LocalDateTime.of(2024, 1, 1 + i, 9, 0));
+            readings.add(reading);
+        }
+        stubReadings(patient, readings);
+    }
+
+    @Test
+    void repeatedAssessmentOfUnchangedReadingsCallsModelOnce() {
+        assertEquals("MILD_HYPERTENSIVE", aiRiskAssessmentService.assessRiskWithAI(patient.getId()));
+        assertEquals("MILD_HYPERTENSIVE", aiRiskAssessmentService.assessRiskWithAI(patient.getId()));
+
+        assertEquals(1, chatModel.getCalls());
+        verify(readingRepository, times(1)).findAllByPatientOrderByTimestampDesc(patient);
+    }
+
+    @Test
+    void changedReadingValuesCallModelAgain() {
+        aiRiskAssessmentService.assessRiskWithAI(patient.getId());
+        readings.get(0).setSystolic(182);
+
+        aiRiskAssessmentService.assessRiskWithAI(patient.getId());
+
+        assertEquals(2, chatModel.getCalls());
+    }
+
+    @Test
+    void jsonResponseIsBoundToStructuredOutput() {
+        useModel(new FakeChatModel(Duration.ZERO,
+                "{\"riskLevel\":\"MODERATE_HYPERTENSIVE\",\"confidence\":0.8,\"rationale\":\"Readings average 160/100.\"}"));
+
+        assertEquals("MODERATE_HYPERTENSIVE", aiRiskAssessmentService.assessRiskWithAI(patient.getId()));
+
+        assertTrue(patient.getNotes().endsWith("MODERATE_HYPERTENSIVE (confidence 0.80): Readings average 160/100."));
+        assertTrue(chatModel.getLastPrompt().getContents().contains("JSON"));
+        assertEquals(150, chatModel.getLastPrompt().getOptions().getMaxTokens());
+        assertEquals(1, meterRegistry.get("ai.risk.output.tokens").tag("format", "json").summary().count());
+    }
+
+    @Test
+    void unparseableJsonFallsBackToLevelInText() {
+        assertEquals("MILD_HYPERTENSIVE", aiRiskAssessmentService.assessRiskWithAI(patient.getId()));
+
+        assertEquals(1, meterRegistry.get("ai.risk.output.parse.failures").counter().count());
+    }
+
+    @Test
+    void textFormatKeepsFreeTextPromptWithoutTokenLimit() {
+        ReflectionTestUtils.setField(aiRiskAssessmentService, "outputFormat", RiskOutputFormat.TEXT);
+
+        assertEquals("MILD_HYPERTENSIVE", aiRiskAssessmentService.assessRiskWithAI(patient.getId()));
+
+        assertTrue(chatModel.getLastPrompt().getContents().contains("explain your reasoning"));
+        assertTrue(meterRegistry.find("ai.risk.output.parse.failures").counters().isEmpty());
+        assertEquals(1, meterRegistry.get("ai.risk.output.tokens").tag("format", "text").summary().count());
+    }
+
+    @Test
+    void promptSummarizesWholeHistoryAndNewHistoryCallsModelAgain() {
+        aiRiskAssessmentService.assessRiskWithAI(patient.getId());
+        Reading older = new Reading();
+        older.setId(UUID.randomUUID());
+        older.setSystolic(120);
+        older.setDiastolic(80);
+        older.setTimestamp(LocalDateTime.of(2023, 12, 1, 9, 0));
+        readings.add(older);
+
+        aiRiskAssessmentService.assessRiskWithAI(patient.getId());
+
+        assertEquals(2, chatModel.getCalls());
+        String prompt = chatModel.getLastPrompt().getContents();
+        assertTrue(prompt.contains("- 4 readings over 33 days"));
+        assertEquals(3, prompt.split("Systolic: ").length - 1);
+    }
+
+    @Test
+    void batchAssessesSeveralPatientsWithOnePrompt() {
+        Patient other = patientWithReadings(185, 112);
+        useModel(new FakeChatModel(Duration.ZERO, """
+                {"assessments":[
+                  {"patient":"P2","riskLevel":"SEVERE_HYPERTENSIVE","confidence":0.9,"rationale":"Readings average 185/112."},
+                  {"patient":"P1","riskLevel":"MILD_HYPERTENSIVE","confidence":0.8,"rationale":"Readings average 146/92."}
+                ]}"""));
+
+        Map<UUID, String> riskLevels = aiRiskAssessmentService.assessRiskWithAI(List.of(patient.getId(), other.getId()));
+
+        assertEquals(Map.of(patient.getId(), "MILD_HYPERTENSIVE", other.getId(), "SEVERE_HYPERTENSIVE"), riskLevels);
+        assertEquals(1, chatModel.getCalls());
+        assertEquals(300, chatModel.getLastPrompt().getOptions().getMaxTokens());
+        assertTrue(other.getNotes().endsWith("SEVERE_HYPERTENSIVE (confidence 0.90): Readings average 185/112."));
+        assertEquals(1, meterRegistry.get("ai.risk.prompt.tokens").tag("format", "json-batch").summary().count());
+
+        // Both answers were cached, so single assessments do not call the model again
+        assertEquals("SEVERE_HYPERTENSIVE", aiRiskAssessmentService.assessRiskWithAI(other.getId()));
+        assertEquals(1, chatModel.getCalls());
+    }
+
+    @Test
+    void patientMissingFromBatchAnswerIsAssessedOnItsOwn() {
+        Patient other = patientWithReadings(185, 112);
+        useModel(new FakeChatModel(Duration.ZERO, """
+                {"assessments":[
+                  {"patient":"P1","riskLevel":"MILD_HYPERTENSIVE","confidence":0.8,"rationale":"Readings average 146/92."},
+                  {"patient":"P3","riskLevel":"SEVERE_HYPERTENSIVE","confidence":0.9,"rationale":"Readings average 185/112."}
+                ]}"""));
+
+        Map<UUID, String> riskLevels = aiRiskAssessmentService.assessRiskWithAI(List.of(patient.getId(), other.getId()));
+
+        assertEquals("MILD_HYPERTENSIVE", riskLevels.get(patient.getId()));
+        assertEquals(2, chatModel.getCalls());
+        assertEquals(1, meterRegistry.get("ai.risk.batch.prompt.fallbacks").tag("reason", "mapping").counter().count());
+    }
+
+    @Test
+    void unparseableBatchAnswerFallsBackToSingleCalls() {
+        Patient other = patientWithReadings(185, 112);
+
+        Map<UUID, String> riskLevels = aiRiskAssessmentService.assessRiskWithAI(List.of(patient.getId(), other.getId()));
+
+        assertEquals(Map.of(patient.getId(), "MILD_HYPERTENSIVE", other.getId(), "MILD_HYPERTENSIVE"), riskLevels);
+        assertEquals(3, chatModel.getCalls());
+        assertEquals(2, meterRegistry.get("ai.risk.batch.prompt.fallbacks").tag("reason", "parse").counter().count());
+    }
+
+    private Patient patientWithReadings(int systolic, int diastolic) {
+        Patient other = new Patient();
+        other.setId(UUID.randomUUID());
+        List<Reading> otherReadings = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Reading reading = new Reading();
+            reading.setId(UUID.randomUUID());
+            reading.setSystolic(systolic);
+            reading.setDiastolic(diastolic);
+            reading.setTimestamp(LocalDateTime.of(2024, 1, 1 + i, 9, 0));
+            otherReadings.add(reading);
+        }
+        stubReadings(other, otherReadings);
+        return other;
+    }
+
+    private void stubReadings(Patient patient, List<Reading> readings) {
+        when(patientRepository.findById(patient.getId())).thenReturn(Optional.of(patient));
+        when(readingRepository.findTop3ByPatientOrderByTimestampDesc(patient))
+                .thenAnswer(invocation -> List.copyOf(readings.subList(0, Math.min(3, readings.size()))));
+        when(readingRepository.countByPatient(patient)).thenAnswer(invocation -> readings.size());
+        when(readingRepository.findAllByPatientOrderByTimestampDesc(patient)).thenReturn(readings);
+    }
+
+    private void useModel(FakeChatModel model) {
+        chatModel = model;
+        aiRiskAssessmentService = new AIRiskAssessmentService(patientRepository, readingRepository,
+                new PatientReadingStatsService(patientReadingStatsRepository, readingRepository, patientRepository,
+                        meterRegistry), ChatClient.builder(chatModel).build(), meterRegistry.counter("ai.service.calls.success"),
+                meterRegistry.counter("ai.service.calls.failure"), meterRegistry, cache,
+                new JTokkitTokenCountEstimator());
+    }
+}
@@ -0,0 +1,73 @@
+package com.chikere.bp.bptracker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatAnswerCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChatAnswerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ChatAnswerCache(meterRegistry);
+        cache.init();
+    }
+
+    @Test
+    void analyzeSeparatesNumbersFromStemmedContentTerms() {
+        ChatAnswerCache.Question question = ChatAnswerCache.analyze("What does my reading of 150/95 mean? Are these readings high?");
+
+        assertEquals("150/95", question.numbers());
+        assertEquals(Map.of("mean", 1, "high", 1), question.terms());
+    }
+
+    @Test
+    void rewordedQuestionWithSameNumbersHits() {
+        cache.put("What does 150/95 mean?", "Mild hypertension.");
+
+        assertEquals("Mild hypertension.", cache.get("what does a blood pressure of 150/95 mean").orElseThrow());
+        assertEquals(1.0, meterRegistry.counter("cache.gets", "cache", "ai-chat-answers", "result", "hit").count());
+    }
+
+    @Test
+    void differentNumbersOrTopicMiss() {
+        cache.put("What does 150/95 mean?", "Mild hypertension.");
+
+        assertTrue(cache.get("What does 160/100 mean?").isEmpty());
+        assertTrue(cache.get("Is 150/95 dangerous during pregnancy?").isEmpty());
+        assertEquals(2.0, meterRegistry.counter("cache.gets", "cache", "ai-chat-answers", "result", "miss").count());
+    }
+
+    @Test
+    void expiredEntriesAreDropped() {
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ZERO);
+        cache.put("What does 150/95 mean?", "Mild hypertension.");
+
+        assertTrue(cache.get("What does 150/95 mean?").isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedWhenFull() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        cache.put("What does 150/95 mean?", "first");
+        cache.put("What does 130/85 mean?", "second");
+        cache.get("What does 150/95 mean?");
+
+        cache.put("What does 120/80 mean?", "third");
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get("What does 130/85 mean?").isEmpty());
+        assertEquals("first", cache.get("What does 150/95 mean?").orElseThrow());
+        assertEquals(1.0, meterRegistry.counter("cache.evictions", "cache", "ai-chat-answers").count());
+    }
+}
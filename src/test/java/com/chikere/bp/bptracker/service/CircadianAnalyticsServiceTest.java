@@ -0,0 +1,126 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.analytics.ReadingSample;
+import com.chikere.bp.bptracker.dto.CircadianReportRunDto;
+import com.chikere.bp.bptracker.mapper.CircadianReportMapper;
+import com.chikere.bp.bptracker.model.CircadianReport;
+import com.chikere.bp.bptracker.repository.CircadianReportRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CircadianAnalyticsServiceTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 3);
+
+    private PatientRepository patientRepository;
+    private ReadingRepository readingRepository;
+    private CircadianReportRepository circadianReportRepository;
+    private CircadianAnalyticsService service;
+
+    @BeforeEach
+    void setUp() {
+        patientRepository = mock(PatientRepository.class);
+        readingRepository = mock(ReadingRepository.class);
+        circadianReportRepository = mock(CircadianReportRepository.class);
+        service = new CircadianAnalyticsService(patientRepository, readingRepository, circadianReportRepository,
+                mock(CircadianReportMapper.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        ReflectionTestUtils.setField(service, "partitionSize", 1);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void runReplacesTheMonthWithOneRowPerPatientWithReadings() {
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        UUID withoutReadings = new UUID(0, 3);
+        when(patientRepository.findIdsAfter(null, Limit.of(2))).thenReturn(List.of(first, second));
+        when(patientRepository.findIdsAfter(second, Limit.of(2))).thenReturn(List.of(withoutReadings));
+        when(patientRepository.findIdsAfter(withoutReadings, Limit.of(2))).thenReturn(List.of());
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 4, 1, 0, 0);
+        when(readingRepository.findSamples(List.of(first, second), from, to)).thenReturn(List.of(
+                new ReadingSample(first, from.withHour(3), 110, 70),
+                new ReadingSample(first, from.withHour(7), 140, 85),
+                new ReadingSample(second, from.withHour(15), 125, 80)));
+        when(readingRepository.findSamples(List.of(withoutReadings), from, to)).thenReturn(List.of());
+        List<CircadianReport> saved = new ArrayList<>();
+        when(circadianReportRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            saved.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+
+        CircadianReportRunDto run = service.run(MONTH);
+
+        verify(circadianReportRepository).deleteUnpublished(LocalDate.of(2024, 3, 1));
+        UUID runId = saved.get(0).getRunId();
+        verify(circadianReportRepository).publish(LocalDate.of(2024, 3, 1), runId);
+        assertEquals("2024-03", run.getReportMonth());
+        assertEquals(2, run.getPatients());
+        assertEquals(3, run.getReadings());
+        assertEquals(2, run.getParallelism());
+        assertEquals(2, saved.size());
+        assertEquals(first, saved.get(0).getPatientId());
+        assertEquals(30.0, saved.get(0).getMorningSurge(), 1e-9);
+        assertEquals(LocalDate.of(2024, 3, 1), saved.get(0).getReportMonth());
+        assertEquals(second, saved.get(1).getPatientId());
+        assertEquals(1, saved.get(1).getReadings());
+        assertEquals(runId, saved.get(1).getRunId());
+        assertFalse(saved.get(0).isPublished());
+    }
+
+    @Test
+    void failedRunDoesNotPublish() {
+        when(patientRepository.findIdsAfter(null, Limit.of(2))).thenReturn(List.of(new UUID(0, 1)));
+        when(readingRepository.findSamples(anyList(), any(), any())).thenThrow(new IllegalStateException("down"));
+
+        assertThrows(IllegalStateException.class, () -> service.run(MONTH));
+
+        verify(circadianReportRepository, never()).publish(any(), any());
+    }
+
+    @Test
+    void reportIsReadForOnePatientOrInPatientOrder() {
+        UUID patientId = UUID.randomUUID();
+        service.getReport(MONTH, patientId, 10);
+        service.getReport(MONTH, null, 5000);
+
+        verify(circadianReportRepository).findByReportMonthAndPatientIdAndPublishedTrue(LocalDate.of(2024, 3, 1), patientId);
+        ArgumentCaptor<Limit> limit = ArgumentCaptor.forClass(Limit.class);
+        verify(circadianReportRepository, times(1)).findByReportMonthAndPublishedTrueOrderByPatientId(eq(LocalDate.of(2024, 3, 1)), limit.capture());
+        assertEquals(CircadianAnalyticsService.MAX_REPORT_ROWS, limit.getValue().max());
+    }
+}
@@ -0,0 +1,183 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.analytics.PressureHistogram;
+import com.chikere.bp.bptracker.dto.CohortPercentilesDto;
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
+import com.chikere.bp.bptracker.model.CohortSketch;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.enums.AgeBand;
+import com.chikere.bp.bptracker.model.enums.CohortDimension;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.repository.CohortSketchRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CohortPercentileServiceTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2024, 3);
+    private static final YearMonth APRIL = YearMonth.of(2024, 4);
+    private static final double[] P50_P90 = {50, 90};
+
+    private ReadingRepository readingRepository;
+    private CohortSketchRepository cohortSketchRepository;
+    private CohortPercentileService service;
+    private Patient man45;
+    private Patient woman72;
+
+    @BeforeEach
+    void setUp() {
+        readingRepository = mock(ReadingRepository.class);
+        cohortSketchRepository = mock(CohortSketchRepository.class);
+        PatientRepository patientRepository = mock(PatientRepository.class);
+        when(cohortSketchRepository.save(any(CohortSketch.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        man45 = patient(Gender.MALE, LocalDate.of(1979, 1, 15), patientRepository);
+        woman72 = patient(Gender.FEMALE, LocalDate.of(1952, 2, 1), patientRepository);
+
+        service = new CohortPercentileService(cohortSketchRepository, readingRepository, patientRepository,
+                new SimpleMeterRegistry());
+        service.init();
+    }
+
+    @Test
+    void readingsAreCountedIntoTheirMonthAgeBandAndGender() {
+        for (int systolic = 121; systolic <= 130; systolic++) {
+            record(man45, MARCH, systolic);
+        }
+        record(man45, APRIL, 150);
+        record(woman72, MARCH, 170);
+
+        List<CohortPercentilesDto> all = service.query(MARCH, APRIL, Set.of(), Set.of(), Set.of(), P50_P90);
+        assertEquals(1, all.size());
+        assertEquals(12, all.getFirst().getReadings());
+        assertEquals(126, all.getFirst().getSystolicPercentiles().get("p50"));
+        assertEquals(150, all.getFirst().getSystolicPercentiles().get("p90"));
+
+        List<CohortPercentilesDto> byMonthAndBand = service.query(MARCH, APRIL, Set.of(), Set.of(),
+                Set.of(CohortDimension.MONTH, CohortDimension.AGE_BAND), P50_P90);
+        assertEquals(3, byMonthAndBand.size());
+        assertEquals("2024-03", byMonthAndBand.get(0).getMonth());
+        assertEquals(AgeBand.AGE_40_49, byMonthAndBand.get(0).getAgeBand());
+        assertNull(byMonthAndBand.get(0).getGender());
+        assertEquals(10, byMonthAndBand.get(0).getReadings());
+        assertEquals(AgeBand.AGE_70_79, byMonthAndBand.get(1).getAgeBand());
+        assertEquals("2024-04", byMonthAndBand.get(2).getMonth());
+
+        List<CohortPercentilesDto> women = service.query(MARCH, MARCH, Set.of(), Set.of(Gender.FEMALE),
+                Set.of(CohortDimension.GENDER), new double[]{99.9});
+        assertEquals(Gender.FEMALE, women.getFirst().getGender());
+        assertEquals(170, women.getFirst().getSystolicPercentiles().get("p99.9"));
+    }
+
+    @Test
+    void deletedReadingsAreRemoved() {
+        record(man45, MARCH, 120);
+        record(man45, MARCH, 140);
+
+        service.onReadingChanged(ReadingChangedEvent.deleted(man45.getId(), UUID.randomUUID(),
+                MARCH.atDay(10).atTime(8, 0), 140, 90, 70));
+
+        CohortPercentilesDto row = service.query(MARCH, MARCH, Set.of(), Set.of(), Set.of(), P50_P90).getFirst();
+        assertEquals(1, row.getReadings());
+        assertEquals(120, row.getSystolicPercentiles().get("p90"));
+    }
+
+    @Test
+    void updatedReadingMovesFromItsPreviousBucket() {
+        record(man45, MARCH, 120);
+        record(man45, MARCH, 140);
+
+        service.onReadingChanged(ReadingChangedEvent.updated(man45.getId(), UUID.randomUUID(),
+                APRIL.atDay(2).atTime(8, 0), 135, 85, 70,
+                new ReadingChangedEvent.Previous(man45.getId(), MARCH.atDay(10).atTime(8, 0), 140, 90, 70)));
+
+        verify(cohortSketchRepository, never()).deleteByReportMonth(any());
+        CohortPercentilesDto march = service.query(MARCH, MARCH, Set.of(), Set.of(), Set.of(), P50_P90).getFirst();
+        assertEquals(1, march.getReadings());
+        assertEquals(120, march.getSystolicPercentiles().get("p90"));
+        CohortPercentilesDto april = service.query(APRIL, APRIL, Set.of(), Set.of(), Set.of(), P50_P90).getFirst();
+        assertEquals(1, april.getReadings());
+        assertEquals(135, april.getSystolicPercentiles().get("p50"));
+    }
+
+    @Test
+    void storedBucketsAreLoaded() {
+        CohortSketch sketch = new CohortSketch();
+        sketch.setReportMonth(MARCH.atDay(1));
+        sketch.setAgeBand(AgeBand.AGE_40_49);
+        sketch.setGender(Gender.MALE);
+        PressureHistogram histogram = new PressureHistogram();
+        histogram.add(128, 4);
+        sketch.setSystolicCounts(histogram.toBytes());
+        when(cohortSketchRepository.findAll()).thenReturn(new ArrayList<>(List.of(sketch)));
+
+        service.load();
+
+        CohortPercentilesDto row = service.query(MARCH, MARCH, Set.of(AgeBand.AGE_40_49), Set.of(), Set.of(), P50_P90).getFirst();
+        assertEquals(4, row.getReadings());
+        assertEquals(128, row.getSystolicPercentiles().get("p50"));
+    }
+
+    @Test
+    void percentilesOutsideTheRangeAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.query(MARCH, MARCH, Set.of(), Set.of(), Set.of(), new double[]{0}));
+    }
+
+    private void record(Patient patient, YearMonth month, int systolic) {
+        service.onReadingChanged(ReadingChangedEvent.created(patient.getId(), UUID.randomUUID(),
+                month.atDay(10).atTime(8, 0), systolic, 80, 70));
+    }
+
+    private static Patient patient(Gender gender, LocalDate birthDate, PatientRepository patientRepository) {
+        Patient patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        patient.setGender(gender);
+        patient.setBirthDate(birthDate);
+        when(patientRepository.findById(patient.getId())).thenReturn(Optional.of(patient));
+        return patient;
+    }
+
+    private record Count(int systolic, Gender gender, LocalDate birthDate, long readings)
+            implements ReadingRepository.SystolicCount {
+
+        @Override
+        public int getSystolic() {
+            return systolic;
+        }
+
+        @Override
+        public Gender getGender() {
+            return gender;
+        }
+
+        @Override
+        public LocalDate getBirthDate() {
+            return birthDate;
+        }
+
+        @Override
+        public long getReadings() {
+            return readings;
+        }
+    }
+}
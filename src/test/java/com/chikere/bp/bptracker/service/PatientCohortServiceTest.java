@@ -0,0 +1,159 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.cohort.PatientCohortIndex;
+import com.chikere.bp.bptracker.dto.PatientCohortDto;
+import com.chikere.bp.bptracker.dto.PatientDTO;
+import com.chikere.bp.bptracker.event.PatientChangedEvent;
+import com.chikere.bp.bptracker.event.PatientDeletedEvent;
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
+import com.chikere.bp.bptracker.mapper.PatientMapper;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.enums.Gender;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PatientCohortServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+    private static final UUID FIRST = new UUID(0, 1);
+    private static final UUID SECOND = new UUID(0, 2);
+    private static final UUID THIRD = new UUID(0, 3);
+
+    private PatientRepository patientRepository;
+    private ReadingRepository readingRepository;
+    private PatientCohortService service;
+
+    @BeforeEach
+    void setUp() {
+        patientRepository = mock(PatientRepository.class);
+        readingRepository = mock(ReadingRepository.class);
+        PatientMapper patientMapper = mock(PatientMapper.class);
+        when(patientMapper.toDto(any(Patient.class))).thenAnswer(invocation -> {
+            PatientDTO dto = new PatientDTO();
+            dto.setId(invocation.<Patient>getArgument(0).getId());
+            return dto;
+        });
+        when(patientRepository.findAllById(anyList())).thenAnswer(invocation -> invocation.<List<UUID>>getArgument(0)
+                .reversed().stream().map(PatientCohortServiceTest::patient).toList());
+        service = new PatientCohortService(patientRepository, readingRepository, patientMapper, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "loadPageSize", 2);
+        service.init();
+    }
+
+    @Test
+    void patientsAreLoadedInPagesAndReturnedInIndexOrder() {
+        when(patientRepository.findCohortAttributesAfter(null, Limit.of(2))).thenReturn(List.of(
+                new Attributes(FIRST, Gender.FEMALE, LocalDate.of(1965, 1, 1), "Hypertension", TODAY.atTime(9, 0)),
+                new Attributes(SECOND, Gender.FEMALE, LocalDate.of(1970, 1, 1), "Hypertension", null)));
+        when(patientRepository.findCohortAttributesAfter(SECOND, Limit.of(2))).thenReturn(List.of(
+                new Attributes(THIRD, Gender.MALE, LocalDate.of(1960, 1, 1), null, TODAY.atTime(9, 0))));
+
+        service.load();
+
+        PatientCohortDto cohort = service.query(filter(Set.of(Gender.FEMALE), null), 10);
+        assertEquals(2, cohort.getCount());
+        assertEquals(List.of(FIRST, SECOND), cohort.getPatients().stream().map(PatientDTO::getId).toList());
+        assertEquals(List.of(FIRST), ids(service.query(filter(Set.of(Gender.FEMALE), 30), 1)));
+        assertEquals(1, service.query(filter(Set.of(Gender.FEMALE), null), 1).getPatients().size());
+    }
+
+    @Test
+    void patientAndReadingEventsKeepTheIndexCurrent() {
+        service.onPatientChanged(new PatientChangedEvent(FIRST, Gender.FEMALE, LocalDate.of(1965, 1, 1), "Hypertension"));
+        service.onPatientChanged(new PatientChangedEvent(SECOND, Gender.MALE, LocalDate.of(1965, 1, 1), "Hypertension"));
+        service.onReadingChanged(ReadingChangedEvent.created(FIRST, UUID.randomUUID(), TODAY.atTime(8, 0), 130, 85, 70));
+        service.onReadingChanged(ReadingChangedEvent.created(SECOND, UUID.randomUUID(), TODAY.atTime(8, 0), 130, 85, 70));
+        assertEquals(List.of(FIRST, SECOND), ids(service.query(filter(null, 7), 10)));
+
+        // The deleted reading was the latest one of the first patient
+        when(readingRepository.findLatestTimestamp(FIRST)).thenReturn(TODAY.minusDays(20).atStartOfDay());
+        service.onReadingChanged(ReadingChangedEvent.deleted(FIRST, UUID.randomUUID(), TODAY.atTime(8, 0), 130, 85, 70));
+        service.onPatientDeleted(new PatientDeletedEvent(SECOND));
+
+        assertEquals(List.of(), ids(service.query(filter(null, 7), 10)));
+        assertEquals(List.of(FIRST), ids(service.query(filter(null, 30), 10)));
+    }
+
+    @Test
+    void readingMovedToAnotherPatientRefreshesBothPatients() {
+        service.onPatientChanged(new PatientChangedEvent(FIRST, Gender.FEMALE, LocalDate.of(1965, 1, 1), "Hypertension"));
+        service.onPatientChanged(new PatientChangedEvent(SECOND, Gender.MALE, LocalDate.of(1965, 1, 1), "Hypertension"));
+        UUID readingId = UUID.randomUUID();
+        service.onReadingChanged(ReadingChangedEvent.created(FIRST, readingId, TODAY.atTime(8, 0), 130, 85, 70));
+
+        // The first patient's only reading is moved to the second patient
+        when(readingRepository.findLatestTimestamp(FIRST)).thenReturn(null);
+        when(readingRepository.findLatestTimestamp(SECOND)).thenReturn(TODAY.atTime(8, 0));
+        service.onReadingChanged(ReadingChangedEvent.updated(SECOND, readingId, TODAY.atTime(8, 0), 130, 85, 70,
+                new ReadingChangedEvent.Previous(FIRST, TODAY.atTime(8, 0), 130, 85, 70)));
+
+        assertEquals(List.of(SECOND), ids(service.query(filter(null, 7), 10)));
+    }
+
+    @Test
+    void inconsistentAgeRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.query(
+                new PatientCohortIndex.Filter(null, 65, 50, null, null, TODAY), 10));
+    }
+
+    private static PatientCohortIndex.Filter filter(Set<Gender> genders, Integer readingWithinDays) {
+        return new PatientCohortIndex.Filter(genders, null, null, null, readingWithinDays, TODAY);
+    }
+
+    private static List<UUID> ids(PatientCohortDto cohort) {
+        return cohort.getPatients().stream().map(PatientDTO::getId).toList();
+    }
+
+    private static Patient patient(UUID id) {
+        Patient patient = new Patient();
+        patient.setId(id);
+        return patient;
+    }
+
+    private record Attributes(UUID id, Gender gender, LocalDate birthDate, String knownConditions,
+                              LocalDateTime latestReading) implements PatientRepository.CohortAttributes {
+
+        @Override
+        public UUID getId() {
+            return id;
+        }
+
+        @Override
+        public Gender getGender() {
+            return gender;
+        }
+
+        @Override
+        public LocalDate getBirthDate() {
+            return birthDate;
+        }
+
+        @Override
+        public String getKnownConditions() {
+            return knownConditions;
+        }
+
+        @Override
+        public LocalDateTime getLatestReading() {
+            return latestReading;
+        }
+    }
+}
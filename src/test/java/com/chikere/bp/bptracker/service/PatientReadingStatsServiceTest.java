@@ -0,0 +1,189 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.PatientReadingStatsDto;
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.PatientReadingStats;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.repository.PatientReadingStatsRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PatientReadingStatsServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    private PatientReadingStatsRepository statsRepository;
+    private ReadingRepository readingRepository;
+    private PatientRepository patientRepository;
+    private PatientReadingStatsService service;
+    private Patient patient;
+    private final List<Reading> readings = new ArrayList<>();   // Most recent first, as the repository returns them
+    private PatientReadingStats stored;
+
+    @BeforeEach
+    void setUp() {
+        statsRepository = mock(PatientReadingStatsRepository.class);
+        readingRepository = mock(ReadingRepository.class);
+        patientRepository = mock(PatientRepository.class);
+        patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        when(patientRepository.getReferenceById(patient.getId())).thenReturn(patient);
+        when(readingRepository.findAllByPatientOrderByTimestampDesc(patient)).thenReturn(readings);
+        when(statsRepository.findById(patient.getId())).thenAnswer(invocation -> Optional.ofNullable(stored));
+        when(statsRepository.save(any(PatientReadingStats.class))).thenAnswer(invocation -> {
+            stored = invocation.getArgument(0);
+            return stored;
+        });
+
+        service = new PatientReadingStatsService(statsRepository, readingRepository, patientRepository,
+                new SimpleMeterRegistry());
+        service.init();
+    }
+
+    @Test
+    void newReadingsAreAddedWithoutReadingTheHistory() {
+        int[] systolic = {120, 130, 125, 140, 135};
+        for (int i = 0; i < systolic.length; i++) {
+            record(systolic[i], 80 + i, 70, NOW.plusHours(i));
+        }
+
+        PatientReadingStatsDto stats = service.getStatistics(patient.getId()).orElseThrow();
+        assertEquals(5, stats.getReadings());
+        assertEquals(130.0, stats.getSystolicMean(), 1e-9);
+        // Sample standard deviation of 120, 130, 125, 140, 135
+        assertEquals(Math.sqrt(62.5), stats.getSystolicStdDev(), 1e-9);
+        assertEquals(82.0, stats.getDiastolicMean(), 1e-9);
+        assertEquals(0.0, stats.getHeartRateStdDev(), 1e-9);
+        assertEquals(ewma(0.2, systolic), stats.getSystolicEwma(), 1e-9);
+        assertEquals(NOW.plusHours(4).toString(), LocalDateTime.parse(stats.getLatestTimestamp()).toString());
+        // Only the first reading, for a patient without statistics, loads the readings
+        verify(readingRepository).findAllByPatientOrderByTimestampDesc(patient);
+    }
+
+    @Test
+    void updatedReadingRecomputesFromTheReadings() {
+        Reading first = record(120, 80, 70, NOW);
+        record(140, 90, 80, NOW.plusHours(1));
+
+        first.setSystolic(100);
+        service.onReadingChanged(event(first, false));
+
+        PatientReadingStats stats = stored;
+        assertEquals(2, stats.getReadings());
+        assertEquals(120.0, stats.getSystolicMean(), 1e-9);
+        assertEquals(800.0, stats.getSystolicM2(), 1e-9);
+        assertEquals(ewma(0.2, 100, 140), stats.getSystolicEwma(), 1e-9);
+    }
+
+    @Test
+    void readingMovedToAnotherPatientRecomputesBothPatients() {
+        record(120, 80, 70, NOW);
+        Reading moved = record(140, 90, 80, NOW.plusHours(1));
+        readings.remove(moved);
+        Patient other = new Patient();
+        other.setId(UUID.randomUUID());
+        moved.setPatient(other);
+        when(patientRepository.getReferenceById(other.getId())).thenReturn(other);
+        when(readingRepository.findAllByPatientOrderByTimestampDesc(other)).thenReturn(List.of(moved));
+
+        service.onReadingChanged(ReadingChangedEvent.updated(other.getId(), moved.getId(), moved.getTimestamp(),
+                moved.getSystolic(), moved.getDiastolic(), moved.getHeartRate(),
+                new ReadingChangedEvent.Previous(patient.getId(), moved.getTimestamp(),
+                        moved.getSystolic(), moved.getDiastolic(), moved.getHeartRate())));
+
+        verify(statsRepository).save(argThat(stats -> stats.getPatientId().equals(other.getId())
+                && stats.getReadings() == 1 && stats.getSystolicMean() == 140.0));
+        assertEquals(patient.getId(), stored.getPatientId());
+        assertEquals(1, stored.getReadings());
+        assertEquals(120.0, stored.getSystolicMean(), 1e-9);
+    }
+
+    @Test
+    void readingOlderThanTheLatestRecomputesInTimeOrder() {
+        record(120, 80, 70, NOW);
+        record(140, 90, 80, NOW.plusHours(2));
+        record(100, 70, 60, NOW.plusHours(1));
+
+        assertEquals(ewma(0.2, 120, 100, 140), stored.getSystolicEwma(), 1e-9);
+        assertEquals(NOW.plusHours(2), stored.getLatestTimestamp());
+    }
+
+    @Test
+    void deletingTheLastReadingRemovesTheStatistics() {
+        Reading reading = record(120, 80, 70, NOW);
+        readings.remove(reading);
+
+        service.onReadingChanged(ReadingChangedEvent.deleted(patient.getId(), reading.getId(), reading.getTimestamp(),
+                reading.getSystolic(), reading.getDiastolic(), reading.getHeartRate()));
+
+        verify(statsRepository).delete(any(PatientReadingStats.class));
+    }
+
+    @Test
+    void statisticsAreComputedOnFirstViewOnlyIfThePatientHasReadings() {
+        assertTrue(service.getStatistics(patient.getId()).isEmpty());
+        verify(statsRepository, never()).save(any());
+
+        readings.add(reading(130, 85, 72, NOW));
+        assertEquals(130.0, service.getStatistics(patient.getId()).orElseThrow().getSystolicMean(), 1e-9);
+    }
+
+    /**
+     * Stores a new reading and publishes it as {@code ReadingService} does.
+     */
+    private Reading record(int systolic, int diastolic, int heartRate, LocalDateTime timestamp) {
+        Reading reading = reading(systolic, diastolic, heartRate, timestamp);
+        readings.add(reading);
+        readings.sort((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
+        service.onReadingChanged(event(reading, true));
+        return reading;
+    }
+
+    private Reading reading(int systolic, int diastolic, int heartRate, LocalDateTime timestamp) {
+        Reading reading = new Reading();
+        reading.setId(UUID.randomUUID());
+        reading.setPatient(patient);
+        reading.setSystolic(systolic);
+        reading.setDiastolic(diastolic);
+        reading.setHeartRate(heartRate);
+        reading.setTimestamp(timestamp);
+        return reading;
+    }
+
+    private ReadingChangedEvent event(Reading reading, boolean created) {
+        return created
+                ? ReadingChangedEvent.created(patient.getId(), reading.getId(), reading.getTimestamp(),
+                        reading.getSystolic(), reading.getDiastolic(), reading.getHeartRate())
+                : ReadingChangedEvent.updated(patient.getId(), reading.getId(), reading.getTimestamp(),
+                        reading.getSystolic(), reading.getDiastolic(), reading.getHeartRate(),
+                        new ReadingChangedEvent.Previous(patient.getId(), reading.getTimestamp(),
+                                reading.getSystolic(), reading.getDiastolic(), reading.getHeartRate()));
+    }
+
+    private static double ewma(double alpha, int... values) {
+        double ewma = values[0];
+        for (int i = 1; i < values.length; i++) {
+            ewma += alpha * (values[i] - ewma);
+        }
+        return ewma;
+    }
+}
@@ -1,5 +1,7 @@
 package com.chikere.bp.bptracker.service;
 
+import com.chikere.bp.bptracker.event.PatientChangedEvent;
+import com.chikere.bp.bptracker.event.PatientDeletedEvent;
 import com.chikere.bp.bptracker.model.Patient;
 import com.chikere.bp.bptracker.repository.PatientRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,6 +23,9 @@ class PatientServiceTest {
     @Mock
     private PatientRepository patientRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private PatientService patientService;
 
@@ -43,6 +49,15 @@ class PatientServiceTest {
 
         assertEquals(patient, result);
         verify(patientRepository, times(1)).save(patient);
+        verify(eventPublisher).publishEvent(new PatientChangedEvent(patientId, null, null, null));
+    }
+
+    @Test
+    void deletesPatientAndPublishesTheDeletion() {
+        patientService.deletePatient(patientId);
+
+        verify(patientRepository).deleteById(patientId);
+        verify(eventPublisher).publishEvent(new PatientDeletedEvent(patientId));
     }
 
     @Test
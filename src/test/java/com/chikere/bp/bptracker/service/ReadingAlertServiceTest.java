@@ -0,0 +1,156 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
+import com.chikere.bp.bptracker.mapper.ReadingAlertMapper;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.ReadingAlert;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingAlertRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadingAlertServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    @TempDir
+    private Path dir;
+
+    private ReadingRepository readingRepository;
+    private ReadingAlertRepository readingAlertRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ReadingAlertService service;
+    private UUID patientId;
+
+    @BeforeEach
+    void setUp() {
+        readingRepository = mock(ReadingRepository.class);
+        readingAlertRepository = mock(ReadingAlertRepository.class);
+        PatientRepository patientRepository = mock(PatientRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        patientId = UUID.randomUUID();
+        Patient patient = new Patient();
+        patient.setId(patientId);
+        when(patientRepository.getReferenceById(patientId)).thenReturn(patient);
+
+        service = new ReadingAlertService(readingRepository, patientRepository, readingAlertRepository,
+                mock(ReadingAlertMapper.class), meterRegistry);
+        ReflectionTestUtils.setField(service, "rulesPath", dir.resolve("alert-rules.txt"));
+    }
+
+    @Test
+    void clusterOfHighReadingsRaisesOneStoredAlert() {
+        service.init();
+        // The first reading of a patient loads the window with the earlier readings
+        when(readingRepository.findByPatientAndTimestampGreaterThanEqualOrderByTimestampDesc(any(), any(), any(Limit.class)))
+                .thenReturn(List.of(reading(NOW.minusHours(5), 165, 95), reading(NOW.minusHours(3), 150, 102)));
+
+        service.onReadingChanged(event(NOW, 170, 90));
+        service.onReadingChanged(event(NOW.plusHours(1), 175, 90));
+
+        ArgumentCaptor<ReadingAlert> saved = ArgumentCaptor.forClass(ReadingAlert.class);
+        verify(readingAlertRepository).save(saved.capture());
+        assertEquals("severe-cluster", saved.getValue().getRuleName());
+        assertEquals(patientId, saved.getValue().getPatientId());
+        assertEquals(3.0, saved.getValue().getObservedValue());
+        assertEquals(NOW, saved.getValue().getTriggeredAt());
+        assertEquals(NOW.minusHours(5), saved.getValue().getWindowStart());
+        verify(readingRepository, times(1)).findByPatientAndTimestampGreaterThanEqualOrderByTimestampDesc(any(), any(), any(Limit.class));
+        assertEquals(1.0, meterRegistry.get("alerts.raised").tag("rule", "severe-cluster").counter().count());
+        assertEquals(1.0, meterRegistry.get("alerts.suppressed").tag("rule", "severe-cluster").counter().count());
+        assertEquals(2, meterRegistry.get("alerts.evaluation").timer().count());
+    }
+
+    @Test
+    void deletedReadingNoLongerCountsTowardsAlerts() {
+        service.init();
+        ReadingChangedEvent mistake = event(NOW, 185, 125);
+        service.onReadingChanged(event(NOW.minusHours(2), 165, 95));
+        service.onReadingChanged(mistake);
+        service.onReadingChanged(ReadingChangedEvent.deleted(patientId, mistake.readingId(), NOW, 185, 125, 70));
+
+        service.onReadingChanged(event(NOW.plusHours(1), 170, 90));
+
+        verify(readingAlertRepository, never()).save(argThat(alert -> "severe-cluster".equals(alert.getRuleName())));
+    }
+
+    @Test
+    void alertStoredBeforeRestartIsNotRaisedAgain() {
+        service.init();
+        when(readingRepository.findByPatientAndTimestampGreaterThanEqualOrderByTimestampDesc(any(), any(), any(Limit.class)))
+                .thenReturn(List.of(reading(NOW.minusHours(5), 165, 95), reading(NOW.minusHours(3), 150, 102)));
+        ReadingAlert earlier = new ReadingAlert();
+        earlier.setRuleName("severe-cluster");
+        earlier.setTriggeredAt(NOW.minusHours(3));
+        when(readingAlertRepository.findByPatientIdAndTriggeredAtGreaterThanEqual(eq(patientId), any())).thenReturn(List.of(earlier));
+
+        service.onReadingChanged(event(NOW, 170, 90));
+
+        verify(readingAlertRepository, never()).save(any());
+    }
+
+    @Test
+    void rulesAreReadFromTheRulesFile() throws IOException {
+        Files.writeString(dir.resolve("alert-rules.txt"), """
+                # Any reading over 200 systolic
+                extreme: max(systolic) > 200 within 1h
+
+                """);
+        service.init();
+
+        assertEquals(List.of("extreme: max(systolic) > 200 within 1h"), service.getRules());
+    }
+
+    @Test
+    void invalidRulesFileFallsBackToBuiltInRules() throws IOException {
+        Files.writeString(dir.resolve("alert-rules.txt"), "extreme: max(systolic) >> 200 within 1h");
+        service.init();
+
+        assertEquals(ReadingAlertService.DEFAULT_RULES, service.getRules());
+    }
+
+    @Test
+    void parseErrorsNameTheLine() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ReadingAlertService.parseRules(List.of("# comment", "bad rule")));
+        assertEquals("line 2: Expected ':' but found 'rule'", e.getMessage());
+    }
+
+    private ReadingChangedEvent event(LocalDateTime timestamp, int systolic, int diastolic) {
+        return ReadingChangedEvent.created(patientId, UUID.randomUUID(), timestamp, systolic, diastolic, 70);
+    }
+
+    private static Reading reading(LocalDateTime timestamp, int systolic, int diastolic) {
+        Reading reading = new Reading();
+        reading.setId(UUID.randomUUID());
+        reading.setTimestamp(timestamp);
+        reading.setSystolic(systolic);
+        reading.setDiastolic(diastolic);
+        return reading;
+    }
+}
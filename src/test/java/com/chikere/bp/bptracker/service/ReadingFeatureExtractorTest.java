@@ -0,0 +1,110 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.model.Reading;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReadingFeatureExtractorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    @Test
+    void computesStatisticsTrendAndVariability() {
+        List<Reading> readings = List.of(
+                reading(0, 8, 140, 90, 70),
+                reading(7, 8, 144, 92, 0),
+                reading(14, 8, 148, 88, 74));
+
+        ReadingFeatureExtractor.Features features = ReadingFeatureExtractor.extract(readings);
+
+        assertEquals(3, features.count());
+        assertEquals(Duration.ofDays(14), features.span());
+        assertEquals(144, features.systolicMean(), 1e-9);
+        assertEquals(90, features.diastolicMean(), 1e-9);
+        assertEquals(4, features.systolicStdDev(), 1e-9);
+        assertEquals(2, features.diastolicStdDev(), 1e-9);
+        assertEquals(4, features.systolicTrend(), 1e-9);
+        assertEquals(-1, features.diastolicTrend(), 1e-9);
+        assertEquals(54, features.pulsePressureMean(), 1e-9);
+        assertEquals(4, features.systolicArv(), 1e-9);
+        assertEquals(3, features.diastolicArv(), 1e-9);
+        assertEquals(72, features.heartRateMean(), 1e-9);
+    }
+
+    @Test
+    void orderOfReadingsDoesNotChangeFeatures() {
+        List<Reading> readings = new ArrayList<>();
+        for (int day = 0; day < 30; day++) {
+            readings.add(reading(day, day % 2 == 0 ? 7 : 20, 130 + day % 7, 85 + day % 3, 65));
+        }
+        ReadingFeatureExtractor.Features chronological = ReadingFeatureExtractor.extract(readings);
+
+        ReadingFeatureExtractor.Features reversed = ReadingFeatureExtractor.extract(readings.reversed());
+
+        assertEquals(chronological.systolicTrend(), reversed.systolicTrend(), 1e-9);
+        assertEquals(chronological.systolicStdDev(), reversed.systolicStdDev(), 1e-9);
+        assertEquals(chronological.systolicArv(), reversed.systolicArv(), 1e-9);
+        assertEquals(chronological.span(), reversed.span());
+    }
+
+    @Test
+    void accumulatorGivesTheFeaturesOfEveryPrefix() {
+        List<Reading> readings = new ArrayList<>();
+        for (int day = 0; day < 10; day++) {
+            readings.add(reading(day, 8, 128 + day * 3 % 11, 82 + day % 4, 68));
+        }
+        ReadingFeatureExtractor.Accumulator accumulator = new ReadingFeatureExtractor.Accumulator();
+
+        for (int i = 0; i < readings.size(); i++) {
+            accumulator.add(readings.get(i));
+            ReadingFeatureExtractor.Features prefix = ReadingFeatureExtractor.extract(readings.subList(0, i + 1));
+            ReadingFeatureExtractor.Features accumulated = accumulator.features();
+            assertEquals(prefix.count(), accumulated.count());
+            assertEquals(prefix.systolicMean(), accumulated.systolicMean(), 1e-9);
+            assertEquals(prefix.systolicTrend(), accumulated.systolicTrend(), 1e-9);
+            assertEquals(prefix.diastolicArv(), accumulated.diastolicArv(), 1e-9);
+        }
+    }
+
+    @Test
+    void splitsMorningAndEveningReadings() {
+        List<Reading> readings = List.of(
+                reading(0, 7, 150, 95, 70),
+                reading(0, 14, 200, 120, 70),
+                reading(0, 21, 130, 85, 70),
+                reading(1, 6, 154, 97, 70),
+                reading(1, 2, 100, 60, 70));
+
+        ReadingFeatureExtractor.Features features = ReadingFeatureExtractor.extract(readings);
+
+        assertEquals(new ReadingFeatureExtractor.TimeOfDay(2, 152, 96), features.morning());
+        assertEquals(new ReadingFeatureExtractor.TimeOfDay(1, 130, 85), features.evening());
+    }
+
+    @Test
+    void emptyAndSingleReadingHistoriesHaveNoSpread() {
+        assertEquals(0, ReadingFeatureExtractor.extract(List.of()).count());
+
+        ReadingFeatureExtractor.Features single = ReadingFeatureExtractor.extract(List.of(reading(0, 9, 150, 95, 0)));
+
+        assertEquals(150, single.systolicMean(), 1e-9);
+        assertEquals(0, single.systolicStdDev());
+        assertEquals(0, single.systolicTrend());
+        assertEquals(0, single.heartRateMean());
+    }
+
+    private static Reading reading(int day, int hour, int systolic, int diastolic, int heartRate) {
+        Reading reading = new Reading();
+        reading.setTimestamp(START.plusDays(day).withHour(hour));
+        reading.setSystolic(systolic);
+        reading.setDiastolic(diastolic);
+        reading.setHeartRate(heartRate);
+        return reading;
+    }
+}
@@ -0,0 +1,148 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.NewReadingDto;
+import com.chikere.bp.bptracker.dto.QuarantinedReadingDto;
+import com.chikere.bp.bptracker.exception.DuplicateReadingException;
+import com.chikere.bp.bptracker.exception.ReadingQuarantinedException;
+import com.chikere.bp.bptracker.model.QuarantinedReading;
+import com.chikere.bp.bptracker.repository.QuarantinedReadingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadingIngestServiceTest {
+
+    private static final UUID PATIENT = new UUID(0, 1);
+    private static final UUID READING = new UUID(0, 2);
+
+    private QuarantinedReadingRepository quarantinedReadingRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ReadingIngestService service;
+
+    @BeforeEach
+    void setUp() {
+        quarantinedReadingRepository = mock(QuarantinedReadingRepository.class);
+        when(quarantinedReadingRepository.save(any(QuarantinedReading.class))).thenAnswer(invocation -> {
+            QuarantinedReading quarantined = invocation.getArgument(0);
+            quarantined.setId(UUID.randomUUID());
+            return quarantined;
+        });
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ReadingIngestService(quarantinedReadingRepository, meterRegistry);
+        service.init();
+    }
+
+    @Test
+    void plausibleReadingIsAccepted() {
+        assertTrue(service.admit(PATIENT, reading(120, 80, 0, null)).isEmpty());
+
+        assertEquals(1, count("accepted"));
+        verify(quarantinedReadingRepository, never()).save(any());
+    }
+
+    @Test
+    void implausibleReadingIsQuarantinedWithReasons() {
+        ReadingQuarantinedException exception = assertThrows(ReadingQuarantinedException.class,
+                () -> service.admit(PATIENT, reading(300, 295, 72, "cuff-1")));
+
+        ArgumentCaptor<QuarantinedReading> saved = ArgumentCaptor.forClass(QuarantinedReading.class);
+        verify(quarantinedReadingRepository).save(saved.capture());
+        assertEquals(PATIENT, saved.getValue().getPatientId());
+        assertEquals("systolic 300 outside 50-260; diastolic 295 outside 20-180; "
+                + "systolic 300 not at least 10 above diastolic 295", saved.getValue().getReasons());
+        assertTrue(exception.getMessage().contains(saved.getValue().getId().toString()));
+        assertEquals(1, count("quarantined"));
+        assertEquals(0, count("accepted"));
+    }
+
+    @Test
+    void implausibleReadingIsOnlyFlaggedWhenQuarantineIsOff() {
+        ReflectionTestUtils.setField(service, "quarantineImplausible", false);
+
+        assertTrue(service.admit(PATIENT, reading(120, 80, 400, null)).isEmpty());
+
+        assertEquals(1, count("flagged"));
+        assertEquals(1, count("accepted"));
+        verify(quarantinedReadingRepository, never()).save(any());
+    }
+
+    @Test
+    void repeatedDeviceReadingReturnsTheOriginal() {
+        NewReadingDto first = reading(120, 80, 72, "cuff-1");
+        assertTrue(service.admit(PATIENT, first).isEmpty());
+
+        assertThrows(DuplicateReadingException.class, () -> service.admit(PATIENT, reading(120, 80, 72, "cuff-1")));
+
+        service.saved(PATIENT, first, READING);
+        assertEquals(Optional.of(READING), service.admit(PATIENT, reading(120, 80, 72, "cuff-1")));
+        assertEquals(2, count("duplicate"));
+    }
+
+    @Test
+    void readingsWithoutDeviceAreNeverDuplicates() {
+        NewReadingDto first = reading(120, 80, 72, null);
+        service.admit(PATIENT, first);
+        service.saved(PATIENT, first, READING);
+
+        assertTrue(service.admit(PATIENT, reading(120, 80, 72, null)).isEmpty());
+        assertEquals(0, count("duplicate"));
+    }
+
+    @Test
+    void readingNotSavedCanBeSubmittedAgain() {
+        NewReadingDto first = reading(120, 80, 72, "cuff-1");
+        service.admit(PATIENT, first);
+        service.notSaved(PATIENT, first);
+
+        assertTrue(service.admit(PATIENT, reading(120, 80, 72, "cuff-1")).isEmpty());
+    }
+
+    @Test
+    void quarantinedReadingsAreListedWithReasons() {
+        QuarantinedReading quarantined = new QuarantinedReading();
+        quarantined.setId(READING);
+        quarantined.setPatientId(PATIENT);
+        quarantined.setSystolic(300);
+        quarantined.setReasons("systolic 300 outside 50-260; heart rate 400 outside 25-250");
+        quarantined.setReceivedAt(LocalDateTime.of(2024, 6, 15, 9, 30));
+        when(quarantinedReadingRepository.findAllByOrderByReceivedAtDesc(Limit.of(ReadingIngestService.MAX_QUARANTINED)))
+                .thenReturn(List.of(quarantined));
+
+        List<QuarantinedReadingDto> result = service.getQuarantined(5000);
+
+        assertEquals(1, result.size());
+        assertEquals(List.of("systolic 300 outside 50-260", "heart rate 400 outside 25-250"), result.getFirst().getReasons());
+        assertEquals("2024-06-15T09:30:00", result.getFirst().getReceivedAt());
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("readings.ingest").tag("outcome", outcome).counter().count();
+    }
+
+    private static NewReadingDto reading(int systolic, int diastolic, int heartRate, String deviceId) {
+        NewReadingDto reading = new NewReadingDto();
+        reading.setPatientId(PATIENT);
+        reading.setSystolic(systolic);
+        reading.setDiastolic(diastolic);
+        reading.setHeartRate(heartRate);
+        reading.setDeviceId(deviceId);
+        return reading;
+    }
+}
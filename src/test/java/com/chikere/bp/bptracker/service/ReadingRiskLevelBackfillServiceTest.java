@@ -0,0 +1,80 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.RiskLevelBackfillDto;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadingRiskLevelBackfillServiceTest {
+
+    @TempDir
+    private Path dir;
+
+    private ReadingRepository readingRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ReadingRiskLevelBackfillService service;
+
+    @BeforeEach
+    void setUp() {
+        readingRepository = mock(ReadingRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        RiskRuleService riskRuleService = new RiskRuleService(meterRegistry, new ObjectMapper());
+        ReflectionTestUtils.setField(riskRuleService, "rulesPath", dir.resolve("risk-rules.json"));
+        riskRuleService.init();
+        service = new ReadingRiskLevelBackfillService(readingRepository, riskRuleService, meterRegistry);
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        service.init();
+    }
+
+    @Test
+    void onlyReadingsWhoseLevelChangesAreUpdatedPageByPage() {
+        UUID missing = UUID.randomUUID();
+        UUID unchanged = UUID.randomUUID();
+        UUID stale = UUID.randomUUID();
+        when(readingRepository.findPressuresAfter(null, true, Limit.of(2))).thenReturn(List.of(
+                new Pressures(missing, 185, 95, null),
+                new Pressures(unchanged, 120, 85, RiskLevel.NORMAL)));
+        when(readingRepository.findPressuresAfter(unchanged, true, Limit.of(2))).thenReturn(List.of(
+                new Pressures(stale, 150, 85, RiskLevel.NORMAL)));
+        when(readingRepository.updateRiskLevel(any(), any())).thenAnswer(call -> call.<List<UUID>>getArgument(1).size());
+
+        RiskLevelBackfillDto result = service.backfill(true);
+
+        assertEquals(3, result.getReadings());
+        assertEquals(2, result.getUpdated());
+        verify(readingRepository).updateRiskLevel(RiskLevel.SEVERE_HYPERTENSIVE, List.of(missing));
+        verify(readingRepository).updateRiskLevel(RiskLevel.MILD_HYPERTENSIVE, List.of(stale));
+        assertEquals(2.0, meterRegistry.get("risk.level.backfill.updated").counter().count());
+    }
+
+    @Test
+    void nothingIsUpdatedWithoutReadings() {
+        when(readingRepository.findPressuresAfter(null, false, Limit.of(2))).thenReturn(List.of());
+
+        RiskLevelBackfillDto result = service.backfill(false);
+
+        assertEquals(0, result.getReadings());
+        verify(readingRepository, never()).updateRiskLevel(any(), any());
+    }
+
+    private record Pressures(UUID getId, int getSystolic, int getDiastolic, RiskLevel getRiskLevel)
+            implements ReadingRepository.ReadingPressures {
+    }
+}
@@ -2,10 +2,14 @@ package com.chikere.bp.bptracker.service;
 
 import com.chikere.bp.bptracker.dto.NewReadingDto;
 import com.chikere.bp.bptracker.dto.ReadingDto;
+import com.chikere.bp.bptracker.dto.RiskWorklistEntryDto;
+import com.chikere.bp.bptracker.event.ReadingChangedEvent;
 import com.chikere.bp.bptracker.exception.EntityNotFoundException;
 import com.chikere.bp.bptracker.mapper.ReadingMapper;
 import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.QuarantinedReading;
 import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
 import com.chikere.bp.bptracker.repository.PatientRepository;
 import com.chikere.bp.bptracker.repository.ReadingRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,7 +17,11 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -33,6 +41,15 @@ class ReadingServiceTest {
     @Mock
     private ReadingMapper readingMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private RiskRuleService riskRuleService;
+
+    @Mock
+    private ReadingIngestService readingIngestService;
+
     @InjectMocks
     private ReadingService readingService;
 
@@ -81,6 +98,7 @@ class ReadingServiceTest {
         // Setup mocks
         when(patientRepository.findById(patientId)).thenReturn(Optional.of(patient));
         when(readingMapper.toEntity(newReadingDto)).thenReturn(reading);
+        when(riskRuleService.classify(120, 80)).thenReturn(RiskLevel.NORMAL);
         when(readingRepository.save(any(Reading.class))).thenReturn(reading);
         when(readingMapper.toDto(reading)).thenReturn(readingDto);
 
@@ -89,10 +107,13 @@ class ReadingServiceTest {
 
         // Verify results
         assertEquals(readingDto, result);
+        assertEquals(RiskLevel.NORMAL, reading.getRiskLevel());
         verify(patientRepository, times(1)).findById(patientId);
         verify(readingMapper, times(1)).toEntity(newReadingDto);
         verify(readingRepository, times(1)).save(any(Reading.class));
         verify(readingMapper, times(1)).toDto(reading);
+        verify(eventPublisher, times(1)).publishEvent(
+                ReadingChangedEvent.created(patientId, readingId, reading.getTimestamp(), 120, 80, reading.getHeartRate()));
     }
 
     @Test
@@ -107,12 +128,72 @@ class ReadingServiceTest {
         verify(patientRepository, times(1)).findById(patientId);
     }
 
+    @Test
+    void createsReturnsOriginalReadingForDuplicate() {
+        newReadingDto.setDeviceId("cuff-1");
+        when(patientRepository.findById(patientId)).thenReturn(Optional.of(patient));
+        when(readingIngestService.admit(patientId, newReadingDto)).thenReturn(Optional.of(readingId));
+        when(readingRepository.findById(readingId)).thenReturn(Optional.of(reading));
+        when(readingMapper.toDto(reading)).thenReturn(readingDto);
+
+        assertEquals(readingDto, readingService.create(newReadingDto));
+
+        verify(readingRepository, never()).save(any(Reading.class));
+        verify(eventPublisher, never()).publishEvent(any());
+        verify(readingIngestService, never()).saved(any(), any(), any());
+    }
+
+    @Test
+    void createsReleasesClaimWhenSaveFails() {
+        when(patientRepository.findById(patientId)).thenReturn(Optional.of(patient));
+        when(readingMapper.toEntity(newReadingDto)).thenReturn(reading);
+        when(readingRepository.save(any(Reading.class))).thenThrow(new IllegalStateException("database down"));
+
+        assertThrows(IllegalStateException.class, () -> readingService.create(newReadingDto));
+
+        verify(readingIngestService).notSaved(patientId, newReadingDto);
+        verify(readingIngestService, never()).saved(any(), any(), any());
+    }
+
+    @Test
+    void releasesQuarantinedReadingWithoutScreeningIt() {
+        UUID quarantineId = UUID.randomUUID();
+        QuarantinedReading quarantined = new QuarantinedReading();
+        quarantined.setId(quarantineId);
+        quarantined.setPatientId(patientId);
+        quarantined.setSystolic(120);
+        quarantined.setDiastolic(80);
+        quarantined.setReceivedAt(LocalDateTime.of(2025, 3, 1, 8, 30));
+        when(readingIngestService.getQuarantinedReading(quarantineId)).thenReturn(quarantined);
+        when(patientRepository.findById(patientId)).thenReturn(Optional.of(patient));
+        when(readingMapper.toEntity(any(NewReadingDto.class))).thenReturn(reading);
+        when(readingRepository.save(any(Reading.class))).thenReturn(reading);
+        when(readingMapper.toDto(reading)).thenReturn(readingDto);
+
+        assertEquals(readingDto, readingService.releaseFromQuarantine(quarantineId));
+        assertEquals(LocalDateTime.of(2025, 3, 1, 8, 30), reading.getTimestamp());
+
+        verify(readingIngestService, never()).admit(any(), any());
+        verify(readingIngestService).discard(quarantineId);
+        verify(eventPublisher).publishEvent(ReadingChangedEvent.created(patientId, readingId,
+                LocalDateTime.of(2025, 3, 1, 8, 30), 120, 80, reading.getHeartRate()));
+    }
+
     @Test
     void updatesReadingSuccessfully() {
+        Reading existing = new Reading();
+        existing.setId(readingId);
+        existing.setPatient(patient);
+        existing.setTimestamp(LocalDateTime.of(2025, 1, 31, 23, 0));
+        existing.setSystolic(150);
+        existing.setDiastolic(95);
+        existing.setHeartRate(70);
+
         // Setup mocks
-        when(readingRepository.existsById(readingId)).thenReturn(true);
+        when(readingRepository.findById(readingId)).thenReturn(Optional.of(existing));
         when(patientRepository.findById(patientId)).thenReturn(Optional.of(patient));
         when(readingMapper.toEntity(readingDto)).thenReturn(reading);
+        when(riskRuleService.classify(120, 80)).thenReturn(RiskLevel.NORMAL);
         when(readingRepository.save(any(Reading.class))).thenReturn(reading);
         when(readingMapper.toDto(reading)).thenReturn(readingDto);
 
@@ -121,22 +202,53 @@ class ReadingServiceTest {
 
         // Verify results
         assertEquals(readingDto, result);
-        verify(readingRepository, times(1)).existsById(readingId);
+        assertEquals(RiskLevel.NORMAL, reading.getRiskLevel());
+        verify(readingRepository, times(1)).findById(readingId);
         verify(patientRepository, times(1)).findById(patientId);
         verify(readingMapper, times(1)).toEntity(readingDto);
         verify(readingRepository, times(1)).save(any(Reading.class));
         verify(readingMapper, times(1)).toDto(reading);
+        verify(eventPublisher).publishEvent(ReadingChangedEvent.updated(patientId, readingId, reading.getTimestamp(),
+                120, 80, reading.getHeartRate(),
+                new ReadingChangedEvent.Previous(patientId, existing.getTimestamp(), 150, 95, 70)));
     }
 
     @Test
     void updateThrowsExceptionWhenReadingNotFound() {
         // Setup mocks
-        when(readingRepository.existsById(readingId)).thenReturn(false);
+        when(readingRepository.findById(readingId)).thenReturn(Optional.empty());
 
         // Call service method and verify exception
         assertThrows(EntityNotFoundException.class, () -> readingService.update(readingId, readingDto));
 
         // Verify repository was called
-        verify(readingRepository, times(1)).existsById(readingId);
+        verify(readingRepository, times(1)).findById(readingId);
+    }
+
+    @Test
+    void riskWorklistCombinesLevelsPerPatientMostSevereFirst() {
+        UUID otherPatientId = UUID.randomUUID();
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(7);
+        when(readingRepository.countByPatientAndRiskLevel(
+                EnumSet.of(RiskLevel.MODERATE_HYPERTENSIVE, RiskLevel.SEVERE_HYPERTENSIVE), from, to))
+                .thenReturn(List.of(
+                        new Count(otherPatientId, RiskLevel.MODERATE_HYPERTENSIVE, 4, from.plusDays(6)),
+                        new Count(patientId, RiskLevel.MODERATE_HYPERTENSIVE, 2, from.plusDays(5)),
+                        new Count(patientId, RiskLevel.SEVERE_HYPERTENSIVE, 1, from.plusDays(2))));
+
+        List<RiskWorklistEntryDto> worklist = readingService.getRiskWorklist(RiskLevel.MODERATE_HYPERTENSIVE, from, to);
+
+        assertEquals(2, worklist.size());
+        assertEquals(patientId, worklist.get(0).getPatientId());
+        assertEquals(RiskLevel.SEVERE_HYPERTENSIVE, worklist.get(0).getHighestRiskLevel());
+        assertEquals(3, worklist.get(0).getReadings());
+        assertEquals("2024-01-06T00:00:00", worklist.get(0).getLatestTimestamp());
+        assertEquals(otherPatientId, worklist.get(1).getPatientId());
+        assertEquals(RiskLevel.MODERATE_HYPERTENSIVE, worklist.get(1).getHighestRiskLevel());
+    }
+
+    private record Count(UUID getPatientId, RiskLevel getRiskLevel, long getReadings, LocalDateTime getLatestTimestamp)
+            implements ReadingRepository.PatientRiskLevelCount {
     }
 }
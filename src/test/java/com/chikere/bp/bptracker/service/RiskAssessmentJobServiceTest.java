@@ -0,0 +1,264 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.RiskAssessmentJobDto;
+import com.chikere.bp.bptracker.dto.RiskAssessmentResultDto;
+import com.chikere.bp.bptracker.exception.JobQueueFullException;
+import com.chikere.bp.bptracker.mapper.RiskAssessmentJobMapperImpl;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.PatientReadingStats;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.RiskAssessmentJob;
+import com.chikere.bp.bptracker.model.enums.AssessmentSource;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import com.chikere.bp.bptracker.repository.PatientReadingStatsRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.repository.RiskAssessmentJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RiskAssessmentJobServiceTest {
+
+    @Mock
+    private RiskAssessmentJobRepository jobRepository;
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    @Mock
+    private ReadingRepository readingRepository;
+
+    @Mock
+    private PatientReadingStatsRepository statsRepository;
+
+    @Mock
+    private RiskService riskService;
+
+    private final Map<UUID, RiskAssessmentJob> jobs = new ConcurrentHashMap<>();
+    private SimpleMeterRegistry meterRegistry;
+    private RiskAssessmentJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+
+        // Back the job repository with a map so the service sees its own writes
+        when(jobRepository.save(any(RiskAssessmentJob.class))).thenAnswer(invocation -> {
+            RiskAssessmentJob job = invocation.getArgument(0);
+            if (job.getId() == null) {
+                job.setId(UUID.randomUUID());
+                job.setCreatedAt(LocalDateTime.now());
+            }
+            jobs.put(job.getId(), job);
+            return job;
+        });
+        when(jobRepository.findById(any(UUID.class)))
+                .thenAnswer(invocation -> Optional.ofNullable(jobs.get(invocation.<UUID>getArgument(0))));
+        doAnswer(invocation -> jobs.remove(invocation.<RiskAssessmentJob>getArgument(0).getId()))
+                .when(jobRepository).delete(any(RiskAssessmentJob.class));
+        when(jobRepository.findFirstByPatientIdAndLatestReadingIdAndHistoryVersionAndStatusInOrderByCreatedAtDesc(
+                any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    UUID patientId = invocation.getArgument(0);
+                    UUID readingId = invocation.getArgument(1);
+                    String historyVersion = invocation.getArgument(2);
+                    Collection<JobStatus> statuses = invocation.getArgument(3);
+                    return jobs.values().stream()
+                            .filter(job -> job.getPatientId().equals(patientId)
+                                    && job.getLatestReadingId().equals(readingId)
+                                    && Objects.equals(job.getHistoryVersion(), historyVersion)
+                                    && statuses.contains(job.getStatus()))
+                            .max(Comparator.comparing(RiskAssessmentJob::getCreatedAt));
+                });
+
+        PatientReadingStatsService statsService = new PatientReadingStatsService(statsRepository, readingRepository,
+                patientRepository, meterRegistry);
+        jobService = new RiskAssessmentJobService(jobRepository, patientRepository, readingRepository, statsService,
+                riskService, new RiskAssessmentJobMapperImpl(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.shutdown();
+    }
+
+    @Test
+    void submitRunsAssessmentInBackgroundAndReusesCompletedResult() {
+        UUID patientId = patientWithReading();
+        when(riskService.accessRiskWithAI(patientId)).thenReturn("MODERATE");
+        jobService.init();
+
+        RiskAssessmentJobDto submitted = jobService.submit(patientId);
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> jobService.getJob(submitted.getId()).getStatus() == JobStatus.COMPLETED);
+        assertEquals("MODERATE", jobService.getJob(submitted.getId()).getRiskLevel());
+
+        // A second submit for the same latest reading returns the stored result without calling the AI again
+        RiskAssessmentJobDto resubmitted = jobService.submit(patientId);
+        assertEquals(submitted.getId(), resubmitted.getId());
+        assertEquals(JobStatus.COMPLETED, resubmitted.getStatus());
+        assertEquals("MODERATE", jobService.findCompletedJob(patientId).orElseThrow().getRiskLevel());
+        verify(riskService, times(1)).accessRiskWithAI(patientId);
+        assertEquals(1.0, meterRegistry.counter("ai.risk.jobs.reused").count());
+    }
+
+    @Test
+    void changedReadingHistoryIsAssessedAgain() {
+        UUID patientId = patientWithReading();
+        Patient patient = patientRepository.findById(patientId).orElseThrow();
+        when(riskService.accessRiskWithAI(patientId)).thenReturn("MODERATE", "LOW");
+        jobService.init();
+        RiskAssessmentJobDto first = jobService.submit(patientId);
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> jobService.getJob(first.getId()).getStatus() == JobStatus.COMPLETED);
+
+        // An older reading was edited: same latest reading, new history version
+        PatientReadingStats stats = new PatientReadingStats();
+        stats.setPatientId(patientId);
+        stats.setReadings(1);
+        stats.setUpdatedAt(LocalDateTime.now());
+        when(statsRepository.findById(patientId)).thenReturn(Optional.of(stats));
+        assertTrue(jobService.findCompletedJob(patientId).isEmpty());
+        RiskAssessmentJobDto second = jobService.submit(patientId);
+
+        assertNotEquals(first.getId(), second.getId());
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> jobService.getJob(second.getId()).getStatus() == JobStatus.COMPLETED);
+        assertEquals("LOW", jobService.findCompletedJob(patientId).orElseThrow().getRiskLevel());
+        verify(readingRepository, never()).findAllByPatientOrderByTimestampDesc(patient);
+    }
+
+    @Test
+    void unknownResultMarksJobFailedSoItIsRetried() {
+        UUID patientId = patientWithReading();
+        when(riskService.accessRiskWithAI(patientId)).thenReturn("UNKNOWN");
+        jobService.init();
+
+        RiskAssessmentJobDto submitted = jobService.submit(patientId);
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> jobService.getJob(submitted.getId()).getStatus() == JobStatus.FAILED);
+        assertTrue(jobService.findCompletedJob(patientId).isEmpty());
+        assertNotEquals(submitted.getId(), jobService.submit(patientId).getId());
+    }
+
+    @Test
+    void startupFailsUnfinishedJobsAndSubmitDoesNotReuseJobsOfAnotherProcess() {
+        UUID patientId = patientWithReading();
+        when(riskService.accessRiskWithAI(patientId)).thenReturn("LOW");
+        RiskAssessmentJob orphaned = new RiskAssessmentJob();
+        orphaned.setPatientId(patientId);
+        orphaned.setLatestReadingId(readingRepository.findFirstByPatientOrderByTimestampDesc(
+                patientRepository.findById(patientId).orElseThrow()).orElseThrow().getId());
+        orphaned.setHistoryVersion("0");
+        orphaned.setStatus(JobStatus.RUNNING);
+        jobRepository.save(orphaned);
+        jobService.init();
+
+        verify(jobRepository).failAll(eq(EnumSet.of(JobStatus.QUEUED, JobStatus.RUNNING)), eq(JobStatus.FAILED),
+                any(), any());
+        RiskAssessmentJobDto submitted = jobService.submit(patientId);
+
+        assertNotEquals(orphaned.getId(), submitted.getId());
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> jobService.getJob(submitted.getId()).getStatus() == JobStatus.COMPLETED);
+    }
+
+    @Test
+    void submitRejectsWhenQueueIsFull() throws InterruptedException {
+        ReflectionTestUtils.setField(jobService, "concurrency", 1);
+        ReflectionTestUtils.setField(jobService, "queueCapacity", 1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(riskService.accessRiskWithAI(any(UUID.class))).thenAnswer(invocation -> {
+            release.await();
+            return "LOW";
+        });
+        jobService.init();
+
+        RiskAssessmentJobDto running = jobService.submit(patientWithReading());
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> jobService.getJob(running.getId()).getStatus() == JobStatus.RUNNING);
+        jobService.submit(patientWithReading());
+
+        assertThrows(JobQueueFullException.class, () -> jobService.submit(patientWithReading()));
+        assertEquals(2, jobs.size());
+        assertEquals(1.0, meterRegistry.counter("ai.risk.jobs.rejected").count());
+        release.countDown();
+    }
+
+    @Test
+    void assessWithinDeadlineReturnsAiResultWhenInTime() {
+        UUID patientId = patientWithReading();
+        when(riskService.accessRiskWithAI(patientId)).thenReturn("NORMAL");
+        jobService.init();
+
+        RiskAssessmentResultDto result = jobService.assessWithinDeadline(patientId, Duration.ofSeconds(5));
+
+        assertEquals("NORMAL", result.getRiskLevel());
+        assertEquals(AssessmentSource.AI, result.getSource());
+        assertFalse(result.isProvisional());
+        verify(riskService, never()).captureAndAssessImmediateReading(patientId);
+    }
+
+    @Test
+    void assessWithinDeadlineFallsBackToRuleBasedLevelWhenLate() {
+        UUID patientId = patientWithReading();
+        CountDownLatch release = new CountDownLatch(1);
+        when(riskService.accessRiskWithAI(patientId)).thenAnswer(invocation -> {
+            release.await();
+            return "MODERATE_HYPERTENSIVE";
+        });
+        when(riskService.captureAndAssessImmediateReading(patientId)).thenReturn("MILD_HYPERTENSIVE");
+        jobService.init();
+
+        RiskAssessmentResultDto result = jobService.assessWithinDeadline(patientId, Duration.ofMillis(50));
+
+        assertEquals("MILD_HYPERTENSIVE", result.getRiskLevel());
+        assertEquals(AssessmentSource.RULE_BASED, result.getSource());
+        assertTrue(result.isProvisional());
+        assertEquals(1.0, meterRegistry.counter("ai.risk.deadline.fallback", "reason", "deadline").count());
+
+        // The AI result still arrives on the job and is compared with the provisional level
+        release.countDown();
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> jobService.getJob(result.getJobId()).getStatus() == JobStatus.COMPLETED);
+        await().atMost(Duration.ofSeconds(5)).until(() -> meterRegistry.counter("ai.risk.deadline.fallback.resolved",
+                "ai_level", "MODERATE_HYPERTENSIVE", "agreed", "false").count() == 1.0);
+    }
+
+    private UUID patientWithReading() {
+        Patient patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        Reading reading = new Reading();
+        reading.setId(UUID.randomUUID());
+        reading.setPatient(patient);
+        when(patientRepository.findById(patient.getId())).thenReturn(Optional.of(patient));
+        when(readingRepository.findFirstByPatientOrderByTimestampDesc(patient)).thenReturn(Optional.of(reading));
+        return patient.getId();
+    }
+}
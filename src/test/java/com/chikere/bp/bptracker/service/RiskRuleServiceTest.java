@@ -0,0 +1,107 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.exception.EntityNotFoundException;
+import com.chikere.bp.bptracker.model.enums.RiskLevel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RiskRuleServiceTest {
+
+    private static final String RULES = """
+            {
+              "strict": {
+                "thresholds": [
+                  {"level": "SEVERE_HYPERTENSIVE", "systolic": 170, "diastolic": 105},
+                  {"level": "MILD_HYPERTENSIVE", "systolic": 130, "diastolic": 85},
+                  {"level": "NORMAL", "systolic": 90, "diastolic": 60, "match": "ALL"}
+                ],
+                "otherwise": "LOW"
+              }
+            }
+            """;
+
+    @TempDir
+    private Path dir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RiskRuleService service;
+    private Path rulesFile;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        rulesFile = dir.resolve("risk-rules.json");
+        service = new RiskRuleService(meterRegistry, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "rulesPath", rulesFile);
+    }
+
+    @Test
+    void builtInThresholdsAreUsedWithoutRulesFile() {
+        service.init();
+
+        assertEquals(RiskLevel.MILD_HYPERTENSIVE, service.classify(145, 85));
+        assertThrows(EntityNotFoundException.class, () -> service.classify("strict", 145, 85));
+    }
+
+    @Test
+    void changedRulesFileIsPickedUpAndNamedRuleSetsAreKeptApart() throws IOException {
+        service.init();
+        write(RULES, 1);
+
+        assertTrue(service.reloadIfChanged());
+        assertFalse(service.reloadIfChanged());
+
+        assertEquals(RiskLevel.MILD_HYPERTENSIVE, service.classify("strict", 135, 80));
+        assertEquals(RiskLevel.NORMAL, service.classify(135, 80));
+        assertEquals(2.0, meterRegistry.get("risk.rules.sets").gauge().value());
+
+        write(RULES.replace("\"strict\"", "\"default\""), 2);
+
+        assertTrue(service.reloadIfChanged());
+        assertEquals(RiskLevel.MILD_HYPERTENSIVE, service.classify(135, 80));
+    }
+
+    @Test
+    void invalidRulesFileKeepsRulesInUse() throws IOException {
+        write(RULES, 1);
+        service.init();
+        write(RULES.replace("\"systolic\": 170", "\"systolic\": 900"), 2);
+
+        assertFalse(service.reloadIfChanged());
+
+        assertEquals(RiskLevel.SEVERE_HYPERTENSIVE, service.classify("strict", 175, 80));
+        assertEquals(1.0, meterRegistry.get("risk.rules.reloads").tag("outcome", "failure").counter().count());
+    }
+
+    @Test
+    void deletedRulesFileFallsBackToBuiltInThresholds() throws IOException {
+        write(RULES, 1);
+        service.init();
+        Files.delete(rulesFile);
+
+        assertTrue(service.reloadIfChanged());
+
+        assertThrows(EntityNotFoundException.class, () -> service.classify("strict", 145, 85));
+    }
+
+    private void write(String rules, long second) throws IOException {
+        Files.writeString(rulesFile, rules);
+        // Distinct modification times, whatever the file system's timestamp resolution
+        Files.setLastModifiedTime(rulesFile, FileTime.from(Instant.ofEpochSecond(1_700_000_000L + second)));
+    }
+}
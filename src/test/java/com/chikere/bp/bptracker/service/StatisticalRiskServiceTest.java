@@ -0,0 +1,178 @@
+package com.chikere.bp.bptracker.service;
+
+import com.chikere.bp.bptracker.dto.RiskModelTrainingDto;
+import com.chikere.bp.bptracker.exception.RiskModelUnavailableException;
+import com.chikere.bp.bptracker.model.Patient;
+import com.chikere.bp.bptracker.model.Reading;
+import com.chikere.bp.bptracker.model.RiskAssessmentJob;
+import com.chikere.bp.bptracker.model.enums.JobStatus;
+import com.chikere.bp.bptracker.repository.PatientReadingStatsRepository;
+import com.chikere.bp.bptracker.repository.PatientRepository;
+import com.chikere.bp.bptracker.repository.ReadingRepository;
+import com.chikere.bp.bptracker.repository.RiskAssessmentJobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatisticalRiskServiceTest {
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    @Mock
+    private ReadingRepository readingRepository;
+
+    @Mock
+    private RiskAssessmentJobRepository riskAssessmentJobRepository;
+
+    @Mock
+    private PatientReadingStatsRepository statsRepository;
+
+    @TempDir
+    private Path dir;
+
+    private RiskRuleService riskRuleService;
+
+    private StatisticalRiskService service;
+    private final List<UUID> patientIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        riskRuleService = new RiskRuleService(new SimpleMeterRegistry(), new ObjectMapper());
+        ReflectionTestUtils.setField(riskRuleService, "rulesPath", dir.resolve("risk-rules.json"));
+        riskRuleService.init();
+        service = newService();
+
+        Random random = new Random(3);
+        for (int p = 0; p < 60; p++) {
+            Patient patient = new Patient();
+            patient.setId(UUID.randomUUID());
+            List<Reading> history = new ArrayList<>();
+            int systolic = 100 + p * 2;
+            int diastolic = 70 + p;
+            for (int r = 0; r < 5; r++) {
+                Reading reading = new Reading();
+                reading.setId(UUID.randomUUID());
+                reading.setSystolic(systolic + random.nextInt(5));
+                reading.setDiastolic(diastolic + random.nextInt(3));
+                reading.setTimestamp(LocalDateTime.of(2025, 2, 10, 8, 0).minusDays(r));
+                history.add(reading);
+            }
+            when(patientRepository.findById(patient.getId())).thenReturn(Optional.of(patient));
+            when(patientRepository.getReferenceById(patient.getId())).thenReturn(patient);
+            when(readingRepository.findAllByPatientOrderByTimestampDesc(patient)).thenReturn(history);
+            when(riskAssessmentJobRepository.findByPatientIdAndStatus(patient.getId(), JobStatus.COMPLETED)).thenReturn(List.of());
+            patientIds.add(patient.getId());
+        }
+        when(patientRepository.findEligibleIdsAfter(isNull(), anyLong(), any())).thenReturn(patientIds);
+    }
+
+    @Test
+    void assessingBeforeTrainingIsRefused() {
+        assertThrows(RiskModelUnavailableException.class, () -> service.assess(patientIds.get(0)));
+    }
+
+    @Test
+    void trainedModelIsSavedAndLoadedOnStartup() {
+        RiskModelTrainingDto result = service.train();
+
+        assertEquals(300, result.getSamples());
+        assertTrue(result.getTrainingAccuracy() > 0.8, "training accuracy was " + result.getTrainingAccuracy());
+        assertTrue(Files.exists(dir.resolve("risk-model.bin")));
+        assertEquals("LOW", service.assess(patientIds.get(0)));
+        assertEquals("SEVERE_HYPERTENSIVE", service.assess(patientIds.get(59)));
+
+        StatisticalRiskService restarted = newService();
+        assertEquals(service.assess(patientIds.get(30)), restarted.assess(patientIds.get(30)));
+    }
+
+    @Test
+    void featuresAreRecomputedOnlyAfterTheHistoryChanges() {
+        service.train();
+        UUID patientId = patientIds.get(0);
+        Patient patient = patientRepository.findById(patientId).orElseThrow();
+        clearInvocations(readingRepository);
+
+        service.assess(patientId);
+        service.assess(patientId);
+        verify(readingRepository, times(1)).findAllByPatientOrderByTimestampDesc(patient);
+
+        when(readingRepository.countByPatient(patient)).thenReturn(6);
+        service.assess(patientId);
+        verify(readingRepository, times(2)).findAllByPatientOrderByTimestampDesc(patient);
+    }
+
+    @Test
+    void completedAiAssessmentsLabelTheirReadings() {
+        UUID patientId = patientIds.get(0);
+        Patient patient = patientRepository.findById(patientId).orElseThrow();
+        RiskAssessmentJob job = new RiskAssessmentJob();
+        job.setPatientId(patientId);
+        job.setLatestReadingId(readingRepository.findAllByPatientOrderByTimestampDesc(patient).get(0).getId());
+        job.setStatus(JobStatus.COMPLETED);
+        job.setRiskLevel("MILD_HYPERTENSIVE");
+        when(riskAssessmentJobRepository.findByPatientIdAndStatus(patientId, JobStatus.COMPLETED)).thenReturn(List.of(job));
+
+        assertEquals(1, service.train().getAiLabelledSamples());
+    }
+
+    @Test
+    void samplesPerPatientAreCappedAndSpacedFromTheLatest() {
+        ReflectionTestUtils.setField(service, "maxSamplesPerPatient", 2);
+
+        // Of 5 readings, the newest and the one 3 before it
+        assertEquals(120, service.train().getSamples());
+    }
+
+    @Test
+    void trainingRunsInTheBackground() {
+        RiskModelTrainingDto started = service.startTraining();
+
+        assertEquals(JobStatus.RUNNING, started.getStatus());
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> service.getLastTraining().orElseThrow().getStatus() != JobStatus.RUNNING);
+        RiskModelTrainingDto finished = service.getLastTraining().orElseThrow();
+        assertEquals(JobStatus.COMPLETED, finished.getStatus());
+        assertEquals(300, finished.getSamples());
+        assertEquals(started.getStartedAt(), finished.getStartedAt());
+        assertTrue(service.isModelAvailable());
+    }
+
+    private StatisticalRiskService newService() {
+        StatisticalRiskService created = new StatisticalRiskService(patientRepository, readingRepository,
+                riskAssessmentJobRepository, new SimpleMeterRegistry(), riskRuleService,
+                new PatientReadingStatsService(statsRepository, readingRepository, patientRepository,
+                        new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(created, "modelPath", dir.resolve("risk-model.bin"));
+        created.init();
+        return created;
+    }
+}
@@ -0,0 +1,93 @@
+package com.chikere.bp.bptracker.support;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the OpenAI chat model used by tests.
+ * Answers every prompt with a canned response after a configurable latency. Streamed responses
+ * emit the canned response word by word, one word per token interval. Latency can be raised and
+ * failures switched on while a test runs, to simulate a provider that slows down or errors.
+ */
+public class FakeChatModel implements ChatModel {
+
+    private volatile Duration latency;
+    private volatile boolean failing;
+    private final Duration tokenInterval;
+    private final String response;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger cancelledStreams = new AtomicInteger();
+    private volatile Prompt lastPrompt;
+
+    public FakeChatModel(Duration latency, String response) {
+        this(latency, Duration.ZERO, response);
+    }
+
+    public FakeChatModel(Duration latency, Duration tokenInterval, String response) {
+        this.latency = latency;
+        this.tokenInterval = tokenInterval;
+        this.response = response;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        calls.incrementAndGet();
+        lastPrompt = prompt;
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating response", e);
+        }
+        if (failing) {
+            throw new IllegalStateException("Simulated provider failure");
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(response))));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        calls.incrementAndGet();
+        lastPrompt = prompt;
+        if (failing) {
+            return Flux.<ChatResponse>error(new IllegalStateException("Simulated provider failure")).delaySubscription(latency);
+        }
+        String[] words = response.split("(?<= )");
+        Flux<String> tokens = Flux.fromArray(words);
+        if (!tokenInterval.isZero()) {
+            tokens = tokens.delayElements(tokenInterval);
+        }
+        return tokens
+                .delaySubscription(latency)
+                .map(token -> new ChatResponse(List.of(new Generation(new AssistantMessage(token)))))
+                .doOnCancel(cancelledStreams::incrementAndGet);
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public int getCalls() {
+        return calls.get();
+    }
+
+    public int getCancelledStreams() {
+        return cancelledStreams.get();
+    }
+
+    public Prompt getLastPrompt() {
+        return lastPrompt;
+    }
+}